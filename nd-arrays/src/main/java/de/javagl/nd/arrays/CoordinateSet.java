@@ -0,0 +1,703 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.arrays;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import de.javagl.nd.tuples.Order;
+import de.javagl.nd.tuples.Tuple;
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.IntTuples;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+/**
+ * A compact set of coordinates inside a bounding box.<br>
+ * <br>
+ * The coordinates are converted into 1D indices inside the bounding box,
+ * using a given {@link Order}. The indices are stored in a compressed 
+ * bitmap: The upper bits of the indices select a container, and the 
+ * lower 16 bits are stored in the container, either as a sorted array 
+ * (for sparse containers) or as a bitmap with 2<sup>16</sup> bits 
+ * (for dense containers). This requires about 2 bytes per coordinate for
+ * sparse sets, and 1 bit per coordinate for dense sets. The operations 
+ * for computing the {@link #union(CoordinateSet) union}, 
+ * {@link #intersection(CoordinateSet) intersection} and 
+ * {@link #difference(CoordinateSet) difference} of sets operate on
+ * whole containers.<br>
+ * <br>
+ * The {@link #iterator() iterator} returns the coordinates in the
+ * {@link Order} of this set. This is the same order in which they are
+ * returned by the iterators of the <code>IntTupleIterables</code> 
+ * methods, when they receive the same order and bounding box.<br>
+ * <br>
+ * This class is not thread-safe.
+ */
+public final class CoordinateSet implements Iterable<MutableIntTuple>
+{
+    /**
+     * The maximum total size of the bounding box
+     */
+    private static final long MAX_TOTAL_SIZE = 1L << 47;
+    
+    /**
+     * The order of the coordinates
+     */
+    private final Order order;
+    
+    /**
+     * The minimum of the bounding box, inclusive
+     */
+    private final IntTuple min;
+    
+    /**
+     * The maximum of the bounding box, exclusive
+     */
+    private final IntTuple max;
+    
+    /**
+     * The strides of the dimensions, for computing the 1D indices
+     */
+    private final long strides[];
+    
+    /**
+     * The indices of the dimensions, sorted by decreasing stride
+     */
+    private final int dimensionOrder[];
+    
+    /**
+     * The sorted keys of the containers, which are the upper bits 
+     * of the indices
+     */
+    private int keys[];
+    
+    /**
+     * The containers
+     */
+    private CoordinateSetContainer containers[];
+    
+    /**
+     * The number of containers
+     */
+    private int numContainers;
+    
+    /**
+     * The number of coordinates in this set
+     */
+    private long cardinality;
+    
+    /**
+     * Creates a new, empty set for the coordinates that are greater than
+     * or equal to zero and smaller than the given size, using the 
+     * {@link Order#LEXICOGRAPHICAL lexicographical} order.
+     * 
+     * @param size The size of the bounding box
+     * @throws NullPointerException If the given size is <code>null</code>
+     * @throws IllegalArgumentException If the given size is negative
+     * along any dimension, or the total size is larger than 
+     * 2<sup>47</sup>
+     */
+    public CoordinateSet(IntTuple size)
+    {
+        this(Order.LEXICOGRAPHICAL, IntTuples.create(size.getSize()), size);
+    }
+    
+    /**
+     * Creates a new, empty set for the coordinates in the given bounding 
+     * box, using the given {@link Order}.<br>
+     * <br>
+     * Copies of the given tuples will be stored internally.<br>
+     * 
+     * @param order The order
+     * @param min The minimum of the bounding box, inclusive
+     * @param max The maximum of the bounding box, exclusive
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If the given tuples do not 
+     * have the same {@link Tuple#getSize() size}, or any element of 
+     * the minimum is larger than the corresponding element of the 
+     * maximum, or the total size of the bounding box is larger than 
+     * 2<sup>47</sup>
+     */
+    public CoordinateSet(Order order, IntTuple min, IntTuple max)
+    {
+        Objects.requireNonNull(order, "The order is null");
+        de.javagl.nd.tuples.Utils.checkForEqualSize(min, max);
+        int n = min.getSize();
+        long totalSize = 1;
+        for (int i = 0; i < n; i++)
+        {
+            if (min.get(i) > max.get(i))
+            {
+                throw new IllegalArgumentException(
+                    "Invalid bounding box: " + min + " to " + max);
+            }
+            totalSize *= (long)max.get(i) - min.get(i);
+            if (totalSize > MAX_TOTAL_SIZE)
+            {
+                throw new IllegalArgumentException(
+                    "The bounding box from " + min + " to " + max + 
+                    " is too large");
+            }
+        }
+        this.order = order;
+        this.min = IntTuples.copy(min);
+        this.max = IntTuples.copy(max);
+        this.strides = new long[n];
+        this.dimensionOrder = new int[n];
+        long stride = 1;
+        for (int j = 0; j < n; j++)
+        {
+            int i = order == Order.COLEXICOGRAPHICAL ? j : n - 1 - j;
+            strides[i] = stride;
+            dimensionOrder[n - 1 - j] = i;
+            stride *= (long)max.get(i) - min.get(i);
+        }
+        this.keys = new int[4];
+        this.containers = new CoordinateSetContainer[4];
+    }
+    
+    /**
+     * Creates a new, empty set with the same bounding box and order 
+     * as this one
+     * 
+     * @return The new set
+     */
+    private CoordinateSet createEmpty()
+    {
+        return new CoordinateSet(order, min, max);
+    }
+    
+    /**
+     * Returns the {@link Order} of the coordinates in this set
+     * 
+     * @return The order
+     */
+    public Order getOrder()
+    {
+        return order;
+    }
+    
+    /**
+     * Returns the minimum of the bounding box of this set, inclusive
+     * 
+     * @return The minimum
+     */
+    public IntTuple getMin()
+    {
+        return min;
+    }
+    
+    /**
+     * Returns the maximum of the bounding box of this set, exclusive
+     * 
+     * @return The maximum
+     */
+    public IntTuple getMax()
+    {
+        return max;
+    }
+    
+    /**
+     * Returns the number of coordinates in this set
+     * 
+     * @return The cardinality
+     */
+    public long cardinality()
+    {
+        return cardinality;
+    }
+    
+    /**
+     * Returns whether this set is empty
+     * 
+     * @return Whether this set is empty
+     */
+    public boolean isEmpty()
+    {
+        return cardinality == 0;
+    }
+    
+    /**
+     * Removes all coordinates from this set
+     */
+    public void clear()
+    {
+        Arrays.fill(containers, null);
+        numContainers = 0;
+        cardinality = 0;
+    }
+    
+    /**
+     * Computes the 1D index of the given coordinates, or -1 if they
+     * are not inside the bounding box
+     * 
+     * @param t The coordinates
+     * @return The index
+     * @throws IllegalArgumentException If the given tuple does not
+     * have the same {@link Tuple#getSize() size} as the bounding box
+     */
+    private long indexOf(IntTuple t)
+    {
+        de.javagl.nd.tuples.Utils.checkForEqualSize(t, min);
+        long index = 0;
+        for (int i = 0; i < strides.length; i++)
+        {
+            int c = t.get(i);
+            if (c < min.get(i) || c >= max.get(i))
+            {
+                return -1;
+            }
+            index += (c - (long)min.get(i)) * strides[i];
+        }
+        return index;
+    }
+    
+    /**
+     * Computes the coordinates for the given 1D index
+     * 
+     * @param index The index
+     * @return The coordinates
+     */
+    private MutableIntTuple coordinatesOf(long index)
+    {
+        MutableIntTuple result = IntTuples.create(strides.length);
+        long remainder = index;
+        for (int i : dimensionOrder)
+        {
+            long q = remainder / strides[i];
+            remainder -= q * strides[i];
+            result.set(i, (int)(q + min.get(i)));
+        }
+        return result;
+    }
+    
+    /**
+     * Returns whether this set contains the given coordinates
+     * 
+     * @param t The coordinates
+     * @return Whether the coordinates are contained in this set
+     * @throws NullPointerException If the given tuple is <code>null</code>
+     * @throws IllegalArgumentException If the given tuple does not
+     * have the same {@link Tuple#getSize() size} as the bounding box
+     */
+    public boolean contains(IntTuple t)
+    {
+        long index = indexOf(t);
+        if (index < 0)
+        {
+            return false;
+        }
+        int c = Arrays.binarySearch(
+            keys, 0, numContainers, (int)(index >>> 16));
+        return c >= 0 && containers[c].contains((int)(index & 0xFFFF));
+    }
+    
+    /**
+     * Adds the given coordinates to this set
+     * 
+     * @param t The coordinates
+     * @return Whether the coordinates have been added, meaning that they
+     * have not yet been contained in this set
+     * @throws NullPointerException If the given tuple is <code>null</code>
+     * @throws IllegalArgumentException If the given tuple does not
+     * have the same {@link Tuple#getSize() size} as the bounding box,
+     * or is not inside the bounding box
+     */
+    public boolean add(IntTuple t)
+    {
+        long index = indexOf(t);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException(
+                "The coordinates " + t + " are not in the bounding box " + 
+                "from " + min + " to " + max);
+        }
+        int key = (int)(index >>> 16);
+        int c = Arrays.binarySearch(keys, 0, numContainers, key);
+        if (c < 0)
+        {
+            c = -c - 1;
+            insertContainer(c, key, new CoordinateSetContainer());
+        }
+        if (containers[c].add((int)(index & 0xFFFF)))
+        {
+            cardinality++;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Adds all the given coordinates to this set
+     * 
+     * @param tuples The coordinates
+     * @throws NullPointerException If the given iterable is 
+     * <code>null</code> or contains <code>null</code> elements
+     * @throws IllegalArgumentException If any of the given tuples does 
+     * not have the same {@link Tuple#getSize() size} as the bounding box,
+     * or is not inside the bounding box
+     */
+    public void addAll(Iterable<? extends IntTuple> tuples)
+    {
+        for (IntTuple t : tuples)
+        {
+            add(t);
+        }
+    }
+    
+    /**
+     * Removes the given coordinates from this set
+     * 
+     * @param t The coordinates
+     * @return Whether the coordinates have been contained in this set
+     * @throws NullPointerException If the given tuple is <code>null</code>
+     * @throws IllegalArgumentException If the given tuple does not
+     * have the same {@link Tuple#getSize() size} as the bounding box
+     */
+    public boolean remove(IntTuple t)
+    {
+        long index = indexOf(t);
+        if (index < 0)
+        {
+            return false;
+        }
+        int c = Arrays.binarySearch(
+            keys, 0, numContainers, (int)(index >>> 16));
+        if (c < 0 || !containers[c].remove((int)(index & 0xFFFF)))
+        {
+            return false;
+        }
+        cardinality--;
+        if (containers[c].cardinality() == 0)
+        {
+            System.arraycopy(keys, c + 1, keys, c, numContainers - c - 1);
+            System.arraycopy(containers, c + 1, 
+                containers, c, numContainers - c - 1);
+            numContainers--;
+            containers[numContainers] = null;
+        }
+        return true;
+    }
+    
+    /**
+     * Insert the given container with the given key at the given position
+     * 
+     * @param position The position
+     * @param key The key
+     * @param container The container
+     */
+    private void insertContainer(
+        int position, int key, CoordinateSetContainer container)
+    {
+        if (numContainers == keys.length)
+        {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            containers = Arrays.copyOf(containers, containers.length * 2);
+        }
+        System.arraycopy(keys, position, 
+            keys, position + 1, numContainers - position);
+        System.arraycopy(containers, position, 
+            containers, position + 1, numContainers - position);
+        keys[position] = key;
+        containers[position] = container;
+        numContainers++;
+        cardinality += container.cardinality();
+    }
+    
+    /**
+     * Append the given container with the given key. If the given 
+     * container is <code>null</code>, nothing is done. 
+     * 
+     * @param key The key, which must be larger than all existing keys
+     * @param container The container
+     */
+    private void appendContainer(int key, CoordinateSetContainer container)
+    {
+        if (container != null)
+        {
+            insertContainer(numContainers, key, container);
+        }
+    }
+    
+    /**
+     * Make sure that the given set has the same bounding box and order 
+     * as this set
+     * 
+     * @param other The other set
+     * @throws NullPointerException If the given set is <code>null</code>
+     * @throws IllegalArgumentException If the given set does not have 
+     * the same bounding box and order as this set
+     */
+    private void checkCompatible(CoordinateSet other)
+    {
+        if (order != other.order || 
+            !min.equals(other.min) || 
+            !max.equals(other.max))
+        {
+            throw new IllegalArgumentException(
+                "The sets do not have the same bounding box and order");
+        }
+    }
+    
+    /**
+     * Returns a new set that contains all coordinates that are contained
+     * in this set or in the given set
+     * 
+     * @param other The other set
+     * @return The union
+     * @throws NullPointerException If the given set is <code>null</code>
+     * @throws IllegalArgumentException If the given set does not have 
+     * the same bounding box and order as this set
+     */
+    public CoordinateSet union(CoordinateSet other)
+    {
+        checkCompatible(other);
+        CoordinateSet result = createEmpty();
+        int i0 = 0;
+        int i1 = 0;
+        while (i0 < numContainers && i1 < other.numContainers)
+        {
+            int k0 = keys[i0];
+            int k1 = other.keys[i1];
+            if (k0 < k1)
+            {
+                result.appendContainer(k0, containers[i0++].copy());
+            }
+            else if (k1 < k0)
+            {
+                result.appendContainer(k1, other.containers[i1++].copy());
+            }
+            else
+            {
+                result.appendContainer(k0, CoordinateSetContainer.or(
+                    containers[i0++], other.containers[i1++]));
+            }
+        }
+        while (i0 < numContainers)
+        {
+            result.appendContainer(keys[i0], containers[i0++].copy());
+        }
+        while (i1 < other.numContainers)
+        {
+            result.appendContainer(
+                other.keys[i1], other.containers[i1++].copy());
+        }
+        return result;
+    }
+    
+    /**
+     * Returns a new set that contains all coordinates that are contained
+     * in this set and in the given set
+     * 
+     * @param other The other set
+     * @return The intersection
+     * @throws NullPointerException If the given set is <code>null</code>
+     * @throws IllegalArgumentException If the given set does not have 
+     * the same bounding box and order as this set
+     */
+    public CoordinateSet intersection(CoordinateSet other)
+    {
+        checkCompatible(other);
+        CoordinateSet result = createEmpty();
+        int i0 = 0;
+        int i1 = 0;
+        while (i0 < numContainers && i1 < other.numContainers)
+        {
+            int k0 = keys[i0];
+            int k1 = other.keys[i1];
+            if (k0 < k1)
+            {
+                i0++;
+            }
+            else if (k1 < k0)
+            {
+                i1++;
+            }
+            else
+            {
+                result.appendContainer(k0, CoordinateSetContainer.and(
+                    containers[i0++], other.containers[i1++]));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns a new set that contains all coordinates that are contained
+     * in this set, but not in the given set
+     * 
+     * @param other The other set
+     * @return The difference
+     * @throws NullPointerException If the given set is <code>null</code>
+     * @throws IllegalArgumentException If the given set does not have 
+     * the same bounding box and order as this set
+     */
+    public CoordinateSet difference(CoordinateSet other)
+    {
+        checkCompatible(other);
+        CoordinateSet result = createEmpty();
+        int i0 = 0;
+        int i1 = 0;
+        while (i0 < numContainers && i1 < other.numContainers)
+        {
+            int k0 = keys[i0];
+            int k1 = other.keys[i1];
+            if (k0 < k1)
+            {
+                result.appendContainer(k0, containers[i0++].copy());
+            }
+            else if (k1 < k0)
+            {
+                i1++;
+            }
+            else
+            {
+                result.appendContainer(k0, CoordinateSetContainer.andNot(
+                    containers[i0++], other.containers[i1++]));
+            }
+        }
+        while (i0 < numContainers)
+        {
+            result.appendContainer(keys[i0], containers[i0++].copy());
+        }
+        return result;
+    }
+    
+    /**
+     * Returns an iterator over the coordinates in this set, in the 
+     * {@link #getOrder() order} of this set. The iterator will return
+     * a new tuple for each coordinate. The set must not be modified
+     * during the iteration. The iterator does not support removal.
+     * 
+     * @return The iterator
+     */
+    @Override
+    public Iterator<MutableIntTuple> iterator()
+    {
+        return new Iterator<MutableIntTuple>()
+        {
+            private int container = 0;
+            private int value = 
+                numContainers == 0 ? -1 : containers[0].nextValue(0);
+            
+            @Override
+            public boolean hasNext()
+            {
+                return value != -1;
+            }
+
+            @Override
+            public MutableIntTuple next()
+            {
+                if (value == -1)
+                {
+                    throw new NoSuchElementException("No more elements");
+                }
+                long index = ((long)keys[container] << 16) | value;
+                value = containers[container].nextValue(value + 1);
+                while (value == -1 && container < numContainers - 1)
+                {
+                    container++;
+                    value = containers[container].nextValue(0);
+                }
+                return coordinatesOf(index);
+            }
+        };
+    }
+    
+    /**
+     * Returns a stream over the coordinates in this set, in the 
+     * {@link #getOrder() order} of this set. The stream will return 
+     * a new tuple for each coordinate. The set must not be modified
+     * while the stream is processed.
+     * 
+     * @return The stream
+     */
+    public Stream<MutableIntTuple> stream()
+    {
+        return StreamSupport.stream(Spliterators.spliterator(
+            iterator(), cardinality, Spliterator.ORDERED | 
+            Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        int result = Objects.hash(order, min, max);
+        for (int i = 0; i < numContainers; i++)
+        {
+            result = 31 * result + keys[i];
+            result = 31 * result + containers[i].hashCode();
+        }
+        return result;
+    }
+    
+    @Override
+    public boolean equals(Object object)
+    {
+        if (this == object)
+        {
+            return true;
+        }
+        if (!(object instanceof CoordinateSet))
+        {
+            return false;
+        }
+        CoordinateSet other = (CoordinateSet)object;
+        if (order != other.order || 
+            !min.equals(other.min) || 
+            !max.equals(other.max) ||
+            cardinality != other.cardinality ||
+            numContainers != other.numContainers)
+        {
+            return false;
+        }
+        for (int i = 0; i < numContainers; i++)
+        {
+            if (keys[i] != other.keys[i] || 
+                !containers[i].equals(other.containers[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "CoordinateSet[" + 
+            "order=" + order + ", min=" + min + ", max=" + max + 
+            ", cardinality=" + cardinality + "]";
+    }
+}
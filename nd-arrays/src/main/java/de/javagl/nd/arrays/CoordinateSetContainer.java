@@ -0,0 +1,543 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.arrays;
+
+import java.util.Arrays;
+
+/**
+ * A container for the lower 16 bits of the indices in a 
+ * {@link CoordinateSet}. <br>
+ * <br>
+ * A container either stores a sorted array of values (when it contains
+ * at most {@link #MAX_ARRAY_SIZE} values), or a bitmap with 
+ * 2<sup>16</sup> bits. The representation is switched automatically
+ * when values are added or removed.
+ */
+final class CoordinateSetContainer
+{
+    /**
+     * The maximum number of values that are stored in an array. Above
+     * this number, the bitmap needs less memory.
+     */
+    static final int MAX_ARRAY_SIZE = 4096;
+    
+    /**
+     * The number of <code>long</code> words in a bitmap
+     */
+    private static final int NUM_WORDS = 1024;
+    
+    /**
+     * The sorted values, if this container is stored as an array
+     */
+    private char values[];
+    
+    /**
+     * The bitmap words, if this container is stored as a bitmap
+     */
+    private long words[];
+    
+    /**
+     * The number of values in this container
+     */
+    private int cardinality;
+    
+    /**
+     * Creates a new, empty container
+     */
+    CoordinateSetContainer()
+    {
+        this.values = new char[4];
+    }
+    
+    /*
+     * Note: The representation of a container is determined by its 
+     * cardinality: Containers with at most MAX_ARRAY_SIZE values are 
+     * always stored as arrays, and larger ones as bitmaps.
+     */
+    
+    /**
+     * Creates a new container that is stored as an array
+     * 
+     * @param values The values. This array will be stored internally.
+     * @param cardinality The number of values
+     */
+    private CoordinateSetContainer(char values[], int cardinality)
+    {
+        this.values = values;
+        this.cardinality = cardinality;
+    }
+    
+    /**
+     * Creates a new container that is stored as a bitmap
+     * 
+     * @param words The bitmap words. This array will be stored internally.
+     * @param cardinality The number of values
+     */
+    private CoordinateSetContainer(long words[], int cardinality)
+    {
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+    
+    /**
+     * Creates a deep copy of this container
+     * 
+     * @return The copy
+     */
+    CoordinateSetContainer copy()
+    {
+        if (words != null)
+        {
+            return new CoordinateSetContainer(words.clone(), cardinality);
+        }
+        return new CoordinateSetContainer(
+            Arrays.copyOf(values, Math.max(4, cardinality)), cardinality);
+    }
+    
+    /**
+     * Returns the number of values in this container
+     * 
+     * @return The cardinality
+     */
+    int cardinality()
+    {
+        return cardinality;
+    }
+    
+    /**
+     * Returns whether this container contains the given value
+     * 
+     * @param value The value, in [0, 65536)
+     * @return Whether the value is contained
+     */
+    boolean contains(int value)
+    {
+        if (words != null)
+        {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+        return Arrays.binarySearch(values, 0, cardinality, (char)value) >= 0;
+    }
+    
+    /**
+     * Adds the given value to this container
+     * 
+     * @param value The value, in [0, 65536)
+     * @return Whether the value was added
+     */
+    boolean add(int value)
+    {
+        if (words != null)
+        {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0)
+            {
+                return false;
+            }
+            words[value >>> 6] |= bit;
+            cardinality++;
+            return true;
+        }
+        int index = Arrays.binarySearch(values, 0, cardinality, (char)value);
+        if (index >= 0)
+        {
+            return false;
+        }
+        if (cardinality == MAX_ARRAY_SIZE)
+        {
+            words = toWords();
+            values = null;
+            return add(value);
+        }
+        int insertion = -index - 1;
+        if (cardinality == values.length)
+        {
+            values = Arrays.copyOf(values, 
+                Math.min(MAX_ARRAY_SIZE, values.length * 2));
+        }
+        System.arraycopy(values, insertion, 
+            values, insertion + 1, cardinality - insertion);
+        values[insertion] = (char)value;
+        cardinality++;
+        return true;
+    }
+    
+    /**
+     * Removes the given value from this container
+     * 
+     * @param value The value, in [0, 65536)
+     * @return Whether the value was removed
+     */
+    boolean remove(int value)
+    {
+        if (words != null)
+        {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0)
+            {
+                return false;
+            }
+            words[value >>> 6] &= ~bit;
+            cardinality--;
+            if (cardinality <= MAX_ARRAY_SIZE)
+            {
+                values = toValues(words, cardinality);
+                words = null;
+            }
+            return true;
+        }
+        int index = Arrays.binarySearch(values, 0, cardinality, (char)value);
+        if (index < 0)
+        {
+            return false;
+        }
+        System.arraycopy(values, index + 1, 
+            values, index, cardinality - index - 1);
+        cardinality--;
+        return true;
+    }
+    
+    /**
+     * Returns the smallest value in this container that is not smaller 
+     * than the given value, or -1 if there is no such value
+     * 
+     * @param from The start value
+     * @return The next value
+     */
+    int nextValue(int from)
+    {
+        if (from >= 65536)
+        {
+            return -1;
+        }
+        if (words != null)
+        {
+            int w = from >>> 6;
+            long word = words[w] & (-1L << from);
+            while (true)
+            {
+                if (word != 0)
+                {
+                    return (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+                w++;
+                if (w == NUM_WORDS)
+                {
+                    return -1;
+                }
+                word = words[w];
+            }
+        }
+        int index = Arrays.binarySearch(values, 0, cardinality, (char)from);
+        if (index < 0)
+        {
+            index = -index - 1;
+        }
+        if (index >= cardinality)
+        {
+            return -1;
+        }
+        return values[index];
+    }
+    
+    /**
+     * Returns the bitmap words of this container. If this container is
+     * stored as a bitmap, then this is a copy of the bitmap.
+     * 
+     * @return The words
+     */
+    private long[] toWords()
+    {
+        if (words != null)
+        {
+            return words.clone();
+        }
+        long result[] = new long[NUM_WORDS];
+        for (int i = 0; i < cardinality; i++)
+        {
+            int v = values[i];
+            result[v >>> 6] |= 1L << v;
+        }
+        return result;
+    }
+    
+    /**
+     * Creates the sorted array of the values that are set in the given 
+     * bitmap
+     * 
+     * @param words The bitmap words
+     * @param cardinality The number of bits that are set
+     * @return The values
+     */
+    private static char[] toValues(long words[], int cardinality)
+    {
+        char result[] = new char[Math.max(4, cardinality)];
+        int n = 0;
+        for (int w = 0; w < NUM_WORDS; w++)
+        {
+            long word = words[w];
+            while (word != 0)
+            {
+                result[n++] = (char)((w << 6) + 
+                    Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Creates a container from the given bitmap words, using the 
+     * array representation if the number of bits that are set is
+     * small enough. Returns <code>null</code> if no bits are set.
+     * 
+     * @param words The words
+     * @return The container
+     */
+    private static CoordinateSetContainer fromWords(long words[])
+    {
+        int cardinality = 0;
+        for (int w = 0; w < NUM_WORDS; w++)
+        {
+            cardinality += Long.bitCount(words[w]);
+        }
+        if (cardinality == 0)
+        {
+            return null;
+        }
+        if (cardinality <= MAX_ARRAY_SIZE)
+        {
+            return new CoordinateSetContainer(
+                toValues(words, cardinality), cardinality);
+        }
+        return new CoordinateSetContainer(words, cardinality);
+    }
+    
+    /**
+     * Creates a container that contains the values of the given container
+     * that are (or are not) contained in the given other container.
+     * Returns <code>null</code> if the result is empty.
+     * 
+     * @param c The container, which must be stored as an array
+     * @param other The other container
+     * @param contained Whether the values must be contained in the
+     * other container
+     * @return The container
+     */
+    private static CoordinateSetContainer filter(
+        CoordinateSetContainer c, CoordinateSetContainer other, 
+        boolean contained)
+    {
+        char result[] = new char[Math.max(4, c.cardinality)];
+        int n = 0;
+        for (int i = 0; i < c.cardinality; i++)
+        {
+            char v = c.values[i];
+            if (other.contains(v) == contained)
+            {
+                result[n++] = v;
+            }
+        }
+        if (n == 0)
+        {
+            return null;
+        }
+        return new CoordinateSetContainer(result, n);
+    }
+    
+    /**
+     * Computes the union of the given containers
+     * 
+     * @param c0 The first container
+     * @param c1 The second container
+     * @return The union
+     */
+    static CoordinateSetContainer or(
+        CoordinateSetContainer c0, CoordinateSetContainer c1)
+    {
+        if (c0.words == null && c1.words == null && 
+            c0.cardinality + c1.cardinality <= MAX_ARRAY_SIZE)
+        {
+            char result[] = new char[Math.max(4, 
+                c0.cardinality + c1.cardinality)];
+            int i0 = 0;
+            int i1 = 0;
+            int n = 0;
+            while (i0 < c0.cardinality && i1 < c1.cardinality)
+            {
+                char v0 = c0.values[i0];
+                char v1 = c1.values[i1];
+                if (v0 < v1)
+                {
+                    result[n++] = v0;
+                    i0++;
+                }
+                else if (v1 < v0)
+                {
+                    result[n++] = v1;
+                    i1++;
+                }
+                else
+                {
+                    result[n++] = v0;
+                    i0++;
+                    i1++;
+                }
+            }
+            while (i0 < c0.cardinality)
+            {
+                result[n++] = c0.values[i0++];
+            }
+            while (i1 < c1.cardinality)
+            {
+                result[n++] = c1.values[i1++];
+            }
+            return new CoordinateSetContainer(result, n);
+        }
+        long words[] = c0.toWords();
+        if (c1.words != null)
+        {
+            for (int w = 0; w < NUM_WORDS; w++)
+            {
+                words[w] |= c1.words[w];
+            }
+        }
+        else
+        {
+            for (int i = 0; i < c1.cardinality; i++)
+            {
+                int v = c1.values[i];
+                words[v >>> 6] |= 1L << v;
+            }
+        }
+        return fromWords(words);
+    }
+    
+    /**
+     * Computes the intersection of the given containers. Returns 
+     * <code>null</code> if the intersection is empty.
+     * 
+     * @param c0 The first container
+     * @param c1 The second container
+     * @return The intersection
+     */
+    static CoordinateSetContainer and(
+        CoordinateSetContainer c0, CoordinateSetContainer c1)
+    {
+        if (c0.words == null)
+        {
+            return filter(c0, c1, true);
+        }
+        if (c1.words == null)
+        {
+            return filter(c1, c0, true);
+        }
+        long words[] = c0.words.clone();
+        for (int w = 0; w < NUM_WORDS; w++)
+        {
+            words[w] &= c1.words[w];
+        }
+        return fromWords(words);
+    }
+    
+    /**
+     * Computes the difference of the given containers. Returns 
+     * <code>null</code> if the difference is empty.
+     * 
+     * @param c0 The first container
+     * @param c1 The second container
+     * @return The difference
+     */
+    static CoordinateSetContainer andNot(
+        CoordinateSetContainer c0, CoordinateSetContainer c1)
+    {
+        if (c0.words == null)
+        {
+            return filter(c0, c1, false);
+        }
+        long words[] = c0.words.clone();
+        if (c1.words != null)
+        {
+            for (int w = 0; w < NUM_WORDS; w++)
+            {
+                words[w] &= ~c1.words[w];
+            }
+        }
+        else
+        {
+            for (int i = 0; i < c1.cardinality; i++)
+            {
+                int v = c1.values[i];
+                words[v >>> 6] &= ~(1L << v);
+            }
+        }
+        return fromWords(words);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        int result = 1;
+        for (int v = nextValue(0); v != -1; v = nextValue(v + 1))
+        {
+            result = 31 * result + v;
+        }
+        return result;
+    }
+    
+    @Override
+    public boolean equals(Object object)
+    {
+        if (this == object)
+        {
+            return true;
+        }
+        if (!(object instanceof CoordinateSetContainer))
+        {
+            return false;
+        }
+        CoordinateSetContainer other = (CoordinateSetContainer)object;
+        if (cardinality != other.cardinality)
+        {
+            return false;
+        }
+        // The representation is determined by the cardinality, so
+        // both containers use the same representation here
+        if (words != null)
+        {
+            return Arrays.equals(words, other.words);
+        }
+        for (int i = 0; i < cardinality; i++)
+        {
+            if (values[i] != other.values[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
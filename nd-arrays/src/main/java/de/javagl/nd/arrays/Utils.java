@@ -144,6 +144,37 @@ public class Utils
         }
     }
     
+    /**
+     * Checks whether the given indices are valid for an array with the 
+     * given size, and throws an <code>IndexOutOfBoundsException</code>
+     * if not.
+     * 
+     * @param size The array size
+     * @param indices The indices
+     * @throws NullPointerException If any of the given tuples is 
+     * <code>null</code>
+     * @throws IndexOutOfBoundsException If the indices are not valid. This
+     * is the case when the {@link IntTuple#getSize() size} of the indices
+     * is different than the array size, or when 
+     * <code>index &lt; 0</code> or <code>index &gt;= size.get(i)</code>
+     * for any dimension.
+     */
+    public static void checkForValidIndices(IntTuple size, IntTuple indices)
+    {
+        int n = size.getSize();
+        boolean valid = indices.getSize() == n;
+        for (int i=0; valid && i<n; i++)
+        {
+            int index = indices.get(i);
+            valid = index >= 0 && index < size.get(i);
+        }
+        if (!valid)
+        {
+            throw new IndexOutOfBoundsException(
+                "Invalid indices: "+indices+" for size "+size);
+        }
+    }
+    
     
     
     /**
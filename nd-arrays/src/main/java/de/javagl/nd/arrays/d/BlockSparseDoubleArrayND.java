@@ -0,0 +1,630 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.arrays.d;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import de.javagl.nd.arrays.Utils;
+import de.javagl.nd.tuples.Order;
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.IntTupleIntMap;
+import de.javagl.nd.tuples.i.IntTuples;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+/*
+ * Note: This class is automatically generated. Do not modify this class
+ * directly. See https://github.com/javagl/ND/tree/master/nd-gen/ for
+ * further information.
+ */
+
+/**
+ * Implementation of a {@link SparseDoubleArrayND} that divides the array 
+ * into rectangular blocks, and only allocates the storage for blocks 
+ * that contain non-zero elements. The storage of a block is released 
+ * when all its elements are set to zero again.<br>
+ * <br>
+ * This class is not thread-safe. It may be read by multiple threads
+ * concurrently, but modifications must be synchronized externally, 
+ * even when different threads modify different elements, because 
+ * setting an element may allocate or release the storage of a block.
+ */
+class BlockSparseDoubleArrayND
+    extends AbstractMutableDoubleArrayND
+    implements SparseDoubleArrayND
+{
+    /**
+     * The base-2 logarithm of the maximum number of elements in one block
+     */
+    private static final int BLOCK_BITS = 12;
+
+    /**
+     * The size of the blocks, for each dimension
+     */
+    private final int blockSizes[];
+
+    /**
+     * The strides of the elements inside one block, for each dimension
+     */
+    private final int blockStrides[];
+
+    /**
+     * The number of elements in one block
+     */
+    private final int blockTotalSize;
+
+    /**
+     * The mapping from block coordinates to the index of the chunk that
+     * stores the elements of the respective block
+     */
+    private final IntTupleIntMap blockChunks;
+
+    /**
+     * The chunks. Elements are <code>null</code> when the chunk is
+     * not used.
+     */
+    private double chunks[][];
+
+    /**
+     * The number of non-zero elements in each chunk
+     */
+    private int chunkNonZeroCounts[];
+
+    /**
+     * The number of chunks that have been allocated
+     */
+    private int numChunks;
+
+    /**
+     * The indices of chunks that have been released
+     */
+    private int freeChunks[];
+
+    /**
+     * The number of chunks that have been released
+     */
+    private int numFreeChunks;
+
+    /**
+     * The total number of non-zero elements
+     */
+    private int nonZeroCount;
+
+    /**
+     * The tuples, one for each thread, that receive the block coordinates 
+     * that are computed in {@link #computeLocalIndex(IntTuple, 
+     * MutableIntTuple)}
+     */
+    private final ThreadLocal<MutableIntTuple> threadLocalBlockCoordinates;
+
+    /**
+     * Create a new array with the given size.
+     *
+     * @param size The size
+     * @throws NullPointerException If the given size is <code>null</code>
+     * @throws IllegalArgumentException If the given size is negative
+     * along any dimension
+     */
+    BlockSparseDoubleArrayND(IntTuple size)
+    {
+        super(size, Order.LEXICOGRAPHICAL);
+        int n = size.getSize();
+        int edge = 1 << Math.max(1, BLOCK_BITS / Math.max(1, n));
+        this.blockSizes = new int[n];
+        this.blockStrides = new int[n];
+        int total = 1;
+        for (int i = n - 1; i >= 0; i--)
+        {
+            blockSizes[i] = Math.max(1, Math.min(size.get(i), edge));
+            blockStrides[i] = total;
+            total *= blockSizes[i];
+        }
+        this.blockTotalSize = total;
+        this.blockChunks = new IntTupleIntMap(n);
+        this.chunks = new double[0][];
+        this.chunkNonZeroCounts = new int[0];
+        this.freeChunks = new int[0];
+        this.threadLocalBlockCoordinates = 
+            ThreadLocal.withInitial(() -> IntTuples.create(n));
+    }
+
+    /**
+     * Computes the index of the element with the given indices inside
+     * its block, and stores the coordinates of the block in the given
+     * tuple
+     * 
+     * @param indices The indices
+     * @param blockCoordinates The tuple that will store the block 
+     * coordinates
+     * @return The index inside the block
+     * @throws IndexOutOfBoundsException If the indices are not valid
+     */
+    private int computeLocalIndex(
+        IntTuple indices, MutableIntTuple blockCoordinates)
+    {
+        Utils.checkForValidIndices(getSize(), indices);
+        int local = 0;
+        for (int i = 0; i < blockSizes.length; i++)
+        {
+            int c = indices.get(i);
+            int b = blockSizes[i];
+            blockCoordinates.set(i, c / b);
+            local += (c % b) * blockStrides[i];
+        }
+        return local;
+    }
+
+    @Override
+    public void set(IntTuple indices, double value)
+    {
+        MutableIntTuple blockCoordinates = threadLocalBlockCoordinates.get();
+        int local = computeLocalIndex(indices, blockCoordinates);
+        int chunk = blockChunks.getOrDefault(blockCoordinates, -1);
+        if (chunk == -1)
+        {
+            if (value == 0)
+            {
+                return;
+            }
+            chunk = acquireChunk(new double[blockTotalSize], 0);
+            blockChunks.put(blockCoordinates, chunk);
+        }
+        double data[] = chunks[chunk];
+        boolean wasZero = data[local] == 0;
+        boolean isZero = value == 0;
+        data[local] = value;
+        if (wasZero && !isZero)
+        {
+            chunkNonZeroCounts[chunk]++;
+            nonZeroCount++;
+        }
+        else if (!wasZero && isZero)
+        {
+            chunkNonZeroCounts[chunk]--;
+            nonZeroCount--;
+            if (chunkNonZeroCounts[chunk] == 0)
+            {
+                blockChunks.remove(blockCoordinates);
+                releaseChunk(chunk);
+            }
+        }
+    }
+
+    @Override
+    public double get(IntTuple indices)
+    {
+        MutableIntTuple blockCoordinates = threadLocalBlockCoordinates.get();
+        int local = computeLocalIndex(indices, blockCoordinates);
+        int chunk = blockChunks.getOrDefault(blockCoordinates, -1);
+        if (chunk == -1)
+        {
+            return 0.0;
+        }
+        return chunks[chunk][local];
+    }
+
+    /**
+     * Returns the index of a new chunk, which stores the given data
+     * 
+     * @param data The data of the chunk
+     * @param nonZeroCount The number of non-zero elements in the data
+     * @return The chunk index
+     */
+    private int acquireChunk(double data[], int nonZeroCount)
+    {
+        int chunk;
+        if (numFreeChunks > 0)
+        {
+            chunk = freeChunks[--numFreeChunks];
+        }
+        else
+        {
+            if (numChunks == chunks.length)
+            {
+                int newLength = Math.max(4, chunks.length * 2);
+                chunks = Arrays.copyOf(chunks, newLength);
+                chunkNonZeroCounts = 
+                    Arrays.copyOf(chunkNonZeroCounts, newLength);
+            }
+            chunk = numChunks++;
+        }
+        chunks[chunk] = data;
+        chunkNonZeroCounts[chunk] = nonZeroCount;
+        return chunk;
+    }
+
+    /**
+     * Release the storage of the given chunk, and mark it as being free
+     * 
+     * @param chunk The chunk index
+     */
+    private void releaseChunk(int chunk)
+    {
+        chunks[chunk] = null;
+        if (numFreeChunks == freeChunks.length)
+        {
+            freeChunks = Arrays.copyOf(
+                freeChunks, Math.max(4, freeChunks.length * 2));
+        }
+        freeChunks[numFreeChunks++] = chunk;
+    }
+
+    @Override
+    public int getNonZeroCount()
+    {
+        return nonZeroCount;
+    }
+
+    @Override
+    public void clear()
+    {
+        blockChunks.clear();
+        Arrays.fill(chunks, null);
+        numChunks = 0;
+        numFreeChunks = 0;
+        nonZeroCount = 0;
+    }
+
+    @Override
+    public void forEachNonZero(
+        ObjDoubleConsumer<? super IntTuple> consumer)
+    {
+        MutableIntTuple coordinates = IntTuples.create(blockSizes.length);
+        IntTupleIntMap.Cursor cursor = blockChunks.cursor();
+        while (cursor.next())
+        {
+            IntTuple block = cursor.key();
+            double data[] = chunks[cursor.value()];
+            for (int local = 0; local < blockTotalSize; local++)
+            {
+                double value = data[local];
+                if (value != 0)
+                {
+                    int remainder = local;
+                    for (int i = 0; i < blockSizes.length; i++)
+                    {
+                        int offset = remainder / blockStrides[i];
+                        remainder -= offset * blockStrides[i];
+                        coordinates.set(i, 
+                            block.get(i) * blockSizes[i] + offset);
+                    }
+                    consumer.accept(coordinates, value);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Stream<Entry> nonZeroEntries()
+    {
+        int n = blockSizes.length;
+        int numBlocks = blockChunks.size();
+        int blocks[] = new int[numBlocks * n];
+        double data[][] = new double[numBlocks][];
+        int b = 0;
+        IntTupleIntMap.Cursor cursor = blockChunks.cursor();
+        while (cursor.next())
+        {
+            IntTuple block = cursor.key();
+            for (int i = 0; i < n; i++)
+            {
+                blocks[b * n + i] = block.get(i);
+            }
+            data[b] = chunks[cursor.value()];
+            b++;
+        }
+        return StreamSupport.stream(new NonZeroSpliterator(
+            blocks, data, 0, numBlocks, nonZeroCount), false);
+    }
+
+    /**
+     * Applies the given operator to the corresponding elements of the 
+     * given arrays, and stores the results in the given result array.
+     * The operator is only applied to the blocks that are allocated in
+     * any of the source arrays, and the blocks are processed in parallel.
+     * The second source array may be <code>null</code>, meaning that 
+     * all its elements are zero.<br>
+     * <br>
+     * The arrays must have equal sizes, and the operator must yield zero 
+     * for two zero operands. The result array may be identical to one 
+     * of the source arrays.
+     * 
+     * @param a0 The first array
+     * @param a1 The second array, or <code>null</code>
+     * @param op The operator to apply
+     * @param result The array that will store the result
+     */
+    static void apply(
+        BlockSparseDoubleArrayND a0, 
+        BlockSparseDoubleArrayND a1, 
+        DoubleBinaryOperator op,
+        BlockSparseDoubleArrayND result)
+    {
+        int n = a0.blockSizes.length;
+        int blockTotalSize = a0.blockTotalSize;
+
+        // Collect the coordinates and the data of all blocks that are
+        // allocated in any source array
+        int maxBlocks = a0.blockChunks.size() + 
+            (a1 == null ? 0 : a1.blockChunks.size());
+        int blocks[] = new int[maxBlocks * n];
+        double sources0[][] = new double[maxBlocks][];
+        double sources1[][] = new double[maxBlocks][];
+        int numBlocks = 0;
+        IntTupleIntMap.Cursor cursor0 = a0.blockChunks.cursor();
+        while (cursor0.next())
+        {
+            IntTuple block = cursor0.key();
+            for (int i = 0; i < n; i++)
+            {
+                blocks[numBlocks * n + i] = block.get(i);
+            }
+            sources0[numBlocks] = a0.chunks[cursor0.value()];
+            if (a1 != null)
+            {
+                int chunk1 = a1.blockChunks.getOrDefault(block, -1);
+                if (chunk1 != -1)
+                {
+                    sources1[numBlocks] = a1.chunks[chunk1];
+                }
+            }
+            numBlocks++;
+        }
+        if (a1 != null)
+        {
+            IntTupleIntMap.Cursor cursor1 = a1.blockChunks.cursor();
+            while (cursor1.next())
+            {
+                IntTuple block = cursor1.key();
+                if (a0.blockChunks.containsKey(block))
+                {
+                    continue;
+                }
+                for (int i = 0; i < n; i++)
+                {
+                    blocks[numBlocks * n + i] = block.get(i);
+                }
+                sources1[numBlocks] = a1.chunks[cursor1.value()];
+                numBlocks++;
+            }
+        }
+
+        // Compute the results into new chunks, because the result 
+        // may be one of the source arrays
+        double targets[][] = new double[numBlocks][];
+        int counts[] = new int[numBlocks];
+        IntStream.range(0, numBlocks).parallel().forEach(b -> 
+        {
+            double data0[] = sources0[b];
+            double data1[] = sources1[b];
+            double target[] = new double[blockTotalSize];
+            int count = 0;
+            for (int local = 0; local < blockTotalSize; local++)
+            {
+                double operand0 = data0 == null ? 0.0 : data0[local];
+                double operand1 = data1 == null ? 0.0 : data1[local];
+                double r = op.applyAsDouble(operand0, operand1);
+                target[local] = r;
+                if (r != 0)
+                {
+                    count++;
+                }
+            }
+            if (count > 0)
+            {
+                targets[b] = target;
+                counts[b] = count;
+            }
+        });
+
+        result.clear();
+        MutableIntTuple block = IntTuples.create(n);
+        for (int b = 0; b < numBlocks; b++)
+        {
+            if (targets[b] == null)
+            {
+                continue;
+            }
+            for (int i = 0; i < n; i++)
+            {
+                block.set(i, blocks[b * n + i]);
+            }
+            int chunk = result.acquireChunk(targets[b], counts[b]);
+            result.blockChunks.put(block, chunk);
+            result.nonZeroCount += counts[b];
+        }
+    }
+
+    /**
+     * Implementation of a {@link Spliterator} over the non-zero elements
+     * of a range of blocks. The elements are read from the chunks lazily.
+     */
+    private final class NonZeroSpliterator implements Spliterator<Entry>
+    {
+        /**
+         * The coordinates of all blocks, packed into one array
+         */
+        private final int blocks[];
+
+        /**
+         * The data of all blocks
+         */
+        private final double data[][];
+
+        /**
+         * The index of the current block
+         */
+        private int index;
+
+        /**
+         * The index of the block after the last block of this spliterator
+         */
+        private int end;
+
+        /**
+         * The index of the next element inside the current block
+         */
+        private int local;
+
+        /**
+         * The estimated number of remaining elements
+         */
+        private long estimatedSize;
+
+        /**
+         * Creates a new spliterator for the given range of blocks
+         * 
+         * @param blocks The coordinates of all blocks
+         * @param data The data of all blocks
+         * @param index The index of the first block, inclusive
+         * @param end The index of the last block, exclusive
+         * @param estimatedSize The estimated number of elements
+         */
+        NonZeroSpliterator(int blocks[], double data[][], 
+            int index, int end, long estimatedSize)
+        {
+            this.blocks = blocks;
+            this.data = data;
+            this.index = index;
+            this.end = end;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry> action)
+        {
+            int n = blockSizes.length;
+            while (index < end)
+            {
+                double blockData[] = data[index];
+                while (local < blockTotalSize)
+                {
+                    int current = local++;
+                    double value = blockData[current];
+                    if (value != 0)
+                    {
+                        MutableIntTuple coordinates = IntTuples.create(n);
+                        int remainder = current;
+                        for (int i = 0; i < n; i++)
+                        {
+                            int offset = remainder / blockStrides[i];
+                            remainder -= offset * blockStrides[i];
+                            coordinates.set(i, 
+                                blocks[index * n + i] * blockSizes[i] + 
+                                offset);
+                        }
+                        action.accept(new NonZeroEntry(coordinates, value));
+                        return true;
+                    }
+                }
+                index++;
+                local = 0;
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Entry> trySplit()
+        {
+            if (end - index < 2)
+            {
+                return null;
+            }
+            int middle = (index + end) >>> 1;
+            estimatedSize >>>= 1;
+            NonZeroSpliterator split = new NonZeroSpliterator(
+                blocks, data, middle, end, estimatedSize);
+            end = middle;
+            return split;
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return estimatedSize;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return NONNULL;
+        }
+    }
+
+    /**
+     * Simple implementation of an {@link Entry}
+     */
+    private static final class NonZeroEntry implements Entry
+    {
+        /**
+         * The coordinates
+         */
+        private final MutableIntTuple coordinates;
+
+        /**
+         * The value
+         */
+        private final double value;
+
+        /**
+         * Creates a new entry
+         * 
+         * @param coordinates The coordinates
+         * @param value The value
+         */
+        NonZeroEntry(MutableIntTuple coordinates, double value)
+        {
+            this.coordinates = coordinates;
+            this.value = value;
+        }
+
+        @Override
+        public MutableIntTuple getCoordinates()
+        {
+            return coordinates;
+        }
+
+        @Override
+        public double getValue()
+        {
+            return value;
+        }
+
+        @Override
+        public String toString()
+        {
+            return coordinates + "=" + value;
+        }
+    }
+
+}
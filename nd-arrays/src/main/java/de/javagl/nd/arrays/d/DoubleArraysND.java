@@ -79,6 +79,40 @@ public class DoubleArraysND
         return create(IntTuples.wrap(size));
     }
 
+    /**
+     * Creates a new {@link SparseDoubleArrayND} with the 
+     * specified size. All elements of the array are initially zero. The
+     * array only allocates storage for the blocks of elements that contain
+     * non-zero values.
+     * 
+     * @param size The size
+     * @return The new array
+     * @throws NullPointerException If the given size is <code>null</code>
+     * @throws IllegalArgumentException If the given size is negative
+     * along any dimension
+     */
+    public static SparseDoubleArrayND createSparse(IntTuple size)
+    {
+        return new BlockSparseDoubleArrayND(size);
+    }
+
+    /**
+     * Creates a new {@link SparseDoubleArrayND} with the 
+     * specified size. All elements of the array are initially zero. The
+     * array only allocates storage for the blocks of elements that contain
+     * non-zero values.
+     * 
+     * @param size The size
+     * @return The new array
+     * @throws NullPointerException If the given size is <code>null</code>
+     * @throws IllegalArgumentException If the given size is negative
+     * along any dimension
+     */
+    public static SparseDoubleArrayND createSparse(int ... size)
+    {
+        return createSparse(IntTuples.wrap(size));
+    }
+
     /**
      * Creates a <i>view</i> on the given array as a 
      * {@link MutableDoubleArrayND}. Changes in the given array
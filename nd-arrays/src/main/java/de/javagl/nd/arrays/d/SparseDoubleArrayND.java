@@ -0,0 +1,126 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.arrays.d;
+
+import java.util.function.ObjDoubleConsumer;
+import java.util.stream.Stream;
+
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+/*
+ * Note: This class is automatically generated. Do not modify this class
+ * directly. See https://github.com/javagl/ND/tree/master/nd-gen/ for
+ * further information.
+ */
+
+/**
+ * Interface describing a {@link MutableDoubleArrayND} that only stores
+ * the elements that are not zero. All elements are initially zero.<br>
+ * <br>
+ * In addition to the methods of a {@link MutableDoubleArrayND}, this 
+ * interface offers methods to efficiently iterate over the non-zero
+ * elements. The {@link DoubleArrayFunctionsND} methods use these methods
+ * to skip the zero elements when this is possible.<br>
+ * <br>
+ * Implementations are not required to be thread-safe. They may be read
+ * by multiple threads concurrently, but modifications, even of different
+ * elements, must be synchronized externally. The bulk operations of
+ * {@link DoubleArrayFunctionsND} therefore write into sparse arrays 
+ * sequentially.
+ */
+public interface SparseDoubleArrayND extends MutableDoubleArrayND
+{
+    /**
+     * Interface for a non-zero element of a {@link SparseDoubleArrayND},
+     * consisting of its coordinates and its value
+     */
+    interface Entry
+    {
+        /**
+         * Returns the coordinates of the element
+         * 
+         * @return The coordinates
+         */
+        MutableIntTuple getCoordinates();
+
+        /**
+         * Returns the value of the element
+         * 
+         * @return The value
+         */
+        double getValue();
+    }
+
+    /**
+     * Returns the number of elements of this array that are not zero
+     * 
+     * @return The number of non-zero elements
+     */
+    int getNonZeroCount();
+
+    /**
+     * Sets all elements of this array to zero
+     */
+    void clear();
+
+    /**
+     * Passes the coordinates and the values of all non-zero elements of 
+     * this array to the given consumer, in an unspecified order.<br>
+     * <br>
+     * The coordinates that are passed to the consumer are a tuple that is
+     * re-used for all elements. It has to be copied, for example with
+     * {@link de.javagl.nd.tuples.i.IntTuples#copy(IntTuple)}, when it
+     * should be stored. The consumer must not modify this array.
+     * 
+     * @param consumer The consumer
+     */
+    void forEachNonZero(ObjDoubleConsumer<? super IntTuple> consumer);
+
+    /**
+     * Returns a stream of the {@link Entry entries} for all non-zero 
+     * elements of this array, in an unspecified order. The elements are 
+     * read lazily while the stream is processed, and this array must not 
+     * be modified until the stream processing is finished.
+     * 
+     * @return The stream over the entries
+     */
+    Stream<Entry> nonZeroEntries();
+
+    /**
+     * Returns a stream of the coordinates of all non-zero elements of 
+     * this array, in an unspecified order. The elements are read lazily 
+     * while the stream is processed, and this array must not be modified 
+     * until the stream processing is finished.
+     * 
+     * @return The stream over the coordinates
+     */
+    default Stream<? extends MutableIntTuple> nonZeroCoordinates()
+    {
+        return nonZeroEntries().map(Entry::getCoordinates);
+    }
+}
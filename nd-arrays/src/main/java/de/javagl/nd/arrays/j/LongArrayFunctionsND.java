@@ -29,8 +29,12 @@ package de.javagl.nd.arrays.j;
 import java.util.function.LongBinaryOperator;
 import java.util.function.LongSupplier;
 import java.util.function.LongUnaryOperator;
+import java.util.stream.Stream;
 
 import de.javagl.nd.arrays.Utils;
+import de.javagl.nd.tuples.i.IntTupleLongMap;
+import de.javagl.nd.tuples.i.IntTupleSet;
+import de.javagl.nd.tuples.i.MutableIntTuple;
 
 /*
  * Note: This class is automatically generated. Do not modify this class
@@ -54,7 +58,7 @@ public class LongArrayFunctionsND
     public static void set(
         MutableLongArrayND a0, LongSupplier s)
     {
-        a0.coordinates().parallel().forEach(t ->
+        writableCoordinates(a0).forEach(t ->
         {
             a0.set(t, s.getAsLong());
         });
@@ -67,7 +71,13 @@ public class LongArrayFunctionsND
      * If the given result array is <code>null</code>, then a new array
      * will be created and returned.<br>
      * <br>
-     * The source arrays and the target array may be identical.
+     * The source arrays and the target array may be identical.<br>
+     * <br>
+     * If both source arrays are {@link SparseLongArrayND}
+     * instances, the operator yields zero for two zero operands, and the 
+     * result array is <code>null</code> or a sparse array, then the 
+     * operator will only be applied to the elements that are non-zero in 
+     * any of the source arrays. A new result array will then be sparse.
      * 
      * @param a0 The first array
      * @param a1 The second array
@@ -83,8 +93,18 @@ public class LongArrayFunctionsND
         MutableLongArrayND result)
     {
         Utils.checkForEqualSizes(a0, a1);
+        if (a0 instanceof SparseLongArrayND && 
+            a1 instanceof SparseLongArrayND &&
+            op.applyAsLong(0, 0) == 0 &&
+            (result == null || result instanceof SparseLongArrayND))
+        {
+            return applySparse(
+                (SparseLongArrayND)a0, 
+                (SparseLongArrayND)a1, op, 
+                (SparseLongArrayND)result);
+        }
         MutableLongArrayND finalResult = validate(a0, result);
-        finalResult.coordinates().parallel().forEach(t -> 
+        writableCoordinates(finalResult).forEach(t -> 
         {
             long operand0 = a0.get(t);
             long operand1 = a1.get(t);
@@ -101,7 +121,13 @@ public class LongArrayFunctionsND
      * If the given result array is <code>null</code>, then a new array
      * will be created and returned.<br>
      * <br>
-     * The source array and the target array may be identical.
+     * The source array and the target array may be identical.<br>
+     * <br>
+     * If the source array is a {@link SparseLongArrayND},
+     * the operator yields zero for a zero operand, and the result array 
+     * is <code>null</code> or a sparse array, then the operator will only 
+     * be applied to the non-zero elements of the source array. A new 
+     * result array will then be sparse.
      * 
      * @param a0 The array
      * @param op The operator to apply
@@ -114,8 +140,16 @@ public class LongArrayFunctionsND
         LongArrayND a0, LongUnaryOperator op,
         MutableLongArrayND result)
     {
+        if (a0 instanceof SparseLongArrayND && 
+            op.applyAsLong(0) == 0 &&
+            (result == null || result instanceof SparseLongArrayND))
+        {
+            return applySparse(
+                (SparseLongArrayND)a0, op, 
+                (SparseLongArrayND)result);
+        }
         MutableLongArrayND finalResult = validate(a0, result);
-        finalResult.coordinates().parallel().forEach(t ->
+        writableCoordinates(finalResult).forEach(t ->
         {
             long operand0 = a0.get(t);
             long r = op.applyAsLong(operand0);
@@ -124,6 +158,147 @@ public class LongArrayFunctionsND
         return finalResult;
     }
 
+    /**
+     * Implementation of {@link #apply(LongArrayND, 
+     * LongArrayND, LongBinaryOperator, 
+     * MutableLongArrayND)} for sparse arrays, where 
+     * the operator yields zero for two zero operands
+     * 
+     * @param a0 The first array
+     * @param a1 The second array
+     * @param op The operator to apply
+     * @param result The array that will store the result
+     * @return The result
+     */
+    private static SparseLongArrayND applySparse(
+        SparseLongArrayND a0, 
+        SparseLongArrayND a1, 
+        LongBinaryOperator op,
+        SparseLongArrayND result)
+    {
+        SparseLongArrayND finalResult = 
+            validateSparse(a0, result);
+        if (a0 instanceof BlockSparseLongArrayND &&
+            a1 instanceof BlockSparseLongArrayND &&
+            finalResult instanceof BlockSparseLongArrayND)
+        {
+            BlockSparseLongArrayND.apply(
+                (BlockSparseLongArrayND)a0, 
+                (BlockSparseLongArrayND)a1, op, 
+                (BlockSparseLongArrayND)finalResult);
+            return finalResult;
+        }
+
+        // Collect the coordinates of all non-zero elements before 
+        // writing, because the result may be one of the source arrays
+        IntTupleSet coordinates = new IntTupleSet(
+            a0.getSize().getSize(), 
+            a0.getNonZeroCount() + a1.getNonZeroCount());
+        a0.forEachNonZero((t, v) -> coordinates.add(t));
+        a1.forEachNonZero((t, v) -> coordinates.add(t));
+        IntTupleLongMap values = 
+            new IntTupleLongMap(
+                a0.getSize().getSize(), coordinates.size());
+        coordinates.forEach(t -> values.put(t, 
+            op.applyAsLong(a0.get(t), a1.get(t))));
+
+        if (finalResult != a0 && finalResult != a1)
+        {
+            finalResult.clear();
+        }
+        values.forEach((t, v) -> finalResult.set(t, v));
+        return finalResult;
+    }
+
+    /**
+     * Implementation of {@link #apply(LongArrayND, 
+     * LongUnaryOperator, MutableLongArrayND)} 
+     * for sparse arrays, where the operator yields zero for a zero operand
+     * 
+     * @param a0 The array
+     * @param op The operator to apply
+     * @param result The array that will store the result
+     * @return The result
+     */
+    private static SparseLongArrayND applySparse(
+        SparseLongArrayND a0, 
+        LongUnaryOperator op,
+        SparseLongArrayND result)
+    {
+        SparseLongArrayND finalResult = 
+            validateSparse(a0, result);
+        if (a0 instanceof BlockSparseLongArrayND &&
+            finalResult instanceof BlockSparseLongArrayND)
+        {
+            BlockSparseLongArrayND.apply(
+                (BlockSparseLongArrayND)a0, null, 
+                (operand0, operand1) -> 
+                    op.applyAsLong(operand0), 
+                (BlockSparseLongArrayND)finalResult);
+            return finalResult;
+        }
+
+        // Collect the results before writing, because the result 
+        // may be the source array
+        IntTupleLongMap values = 
+            new IntTupleLongMap(
+                a0.getSize().getSize(), a0.getNonZeroCount());
+        a0.forEachNonZero((t, v) -> 
+            values.put(t, op.applyAsLong(v)));
+
+        if (finalResult != a0)
+        {
+            finalResult.clear();
+        }
+        values.forEach((t, v) -> finalResult.set(t, v));
+        return finalResult;
+    }
+
+    /**
+     * Returns a stream of the coordinates of the given array, which may
+     * be used for writing into the array. This is a parallel stream, 
+     * unless the array is a {@link SparseLongArrayND}, which does not
+     * support concurrent modifications.
+     * 
+     * @param a The array
+     * @return The stream of coordinates
+     */
+    private static Stream<? extends MutableIntTuple> writableCoordinates(
+        MutableLongArrayND a)
+    {
+        Stream<? extends MutableIntTuple> coordinates = a.coordinates();
+        if (a instanceof SparseLongArrayND)
+        {
+            return coordinates.sequential();
+        }
+        return coordinates.parallel();
+    }
+
+    /**
+     * Validate the given sparse result array against the given input 
+     * array. If the result array is not <code>null</code>, it must have 
+     * the same size as the input array. If it is <code>null</code>,
+     * then a new sparse array with the same size as the input array 
+     * will be created and returned.
+     * 
+     * @param a The input array
+     * @param result The result array
+     * @return The result array
+     * @throws IllegalArgumentException If the given result array is
+     * not <code>null</code> and has a size that is different from
+     * that of the input array.
+     */
+    private static SparseLongArrayND validateSparse(
+        LongArrayND a, SparseLongArrayND result)
+    {
+        if (result == null)
+        {
+            return LongArraysND.createSparse(a.getSize());
+        }
+        Utils.checkForEqualSizes(a, result);
+        return result;
+    }
+
 
     /**
      * Validate the given result array against the given input array.
@@ -79,6 +79,40 @@ public class LongArraysND
         return create(IntTuples.wrap(size));
     }
 
+    /**
+     * Creates a new {@link SparseLongArrayND} with the 
+     * specified size. All elements of the array are initially zero. The
+     * array only allocates storage for the blocks of elements that contain
+     * non-zero values.
+     * 
+     * @param size The size
+     * @return The new array
+     * @throws NullPointerException If the given size is <code>null</code>
+     * @throws IllegalArgumentException If the given size is negative
+     * along any dimension
+     */
+    public static SparseLongArrayND createSparse(IntTuple size)
+    {
+        return new BlockSparseLongArrayND(size);
+    }
+
+    /**
+     * Creates a new {@link SparseLongArrayND} with the 
+     * specified size. All elements of the array are initially zero. The
+     * array only allocates storage for the blocks of elements that contain
+     * non-zero values.
+     * 
+     * @param size The size
+     * @return The new array
+     * @throws NullPointerException If the given size is <code>null</code>
+     * @throws IllegalArgumentException If the given size is negative
+     * along any dimension
+     */
+    public static SparseLongArrayND createSparse(int ... size)
+    {
+        return createSparse(IntTuples.wrap(size));
+    }
+
     /**
      * Creates a <i>view</i> on the given array as a 
      * {@link MutableLongArrayND}. Changes in the given array
@@ -0,0 +1,131 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ */ 
+package de.javagl.nd.arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.javagl.nd.iteration.tuples.i.IntTupleIterables;
+import de.javagl.nd.tuples.Order;
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.IntTuples;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+@SuppressWarnings("javadoc")
+public class CoordinateSetTest
+{
+    @Test
+    public void testAddContainsRemove()
+    {
+        CoordinateSet set = new CoordinateSet(IntTuples.of(10, 20));
+        assertTrue(set.add(IntTuples.of(3, 4)));
+        assertFalse(set.add(IntTuples.of(3, 4)));
+        assertTrue(set.contains(IntTuples.of(3, 4)));
+        assertFalse(set.contains(IntTuples.of(4, 3)));
+        assertFalse(set.contains(IntTuples.of(30, 4)));
+        assertEquals(1, set.cardinality());
+        assertTrue(set.remove(IntTuples.of(3, 4)));
+        assertTrue(set.isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOutside()
+    {
+        CoordinateSet set = new CoordinateSet(IntTuples.of(10, 20));
+        set.add(IntTuples.of(10, 0));
+    }
+    
+    @Test
+    public void testIterationOrderLexicographical()
+    {
+        checkIterationOrder(Order.LEXICOGRAPHICAL);
+    }
+    
+    @Test
+    public void testIterationOrderColexicographical()
+    {
+        checkIterationOrder(Order.COLEXICOGRAPHICAL);
+    }
+    
+    private static void checkIterationOrder(Order order)
+    {
+        IntTuple min = IntTuples.of(-3, 5, 0);
+        IntTuple max = IntTuples.of(40, 70, 30);
+        CoordinateSet set = new CoordinateSet(order, min, max);
+        List<MutableIntTuple> expected = new ArrayList<MutableIntTuple>();
+        for (MutableIntTuple t : IntTupleIterables.iterable(order, min, max))
+        {
+            if ((t.get(0) + t.get(1) * t.get(2)) % 3 == 0)
+            {
+                expected.add(t);
+            }
+        }
+        // Add the elements in reverse order
+        for (int i = expected.size() - 1; i >= 0; i--)
+        {
+            set.add(expected.get(i));
+        }
+        List<MutableIntTuple> actual = new ArrayList<MutableIntTuple>();
+        set.forEach(actual::add);
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), set.stream().count());
+    }
+    
+    @Test
+    public void testSetAlgebra()
+    {
+        IntTuple size = IntTuples.of(300, 400);
+        CoordinateSet s0 = new CoordinateSet(size);
+        CoordinateSet s1 = new CoordinateSet(size);
+        Set<IntTuple> e0 = new LinkedHashSet<IntTuple>();
+        Set<IntTuple> e1 = new LinkedHashSet<IntTuple>();
+        Random random = new Random(0);
+        
+        // A dense region (stored in bitmaps) and sparse random elements
+        for (int x = 0; x < 200; x++)
+        {
+            for (int y = 0; y < 200; y++)
+            {
+                e0.add(IntTuples.of(x, y));
+            }
+        }
+        for (int i = 0; i < 20000; i++)
+        {
+            e1.add(IntTuples.of(random.nextInt(300), random.nextInt(400)));
+        }
+        s0.addAll(e0);
+        s1.addAll(e1);
+        
+        Set<IntTuple> union = new LinkedHashSet<IntTuple>(e0);
+        union.addAll(e1);
+        Set<IntTuple> intersection = new LinkedHashSet<IntTuple>(e0);
+        intersection.retainAll(e1);
+        Set<IntTuple> difference = new LinkedHashSet<IntTuple>(e0);
+        difference.removeAll(e1);
+        
+        assertEquals(union, toSet(s0.union(s1)));
+        assertEquals(intersection, toSet(s0.intersection(s1)));
+        assertEquals(difference, toSet(s0.difference(s1)));
+        assertEquals(difference.size(), s0.difference(s1).cardinality());
+        assertEquals(s0.union(s1), s1.union(s0));
+    }
+    
+    private static Set<IntTuple> toSet(CoordinateSet set)
+    {
+        Set<IntTuple> result = new LinkedHashSet<IntTuple>();
+        set.forEach(result::add);
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ */ 
+package de.javagl.nd.arrays.d;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.IntTuples;
+
+@SuppressWarnings("javadoc")
+public class TestSparseDoubleArrayND
+{
+    @Test
+    public void testSetGet()
+    {
+        SparseDoubleArrayND array = DoubleArraysND.createSparse(100, 200, 3);
+        assertEquals(0.0, array.get(IntTuples.of(99, 199, 2)), 0.0);
+        array.set(IntTuples.of(99, 199, 2), 1.0);
+        array.set(IntTuples.of(0, 0, 0), 2.0);
+        array.set(IntTuples.of(0, 1, 0), 0.0);
+        assertEquals(1.0, array.get(IntTuples.of(99, 199, 2)), 0.0);
+        assertEquals(2.0, array.get(IntTuples.of(0, 0, 0)), 0.0);
+        assertEquals(2, array.getNonZeroCount());
+        
+        array.set(IntTuples.of(99, 199, 2), 0.0);
+        assertEquals(1, array.getNonZeroCount());
+        assertEquals(0.0, array.get(IntTuples.of(99, 199, 2)), 0.0);
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testInvalidIndices()
+    {
+        SparseDoubleArrayND array = DoubleArraysND.createSparse(10, 10);
+        array.get(IntTuples.of(10, 0));
+    }
+    
+    @Test
+    public void testForEachNonZero()
+    {
+        SparseDoubleArrayND array = DoubleArraysND.createSparse(300, 70);
+        Map<IntTuple, Double> expected = fillRandomly(array, 500);
+        
+        Map<IntTuple, Double> actual = new HashMap<IntTuple, Double>();
+        array.forEachNonZero((t, v) -> actual.put(IntTuples.copy(t), v));
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), array.nonZeroCoordinates().count());
+    }
+    
+    @Test
+    public void testNonZeroEntries()
+    {
+        SparseDoubleArrayND array = DoubleArraysND.createSparse(300, 70);
+        Map<IntTuple, Double> expected = fillRandomly(array, 500);
+        
+        Map<IntTuple, Double> actual = array.nonZeroEntries().parallel()
+            .collect(Collectors.toMap(
+                e -> e.getCoordinates(), e -> e.getValue()));
+        assertEquals(expected, actual);
+    }
+    
+    @Test
+    public void testEqualsDense()
+    {
+        SparseDoubleArrayND sparse = DoubleArraysND.createSparse(30, 20);
+        MutableDoubleArrayND dense = DoubleArraysND.create(30, 20);
+        fillRandomly(sparse, 50).forEach((t, v) -> dense.set(t, v));
+        assertEquals(dense, sparse);
+    }
+    
+    @Test
+    public void testApplyUnary()
+    {
+        SparseDoubleArrayND array = DoubleArraysND.createSparse(300, 70);
+        fillRandomly(array, 500);
+        MutableDoubleArrayND dense = DoubleArraysND.create(300, 70);
+        DoubleArrayFunctionsND.apply(array, v -> v, dense);
+        
+        MutableDoubleArrayND sparseResult = 
+            DoubleArrayFunctionsND.apply(array, v -> v * 2, null);
+        MutableDoubleArrayND denseResult = 
+            DoubleArrayFunctionsND.apply(dense, v -> v * 2, null);
+        assertEquals(true, sparseResult instanceof SparseDoubleArrayND);
+        assertEquals(denseResult, sparseResult);
+        
+        DoubleArrayFunctionsND.apply(array, v -> v * 2, array);
+        assertEquals(denseResult, array);
+    }
+    
+    @Test
+    public void testApplyBinary()
+    {
+        SparseDoubleArrayND a0 = DoubleArraysND.createSparse(50, 60);
+        SparseDoubleArrayND a1 = DoubleArraysND.createSparse(50, 60);
+        fillRandomly(a0, 200);
+        fillRandomly(a1, 200);
+        MutableDoubleArrayND d0 = DoubleArrayFunctionsND.apply(
+            a0, v -> v, DoubleArraysND.create(50, 60));
+        MutableDoubleArrayND d1 = DoubleArrayFunctionsND.apply(
+            a1, v -> v, DoubleArraysND.create(50, 60));
+        
+        MutableDoubleArrayND expected = 
+            DoubleArrayFunctionsND.apply(d0, d1, (a, b) -> a - b, null);
+        MutableDoubleArrayND actual = 
+            DoubleArrayFunctionsND.apply(a0, a1, (a, b) -> a - b, null);
+        assertEquals(expected, actual);
+        
+        DoubleArrayFunctionsND.apply(a0, a1, (a, b) -> a - b, a1);
+        assertEquals(expected, a1);
+        
+        // Subtracting an array from itself releases all blocks
+        DoubleArrayFunctionsND.apply(a1, a1, (a, b) -> a - b, a1);
+        assertEquals(0, a1.getNonZeroCount());
+    }
+    
+    @Test
+    public void testConcurrentReads()
+    {
+        SparseDoubleArrayND array = DoubleArraysND.createSparse(300, 70);
+        Map<IntTuple, Double> expected = fillRandomly(array, 500);
+        long mismatches = array.coordinates().parallel().filter(t -> 
+        {
+            double e = expected.getOrDefault(t, 0.0);
+            return array.get(t) != e;
+        }).count();
+        assertEquals(0, mismatches);
+    }
+    
+    @Test
+    public void testApplyDenseFallbackIntoSparse()
+    {
+        SparseDoubleArrayND array = DoubleArraysND.createSparse(300, 70);
+        fillRandomly(array, 500);
+        MutableDoubleArrayND dense = DoubleArrayFunctionsND.apply(
+            array, v -> v, DoubleArraysND.create(300, 70));
+        
+        MutableDoubleArrayND expected = 
+            DoubleArrayFunctionsND.apply(dense, v -> v + 1.0, null);
+        SparseDoubleArrayND actual = DoubleArraysND.createSparse(300, 70);
+        DoubleArrayFunctionsND.apply(array, v -> v + 1.0, actual);
+        assertEquals(expected, actual);
+        assertEquals(300 * 70, actual.getNonZeroCount());
+    }
+    
+    private static Map<IntTuple, Double> fillRandomly(
+        SparseDoubleArrayND array, int n)
+    {
+        Random random = new Random(0);
+        Map<IntTuple, Double> values = new HashMap<IntTuple, Double>();
+        IntTuple size = array.getSize();
+        for (int i = 0; i < n; i++)
+        {
+            IntTuple t = IntTuples.of(
+                random.nextInt(size.get(0)), random.nextInt(size.get(1)));
+            double value = random.nextDouble() + 1.0;
+            array.set(t, value);
+            values.put(t, value);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance;
+
+import java.util.Arrays;
+
+/**
+ * A max-heap with a fixed capacity, storing pairs of distances and 
+ * indices. It is used for selecting the <code>k</code> pairs with the 
+ * smallest distances from a larger set.<br>
+ * <br>
+ * Pairs are ordered by their distance, as of <code>Double.compare</code>,
+ * and pairs with equal distances are ordered by their index. This makes 
+ * the selection independent of the order in which the pairs are offered.
+ * <br>
+ * <br>
+ * This class should <b>not</b> be considered as being a part of the 
+ * public API.
+ */
+public class BoundedMaxHeap
+{
+    /**
+     * The distances
+     */
+    private final double distances[];
+    
+    /**
+     * The indices
+     */
+    private final int indices[];
+    
+    /**
+     * The number of elements in this heap
+     */
+    private int size;
+    
+    /**
+     * Creates a new heap with the given capacity
+     * 
+     * @param capacity The capacity, which is assumed to be positive
+     */
+    public BoundedMaxHeap(int capacity)
+    {
+        this.distances = new double[capacity];
+        this.indices = new int[capacity];
+    }
+    
+    /**
+     * Returns the number of elements in this heap
+     * 
+     * @return The size
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns whether this heap contains as many elements as its capacity
+     * 
+     * @return Whether this heap is full
+     */
+    public boolean isFull()
+    {
+        return size == distances.length;
+    }
+    
+    /**
+     * Returns the largest distance in this heap, or 
+     * <code>Double.POSITIVE_INFINITY</code> if the heap is not full
+     * 
+     * @return The threshold distance
+     */
+    public double threshold()
+    {
+        return isFull() ? distances[0] : Double.POSITIVE_INFINITY;
+    }
+    
+    /**
+     * Offer the given pair to this heap. If the heap is full, and the
+     * given pair is smaller than the largest pair in the heap, then the
+     * largest pair will be replaced. 
+     * 
+     * @param distance The distance
+     * @param index The index
+     * @return Whether the pair was added
+     */
+    public boolean offer(double distance, int index)
+    {
+        if (size < distances.length)
+        {
+            int i = size++;
+            while (i > 0)
+            {
+                int parent = (i - 1) >>> 1;
+                if (!greater(distance, index, parent))
+                {
+                    break;
+                }
+                distances[i] = distances[parent];
+                indices[i] = indices[parent];
+                i = parent;
+            }
+            distances[i] = distance;
+            indices[i] = index;
+            return true;
+        }
+        if (!greater(distances[0], indices[0], distance, index))
+        {
+            return false;
+        }
+        int i = 0;
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= size)
+            {
+                break;
+            }
+            if (child + 1 < size && 
+                greater(distances[child + 1], indices[child + 1], child))
+            {
+                child++;
+            }
+            if (!greater(distances[child], indices[child], distance, index))
+            {
+                break;
+            }
+            distances[i] = distances[child];
+            indices[i] = indices[child];
+            i = child;
+        }
+        distances[i] = distance;
+        indices[i] = index;
+        return true;
+    }
+    
+    /**
+     * Offer all elements of the given heap to this heap
+     * 
+     * @param other The other heap
+     */
+    public void offerAll(BoundedMaxHeap other)
+    {
+        for (int i = 0; i < other.size; i++)
+        {
+            offer(other.distances[i], other.indices[i]);
+        }
+    }
+    
+    /**
+     * Returns the indices of the elements in this heap, sorted by 
+     * ascending distance. If the given distances array is not 
+     * <code>null</code>, then it will receive the corresponding 
+     * distances.
+     * 
+     * @param sortedDistances The optional array for the distances
+     * @return The sorted indices
+     */
+    public int[] toSortedIndices(double sortedDistances[])
+    {
+        Integer order[] = new Integer[size];
+        for (int i = 0; i < size; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i0, i1) -> 
+        {
+            int c = Double.compare(distances[i0], distances[i1]);
+            return c != 0 ? c : Integer.compare(indices[i0], indices[i1]);
+        });
+        int result[] = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = indices[order[i]];
+            if (sortedDistances != null)
+            {
+                sortedDistances[i] = distances[order[i]];
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns whether the given pair is greater than the pair at the 
+     * given position in this heap
+     * 
+     * @param distance The distance
+     * @param index The index
+     * @param position The position
+     * @return Whether the pair is greater
+     */
+    private boolean greater(double distance, int index, int position)
+    {
+        return greater(
+            distance, index, distances[position], indices[position]);
+    }
+    
+    /**
+     * Returns whether the first given pair is greater than the second one
+     * 
+     * @param d0 The first distance
+     * @param i0 The first index
+     * @param d1 The second distance
+     * @param i1 The second index
+     * @return Whether the first pair is greater
+     */
+    private static boolean greater(double d0, int i0, double d1, int i1)
+    {
+        int c = Double.compare(d0, d1);
+        return c > 0 || (c == 0 && i0 > i1);
+    }
+}
@@ -26,6 +26,7 @@
  */
 package de.javagl.nd.distance;
 
+import java.util.List;
 import java.util.function.ToDoubleBiFunction;
 
 /**
@@ -47,6 +48,34 @@ public interface DistanceFunction<T> extends ToDoubleBiFunction<T, T>
      */
     double distance(T t0, T t1);
     
+    /**
+     * Computes the distances between the given query and all given
+     * candidates. After this method returns, <code>result[i]</code> 
+     * will contain the distance between the query and the candidate 
+     * with index <code>i</code>.<br>
+     * <br>
+     * The default implementation calls {@link #distance(Object, Object)}
+     * for each candidate. Implementations may override this method in 
+     * order to perform the computation more efficiently.
+     * 
+     * @param query The query
+     * @param candidates The candidates
+     * @param result The array that will store the distances
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If the result array is smaller
+     * than the number of candidates
+     */
+    default void distances(T query, List<? extends T> candidates, 
+        double result[])
+    {
+        Utils.checkForBatchSize(candidates, result);
+        int n = candidates.size();
+        for (int i = 0; i < n; i++)
+        {
+            result[i] = distance(query, candidates.get(i));
+        }
+    }
+    
     @Override
     default double applyAsDouble(T t0, T t1)
     {
@@ -0,0 +1,212 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Methods for selecting the elements of a list that are nearest to a 
+ * reference element.<br>
+ * <br>
+ * In contrast to sorting the list with a comparator that is based on the 
+ * distances, these methods compute the distance of each candidate to the 
+ * reference exactly once, using the 
+ * {@link DistanceFunction#distances(Object, List, double[]) batch method}
+ * of the distance function, and select the nearest candidates with a 
+ * bounded heap.<br>
+ * <br>
+ * The returned neighbors are sorted by their distance. Neighbors with 
+ * equal distances are sorted by their index. 
+ */
+public class NearestNeighbors
+{
+    /**
+     * The number of candidates that are processed in one chunk
+     */
+    private static final int CHUNK_SIZE = 4096;
+    
+    /**
+     * Returns the <code>k</code> candidates that have the smallest 
+     * distance to the given reference, according to the given distance 
+     * function. If there are fewer than <code>k</code> candidates, then 
+     * all candidates will be returned.
+     * 
+     * @param <T> The type of the elements
+     * @param reference The reference
+     * @param candidates The candidates
+     * @param distanceFunction The distance function
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If <code>k</code> is not positive
+     */
+    public static <T> List<Neighbor<T>> findNearest(T reference,
+        List<? extends T> candidates, 
+        DistanceFunction<? super T> distanceFunction, int k)
+    {
+        checkArguments(candidates, distanceFunction, k);
+        BoundedMaxHeap heap = processChunk(
+            reference, candidates, distanceFunction, k, 
+            0, candidates.size());
+        return createResult(candidates, heap);
+    }
+    
+    /**
+     * Returns the <code>k</code> candidates that have the smallest 
+     * distance to the given reference, according to the given distance 
+     * function. See 
+     * {@link #findNearest(Object, List, DistanceFunction, int)} for 
+     * details.<br>
+     * <br>
+     * The candidates are divided into chunks that are processed in 
+     * parallel, and the nearest neighbors of all chunks are merged at 
+     * the end. The result is the same as for the non-parallel method.
+     * The distance function must be thread-safe.
+     * 
+     * @param <T> The type of the elements
+     * @param reference The reference
+     * @param candidates The candidates
+     * @param distanceFunction The distance function
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If <code>k</code> is not positive
+     */
+    public static <T> List<Neighbor<T>> findNearestParallel(T reference,
+        List<? extends T> candidates, 
+        DistanceFunction<? super T> distanceFunction, int k)
+    {
+        checkArguments(candidates, distanceFunction, k);
+        int n = candidates.size();
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        BoundedMaxHeap heap = IntStream.range(0, chunks).parallel()
+            .mapToObj(c -> 
+            {
+                int min = c * CHUNK_SIZE;
+                int max = Math.min(n, min + CHUNK_SIZE);
+                return processChunk(
+                    reference, candidates, distanceFunction, k, min, max);
+            })
+            .reduce(new BoundedMaxHeap(k), (h0, h1) -> 
+            {
+                BoundedMaxHeap merged = new BoundedMaxHeap(k);
+                merged.offerAll(h0);
+                merged.offerAll(h1);
+                return merged;
+            });
+        return createResult(candidates, heap);
+    }
+    
+    /**
+     * Check the given arguments for validity
+     * 
+     * @param candidates The candidates
+     * @param distanceFunction The distance function
+     * @param k The maximum number of neighbors
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If <code>k</code> is not positive
+     */
+    private static void checkArguments(List<?> candidates, 
+        DistanceFunction<?> distanceFunction, int k)
+    {
+        Objects.requireNonNull(candidates, "The candidates are null");
+        Objects.requireNonNull(distanceFunction, 
+            "The distanceFunction is null");
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of neighbors must be positive, but is " + k);
+        }
+    }
+    
+    /**
+     * Compute the nearest neighbors among the specified range of the
+     * given candidates
+     * 
+     * @param <T> The type of the elements
+     * @param reference The reference
+     * @param candidates The candidates
+     * @param distanceFunction The distance function
+     * @param k The maximum number of neighbors
+     * @param min The minimum index, inclusive
+     * @param max The maximum index, exclusive
+     * @return The heap containing the nearest neighbors
+     */
+    private static <T> BoundedMaxHeap processChunk(T reference, 
+        List<? extends T> candidates, 
+        DistanceFunction<? super T> distanceFunction, 
+        int k, int min, int max)
+    {
+        BoundedMaxHeap heap = new BoundedMaxHeap(k);
+        double distances[] = new double[Math.min(max - min, CHUNK_SIZE)];
+        for (int start = min; start < max; start += distances.length)
+        {
+            int end = Math.min(max, start + distances.length);
+            distanceFunction.distances(
+                reference, candidates.subList(start, end), distances);
+            for (int i = start; i < end; i++)
+            {
+                heap.offer(distances[i - start], i);
+            }
+        }
+        return heap;
+    }
+    
+    /**
+     * Create the list of neighbors from the given heap
+     * 
+     * @param <T> The type of the elements
+     * @param candidates The candidates
+     * @param heap The heap
+     * @return The neighbors
+     */
+    private static <T> List<Neighbor<T>> createResult(
+        List<? extends T> candidates, BoundedMaxHeap heap)
+    {
+        double distances[] = new double[heap.size()];
+        int indices[] = heap.toSortedIndices(distances);
+        List<Neighbor<T>> result = new ArrayList<Neighbor<T>>(indices.length);
+        for (int i = 0; i < indices.length; i++)
+        {
+            int index = indices[i];
+            result.add(new Neighbor<T>(
+                candidates.get(index), index, distances[i]));
+        }
+        return result;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private NearestNeighbors()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance;
+
+import java.util.Objects;
+
+/**
+ * A neighbor of a reference element, as found by the 
+ * {@link NearestNeighbors} class. It consists of the element, its 
+ * index in the list of candidates, and its distance to the reference. 
+ * 
+ * @param <T> The type of the element
+ */
+public final class Neighbor<T>
+{
+    /**
+     * The element
+     */
+    private final T element;
+    
+    /**
+     * The index of the element
+     */
+    private final int index;
+    
+    /**
+     * The distance to the reference
+     */
+    private final double distance;
+    
+    /**
+     * Creates a new neighbor
+     * 
+     * @param element The element
+     * @param index The index of the element
+     * @param distance The distance to the reference
+     */
+    public Neighbor(T element, int index, double distance)
+    {
+        this.element = element;
+        this.index = index;
+        this.distance = distance;
+    }
+    
+    /**
+     * Returns the element
+     * 
+     * @return The element
+     */
+    public T getElement()
+    {
+        return element;
+    }
+    
+    /**
+     * Returns the index of the element in the list of candidates 
+     * 
+     * @return The index
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+    
+    /**
+     * Returns the distance of the element to the reference
+     * 
+     * @return The distance
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(element, index, distance);
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if (this == object)
+        {
+            return true;
+        }
+        if (!(object instanceof Neighbor))
+        {
+            return false;
+        }
+        Neighbor<?> other = (Neighbor<?>) object;
+        return index == other.index && 
+            Double.compare(distance, other.distance) == 0 &&
+            Objects.equals(element, other.element);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Neighbor[element=" + element + ", index=" + index + 
+            ", distance=" + distance + "]";
+    }
+}
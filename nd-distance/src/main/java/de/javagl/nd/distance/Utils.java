@@ -0,0 +1,139 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance;
+
+import java.util.List;
+import java.util.Objects;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+
+/**
+ * Internal utility methods for the distance package. <br>
+ * <br>
+ * These methods should <b>not</b> be considered as being a part of the 
+ * public API.
+ */
+public class Utils
+{
+    /**
+     * Checks whether the given result array is large enough to store
+     * one distance for each of the given candidates, and throws an
+     * <code>IllegalArgumentException</code> if not.
+     * 
+     * @param candidates The candidates
+     * @param result The result array
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If the result array is smaller
+     * than the number of candidates
+     */
+    public static void checkForBatchSize(List<?> candidates, double result[])
+    {
+        Objects.requireNonNull(candidates, "The candidates are null");
+        Objects.requireNonNull(result, "The result is null");
+        if (result.length < candidates.size())
+        {
+            throw new IllegalArgumentException(
+                "The result has a length of " + result.length + 
+                ", but there are " + candidates.size() + " candidates");
+        }
+    }
+    
+    /**
+     * Checks whether the given value is a valid exponent for a Minkowski
+     * distance, and throws an <code>IllegalArgumentException</code> if 
+     * not. Valid exponents are values that are at least 1.0, including
+     * <code>Double.POSITIVE_INFINITY</code>.
+     * 
+     * @param p The exponent
+     * @throws IllegalArgumentException If the exponent is not valid
+     */
+    public static void checkMinkowskiExponent(double p)
+    {
+        if (!(p >= 1.0))
+        {
+            throw new IllegalArgumentException(
+                "The exponent must be at least 1.0, but is " + p);
+        }
+    }
+    
+    /**
+     * Returns a copy of the given weights, as an array, or 
+     * <code>null</code> if the given weights are <code>null</code>
+     * 
+     * @param weights The weights. May be <code>null</code>.
+     * @return The weights array
+     * @throws IllegalArgumentException If any weight is negative, 
+     * infinite or NaN
+     */
+    public static double[] toWeightsArray(DoubleTuple weights)
+    {
+        if (weights == null)
+        {
+            return null;
+        }
+        double result[] = new double[weights.getSize()];
+        for (int i = 0; i < result.length; i++)
+        {
+            double weight = weights.get(i);
+            if (!(weight >= 0.0) || Double.isInfinite(weight))
+            {
+                throw new IllegalArgumentException(
+                    "The weights must be finite and not negative, but " + 
+                    "weight " + i + " is " + weight);
+            }
+            result[i] = weight;
+        }
+        return result;
+    }
+    
+    /**
+     * Checks whether the given weights array has the given length, and
+     * throws an <code>IllegalArgumentException</code> if not
+     * 
+     * @param weights The weights. May be <code>null</code>.
+     * @param size The expected size
+     * @throws IllegalArgumentException If the weights are not 
+     * <code>null</code> and do not have the given length
+     */
+    public static void checkWeightsSize(double weights[], int size)
+    {
+        if (weights != null && weights.length != size)
+        {
+            throw new IllegalArgumentException(
+                "There are " + weights.length + " weights, but the " + 
+                "tuples have a size of " + size);
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private Utils()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
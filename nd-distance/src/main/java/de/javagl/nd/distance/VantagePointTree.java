@@ -0,0 +1,589 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * A vantage-point tree for nearest neighbor and range queries in an 
+ * arbitrary metric space.<br>
+ * <br>
+ * In contrast to spatial trees that split along coordinate axes, this
+ * tree only uses the {@link DistanceFunction}: Each inner node stores a 
+ * vantage point and the median distance of the remaining elements to 
+ * this point. The elements are split into those that are inside and 
+ * those that are outside of this radius. During a query, the triangle 
+ * inequality is used for skipping subtrees that can not contain any
+ * result. It can therefore be used for any distance function that is a 
+ * metric, for example, the wrapped distances on a torus.<br>
+ * <br>
+ * The results are only correct if the distance function is a metric. 
+ * In particular, it must satisfy the triangle inequality. (For example,
+ * the squared Euclidean distance is <b>not</b> a metric).<br>
+ * <br>
+ * The tree is built in parallel when it is created, and is immutable
+ * afterwards. Queries may be performed concurrently. The number of 
+ * distance computations that have been performed for the queries are 
+ * counted, and may be used for assessing the efficiency of the tree 
+ * for a particular data set.
+ * 
+ * @param <T> The type of the elements
+ */
+public final class VantagePointTree<T>
+{
+    /**
+     * The maximum number of elements in a leaf. Leaves are searched 
+     * linearly.
+     */
+    private static final int LEAF_SIZE = 8;
+    
+    /**
+     * The minimum number of elements in a subtree for which the 
+     * construction is forked into a separate task
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+    
+    /**
+     * The elements
+     */
+    private final List<T> elements;
+    
+    /**
+     * The distance function
+     */
+    private final DistanceFunction<? super T> distanceFunction;
+    
+    /**
+     * The indices of the elements, ordered according to the tree 
+     * structure. For an inner node covering the range 
+     * <code>[min, max)</code>, the element at <code>min</code> is the
+     * vantage point, the range <code>[min+1, mid)</code> contains the
+     * inside elements, and <code>[mid, max)</code> the outside elements,
+     * where <code>mid = (min + 1 + max) / 2</code>.
+     */
+    private final int order[];
+    
+    /**
+     * The radii of the inner nodes, stored at the index where the 
+     * vantage point of the node is stored in the {@link #order}
+     */
+    private final double radii[];
+    
+    /**
+     * The number of distance computations during the construction
+     */
+    private final long buildDistanceComputationCount;
+    
+    /**
+     * The number of distance computations during queries
+     */
+    private final LongAdder distanceComputationCount;
+    
+    /**
+     * The number of queries
+     */
+    private final LongAdder queryCount;
+    
+    /**
+     * Creates a new tree for the given elements, using the common
+     * pool for the parallel construction. A copy of the given list 
+     * will be stored.
+     * 
+     * @param elements The elements
+     * @param distanceFunction The distance function
+     * @throws NullPointerException If any argument is <code>null</code>
+     */
+    public VantagePointTree(List<? extends T> elements, 
+        DistanceFunction<? super T> distanceFunction)
+    {
+        this(elements, distanceFunction, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Creates a new tree for the given elements, using the given pool
+     * for the parallel construction. A copy of the given list will be 
+     * stored.
+     * 
+     * @param elements The elements
+     * @param distanceFunction The distance function
+     * @param pool The pool
+     * @throws NullPointerException If any argument is <code>null</code>
+     */
+    public VantagePointTree(List<? extends T> elements, 
+        DistanceFunction<? super T> distanceFunction, ForkJoinPool pool)
+    {
+        Objects.requireNonNull(elements, "The elements are null");
+        Objects.requireNonNull(distanceFunction, 
+            "The distanceFunction is null");
+        Objects.requireNonNull(pool, "The pool is null");
+        this.elements = Collections.unmodifiableList(
+            new ArrayList<T>(elements));
+        this.distanceFunction = distanceFunction;
+        int n = this.elements.size();
+        this.order = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            order[i] = i;
+        }
+        this.radii = new double[n];
+        LongAdder buildCount = new LongAdder();
+        pool.invoke(new BuildAction(0, n, new double[n], buildCount));
+        this.buildDistanceComputationCount = buildCount.sum();
+        this.distanceComputationCount = new LongAdder();
+        this.queryCount = new LongAdder();
+    }
+    
+    /**
+     * A recursive action that builds the subtree for a range of the
+     * {@link VantagePointTree#order}
+     */
+    private final class BuildAction extends RecursiveAction
+    {
+        /**
+         * Serial UID
+         */
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * The minimum index, inclusive
+         */
+        private final int min;
+        
+        /**
+         * The maximum index, exclusive
+         */
+        private final int max;
+        
+        /**
+         * The distances of the elements to the vantage point, for all
+         * elements of the tree. The ranges of different actions are
+         * disjoint.
+         */
+        private final double distances[];
+        
+        /**
+         * The counter for the distance computations
+         */
+        private final LongAdder counter;
+        
+        /**
+         * Creates a new action
+         * 
+         * @param min The minimum index, inclusive
+         * @param max The maximum index, exclusive
+         * @param distances The distances
+         * @param counter The counter for the distance computations
+         */
+        BuildAction(int min, int max, double distances[], LongAdder counter)
+        {
+            this.min = min;
+            this.max = max;
+            this.distances = distances;
+            this.counter = counter;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if (max - min <= LEAF_SIZE)
+            {
+                return;
+            }
+            Random random = new Random(((long)min << 32) ^ max);
+            swap(min, min + random.nextInt(max - min));
+            T vantagePoint = elements.get(order[min]);
+            for (int i = min + 1; i < max; i++)
+            {
+                distances[i] = distanceFunction.distance(
+                    vantagePoint, elements.get(order[i]));
+            }
+            counter.add(max - min - 1);
+            int mid = (min + 1 + max) / 2;
+            select(min + 1, max - 1, mid);
+            radii[min] = distances[mid];
+            BuildAction inside = 
+                new BuildAction(min + 1, mid, distances, counter);
+            BuildAction outside = 
+                new BuildAction(mid, max, distances, counter);
+            if (max - min >= PARALLEL_THRESHOLD)
+            {
+                invokeAll(inside, outside);
+            }
+            else
+            {
+                inside.compute();
+                outside.compute();
+            }
+        }
+        
+        /**
+         * Reorders the range <code>[left, right]</code> so that the 
+         * element with the given rank is at its sorted position, all 
+         * elements before have a distance that is not larger, and all
+         * elements after have a distance that is not smaller.
+         * 
+         * @param left The left index, inclusive
+         * @param right The right index, inclusive
+         * @param rank The rank
+         */
+        private void select(int left, int right, int rank)
+        {
+            int l = left;
+            int r = right;
+            while (l < r)
+            {
+                double pivot = distances[(l + r) >>> 1];
+                int i = l;
+                int j = r;
+                while (i <= j)
+                {
+                    while (distances[i] < pivot)
+                    {
+                        i++;
+                    }
+                    while (distances[j] > pivot)
+                    {
+                        j--;
+                    }
+                    if (i <= j)
+                    {
+                        swap(i, j);
+                        i++;
+                        j--;
+                    }
+                }
+                if (rank <= j)
+                {
+                    r = j;
+                }
+                else if (rank >= i)
+                {
+                    l = i;
+                }
+                else
+                {
+                    return;
+                }
+            }
+        }
+        
+        /**
+         * Swap the entries at the given indices in the order and the
+         * distances
+         * 
+         * @param i0 The first index
+         * @param i1 The second index
+         */
+        private void swap(int i0, int i1)
+        {
+            int t = order[i0];
+            order[i0] = order[i1];
+            order[i1] = t;
+            double d = distances[i0];
+            distances[i0] = distances[i1];
+            distances[i1] = d;
+        }
+    }
+    
+    /**
+     * Returns the number of elements in this tree
+     * 
+     * @return The size
+     */
+    public int size()
+    {
+        return elements.size();
+    }
+    
+    /**
+     * Returns the <code>k</code> elements that have the smallest distance 
+     * to the given query. If there are fewer than <code>k</code> elements, 
+     * then all elements will be returned. The neighbors are sorted by
+     * their distance, and neighbors with equal distances are sorted by
+     * their index. The {@link Neighbor#getIndex() index} of each neighbor
+     * is the index of the element in the list that the tree was created 
+     * from.
+     * 
+     * @param query The query
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors
+     * @throws IllegalArgumentException If <code>k</code> is not positive
+     */
+    public List<Neighbor<T>> findNearest(T query, int k)
+    {
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of neighbors must be positive, but is " + k);
+        }
+        BoundedMaxHeap heap = new BoundedMaxHeap(k);
+        long count = searchNearest(query, 0, order.length, heap);
+        distanceComputationCount.add(count);
+        queryCount.increment();
+        double distances[] = new double[heap.size()];
+        int indices[] = heap.toSortedIndices(distances);
+        List<Neighbor<T>> result = new ArrayList<Neighbor<T>>(indices.length);
+        for (int i = 0; i < indices.length; i++)
+        {
+            int index = indices[i];
+            result.add(new Neighbor<T>(
+                elements.get(index), index, distances[i]));
+        }
+        return result;
+    }
+    
+    /**
+     * Performs a {@link #findNearest(Object, int)} query for each of the
+     * given queries, in parallel
+     * 
+     * @param queries The queries
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors for each query
+     * @throws IllegalArgumentException If <code>k</code> is not positive
+     */
+    public List<List<Neighbor<T>>> findNearest(
+        List<? extends T> queries, int k)
+    {
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of neighbors must be positive, but is " + k);
+        }
+        return queries.parallelStream()
+            .map(query -> findNearest(query, k))
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Search the nearest neighbors of the given query in the specified
+     * range of the {@link #order}
+     * 
+     * @param query The query
+     * @param min The minimum index, inclusive
+     * @param max The maximum index, exclusive
+     * @param heap The heap receiving the neighbors
+     * @return The number of distance computations
+     */
+    private long searchNearest(T query, int min, int max, BoundedMaxHeap heap)
+    {
+        if (max - min <= LEAF_SIZE)
+        {
+            for (int i = min; i < max; i++)
+            {
+                int index = order[i];
+                heap.offer(distanceFunction.distance(
+                    query, elements.get(index)), index);
+            }
+            return max - min;
+        }
+        int index = order[min];
+        double d = distanceFunction.distance(query, elements.get(index));
+        heap.offer(d, index);
+        long count = 1;
+        double radius = radii[min];
+        int mid = (min + 1 + max) / 2;
+        if (d < radius)
+        {
+            count += searchNearest(query, min + 1, mid, heap);
+            if (radius - d <= heap.threshold())
+            {
+                count += searchNearest(query, mid, max, heap);
+            }
+        }
+        else
+        {
+            count += searchNearest(query, mid, max, heap);
+            if (d - radius <= heap.threshold())
+            {
+                count += searchNearest(query, min + 1, mid, heap);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Returns all elements whose distance to the given query is not 
+     * larger than the given radius. The neighbors are sorted by their 
+     * distance, and neighbors with equal distances are sorted by their 
+     * index.
+     * 
+     * @param query The query
+     * @param radius The radius
+     * @return The neighbors
+     */
+    public List<Neighbor<T>> findWithin(T query, double radius)
+    {
+        List<Neighbor<T>> result = new ArrayList<Neighbor<T>>();
+        long count = searchWithin(query, radius, 0, order.length, result);
+        distanceComputationCount.add(count);
+        queryCount.increment();
+        result.sort((n0, n1) -> 
+        {
+            int c = Double.compare(n0.getDistance(), n1.getDistance());
+            return c != 0 ? c : Integer.compare(n0.getIndex(), n1.getIndex());
+        });
+        return result;
+    }
+    
+    /**
+     * Performs a {@link #findWithin(Object, double)} query for each of 
+     * the given queries, in parallel
+     * 
+     * @param queries The queries
+     * @param radius The radius
+     * @return The neighbors for each query
+     */
+    public List<List<Neighbor<T>>> findWithin(
+        List<? extends T> queries, double radius)
+    {
+        return queries.parallelStream()
+            .map(query -> findWithin(query, radius))
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Search the elements within the given radius around the given query
+     * in the specified range of the {@link #order}
+     * 
+     * @param query The query
+     * @param radius The radius
+     * @param min The minimum index, inclusive
+     * @param max The maximum index, exclusive
+     * @param result The list receiving the neighbors
+     * @return The number of distance computations
+     */
+    private long searchWithin(T query, double radius, int min, int max, 
+        List<Neighbor<T>> result)
+    {
+        if (max - min <= LEAF_SIZE)
+        {
+            for (int i = min; i < max; i++)
+            {
+                addIfWithin(query, radius, order[i], result);
+            }
+            return max - min;
+        }
+        double d = addIfWithin(query, radius, order[min], result);
+        long count = 1;
+        double nodeRadius = radii[min];
+        int mid = (min + 1 + max) / 2;
+        if (d - radius <= nodeRadius)
+        {
+            count += searchWithin(query, radius, min + 1, mid, result);
+        }
+        if (d + radius >= nodeRadius)
+        {
+            count += searchWithin(query, radius, mid, max, result);
+        }
+        return count;
+    }
+    
+    /**
+     * Compute the distance between the given query and the element with
+     * the given index, and add the element to the given result if the
+     * distance is not larger than the given radius
+     * 
+     * @param query The query
+     * @param radius The radius
+     * @param index The index
+     * @param result The result
+     * @return The distance
+     */
+    private double addIfWithin(T query, double radius, int index, 
+        List<Neighbor<T>> result)
+    {
+        T element = elements.get(index);
+        double d = distanceFunction.distance(query, element);
+        if (d <= radius)
+        {
+            result.add(new Neighbor<T>(element, index, d));
+        }
+        return d;
+    }
+    
+    /**
+     * Returns the number of distance computations that have been 
+     * performed during the construction of this tree
+     * 
+     * @return The number of distance computations
+     */
+    public long getBuildDistanceComputationCount()
+    {
+        return buildDistanceComputationCount;
+    }
+    
+    /**
+     * Returns the number of distance computations that have been 
+     * performed for queries, since this tree was created or the
+     * statistics have been {@link #resetStatistics() reset}
+     * 
+     * @return The number of distance computations
+     */
+    public long getDistanceComputationCount()
+    {
+        return distanceComputationCount.sum();
+    }
+    
+    /**
+     * Returns the number of queries that have been performed since this 
+     * tree was created or the statistics have been 
+     * {@link #resetStatistics() reset}
+     * 
+     * @return The number of queries
+     */
+    public long getQueryCount()
+    {
+        return queryCount.sum();
+    }
+    
+    /**
+     * Reset the query statistics
+     */
+    public void resetStatistics()
+    {
+        distanceComputationCount.reset();
+        queryCount.reset();
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "VantagePointTree[" + 
+            "size=" + size() + 
+            ", queryCount=" + getQueryCount() + 
+            ", distanceComputationCount=" + getDistanceComputationCount() + 
+            "]";
+    }
+}
@@ -0,0 +1,635 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.arrays;
+
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.arrays.d.DoubleArraysND;
+import de.javagl.nd.arrays.d.MutableDoubleArrayND;
+import de.javagl.nd.arrays.i.IntArrayND;
+import de.javagl.nd.arrays.i.MutableIntArrayND;
+import de.javagl.nd.iteration.tuples.i.IntTupleIterables;
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+/**
+ * Methods for computing distance transforms of N-dimensional arrays.<br>
+ * <br>
+ * A distance transform receives an {@link IntArrayND} where all non-zero
+ * entries are <i>seeds</i>, and computes, for each entry of the array, 
+ * the distance to the nearest seed. Optionally, an array of labels may 
+ * be computed, which receives the value of the nearest seed for each 
+ * entry. This may be used for computing discrete Voronoi diagrams.<br>
+ * <br>
+ * The transforms are computed in linear time, with one pass along each
+ * axis of the array. The lines along one axis are processed in parallel.
+ * The Euclidean distance transform uses the lower envelope of parabolas 
+ * that was described by Felzenszwalb and Huttenlocher. The Chebyshev
+ * distance transform uses the analogous construction by Meijster et al.
+ * The Manhattan distance transform uses a forward and a backward pass
+ * along each axis.<br>
+ * <br>
+ * When the transform is <i>wrapped</i>, then the array is interpreted
+ * as a torus, and the distance along each axis is computed as in the
+ * wrapped distance functions, for example
+ * {@link de.javagl.nd.distance.tuples.i.IntTupleDistanceFunctions#wrappedEuclidean(IntTuple)}.
+ * <br>
+ * <br>
+ * Entries for which no seed exists will receive a distance of 
+ * <code>Double.POSITIVE_INFINITY</code> and a label of 0. When several 
+ * seeds have the same distance to an entry, then it is not specified 
+ * which of their labels the entry receives.
+ */
+public class DistanceTransforms
+{
+    /**
+     * The metrics that are supported for the distance transforms
+     */
+    private enum Metric
+    {
+        /**
+         * The Euclidean metric
+         */
+        EUCLIDEAN,
+        
+        /**
+         * The Manhattan metric
+         */
+        MANHATTAN,
+        
+        /**
+         * The Chebyshev metric
+         */
+        CHEBYSHEV
+    }
+    
+    /**
+     * Computes the Euclidean distance transform of the given seeds.
+     * 
+     * @param seeds The seeds
+     * @param wrapped Whether the array should be treated as a torus
+     * @return The distances
+     * @throws NullPointerException If the seeds are <code>null</code>
+     */
+    public static MutableDoubleArrayND euclidean(
+        IntArrayND seeds, boolean wrapped)
+    {
+        return compute(Metric.EUCLIDEAN, seeds, wrapped);
+    }
+    
+    /**
+     * Computes the Euclidean distance transform of the given seeds, and
+     * writes the distances into the given array. If the given labels 
+     * array is not <code>null</code>, then it will receive the value of 
+     * the nearest seed for each entry.
+     * 
+     * @param seeds The seeds
+     * @param wrapped Whether the array should be treated as a torus
+     * @param distances The array that will store the distances
+     * @param labels The optional array that will store the labels
+     * @throws NullPointerException If the seeds or the distances are 
+     * <code>null</code>
+     * @throws IllegalArgumentException If the size of the distances or
+     * the labels is not the same as the size of the seeds
+     */
+    public static void euclidean(IntArrayND seeds, boolean wrapped,
+        MutableDoubleArrayND distances, MutableIntArrayND labels)
+    {
+        compute(Metric.EUCLIDEAN, seeds, wrapped, distances, labels);
+    }
+    
+    /**
+     * Computes the Manhattan distance transform of the given seeds.
+     * 
+     * @param seeds The seeds
+     * @param wrapped Whether the array should be treated as a torus
+     * @return The distances
+     * @throws NullPointerException If the seeds are <code>null</code>
+     */
+    public static MutableDoubleArrayND manhattan(
+        IntArrayND seeds, boolean wrapped)
+    {
+        return compute(Metric.MANHATTAN, seeds, wrapped);
+    }
+    
+    /**
+     * Computes the Manhattan distance transform of the given seeds, and
+     * writes the distances into the given array. If the given labels 
+     * array is not <code>null</code>, then it will receive the value of 
+     * the nearest seed for each entry.
+     * 
+     * @param seeds The seeds
+     * @param wrapped Whether the array should be treated as a torus
+     * @param distances The array that will store the distances
+     * @param labels The optional array that will store the labels
+     * @throws NullPointerException If the seeds or the distances are 
+     * <code>null</code>
+     * @throws IllegalArgumentException If the size of the distances or
+     * the labels is not the same as the size of the seeds
+     */
+    public static void manhattan(IntArrayND seeds, boolean wrapped,
+        MutableDoubleArrayND distances, MutableIntArrayND labels)
+    {
+        compute(Metric.MANHATTAN, seeds, wrapped, distances, labels);
+    }
+    
+    /**
+     * Computes the Chebyshev distance transform of the given seeds.
+     * 
+     * @param seeds The seeds
+     * @param wrapped Whether the array should be treated as a torus
+     * @return The distances
+     * @throws NullPointerException If the seeds are <code>null</code>
+     */
+    public static MutableDoubleArrayND chebyshev(
+        IntArrayND seeds, boolean wrapped)
+    {
+        return compute(Metric.CHEBYSHEV, seeds, wrapped);
+    }
+    
+    /**
+     * Computes the Chebyshev distance transform of the given seeds, and
+     * writes the distances into the given array. If the given labels 
+     * array is not <code>null</code>, then it will receive the value of 
+     * the nearest seed for each entry.
+     * 
+     * @param seeds The seeds
+     * @param wrapped Whether the array should be treated as a torus
+     * @param distances The array that will store the distances
+     * @param labels The optional array that will store the labels
+     * @throws NullPointerException If the seeds or the distances are 
+     * <code>null</code>
+     * @throws IllegalArgumentException If the size of the distances or
+     * the labels is not the same as the size of the seeds
+     */
+    public static void chebyshev(IntArrayND seeds, boolean wrapped,
+        MutableDoubleArrayND distances, MutableIntArrayND labels)
+    {
+        compute(Metric.CHEBYSHEV, seeds, wrapped, distances, labels);
+    }
+    
+    /**
+     * Computes the distance transform of the given seeds with the given
+     * metric
+     * 
+     * @param metric The metric
+     * @param seeds The seeds
+     * @param wrapped Whether the array should be treated as a torus
+     * @return The distances
+     */
+    private static MutableDoubleArrayND compute(
+        Metric metric, IntArrayND seeds, boolean wrapped)
+    {
+        Objects.requireNonNull(seeds, "The seeds are null");
+        MutableDoubleArrayND distances = 
+            DoubleArraysND.create(seeds.getSize());
+        compute(metric, seeds, wrapped, distances, null);
+        return distances;
+    }
+    
+    /**
+     * Computes the distance transform of the given seeds with the given
+     * metric
+     * 
+     * @param metric The metric
+     * @param seeds The seeds
+     * @param wrapped Whether the array should be treated as a torus
+     * @param distances The array that will store the distances
+     * @param labels The optional array that will store the labels
+     */
+    private static void compute(Metric metric, IntArrayND seeds, 
+        boolean wrapped, MutableDoubleArrayND distances, 
+        MutableIntArrayND labels)
+    {
+        Objects.requireNonNull(seeds, "The seeds are null");
+        Objects.requireNonNull(distances, "The distances are null");
+        IntTuple size = seeds.getSize();
+        checkSize("distances", distances.getSize(), size);
+        if (labels != null)
+        {
+            checkSize("labels", labels.getSize(), size);
+        }
+        int total = seeds.getTotalSize();
+        double values[] = new double[total];
+        int sources[] = new int[total];
+        int seedValues[] = labels == null ? null : new int[total];
+        int index = 0;
+        for (MutableIntTuple c : IntTupleIterables.lexicographicalIterable(size))
+        {
+            int seed = seeds.get(c);
+            values[index] = seed != 0 ? 0.0 : Double.POSITIVE_INFINITY;
+            sources[index] = seed != 0 ? index : -1;
+            if (seedValues != null)
+            {
+                seedValues[index] = seed;
+            }
+            index++;
+        }
+        
+        int stride = total;
+        for (int axis = 0; axis < size.getSize(); axis++)
+        {
+            int length = size.get(axis);
+            if (length == 0)
+            {
+                return;
+            }
+            stride /= length;
+            transformAxis(metric, values, sources, 
+                total, length, stride, wrapped);
+        }
+        
+        index = 0;
+        for (MutableIntTuple c : IntTupleIterables.lexicographicalIterable(size))
+        {
+            double value = values[index];
+            distances.set(c, metric == Metric.EUCLIDEAN ? 
+                Math.sqrt(value) : value);
+            if (labels != null)
+            {
+                int source = sources[index];
+                labels.set(c, source < 0 ? 0 : seedValues[source]);
+            }
+            index++;
+        }
+    }
+    
+    /**
+     * Make sure that the given size is equal to the expected size
+     * 
+     * @param name The name of the array
+     * @param size The size
+     * @param expectedSize The expected size
+     * @throws IllegalArgumentException If the sizes are not equal
+     */
+    private static void checkSize(
+        String name, IntTuple size, IntTuple expectedSize)
+    {
+        if (!size.equals(expectedSize))
+        {
+            throw new IllegalArgumentException(
+                "The " + name + " have a size of " + size + 
+                ", but the seeds have a size of " + expectedSize);
+        }
+    }
+    
+    /**
+     * A workspace for the transform of a single line
+     */
+    private static final class Workspace
+    {
+        /**
+         * The input values
+         */
+        final double input[];
+        
+        /**
+         * The output values
+         */
+        final double output[];
+        
+        /**
+         * The position in the input with the minimum, for each output
+         */
+        final int arguments[];
+        
+        /**
+         * The sources of the line
+         */
+        final int sources[];
+        
+        /**
+         * The positions of the lower envelope
+         */
+        final int envelope[];
+        
+        /**
+         * The boundaries of the lower envelope
+         */
+        final double boundaries[];
+        
+        /**
+         * Creates a new workspace
+         * 
+         * @param length The length of a line
+         * @param extendedLength The length of an extended line
+         */
+        Workspace(int length, int extendedLength)
+        {
+            input = new double[extendedLength];
+            output = new double[extendedLength];
+            arguments = new int[extendedLength];
+            sources = new int[length];
+            envelope = new int[extendedLength];
+            boundaries = new double[extendedLength + 1];
+        }
+    }
+    
+    /**
+     * Transform all lines along one axis. The values are stored in 
+     * lexicographical order. For the Euclidean metric, the values are
+     * squared distances. 
+     * 
+     * @param metric The metric
+     * @param values The values
+     * @param sources The flat index of the nearest seed of each entry, 
+     * or -1 if there is no seed
+     * @param total The total number of values
+     * @param length The length of the lines along the axis
+     * @param stride The stride between consecutive elements of a line
+     * @param wrapped Whether the lines are wrapped
+     */
+    private static void transformAxis(Metric metric, 
+        double values[], int sources[], int total, 
+        int length, int stride, boolean wrapped)
+    {
+        int extendedLength = wrapped ? 3 * length : length;
+        int offset = wrapped ? length : 0;
+        ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(
+            () -> new Workspace(length, extendedLength));
+        int lines = total / length;
+        IntStream.range(0, lines).parallel().forEach(line -> 
+        {
+            Workspace w = workspaces.get();
+            int base = (line / stride) * length * stride + (line % stride);
+            
+            // For wrapped lines, three copies of the line are placed 
+            // next to each other, and the middle one is evaluated
+            for (int i = 0; i < extendedLength; i++)
+            {
+                w.input[i] = values[base + (i % length) * stride];
+            }
+            for (int i = 0; i < length; i++)
+            {
+                w.sources[i] = sources[base + i * stride];
+            }
+            switch (metric)
+            {
+                case EUCLIDEAN:
+                    transformEuclidean(w, extendedLength);
+                    break;
+                case MANHATTAN:
+                    transformManhattan(w, extendedLength);
+                    break;
+                default:
+                    transformChebyshev(w, extendedLength);
+                    break;
+            }
+            for (int i = 0; i < length; i++)
+            {
+                int e = offset + i;
+                int a = w.arguments[e];
+                values[base + i * stride] = w.output[e];
+                sources[base + i * stride] = a < 0 ? -1 : w.sources[a % length];
+            }
+        });
+    }
+    
+    /**
+     * Computes the one-dimensional transform 
+     * <code>output[p] = min_q (p - q)^2 + input[q]</code> 
+     * using the lower envelope of parabolas.
+     * 
+     * @param w The workspace
+     * @param n The length of the line
+     */
+    private static void transformEuclidean(Workspace w, int n)
+    {
+        double f[] = w.input;
+        int v[] = w.envelope;
+        double z[] = w.boundaries;
+        int k = -1;
+        for (int q = 0; q < n; q++)
+        {
+            if (f[q] == Double.POSITIVE_INFINITY)
+            {
+                continue;
+            }
+            if (k < 0)
+            {
+                k = 0;
+                v[0] = q;
+                z[0] = Double.NEGATIVE_INFINITY;
+                z[1] = Double.POSITIVE_INFINITY;
+                continue;
+            }
+            double s = intersection(f, v[k], q);
+            while (s <= z[k])
+            {
+                k--;
+                s = intersection(f, v[k], q);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = Double.POSITIVE_INFINITY;
+        }
+        if (k < 0)
+        {
+            fillEmpty(w, n);
+            return;
+        }
+        int j = 0;
+        for (int p = 0; p < n; p++)
+        {
+            while (z[j + 1] < p)
+            {
+                j++;
+            }
+            int q = v[j];
+            double d = p - q;
+            w.output[p] = d * d + f[q];
+            w.arguments[p] = q;
+        }
+    }
+    
+    /**
+     * Computes the intersection of the parabolas that are rooted at
+     * the given positions
+     * 
+     * @param f The values
+     * @param r The first position
+     * @param q The second position, which is larger than the first
+     * @return The intersection
+     */
+    private static double intersection(double f[], int r, int q)
+    {
+        double dq = q;
+        double dr = r;
+        return ((f[q] + dq * dq) - (f[r] + dr * dr)) / (2.0 * (dq - dr));
+    }
+    
+    /**
+     * Computes the one-dimensional transform 
+     * <code>output[p] = min_q |p - q| + input[q]</code> 
+     * using a forward and a backward pass
+     * 
+     * @param w The workspace
+     * @param n The length of the line
+     */
+    private static void transformManhattan(Workspace w, int n)
+    {
+        double f[] = w.input;
+        double d[] = w.output;
+        int a[] = w.arguments;
+        for (int p = 0; p < n; p++)
+        {
+            d[p] = f[p];
+            a[p] = f[p] == Double.POSITIVE_INFINITY ? -1 : p;
+            if (p > 0 && d[p - 1] + 1 < d[p])
+            {
+                d[p] = d[p - 1] + 1;
+                a[p] = a[p - 1];
+            }
+        }
+        for (int p = n - 2; p >= 0; p--)
+        {
+            if (d[p + 1] + 1 < d[p])
+            {
+                d[p] = d[p + 1] + 1;
+                a[p] = a[p + 1];
+            }
+        }
+    }
+    
+    /**
+     * Computes the one-dimensional transform 
+     * <code>output[p] = min_q max(|p - q|, input[q])</code> 
+     * using the lower envelope of the functions for the positions 
+     * <code>q</code>
+     * 
+     * @param w The workspace
+     * @param n The length of the line
+     */
+    private static void transformChebyshev(Workspace w, int n)
+    {
+        double f[] = w.input;
+        int s[] = w.envelope;
+        double t[] = w.boundaries;
+        int k = -1;
+        for (int u = 0; u < n; u++)
+        {
+            if (f[u] == Double.POSITIVE_INFINITY)
+            {
+                continue;
+            }
+            while (k >= 0 && 
+                chebyshev(f, t[k], s[k]) > chebyshev(f, t[k], u))
+            {
+                k--;
+            }
+            if (k < 0)
+            {
+                k = 0;
+                s[0] = u;
+                t[0] = 0;
+            }
+            else
+            {
+                double x = 1 + separator(f, s[k], u);
+                if (x < n)
+                {
+                    k++;
+                    s[k] = u;
+                    t[k] = x;
+                }
+            }
+        }
+        if (k < 0)
+        {
+            fillEmpty(w, n);
+            return;
+        }
+        for (int p = n - 1; p >= 0; p--)
+        {
+            w.output[p] = chebyshev(f, p, s[k]);
+            w.arguments[p] = s[k];
+            if (p == t[k])
+            {
+                k--;
+            }
+        }
+    }
+    
+    /**
+     * Returns <code>max(|x - i|, f[i])</code>
+     * 
+     * @param f The values
+     * @param x The position
+     * @param i The root position
+     * @return The value
+     */
+    private static double chebyshev(double f[], double x, int i)
+    {
+        return Math.max(Math.abs(x - i), f[i]);
+    }
+    
+    /**
+     * Returns the last position where the function rooted at 
+     * <code>i</code> is not larger than the function rooted at 
+     * <code>u</code>, for the Chebyshev transform
+     * 
+     * @param f The values
+     * @param i The first position
+     * @param u The second position, which is larger than the first
+     * @return The separator
+     */
+    private static double separator(double f[], int i, int u)
+    {
+        double middle = Math.floor((i + u) / 2.0);
+        if (f[i] <= f[u])
+        {
+            return Math.max(i + f[u], middle);
+        }
+        return Math.min(u - f[i], middle);
+    }
+    
+    /**
+     * Fill the output of the given workspace for a line that does not
+     * contain any seed
+     * 
+     * @param w The workspace
+     * @param n The length of the line
+     */
+    private static void fillEmpty(Workspace w, int n)
+    {
+        for (int p = 0; p < n; p++)
+        {
+            w.output[p] = Double.POSITIVE_INFINITY;
+            w.arguments[p] = -1;
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DistanceTransforms()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Methods for computing distance transforms of 
+ * {@link de.javagl.nd.arrays.ArrayND ArrayND} instances, which are 
+ * offered by the {@link de.javagl.nd.distance.arrays.DistanceTransforms 
+ * DistanceTransforms} class.
+ */
+package de.javagl.nd.distance.arrays;
+
@@ -0,0 +1,435 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.clustering;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.iteration.tuples.i.IntTupleNeighborhoodIterables;
+import de.javagl.nd.tuples.Order;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.i.IntTupleIntMap;
+import de.javagl.nd.tuples.i.IntTuples;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+/**
+ * An implementation of the DBSCAN density-based clustering for 
+ * {@link DoubleTuple}s.<br>
+ * <br>
+ * A tuple is a <i>core point</i> when at least a minimum number of tuples
+ * (including the tuple itself) have a distance of at most 
+ * <code>epsilon</code> to it. Core points that are within this distance 
+ * of each other belong to the same cluster. Other tuples that are within 
+ * this distance of a core point are <i>border points</i> of the cluster 
+ * of this core point. All remaining tuples are <i>noise</i>.<br>
+ * <br>
+ * The tuples are sorted into a uniform grid with cells that have a size of
+ * <code>epsilon</code>, so that each tuple only has to be compared to the
+ * tuples in the same and in the directly adjacent cells. This requires 
+ * that the distance between two tuples is never smaller than their 
+ * Chebyshev distance, which is the case, for example, for the Euclidean, 
+ * Manhattan and Chebyshev distance. Since the number of adjacent cells 
+ * grows exponentially with the number of dimensions, this is mainly 
+ * intended for low-dimensional tuples.<br>
+ * <br>
+ * The core points are determined in parallel. The clusters are then 
+ * formed with a concurrent union-find structure. The result does not 
+ * depend on the order in which the tuples are processed: Each border 
+ * point is assigned to the cluster of the core point with the smallest
+ * index among the core points within its neighborhood.
+ */
+public final class Dbscan
+{
+    /**
+     * The maximum distance for tuples to be neighbors
+     */
+    private final double epsilon;
+    
+    /**
+     * The minimum number of neighbors of a core point, including the 
+     * point itself
+     */
+    private final int minPoints;
+    
+    /**
+     * The distance function
+     */
+    private final DistanceFunction<? super DoubleTuple> distanceFunction;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param epsilon The maximum distance for tuples to be neighbors
+     * @param minPoints The minimum number of neighbors of a core point, 
+     * including the point itself
+     * @param distanceFunction The distance function. This must never 
+     * return a value that is smaller than the Chebyshev distance.
+     * @throws NullPointerException If the distance function is 
+     * <code>null</code>
+     * @throws IllegalArgumentException If epsilon or the minimum number
+     * of points is not positive
+     */
+    public Dbscan(double epsilon, int minPoints, 
+        DistanceFunction<? super DoubleTuple> distanceFunction)
+    {
+        if (!(epsilon > 0) || Double.isInfinite(epsilon))
+        {
+            throw new IllegalArgumentException(
+                "The epsilon must be positive, but is " + epsilon);
+        }
+        if (minPoints <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The minimum number of points must be positive, but is " + 
+                minPoints);
+        }
+        this.epsilon = epsilon;
+        this.minPoints = minPoints;
+        this.distanceFunction = Objects.requireNonNull(
+            distanceFunction, "The distanceFunction is null");
+    }
+    
+    /**
+     * Compute the clustering of the given tuples
+     * 
+     * @param tuples The tuples
+     * @return The result
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If the tuples do not all have 
+     * the same size
+     */
+    public DbscanResult cluster(List<? extends DoubleTuple> tuples)
+    {
+        Objects.requireNonNull(tuples, "The tuples are null");
+        int n = tuples.size();
+        if (n == 0)
+        {
+            return new DbscanResult(new int[0], new boolean[0], 0);
+        }
+        int d = tuples.get(0).getSize();
+        Grid grid = new Grid(tuples, d);
+        
+        boolean core[] = new boolean[n];
+        IntStream.range(0, n).parallel().forEach(i -> 
+            core[i] = isCore(tuples, grid, i));
+        
+        AtomicIntegerArray parents = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++)
+        {
+            parents.set(i, i);
+        }
+        IntStream.range(0, n).parallel().forEach(i -> 
+        {
+            if (!core[i])
+            {
+                return;
+            }
+            DoubleTuple tuple = tuples.get(i);
+            grid.forEachCandidate(i, j -> 
+            {
+                if (j > i && core[j] && find(parents, i) != find(parents, j) &&
+                    distanceFunction.distance(tuple, tuples.get(j)) <= epsilon)
+                {
+                    union(parents, i, j);
+                }
+                return true;
+            });
+        });
+        
+        int borderRoots[] = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> 
+        {
+            if (core[i])
+            {
+                borderRoots[i] = find(parents, i);
+                return;
+            }
+            DoubleTuple tuple = tuples.get(i);
+            int nearestCore[] = { Integer.MAX_VALUE };
+            grid.forEachCandidate(i, j -> 
+            {
+                if (core[j] && j < nearestCore[0] && 
+                    distanceFunction.distance(tuple, tuples.get(j)) <= epsilon)
+                {
+                    nearestCore[0] = j;
+                }
+                return true;
+            });
+            borderRoots[i] = nearestCore[0] == Integer.MAX_VALUE ? 
+                -1 : find(parents, nearestCore[0]);
+        });
+        
+        int labels[] = new int[n];
+        int rootLabels[] = new int[n];
+        Arrays.fill(rootLabels, DbscanResult.NOISE);
+        int clusterCount = 0;
+        for (int i = 0; i < n; i++)
+        {
+            int root = borderRoots[i];
+            if (root < 0)
+            {
+                labels[i] = DbscanResult.NOISE;
+                continue;
+            }
+            if (rootLabels[root] == DbscanResult.NOISE)
+            {
+                rootLabels[root] = clusterCount++;
+            }
+            labels[i] = rootLabels[root];
+        }
+        return new DbscanResult(labels, core, clusterCount);
+    }
+    
+    /**
+     * Returns whether the specified tuple is a core point
+     * 
+     * @param tuples The tuples
+     * @param grid The grid
+     * @param i The index of the tuple
+     * @return Whether the tuple is a core point
+     */
+    private boolean isCore(List<? extends DoubleTuple> tuples, Grid grid, int i)
+    {
+        DoubleTuple tuple = tuples.get(i);
+        int count[] = { 0 };
+        grid.forEachCandidate(i, j -> 
+        {
+            if (distanceFunction.distance(tuple, tuples.get(j)) <= epsilon)
+            {
+                count[0]++;
+            }
+            return count[0] < minPoints;
+        });
+        return count[0] >= minPoints;
+    }
+    
+    /**
+     * Returns the root of the given element in the given union-find
+     * structure, compressing the path on the way
+     * 
+     * @param parents The parents
+     * @param i The element
+     * @return The root
+     */
+    private static int find(AtomicIntegerArray parents, int i)
+    {
+        int x = i;
+        while (true)
+        {
+            int p = parents.get(x);
+            if (p == x)
+            {
+                return x;
+            }
+            int g = parents.get(p);
+            if (p != g)
+            {
+                parents.compareAndSet(x, p, g);
+            }
+            x = p;
+        }
+    }
+    
+    /**
+     * Unite the sets of the given elements in the given union-find
+     * structure. The root with the larger index is always attached to 
+     * the root with the smaller index, so that the root of each set is 
+     * its smallest element.
+     * 
+     * @param parents The parents
+     * @param i0 The first element
+     * @param i1 The second element
+     */
+    private static void union(AtomicIntegerArray parents, int i0, int i1)
+    {
+        while (true)
+        {
+            int r0 = find(parents, i0);
+            int r1 = find(parents, i1);
+            if (r0 == r1)
+            {
+                return;
+            }
+            int min = Math.min(r0, r1);
+            int max = Math.max(r0, r1);
+            if (parents.compareAndSet(max, max, min))
+            {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Interface for consumers of candidate indices
+     */
+    private interface CandidateConsumer
+    {
+        /**
+         * Accept the given candidate index
+         * 
+         * @param j The index
+         * @return Whether further candidates should be passed to this 
+         * consumer
+         */
+        boolean accept(int j);
+    }
+    
+    /**
+     * A uniform grid containing the indices of the tuples
+     */
+    private final class Grid
+    {
+        /**
+         * The cell index of each tuple
+         */
+        private final int cellIndices[];
+        
+        /**
+         * The start of the tuples of each cell in the {@link #points}.
+         * The last element is the number of tuples. 
+         */
+        private final int cellStarts[];
+        
+        /**
+         * The indices of the tuples, sorted by their cells
+         */
+        private final int points[];
+        
+        /**
+         * The indices of the non-empty cells in the neighborhood of each
+         * cell, including the cell itself
+         */
+        private final int neighborCells[][];
+        
+        /**
+         * Creates a new grid for the given tuples
+         * 
+         * @param tuples The tuples
+         * @param d The size of the tuples
+         * @throws IllegalArgumentException If the tuples do not all have 
+         * the given size
+         */
+        Grid(List<? extends DoubleTuple> tuples, int d)
+        {
+            int n = tuples.size();
+            int coordinates[] = new int[n * d];
+            IntStream.range(0, n).parallel().forEach(i -> 
+            {
+                DoubleTuple tuple = tuples.get(i);
+                if (tuple.getSize() != d)
+                {
+                    throw new IllegalArgumentException(
+                        "Expected tuples of size " + d + 
+                        ", but found a tuple of size " + tuple.getSize());
+                }
+                for (int x = 0; x < d; x++)
+                {
+                    double c = Math.floor(tuple.get(x) / epsilon);
+                    coordinates[i * d + x] = (int)Math.max(
+                        Integer.MIN_VALUE + 1, 
+                        Math.min(Integer.MAX_VALUE - 1, c));
+                }
+            });
+            
+            IntTupleIntMap cells = new IntTupleIntMap(d);
+            cellIndices = new int[n];
+            int counts[] = new int[n + 1];
+            for (int i = 0; i < n; i++)
+            {
+                MutableIntTuple key = 
+                    IntTuples.wrap(coordinates, i * d, d);
+                int cell = cells.getOrDefault(key, -1);
+                if (cell == -1)
+                {
+                    cell = cells.size();
+                    cells.put(key, cell);
+                }
+                cellIndices[i] = cell;
+                counts[cell + 1]++;
+            }
+            int cellCount = cells.size();
+            cellStarts = Arrays.copyOf(counts, cellCount + 1);
+            for (int c = 0; c < cellCount; c++)
+            {
+                cellStarts[c + 1] += cellStarts[c];
+            }
+            points = new int[n];
+            int positions[] = Arrays.copyOf(cellStarts, cellCount);
+            for (int i = 0; i < n; i++)
+            {
+                points[positions[cellIndices[i]]++] = i;
+            }
+            
+            neighborCells = new int[cellCount][];
+            int buffer[] = new int[cellCount];
+            for (int c = 0; c < cellCount; c++)
+            {
+                int i = points[cellStarts[c]];
+                MutableIntTuple center = IntTuples.wrap(coordinates, i * d, d);
+                int count = 0;
+                for (MutableIntTuple neighbor : 
+                    IntTupleNeighborhoodIterables.mooreNeighborhoodIterable(
+                        center, 1, Order.LEXICOGRAPHICAL))
+                {
+                    int neighborCell = cells.getOrDefault(neighbor, -1);
+                    if (neighborCell != -1)
+                    {
+                        buffer[count++] = neighborCell;
+                    }
+                }
+                neighborCells[c] = Arrays.copyOf(buffer, count);
+            }
+        }
+        
+        /**
+         * Pass the indices of all tuples in the cells that are adjacent
+         * to the cell of the given tuple (including the tuple itself) to 
+         * the given consumer, until the consumer returns 
+         * <code>false</code>
+         * 
+         * @param i The index of the tuple
+         * @param consumer The consumer
+         */
+        void forEachCandidate(int i, CandidateConsumer consumer)
+        {
+            for (int c : neighborCells[cellIndices[i]])
+            {
+                for (int p = cellStarts[c]; p < cellStarts[c + 1]; p++)
+                {
+                    if (!consumer.accept(points[p]))
+                    {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.clustering;
+
+/**
+ * The result of a {@link Dbscan} clustering
+ */
+public final class DbscanResult
+{
+    /**
+     * The label that indicates that a tuple is noise
+     */
+    public static final int NOISE = -1;
+    
+    /**
+     * The cluster label of each tuple
+     */
+    private final int labels[];
+    
+    /**
+     * Whether each tuple is a core point
+     */
+    private final boolean core[];
+    
+    /**
+     * The number of clusters
+     */
+    private final int clusterCount;
+    
+    /**
+     * Creates a new result. The given arrays are stored directly.
+     * 
+     * @param labels The cluster label of each tuple
+     * @param core Whether each tuple is a core point
+     * @param clusterCount The number of clusters
+     */
+    DbscanResult(int labels[], boolean core[], int clusterCount)
+    {
+        this.labels = labels;
+        this.core = core;
+        this.clusterCount = clusterCount;
+    }
+    
+    /**
+     * Returns the number of clusters
+     * 
+     * @return The number of clusters
+     */
+    public int getClusterCount()
+    {
+        return clusterCount;
+    }
+    
+    /**
+     * Returns a copy of the array containing the cluster label of each 
+     * tuple. The labels of the clusters are consecutive, starting at 0,
+     * in the order in which the clusters first appear in the input. 
+     * Tuples that do not belong to any cluster have the label 
+     * {@link #NOISE}.
+     * 
+     * @return The labels
+     */
+    public int[] getLabels()
+    {
+        return labels.clone();
+    }
+    
+    /**
+     * Returns the cluster label of the specified tuple
+     * 
+     * @param index The index of the tuple
+     * @return The label
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the number of tuples
+     */
+    public int getLabel(int index)
+    {
+        return labels[index];
+    }
+    
+    /**
+     * Returns whether the specified tuple is a core point, meaning that
+     * it has at least the minimum number of neighbors
+     * 
+     * @param index The index of the tuple
+     * @return Whether the tuple is a core point
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the number of tuples
+     */
+    public boolean isCore(int index)
+    {
+        return core[index];
+    }
+    
+    /**
+     * Returns the number of tuples that do not belong to any cluster
+     * 
+     * @return The number of noise tuples
+     */
+    public int getNoiseCount()
+    {
+        int count = 0;
+        for (int label : labels)
+        {
+            if (label == NOISE)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "DbscanResult[" + 
+            "tuples=" + labels.length + 
+            ", clusters=" + clusterCount + 
+            ", noise=" + getNoiseCount() + "]";
+    }
+}
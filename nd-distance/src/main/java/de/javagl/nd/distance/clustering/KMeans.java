@@ -0,0 +1,1250 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.clustering;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTupleKernels;
+
+/**
+ * An implementation of k-means clustering for {@link DoubleTuple}s, 
+ * based on the Euclidean distance.<br>
+ * <br>
+ * The tuples are copied into a single packed array before the clustering
+ * starts. The initial centroids are selected with the k-means++ method.
+ * The tuples are then assigned to their nearest centroids, and the 
+ * centroids are moved to the mean of their tuples, until no tuple changes
+ * its cluster any more. The assignment steps are performed in parallel.
+ * Depending on the {@link Algorithm}, the triangle inequality is used for
+ * avoiding most of the distance computations in these steps, without
+ * affecting the result.<br>
+ * <br>
+ * For very large inputs, the {@link #clusterMiniBatch(List)} method may
+ * be used, which only uses a small random batch of tuples for updating 
+ * the centroids in each iteration.<br>
+ * <br>
+ * When a cluster becomes empty, then its centroid is not moved. The 
+ * results are deterministic for a given {@link #setSeed(long) seed}.
+ * <br>
+ * <br>
+ * Instances of this class may be reused for multiple clusterings, but
+ * are not thread-safe.
+ */
+public final class KMeans
+{
+    /**
+     * The algorithms for the assignment steps of the k-means clustering
+     */
+    public enum Algorithm
+    {
+        /**
+         * The standard algorithm, which computes the distance of each
+         * tuple to each centroid in each iteration
+         */
+        LLOYD,
+        
+        /**
+         * The algorithm by Hamerly, which maintains one upper and one
+         * lower bound for the distances of each tuple. This requires 
+         * little additional memory, and is usually the fastest for small
+         * and medium numbers of clusters.
+         */
+        HAMERLY,
+        
+        /**
+         * The algorithm by Elkan, which maintains one upper bound and 
+         * one lower bound for each cluster for the distances of each 
+         * tuple. This requires additional memory that is proportional 
+         * to the number of tuples times the number of clusters, but may
+         * avoid more distance computations for large numbers of clusters
+         * in high dimensions.
+         */
+        ELKAN
+    }
+    
+    /**
+     * The minimum number of tuples that are processed in one chunk
+     */
+    private static final int MIN_CHUNK_SIZE = 4096;
+    
+    /**
+     * The maximum number of chunks
+     */
+    private static final int MAX_CHUNKS = 64;
+    
+    /**
+     * The number of clusters
+     */
+    private final int k;
+    
+    /**
+     * The algorithm
+     */
+    private Algorithm algorithm;
+    
+    /**
+     * The maximum number of iterations
+     */
+    private int maxIterations;
+    
+    /**
+     * The tolerance for the movement of the centroids
+     */
+    private double tolerance;
+    
+    /**
+     * The seed for the random number generator
+     */
+    private long seed;
+    
+    /**
+     * The batch size for the mini-batch clustering
+     */
+    private int batchSize;
+    
+    /**
+     * Creates a new instance that computes the given number of clusters,
+     * using the {@link Algorithm#HAMERLY} algorithm, at most 100 
+     * iterations, a tolerance of 0.0, a seed of 0, and a batch size 
+     * of 1024
+     * 
+     * @param k The number of clusters
+     * @throws IllegalArgumentException If the number of clusters is not
+     * positive
+     */
+    public KMeans(int k)
+    {
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of clusters must be positive, but is " + k);
+        }
+        this.k = k;
+        this.algorithm = Algorithm.HAMERLY;
+        this.maxIterations = 100;
+        this.tolerance = 0.0;
+        this.seed = 0;
+        this.batchSize = 1024;
+    }
+    
+    /**
+     * Returns the number of clusters
+     * 
+     * @return The number of clusters
+     */
+    public int getK()
+    {
+        return k;
+    }
+    
+    /**
+     * Set the algorithm for the assignment steps
+     * 
+     * @param algorithm The algorithm
+     * @throws NullPointerException If the algorithm is <code>null</code>
+     */
+    public void setAlgorithm(Algorithm algorithm)
+    {
+        this.algorithm = Objects.requireNonNull(
+            algorithm, "The algorithm is null");
+    }
+    
+    /**
+     * Returns the algorithm for the assignment steps
+     * 
+     * @return The algorithm
+     */
+    public Algorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+    
+    /**
+     * Set the maximum number of iterations
+     * 
+     * @param maxIterations The maximum number of iterations
+     * @throws IllegalArgumentException If the value is negative
+     */
+    public void setMaxIterations(int maxIterations)
+    {
+        if (maxIterations < 0)
+        {
+            throw new IllegalArgumentException(
+                "The maximum number of iterations may not be negative, " + 
+                "but is " + maxIterations);
+        }
+        this.maxIterations = maxIterations;
+    }
+    
+    /**
+     * Returns the maximum number of iterations
+     * 
+     * @return The maximum number of iterations
+     */
+    public int getMaxIterations()
+    {
+        return maxIterations;
+    }
+    
+    /**
+     * Set the tolerance. The clustering will stop when no centroid moved 
+     * further than this distance in one iteration.
+     * 
+     * @param tolerance The tolerance
+     * @throws IllegalArgumentException If the value is negative
+     */
+    public void setTolerance(double tolerance)
+    {
+        if (tolerance < 0)
+        {
+            throw new IllegalArgumentException(
+                "The tolerance may not be negative, but is " + tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+    
+    /**
+     * Returns the tolerance
+     * 
+     * @return The tolerance
+     */
+    public double getTolerance()
+    {
+        return tolerance;
+    }
+    
+    /**
+     * Set the seed for the random number generator that is used for the
+     * initialization and the selection of the mini-batches
+     * 
+     * @param seed The seed
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+    
+    /**
+     * Returns the seed for the random number generator
+     * 
+     * @return The seed
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+    
+    /**
+     * Set the number of tuples that are used in each iteration of the
+     * {@link #clusterMiniBatch(List) mini-batch clustering}
+     * 
+     * @param batchSize The batch size
+     * @throws IllegalArgumentException If the value is not positive
+     */
+    public void setBatchSize(int batchSize)
+    {
+        if (batchSize <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The batch size must be positive, but is " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Returns the number of tuples that are used in each iteration of the
+     * {@link #clusterMiniBatch(List) mini-batch clustering}
+     * 
+     * @return The batch size
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+    
+    /**
+     * Compute the clustering of the given tuples
+     * 
+     * @param tuples The tuples
+     * @return The result
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If there are fewer tuples than 
+     * clusters, the tuples do not all have the same size, or the packed
+     * tuples or the bounds of the {@link Algorithm#ELKAN Elkan} algorithm
+     * would require an array with more than 
+     * <code>Integer.MAX_VALUE</code> elements
+     */
+    public KMeansResult cluster(List<? extends DoubleTuple> tuples)
+    {
+        long start = System.nanoTime();
+        int d = checkTuples(tuples);
+        int n = tuples.size();
+        double data[] = pack(tuples, d);
+        Random random = new Random(seed);
+        double centers[] = selectInitialCenters(data, n, d, random);
+        Clustering c = new Clustering(data, n, d, centers);
+        c.assignInitial();
+        long initializationNanos = System.nanoTime() - start;
+        
+        long iterationNanos[] = new long[maxIterations];
+        int iterations = 0;
+        boolean converged = false;
+        while (iterations < maxIterations && !converged)
+        {
+            long iterationStart = System.nanoTime();
+            double movements[] = c.moveCenters();
+            double maxMovement = max(movements);
+            int changed = c.assign(movements);
+            converged = changed == 0 || maxMovement <= tolerance;
+            iterationNanos[iterations] = System.nanoTime() - iterationStart;
+            iterations++;
+        }
+        return new KMeansResult(centers, d, c.assignments, c.computeInertia(),
+            initializationNanos, Arrays.copyOf(iterationNanos, iterations), 
+            c.distanceComputationCount, converged);
+    }
+    
+    /**
+     * Compute the clustering of the given tuples, using mini-batches.<br>
+     * <br>
+     * The initial centroids are selected with the k-means++ method from
+     * a random sample that contains three times the batch size tuples.
+     * In each iteration, a random batch of tuples is assigned to the
+     * nearest centroids, and each centroid is moved towards its tuples
+     * with a learning rate that is the inverse of the number of tuples
+     * that have been assigned to it so far. At the end, all tuples are
+     * assigned to their nearest centroid. 
+     * 
+     * @param tuples The tuples
+     * @return The result
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If there are fewer tuples than 
+     * clusters, the tuples do not all have the same size, or the packed
+     * tuples would require an array with more than 
+     * <code>Integer.MAX_VALUE</code> elements
+     */
+    public KMeansResult clusterMiniBatch(List<? extends DoubleTuple> tuples)
+    {
+        long start = System.nanoTime();
+        int d = checkTuples(tuples);
+        int n = tuples.size();
+        double data[] = pack(tuples, d);
+        Random random = new Random(seed);
+        int sampleSize = (int)Math.min(n, Math.max(k, 3L * batchSize));
+        double centers[];
+        if (sampleSize == n)
+        {
+            centers = selectInitialCenters(data, n, d, random);
+        }
+        else
+        {
+            double sample[] = new double[sampleSize * d];
+            for (int i = 0; i < sampleSize; i++)
+            {
+                System.arraycopy(data, random.nextInt(n) * d, 
+                    sample, i * d, d);
+            }
+            centers = selectInitialCenters(sample, sampleSize, d, random);
+        }
+        long initializationNanos = System.nanoTime() - start;
+        
+        long counts[] = new long[k];
+        int batch[] = new int[batchSize];
+        int nearest[] = new int[batchSize];
+        double previous[] = new double[centers.length];
+        long iterationNanos[] = new long[maxIterations];
+        long distanceComputationCount = 0;
+        int iterations = 0;
+        boolean converged = false;
+        while (iterations < maxIterations && !converged)
+        {
+            long iterationStart = System.nanoTime();
+            for (int b = 0; b < batchSize; b++)
+            {
+                batch[b] = random.nextInt(n);
+            }
+            double c[] = centers;
+            IntStream.range(0, batchSize).parallel().forEach(b -> 
+                nearest[b] = findNearest(data, batch[b] * d, c, d));
+            distanceComputationCount += (long)batchSize * k;
+            
+            System.arraycopy(centers, 0, previous, 0, centers.length);
+            for (int b = 0; b < batchSize; b++)
+            {
+                int j = nearest[b];
+                counts[j]++;
+                double eta = 1.0 / counts[j];
+                int offset = batch[b] * d;
+                for (int x = 0; x < d; x++)
+                {
+                    double value = centers[j * d + x];
+                    centers[j * d + x] = 
+                        value + eta * (data[offset + x] - value);
+                }
+            }
+            double maxMovement = 0;
+            for (int j = 0; j < k; j++)
+            {
+                maxMovement = Math.max(maxMovement, 
+                    Math.sqrt(DoubleTupleKernels.sumOfSquaredDifferences(
+                        centers, j * d, previous, j * d, d)));
+            }
+            converged = maxMovement <= tolerance;
+            iterationNanos[iterations] = System.nanoTime() - iterationStart;
+            iterations++;
+        }
+        
+        int assignments[] = new int[n];
+        double c[] = centers;
+        IntStream.range(0, n).parallel().forEach(i -> 
+            assignments[i] = findNearest(data, i * d, c, d));
+        distanceComputationCount += (long)n * k;
+        double inertia = computeInertia(data, n, d, centers, assignments);
+        return new KMeansResult(centers, d, assignments, 
+            inertia, initializationNanos, 
+            Arrays.copyOf(iterationNanos, iterations), 
+            distanceComputationCount, converged);
+    }
+    
+    /**
+     * Make sure that the given list contains at least k tuples that all
+     * have the same size, and return this size
+     * 
+     * @param tuples The tuples
+     * @return The size of the tuples
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If there are fewer tuples than 
+     * clusters, or the tuples do not all have the same size
+     */
+    private int checkTuples(List<? extends DoubleTuple> tuples)
+    {
+        Objects.requireNonNull(tuples, "The tuples are null");
+        if (tuples.size() < k)
+        {
+            throw new IllegalArgumentException(
+                "Expected at least " + k + " tuples, but there are only " + 
+                tuples.size());
+        }
+        int d = tuples.get(0).getSize();
+        for (DoubleTuple tuple : tuples)
+        {
+            if (tuple.getSize() != d)
+            {
+                throw new IllegalArgumentException(
+                    "Expected tuples of size " + d + 
+                    ", but found a tuple of size " + tuple.getSize());
+            }
+        }
+        return d;
+    }
+    
+    /**
+     * Copy the given tuples into a packed array, in parallel
+     * 
+     * @param tuples The tuples
+     * @param d The size of the tuples
+     * @return The packed array
+     * @throws IllegalArgumentException If the packed array would have
+     * more than <code>Integer.MAX_VALUE</code> elements
+     */
+    private static double[] pack(List<? extends DoubleTuple> tuples, int d)
+    {
+        double data[] = new double[checkedArrayLength(
+            tuples.size(), d, "the packed tuples")];
+        IntStream.range(0, tuples.size()).parallel().forEach(i -> 
+        {
+            DoubleTuple tuple = tuples.get(i);
+            for (int x = 0; x < d; x++)
+            {
+                data[i * d + x] = tuple.get(x);
+            }
+        });
+        return data;
+    }
+    
+    /**
+     * Select the initial centers from the given data, using the k-means++
+     * method: The first center is chosen randomly, and each further center
+     * is chosen with a probability that is proportional to the squared 
+     * distance to the nearest center that was already chosen.
+     * 
+     * @param data The data
+     * @param n The number of tuples
+     * @param d The size of the tuples
+     * @param random The random number generator
+     * @return The centers
+     */
+    private double[] selectInitialCenters(
+        double data[], int n, int d, Random random)
+    {
+        double centers[] = new double[k * d];
+        System.arraycopy(data, random.nextInt(n) * d, centers, 0, d);
+        double minDistances[] = new double[n];
+        IntStream.range(0, n).parallel().forEach(i -> 
+            minDistances[i] = DoubleTupleKernels.sumOfSquaredDifferences(
+                data, i * d, centers, 0, d));
+        for (int j = 1; j < k; j++)
+        {
+            double total = 0;
+            for (int i = 0; i < n; i++)
+            {
+                total += minDistances[i];
+            }
+            int selected = n - 1;
+            if (total > 0)
+            {
+                double r = random.nextDouble() * total;
+                double sum = 0;
+                for (int i = 0; i < n; i++)
+                {
+                    sum += minDistances[i];
+                    if (sum > r)
+                    {
+                        selected = i;
+                        break;
+                    }
+                }
+            }
+            else
+            {
+                selected = random.nextInt(n);
+            }
+            int offset = j * d;
+            System.arraycopy(data, selected * d, centers, offset, d);
+            IntStream.range(0, n).parallel().forEach(i -> 
+                minDistances[i] = Math.min(minDistances[i], 
+                    DoubleTupleKernels.sumOfSquaredDifferences(
+                        data, i * d, centers, offset, d)));
+        }
+        return centers;
+    }
+    
+    /**
+     * Returns the index of the center that is nearest to the specified 
+     * tuple
+     * 
+     * @param data The data
+     * @param offset The offset of the tuple in the data
+     * @param centers The centers
+     * @param d The size of the tuples
+     * @return The index of the nearest center
+     */
+    private int findNearest(double data[], int offset, double centers[], int d)
+    {
+        int best = 0;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < k; j++)
+        {
+            double distance = DoubleTupleKernels.sumOfSquaredDifferences(
+                data, offset, centers, j * d, d);
+            if (distance < bestDistance)
+            {
+                bestDistance = distance;
+                best = j;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Returns the length of an array that stores the given number of
+     * elements of the given size.<br>
+     * <br>
+     * When this length fits into an <code>int</code>, then all offsets 
+     * <code>i * size + j</code> with <code>i &lt; count</code> and 
+     * <code>j &lt; size</code> fit into an <code>int</code> as well.
+     * 
+     * @param count The number of elements
+     * @param size The size of each element
+     * @param description A description of the array, for error messages
+     * @return The array length
+     * @throws IllegalArgumentException If the array length would be 
+     * larger than <code>Integer.MAX_VALUE</code>
+     */
+    private static int checkedArrayLength(
+        int count, int size, String description)
+    {
+        try
+        {
+            return Math.multiplyExact(count, size);
+        }
+        catch (ArithmeticException e)
+        {
+            throw new IllegalArgumentException(
+                "The array for " + description + " would require " + 
+                count + "*" + size + " elements, which is more than " + 
+                Integer.MAX_VALUE);
+        }
+    }
+    
+    /**
+     * Returns the number of tuples that are processed in one chunk of
+     * the parallel operations
+     * 
+     * @param n The number of tuples
+     * @return The chunk size
+     */
+    private static int computeChunkSize(int n)
+    {
+        return (int)Math.max(MIN_CHUNK_SIZE, 
+            (n + (long)MAX_CHUNKS - 1) / MAX_CHUNKS);
+    }
+    
+    /**
+     * Computes the sum of the squared distances of all tuples to 
+     * their centers, in parallel. The partial sums of the chunks
+     * are combined in a fixed order.
+     * 
+     * @param data The packed tuples
+     * @param n The number of tuples
+     * @param d The size of the tuples
+     * @param centers The packed centers
+     * @param assignments The index of the center of each tuple
+     * @return The inertia
+     */
+    private static double computeInertia(
+        double data[], int n, int d, double centers[], int assignments[])
+    {
+        int chunkSize = computeChunkSize(n);
+        int chunkCount = (int)((n + (long)chunkSize - 1) / chunkSize);
+        double partial[] = new double[chunkCount];
+        IntStream.range(0, chunkCount).parallel().forEach(c -> 
+        {
+            int from = c * chunkSize;
+            int to = (int)Math.min(n, (long)from + chunkSize);
+            double sum = 0;
+            for (int i = from; i < to; i++)
+            {
+                sum += DoubleTupleKernels.sumOfSquaredDifferences(
+                    data, i * d, centers, assignments[i] * d, d);
+            }
+            partial[c] = sum;
+        });
+        double sum = 0;
+        for (double p : partial)
+        {
+            sum += p;
+        }
+        return sum;
+    }
+    
+    /**
+     * Returns the maximum of the given values
+     * 
+     * @param values The values
+     * @return The maximum
+     */
+    private static double max(double values[])
+    {
+        double result = 0;
+        for (double value : values)
+        {
+            result = Math.max(result, value);
+        }
+        return result;
+    }
+    
+    /**
+     * The changes of the cluster sums that are caused by the tuples
+     * of one chunk that changed their cluster
+     */
+    private static final class ChunkResult
+    {
+        /**
+         * The changes of the sums, or <code>null</code> if no tuple 
+         * changed its cluster
+         */
+        double sums[];
+        
+        /**
+         * The changes of the counts
+         */
+        long counts[];
+        
+        /**
+         * The number of tuples that changed their cluster
+         */
+        int changed;
+        
+        /**
+         * The number of distance computations
+         */
+        long distanceComputationCount;
+    }
+    
+    /**
+     * The state of a single clustering
+     */
+    private final class Clustering
+    {
+        /**
+         * The packed tuples
+         */
+        private final double data[];
+        
+        /**
+         * The number of tuples
+         */
+        private final int n;
+        
+        /**
+         * The size of the tuples
+         */
+        private final int d;
+        
+        /**
+         * The packed centers
+         */
+        private final double centers[];
+        
+        /**
+         * The cluster of each tuple
+         */
+        final int assignments[];
+        
+        /**
+         * The upper bound for the distance of each tuple to its center
+         */
+        private final double upper[];
+        
+        /**
+         * The lower bounds for the distances of each tuple to the other 
+         * centers. For {@link Algorithm#HAMERLY}, this is one bound for 
+         * each tuple. For {@link Algorithm#ELKAN}, these are k bounds for
+         * each tuple.
+         */
+        private final double lower[];
+        
+        /**
+         * The sum of the tuples of each cluster
+         */
+        private final double sums[];
+        
+        /**
+         * The number of tuples in each cluster
+         */
+        private final long counts[];
+        
+        /**
+         * The number of tuples in one chunk
+         */
+        private final int chunkSize;
+        
+        /**
+         * The number of chunks
+         */
+        private final int chunkCount;
+        
+        /**
+         * The number of distance computations
+         */
+        long distanceComputationCount;
+        
+        /**
+         * Creates a new clustering
+         * 
+         * @param data The packed tuples
+         * @param n The number of tuples
+         * @param d The size of the tuples
+         * @param centers The initial centers
+         */
+        Clustering(double data[], int n, int d, double centers[])
+        {
+            this.data = data;
+            this.n = n;
+            this.d = d;
+            this.centers = centers;
+            this.assignments = new int[n];
+            this.upper = algorithm == Algorithm.LLOYD ? null : new double[n];
+            if (algorithm == Algorithm.HAMERLY)
+            {
+                this.lower = new double[n];
+            }
+            else if (algorithm == Algorithm.ELKAN)
+            {
+                this.lower = new double[checkedArrayLength(
+                    n, k, "the lower bounds of the Elkan algorithm")];
+            }
+            else
+            {
+                this.lower = null;
+            }
+            this.sums = new double[k * d];
+            this.counts = new long[k];
+            this.chunkSize = computeChunkSize(n);
+            this.chunkCount = (int)((n + (long)chunkSize - 1) / chunkSize);
+        }
+        
+        /**
+         * Computes the Euclidean distance between the given tuple and
+         * the given center
+         * 
+         * @param i The tuple index
+         * @param j The center index
+         * @return The distance
+         */
+        private double distance(int i, int j)
+        {
+            return Math.sqrt(DoubleTupleKernels.sumOfSquaredDifferences(
+                data, i * d, centers, j * d, d));
+        }
+        
+        /**
+         * Assign all tuples to their nearest center, initialize the 
+         * bounds, and compute the sums and counts of the clusters
+         */
+        void assignInitial()
+        {
+            List<ChunkResult> results = runChunks((chunk, from, to) -> 
+            {
+                chunk.sums = new double[k * d];
+                chunk.counts = new long[k];
+                for (int i = from; i < to; i++)
+                {
+                    int best = 0;
+                    double bestDistance = Double.POSITIVE_INFINITY;
+                    double secondDistance = Double.POSITIVE_INFINITY;
+                    for (int j = 0; j < k; j++)
+                    {
+                        double distance = distance(i, j);
+                        if (algorithm == Algorithm.ELKAN)
+                        {
+                            lower[i * k + j] = distance;
+                        }
+                        if (distance < bestDistance)
+                        {
+                            secondDistance = bestDistance;
+                            bestDistance = distance;
+                            best = j;
+                        }
+                        else if (distance < secondDistance)
+                        {
+                            secondDistance = distance;
+                        }
+                    }
+                    assignments[i] = best;
+                    if (upper != null)
+                    {
+                        upper[i] = bestDistance;
+                    }
+                    if (algorithm == Algorithm.HAMERLY)
+                    {
+                        lower[i] = secondDistance;
+                    }
+                    add(chunk, i, best, 1);
+                }
+                chunk.distanceComputationCount += (long)(to - from) * k;
+            });
+            apply(results);
+        }
+        
+        /**
+         * Move the centers to the means of their clusters, and return 
+         * the distance that each center moved
+         * 
+         * @return The movements
+         */
+        double[] moveCenters()
+        {
+            double movements[] = new double[k];
+            double center[] = new double[d];
+            for (int j = 0; j < k; j++)
+            {
+                if (counts[j] == 0)
+                {
+                    continue;
+                }
+                double factor = 1.0 / counts[j];
+                for (int x = 0; x < d; x++)
+                {
+                    center[x] = sums[j * d + x] * factor;
+                }
+                movements[j] = Math.sqrt(
+                    DoubleTupleKernels.sumOfSquaredDifferences(
+                        center, 0, centers, j * d, d));
+                System.arraycopy(center, 0, centers, j * d, d);
+            }
+            return movements;
+        }
+        
+        /**
+         * Assign all tuples to their nearest center, after the centers 
+         * have been moved by the given distances
+         * 
+         * @param movements The movements of the centers
+         * @return The number of tuples that changed their cluster
+         */
+        int assign(double movements[])
+        {
+            ChunkProcessor processor;
+            if (algorithm == Algorithm.HAMERLY)
+            {
+                processor = createHamerlyProcessor(movements);
+            }
+            else if (algorithm == Algorithm.ELKAN)
+            {
+                processor = createElkanProcessor(movements);
+            }
+            else
+            {
+                processor = this::assignLloyd;
+            }
+            return apply(runChunks(processor));
+        }
+        
+        /**
+         * Assign the tuples of the given range with the standard algorithm
+         * 
+         * @param chunk The chunk result
+         * @param from The start index, inclusive
+         * @param to The end index, exclusive
+         */
+        private void assignLloyd(ChunkResult chunk, int from, int to)
+        {
+            for (int i = from; i < to; i++)
+            {
+                int best = findNearest(data, i * d, centers, d);
+                if (best != assignments[i])
+                {
+                    reassign(chunk, i, best);
+                }
+            }
+            chunk.distanceComputationCount += (long)(to - from) * k;
+        }
+        
+        /**
+         * Create the processor that assigns the tuples with the algorithm
+         * by Hamerly
+         * 
+         * @param movements The movements of the centers
+         * @return The processor
+         */
+        private ChunkProcessor createHamerlyProcessor(double movements[])
+        {
+            int maxIndex = 0;
+            for (int j = 1; j < k; j++)
+            {
+                if (movements[j] > movements[maxIndex])
+                {
+                    maxIndex = j;
+                }
+            }
+            double maxMovement = movements[maxIndex];
+            double secondMax = 0;
+            for (int j = 0; j < k; j++)
+            {
+                if (j != maxIndex)
+                {
+                    secondMax = Math.max(secondMax, movements[j]);
+                }
+            }
+            double secondMaxMovement = secondMax;
+            double halfDistances[] = computeHalfCenterDistances();
+            double separations[] = computeSeparations(halfDistances);
+            int m = maxIndex;
+            return (chunk, from, to) -> 
+            {
+                for (int i = from; i < to; i++)
+                {
+                    int a = assignments[i];
+                    double u = upper[i] + movements[a];
+                    double l = lower[i] - 
+                        (a == m ? secondMaxMovement : maxMovement);
+                    double bound = Math.max(separations[a], l);
+                    if (u > bound)
+                    {
+                        u = distance(i, a);
+                        chunk.distanceComputationCount++;
+                        if (u > bound)
+                        {
+                            int best = a;
+                            double second = Double.POSITIVE_INFINITY;
+                            for (int j = 0; j < k; j++)
+                            {
+                                if (j == a)
+                                {
+                                    continue;
+                                }
+                                double distance = distance(i, j);
+                                if (distance < u)
+                                {
+                                    second = u;
+                                    u = distance;
+                                    best = j;
+                                }
+                                else if (distance < second)
+                                {
+                                    second = distance;
+                                }
+                            }
+                            chunk.distanceComputationCount += k - 1;
+                            l = second;
+                            if (best != a)
+                            {
+                                reassign(chunk, i, best);
+                            }
+                        }
+                    }
+                    upper[i] = u;
+                    lower[i] = l;
+                }
+            };
+        }
+        
+        /**
+         * Create the processor that assigns the tuples with the algorithm
+         * by Elkan
+         * 
+         * @param movements The movements of the centers
+         * @return The processor
+         */
+        private ChunkProcessor createElkanProcessor(double movements[])
+        {
+            double halfDistances[] = computeHalfCenterDistances();
+            double separations[] = computeSeparations(halfDistances);
+            return (chunk, from, to) -> 
+            {
+                for (int i = from; i < to; i++)
+                {
+                    int base = i * k;
+                    for (int j = 0; j < k; j++)
+                    {
+                        lower[base + j] = 
+                            Math.max(0, lower[base + j] - movements[j]);
+                    }
+                    int a = assignments[i];
+                    int best = a;
+                    double u = upper[i] + movements[a];
+                    if (u > separations[a])
+                    {
+                        boolean stale = true;
+                        for (int j = 0; j < k; j++)
+                        {
+                            if (j == best || u <= lower[base + j] || 
+                                u <= halfDistances[best * k + j])
+                            {
+                                continue;
+                            }
+                            if (stale)
+                            {
+                                u = distance(i, best);
+                                lower[base + best] = u;
+                                chunk.distanceComputationCount++;
+                                stale = false;
+                                if (u <= lower[base + j] || 
+                                    u <= halfDistances[best * k + j])
+                                {
+                                    continue;
+                                }
+                            }
+                            double distance = distance(i, j);
+                            lower[base + j] = distance;
+                            chunk.distanceComputationCount++;
+                            if (distance < u)
+                            {
+                                u = distance;
+                                best = j;
+                            }
+                        }
+                    }
+                    upper[i] = u;
+                    if (best != a)
+                    {
+                        reassign(chunk, i, best);
+                    }
+                }
+            };
+        }
+        
+        /**
+         * Computes half of the distances between all pairs of centers
+         * 
+         * @return The half distances, as a k*k matrix
+         */
+        private double[] computeHalfCenterDistances()
+        {
+            double result[] = new double[checkedArrayLength(
+                k, k, "the distances between the centers")];
+            IntStream.range(0, k).parallel().forEach(j0 -> 
+            {
+                for (int j1 = 0; j1 < k; j1++)
+                {
+                    result[j0 * k + j1] = 0.5 * Math.sqrt(
+                        DoubleTupleKernels.sumOfSquaredDifferences(
+                            centers, j0 * d, centers, j1 * d, d));
+                }
+            });
+            return result;
+        }
+        
+        /**
+         * Computes half of the distance of each center to its nearest 
+         * other center. 
+         * 
+         * @param halfDistances The half distances between the centers
+         * @return The separations
+         */
+        private double[] computeSeparations(double halfDistances[])
+        {
+            double result[] = new double[k];
+            for (int j0 = 0; j0 < k; j0++)
+            {
+                double min = Double.POSITIVE_INFINITY;
+                for (int j1 = 0; j1 < k; j1++)
+                {
+                    if (j0 != j1)
+                    {
+                        min = Math.min(min, halfDistances[j0 * k + j1]);
+                    }
+                }
+                result[j0] = min;
+            }
+            return result;
+        }
+        
+        /**
+         * Record that the given tuple moves to the given cluster
+         * 
+         * @param chunk The chunk result
+         * @param i The tuple index
+         * @param cluster The new cluster
+         */
+        private void reassign(ChunkResult chunk, int i, int cluster)
+        {
+            if (chunk.sums == null)
+            {
+                chunk.sums = new double[k * d];
+                chunk.counts = new long[k];
+            }
+            add(chunk, i, assignments[i], -1);
+            add(chunk, i, cluster, 1);
+            assignments[i] = cluster;
+            chunk.changed++;
+        }
+        
+        /**
+         * Add the given tuple with the given sign to the sum of the 
+         * given cluster in the given chunk result
+         * 
+         * @param chunk The chunk result
+         * @param i The tuple index
+         * @param cluster The cluster
+         * @param sign The sign
+         */
+        private void add(ChunkResult chunk, int i, int cluster, int sign)
+        {
+            int offset = cluster * d;
+            for (int x = 0; x < d; x++)
+            {
+                chunk.sums[offset + x] += sign * data[i * d + x];
+            }
+            chunk.counts[cluster] += sign;
+        }
+        
+        /**
+         * Run the given processor for all chunks, in parallel
+         * 
+         * @param processor The processor
+         * @return The chunk results, in the order of the chunks
+         */
+        private List<ChunkResult> runChunks(ChunkProcessor processor)
+        {
+            return IntStream.range(0, chunkCount).parallel()
+                .mapToObj(c -> 
+                {
+                    ChunkResult chunk = new ChunkResult();
+                    int from = c * chunkSize;
+                    int to = (int)Math.min(n, (long)from + chunkSize);
+                    processor.process(chunk, from, to);
+                    return chunk;
+                })
+                .collect(Collectors.toList());
+        }
+        
+        /**
+         * Apply the changes of the sums and counts from the given chunk
+         * results, in the order of the chunks
+         * 
+         * @param results The chunk results
+         * @return The number of tuples that changed their cluster
+         */
+        private int apply(List<ChunkResult> results)
+        {
+            int changed = 0;
+            for (ChunkResult chunk : results)
+            {
+                distanceComputationCount += chunk.distanceComputationCount;
+                changed += chunk.changed;
+                if (chunk.sums == null)
+                {
+                    continue;
+                }
+                for (int x = 0; x < sums.length; x++)
+                {
+                    sums[x] += chunk.sums[x];
+                }
+                for (int j = 0; j < k; j++)
+                {
+                    counts[j] += chunk.counts[j];
+                }
+            }
+            return changed;
+        }
+        
+        /**
+         * Computes the sum of the squared distances of all tuples to 
+         * their centers
+         * 
+         * @return The inertia
+         */
+        double computeInertia()
+        {
+            return KMeans.computeInertia(data, n, d, centers, assignments);
+        }
+    }
+    
+    /**
+     * Interface for the methods that process the tuples of one chunk
+     */
+    private interface ChunkProcessor
+    {
+        /**
+         * Process the tuples in the given range
+         * 
+         * @param chunk The chunk result
+         * @param from The start index, inclusive
+         * @param to The end index, exclusive
+         */
+        void process(ChunkResult chunk, int from, int to);
+    }
+}
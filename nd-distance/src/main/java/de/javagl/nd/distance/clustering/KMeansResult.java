@@ -0,0 +1,257 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.clustering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.d.MutableDoubleTuple;
+
+/**
+ * The result of a {@link KMeans} clustering
+ */
+public final class KMeansResult
+{
+    /**
+     * The centroids, stored consecutively
+     */
+    private final double centroids[];
+    
+    /**
+     * The number of dimensions
+     */
+    private final int dimensions;
+    
+    /**
+     * The cluster index for each tuple
+     */
+    private final int assignments[];
+    
+    /**
+     * The sum of the squared distances of the tuples to their centroids
+     */
+    private final double inertia;
+    
+    /**
+     * The duration of the initialization, in nanoseconds
+     */
+    private final long initializationNanos;
+    
+    /**
+     * The duration of each iteration, in nanoseconds
+     */
+    private final long iterationNanos[];
+    
+    /**
+     * The number of distance computations
+     */
+    private final long distanceComputationCount;
+    
+    /**
+     * Whether the clustering converged
+     */
+    private final boolean converged;
+    
+    /**
+     * Creates a new result. The given arrays are stored directly.
+     * 
+     * @param centroids The centroids, stored consecutively
+     * @param dimensions The number of dimensions
+     * @param assignments The cluster index for each tuple
+     * @param inertia The sum of the squared distances
+     * @param initializationNanos The duration of the initialization
+     * @param iterationNanos The duration of each iteration
+     * @param distanceComputationCount The number of distance computations
+     * @param converged Whether the clustering converged
+     */
+    KMeansResult(double centroids[], int dimensions, int assignments[], 
+        double inertia, long initializationNanos, long iterationNanos[], 
+        long distanceComputationCount, boolean converged)
+    {
+        this.centroids = centroids;
+        this.dimensions = dimensions;
+        this.assignments = assignments;
+        this.inertia = inertia;
+        this.initializationNanos = initializationNanos;
+        this.iterationNanos = iterationNanos;
+        this.distanceComputationCount = distanceComputationCount;
+        this.converged = converged;
+    }
+    
+    /**
+     * Returns the number of clusters
+     * 
+     * @return The number of clusters
+     */
+    public int getClusterCount()
+    {
+        return centroids.length / dimensions;
+    }
+    
+    /**
+     * Returns a copy of the centroid of the specified cluster
+     * 
+     * @param cluster The cluster index
+     * @return The centroid
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the {@link #getClusterCount() number of clusters}
+     */
+    public MutableDoubleTuple getCentroid(int cluster)
+    {
+        if (cluster < 0 || cluster >= getClusterCount())
+        {
+            throw new IndexOutOfBoundsException(
+                "Cluster index " + cluster + ", number of clusters: " + 
+                getClusterCount());
+        }
+        return DoubleTuples.copy(DoubleTuples.wrap(
+            centroids, cluster * dimensions, dimensions));
+    }
+    
+    /**
+     * Returns copies of the centroids of all clusters
+     * 
+     * @return The centroids
+     */
+    public List<MutableDoubleTuple> getCentroids()
+    {
+        List<MutableDoubleTuple> result = new ArrayList<MutableDoubleTuple>();
+        for (int j = 0; j < getClusterCount(); j++)
+        {
+            result.add(getCentroid(j));
+        }
+        return result;
+    }
+    
+    /**
+     * Returns a copy of the array containing the index of the cluster
+     * that each tuple was assigned to
+     * 
+     * @return The assignments
+     */
+    public int[] getAssignments()
+    {
+        return assignments.clone();
+    }
+    
+    /**
+     * Returns the number of tuples in each cluster
+     * 
+     * @return The cluster sizes
+     */
+    public int[] getClusterSizes()
+    {
+        int sizes[] = new int[getClusterCount()];
+        for (int a : assignments)
+        {
+            sizes[a]++;
+        }
+        return sizes;
+    }
+    
+    /**
+     * Returns the sum of the squared Euclidean distances of all tuples 
+     * to the centroids of their clusters
+     * 
+     * @return The inertia
+     */
+    public double getInertia()
+    {
+        return inertia;
+    }
+    
+    /**
+     * Returns the number of iterations that have been performed
+     * 
+     * @return The number of iterations
+     */
+    public int getIterationCount()
+    {
+        return iterationNanos.length;
+    }
+    
+    /**
+     * Returns the duration of the initialization, in nanoseconds. This
+     * includes the selection of the initial centroids, and the initial
+     * assignment of the tuples to the clusters.
+     * 
+     * @return The initialization duration
+     */
+    public long getInitializationNanos()
+    {
+        return initializationNanos;
+    }
+    
+    /**
+     * Returns a copy of the array containing the duration of each 
+     * iteration, in nanoseconds
+     * 
+     * @return The iteration durations
+     */
+    public long[] getIterationNanos()
+    {
+        return iterationNanos.clone();
+    }
+    
+    /**
+     * Returns the number of distance computations between tuples and
+     * centroids that have been performed for assigning the tuples to 
+     * the clusters. This does not include the distance computations 
+     * for selecting the initial centroids.
+     * 
+     * @return The number of distance computations
+     */
+    public long getDistanceComputationCount()
+    {
+        return distanceComputationCount;
+    }
+    
+    /**
+     * Returns whether the clustering converged, meaning that no tuple
+     * changed its cluster in the last iteration, or that no centroid 
+     * moved further than the tolerance
+     * 
+     * @return Whether the clustering converged
+     */
+    public boolean isConverged()
+    {
+        return converged;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "KMeansResult[" + 
+            "clusters=" + getClusterCount() + 
+            ", sizes=" + Arrays.toString(getClusterSizes()) + 
+            ", inertia=" + inertia + 
+            ", iterations=" + getIterationCount() + 
+            ", converged=" + converged + "]";
+    }
+}
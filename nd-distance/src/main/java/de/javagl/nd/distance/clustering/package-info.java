@@ -0,0 +1,6 @@
+/**
+ * Classes for clustering sets of tuples, based on the distances between 
+ * the tuples.
+ */
+package de.javagl.nd.distance.clustering;
+
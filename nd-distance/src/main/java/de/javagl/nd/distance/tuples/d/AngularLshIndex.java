@@ -0,0 +1,854 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.distance.Neighbor;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTupleKernels;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+/**
+ * A locality-sensitive hashing index for finding {@link DoubleTuple}s 
+ * with a small {@link DoubleTupleDistanceFunctions#angular() angular 
+ * distance}.<br>
+ * <br>
+ * The index uses signed random projections: Each bit of the signature 
+ * of a tuple indicates on which side of a random hyperplane the tuple 
+ * lies. The probability that two tuples differ in one bit is exactly 
+ * their angular distance. The signature bits are divided into several 
+ * hash tables, and the signature for each table is packed into a single 
+ * <code>long</code> value that serves as the bucket key.<br>
+ * <br>
+ * A query collects the tuples from its own bucket in each table, and 
+ * from additional buckets that are obtained by flipping the bits where
+ * the query is closest to the hyperplane (multi-probe). The candidates
+ * are then compared to the query using the Hamming distance between 
+ * their full signatures, computed with bit counts on the packed 
+ * <code>long</code> values. Only the most promising candidates are
+ * verified with the exact angular distance.<br>
+ * <br>
+ * Searches may be performed concurrently, but not while tuples are 
+ * added to the index.
+ */
+public final class AngularLshIndex
+{
+    /**
+     * The default maximum number of candidates that are verified with 
+     * the exact distance
+     */
+    private static final int DEFAULT_VERIFICATION_LIMIT = 100;
+    
+    /**
+     * The maximum length of the {@link #signatures} array
+     */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    
+    /**
+     * A growable list of <code>int</code> values
+     */
+    private static final class IntList
+    {
+        /**
+         * The values
+         */
+        int values[] = new int[4];
+        
+        /**
+         * The number of values
+         */
+        int size;
+        
+        /**
+         * Add the given value
+         * 
+         * @param value The value
+         */
+        void add(int value)
+        {
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+    
+    /**
+     * An open-addressing hash table that maps <code>long</code> bucket 
+     * keys to the {@link IntList} of the tuple indices in the bucket,
+     * using linear probing
+     */
+    private static final class BucketTable
+    {
+        /**
+         * The keys
+         */
+        long keys[] = new long[16];
+        
+        /**
+         * The buckets. A <code>null</code> element indicates an empty slot.
+         */
+        IntList buckets[] = new IntList[16];
+        
+        /**
+         * The number of buckets
+         */
+        int size;
+        
+        /**
+         * Returns the bucket for the given key, or <code>null</code> if 
+         * there is no bucket for the given key
+         * 
+         * @param key The key
+         * @return The bucket
+         */
+        IntList get(long key)
+        {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (buckets[slot] != null)
+            {
+                if (keys[slot] == key)
+                {
+                    return buckets[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+        
+        /**
+         * Returns the bucket for the given key, creating it if necessary
+         * 
+         * @param key The key
+         * @return The bucket
+         */
+        IntList getOrCreate(long key)
+        {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (buckets[slot] != null)
+            {
+                if (keys[slot] == key)
+                {
+                    return buckets[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            IntList bucket = new IntList();
+            keys[slot] = key;
+            buckets[slot] = bucket;
+            size++;
+            if (size > keys.length * 3L / 4)
+            {
+                rehash();
+            }
+            return bucket;
+        }
+        
+        /**
+         * Double the capacity of this table
+         */
+        private void rehash()
+        {
+            long oldKeys[] = keys;
+            IntList oldBuckets[] = buckets;
+            keys = new long[oldKeys.length * 2];
+            buckets = new IntList[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++)
+            {
+                if (oldBuckets[i] != null)
+                {
+                    int slot = mix(oldKeys[i]) & mask;
+                    while (buckets[slot] != null)
+                    {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    buckets[slot] = oldBuckets[i];
+                }
+            }
+        }
+        
+        /**
+         * Mix the bits of the given value, to obtain a hash code
+         * 
+         * @param value The value
+         * @return The hash code
+         */
+        private static int mix(long value)
+        {
+            long h = value * 0x9E3779B97F4A7C15L;
+            return (int)(h ^ (h >>> 32));
+        }
+    }
+    
+    /**
+     * The signature of a point, together with the projections that
+     * have been used for computing it
+     */
+    private static final class Signature
+    {
+        /**
+         * The bits of the signature, one <code>long</code> per table
+         */
+        final long bits[];
+        
+        /**
+         * The projections of the point on all hyperplanes
+         */
+        final double projections[];
+        
+        /**
+         * Creates a new signature
+         * 
+         * @param bits The bits
+         * @param projections The projections
+         */
+        Signature(long bits[], double projections[])
+        {
+            this.bits = bits;
+            this.projections = projections;
+        }
+    }
+    
+    /**
+     * The number of dimensions
+     */
+    private final int dimensions;
+    
+    /**
+     * The number of hash tables
+     */
+    private final int tables;
+    
+    /**
+     * The number of bits per table
+     */
+    private final int bitsPerTable;
+    
+    /**
+     * The hyperplane normals, stored consecutively
+     */
+    private final double hyperplanes[];
+    
+    /**
+     * The buckets of each table
+     */
+    private final BucketTable buckets[];
+    
+    /**
+     * The tuples in this index
+     */
+    private final List<DoubleTuple> tuples;
+    
+    /**
+     * The signatures of the tuples, with {@link #tables} elements each
+     */
+    private long signatures[];
+    
+    /**
+     * The angular distance function
+     */
+    private final DistanceFunction<DoubleTuple> distanceFunction;
+    
+    /**
+     * The maximum number of candidates that are verified
+     */
+    private int verificationLimit;
+    
+    /**
+     * The thread-local markers for visited tuples
+     */
+    private final ThreadLocal<int[][]> threadLocalMarkers =
+        ThreadLocal.withInitial(() -> new int[][] { new int[0], { 0 } });
+    
+    /**
+     * Creates a new, empty index
+     * 
+     * @param dimensions The number of dimensions of the tuples
+     * @param tables The number of hash tables. More tables increase the
+     * probability of finding near neighbors, but also the memory 
+     * requirements and the number of candidates.
+     * @param bitsPerTable The number of bits for each table, between 1
+     * and 64. More bits lead to smaller buckets.
+     * @param seed The seed for the random hyperplanes
+     * @throws IllegalArgumentException If the dimensions are not positive,
+     * the number of tables is not positive, the bits per table are not 
+     * between 1 and 64, or the hyperplanes would require an array with 
+     * more than <code>Integer.MAX_VALUE</code> elements
+     */
+    public AngularLshIndex(
+        int dimensions, int tables, int bitsPerTable, long seed)
+    {
+        if (dimensions <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The dimensions must be positive, but are " + dimensions);
+        }
+        if (tables <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of tables must be positive, but is " + tables);
+        }
+        if (bitsPerTable < 1 || bitsPerTable > 64)
+        {
+            throw new IllegalArgumentException(
+                "The bits per table must be between 1 and 64, but are " + 
+                bitsPerTable);
+        }
+        long hyperplanesLength = (long)tables * bitsPerTable * dimensions;
+        if (hyperplanesLength > MAX_ARRAY_LENGTH)
+        {
+            throw new IllegalArgumentException(
+                "The hyperplanes for " + tables + " tables with " + 
+                bitsPerTable + " bits and " + dimensions + " dimensions " + 
+                "would require " + hyperplanesLength + " elements");
+        }
+        this.dimensions = dimensions;
+        this.tables = tables;
+        this.bitsPerTable = bitsPerTable;
+        Random random = new Random(seed);
+        this.hyperplanes = new double[(int)hyperplanesLength];
+        for (int i = 0; i < hyperplanes.length; i++)
+        {
+            hyperplanes[i] = random.nextGaussian();
+        }
+        this.buckets = new BucketTable[tables];
+        for (int t = 0; t < tables; t++)
+        {
+            buckets[t] = new BucketTable();
+        }
+        this.tuples = new ArrayList<DoubleTuple>();
+        this.signatures = new long[0];
+        this.distanceFunction = DoubleTupleDistanceFunctions.angular();
+        this.verificationLimit = DEFAULT_VERIFICATION_LIMIT;
+    }
+    
+    /**
+     * Returns the number of tuples in this index
+     * 
+     * @return The size
+     */
+    public int size()
+    {
+        return tuples.size();
+    }
+    
+    /**
+     * Returns the maximum number of candidates that are verified with the
+     * exact angular distance in {@link #search(DoubleTuple, int, int)}
+     * 
+     * @return The verification limit
+     */
+    public int getVerificationLimit()
+    {
+        return verificationLimit;
+    }
+    
+    /**
+     * Set the maximum number of candidates that are verified with the
+     * exact angular distance in {@link #search(DoubleTuple, int, int)}.
+     * The candidates with the smallest Hamming distance to the query 
+     * will be verified. 
+     * 
+     * @param verificationLimit The verification limit
+     * @throws IllegalArgumentException If the value is not positive
+     */
+    public void setVerificationLimit(int verificationLimit)
+    {
+        if (verificationLimit <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The verification limit must be positive, but is " + 
+                verificationLimit);
+        }
+        this.verificationLimit = verificationLimit;
+    }
+    
+    /**
+     * Add the given tuple to this index. A copy of the tuple will be 
+     * stored.
+     * 
+     * @param tuple The tuple
+     * @return The index of the tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of dimensions of this index
+     * @throws IllegalStateException If the signatures of all tuples 
+     * would no longer fit into an array
+     */
+    public int add(DoubleTuple tuple)
+    {
+        checkSize(tuple);
+        checkCapacity(1);
+        DoubleTuple copy = DoubleTuples.copy(tuple);
+        return insert(copy, computeSignature(copy));
+    }
+    
+    /**
+     * Add all given tuples to this index. Copies of the tuples will be 
+     * stored. The signatures are computed in parallel, and the tuples 
+     * will receive consecutive indices in the order of the given list.
+     * 
+     * @param tuples The tuples
+     * @return The index of the first tuple
+     * @throws IllegalArgumentException If the size of any tuple is not
+     * the number of dimensions of this index
+     * @throws IllegalStateException If the signatures of all tuples 
+     * would no longer fit into an array
+     */
+    public int addAll(List<? extends DoubleTuple> tuples)
+    {
+        tuples.forEach(this::checkSize);
+        checkCapacity(tuples.size());
+        List<DoubleTuple> copies = tuples.stream()
+            .map(DoubleTuples::copy)
+            .collect(Collectors.toList());
+        List<Signature> signatures = copies.parallelStream()
+            .map(this::computeSignature)
+            .collect(Collectors.toList());
+        int first = size();
+        for (int i = 0; i < copies.size(); i++)
+        {
+            insert(copies.get(i), signatures.get(i));
+        }
+        return first;
+    }
+    
+    /**
+     * Make sure that the given tuple has the right size
+     * 
+     * @param tuple The tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of dimensions of this index
+     */
+    private void checkSize(DoubleTuple tuple)
+    {
+        if (tuple.getSize() != dimensions)
+        {
+            throw new IllegalArgumentException(
+                "Expected a tuple of size " + dimensions + 
+                ", but the size is " + tuple.getSize());
+        }
+    }
+    
+    /**
+     * Make sure that the signatures of the given number of additional 
+     * tuples can be stored. After this check passed, the offsets 
+     * <code>id * tables</code> of all tuples fit into an <code>int</code>.
+     * 
+     * @param count The number of additional tuples
+     * @throws IllegalStateException If the signatures of all tuples 
+     * would no longer fit into an array
+     */
+    private void checkCapacity(int count)
+    {
+        long required = ((long)tuples.size() + count) * tables;
+        if (required > MAX_ARRAY_LENGTH)
+        {
+            throw new IllegalStateException(
+                "Cannot add " + count + " tuples to an index with " + 
+                tuples.size() + " tuples: The signatures with " + tables + 
+                " tables would require " + required + " elements");
+        }
+    }
+    
+    /**
+     * Insert the given tuple with the given signature. The caller is
+     * responsible for {@link #checkCapacity(int) checking the capacity}.
+     * 
+     * @param tuple The tuple
+     * @param signature The signature
+     * @return The index of the tuple
+     */
+    private int insert(DoubleTuple tuple, Signature signature)
+    {
+        int id = tuples.size();
+        int offset = id * tables;
+        tuples.add(tuple);
+        if (offset + tables > signatures.length)
+        {
+            long newLength = Math.max(
+                (long)offset + tables, (long)signatures.length * 2);
+            signatures = Arrays.copyOf(signatures, 
+                (int)Math.min(newLength, MAX_ARRAY_LENGTH));
+        }
+        System.arraycopy(signature.bits, 0, signatures, offset, tables);
+        for (int t = 0; t < tables; t++)
+        {
+            buckets[t].getOrCreate(signature.bits[t]).add(id);
+        }
+        return id;
+    }
+    
+    /**
+     * Compute the signature of the given tuple
+     * 
+     * @param tuple The tuple
+     * @return The signature
+     */
+    private Signature computeSignature(DoubleTuple tuple)
+    {
+        double v[] = DoubleTuples.toArray(tuple);
+        long bits[] = new long[tables];
+        double projections[] = new double[tables * bitsPerTable];
+        for (int t = 0; t < tables; t++)
+        {
+            long b = 0;
+            for (int j = 0; j < bitsPerTable; j++)
+            {
+                int h = t * bitsPerTable + j;
+                double p = DoubleTupleKernels.dot(
+                    hyperplanes, h * dimensions, v, 0, dimensions);
+                projections[h] = p;
+                if (p >= 0)
+                {
+                    b |= 1L << j;
+                }
+            }
+            bits[t] = b;
+        }
+        return new Signature(bits, projections);
+    }
+    
+    /**
+     * Returns the approximate <code>k</code> nearest neighbors of the 
+     * given query, according to the angular distance. The returned list 
+     * is sorted by the distance. The {@link Neighbor#getIndex() index} 
+     * of each neighbor is the index that was returned when the tuple was 
+     * added. The elements are the stored copies of the tuples, which may 
+     * not be modified.
+     * 
+     * @param query The query
+     * @param k The maximum number of neighbors
+     * @param probes The number of additional buckets that are probed
+     * in each table. This is at most the number of bits per table.
+     * @return The neighbors
+     * @throws IllegalArgumentException If the size of the query is not
+     * the number of dimensions of this index, <code>k</code> is not 
+     * positive, or the number of probes is negative
+     */
+    public List<Neighbor<DoubleTuple>> search(
+        DoubleTuple query, int k, int probes)
+    {
+        checkSize(query);
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of neighbors must be positive, but is " + k);
+        }
+        Signature signature = computeSignature(query);
+        int candidates[] = collectCandidates(signature, probes);
+        int limit = Math.max(k, verificationLimit);
+        int sorted[] = sortByHamming(signature.bits, candidates);
+        int count = Math.min(limit, sorted.length);
+        List<Neighbor<DoubleTuple>> verified = 
+            new ArrayList<Neighbor<DoubleTuple>>(count);
+        for (int i = 0; i < count; i++)
+        {
+            int id = sorted[i];
+            DoubleTuple tuple = tuples.get(id);
+            verified.add(new Neighbor<DoubleTuple>(
+                tuple, id, distanceFunction.distance(query, tuple)));
+        }
+        verified.sort((n0, n1) -> 
+        {
+            int c = Double.compare(n0.getDistance(), n1.getDistance());
+            return c != 0 ? c : Integer.compare(n0.getIndex(), n1.getIndex());
+        });
+        if (verified.size() > k)
+        {
+            return new ArrayList<Neighbor<DoubleTuple>>(verified.subList(0, k));
+        }
+        return verified;
+    }
+    
+    /**
+     * Performs a {@link #search(DoubleTuple, int, int)} for each of the
+     * given queries, in parallel
+     * 
+     * @param queries The queries
+     * @param k The maximum number of neighbors
+     * @param probes The number of additional buckets that are probed
+     * in each table
+     * @return The neighbors for each query
+     * @throws IllegalArgumentException If the size of any query is not
+     * the number of dimensions of this index, <code>k</code> is not 
+     * positive, or the number of probes is negative
+     */
+    public List<List<Neighbor<DoubleTuple>>> search(
+        List<? extends DoubleTuple> queries, int k, int probes)
+    {
+        return queries.parallelStream()
+            .map(query -> search(query, k, probes))
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Returns all tuples whose angular distance to the given query is 
+     * at most the given maximum distance, and which share a probed 
+     * bucket with the query. This may be used for finding near-duplicates.
+     * <br>
+     * <br>
+     * Candidates whose Hamming distance indicates that their angular
+     * distance is larger than the maximum distance with high probability
+     * (that is, by more than three standard deviations of the estimate) 
+     * are discarded without computing the exact distance. The returned 
+     * list is sorted by the distance.
+     * 
+     * @param query The query
+     * @param maxDistance The maximum angular distance, between 0 and 1
+     * @param probes The number of additional buckets that are probed
+     * in each table
+     * @return The neighbors
+     * @throws IllegalArgumentException If the size of the query is not
+     * the number of dimensions of this index, or the number of probes 
+     * is negative
+     */
+    public List<Neighbor<DoubleTuple>> searchWithin(
+        DoubleTuple query, double maxDistance, int probes)
+    {
+        checkSize(query);
+        Signature signature = computeSignature(query);
+        int candidates[] = collectCandidates(signature, probes);
+        int bits = tables * bitsPerTable;
+        double p = Math.min(Math.max(maxDistance, 0.0), 1.0);
+        double slack = 3.0 * Math.sqrt(Math.max(p * (1 - p), 0.25 / bits) * bits);
+        double maxHamming = p * bits + slack;
+        List<Neighbor<DoubleTuple>> result = 
+            new ArrayList<Neighbor<DoubleTuple>>();
+        for (int id : candidates)
+        {
+            if (hamming(signature.bits, id) > maxHamming)
+            {
+                continue;
+            }
+            DoubleTuple tuple = tuples.get(id);
+            double distance = distanceFunction.distance(query, tuple);
+            if (distance <= maxDistance)
+            {
+                result.add(new Neighbor<DoubleTuple>(tuple, id, distance));
+            }
+        }
+        result.sort((n0, n1) -> 
+        {
+            int c = Double.compare(n0.getDistance(), n1.getDistance());
+            return c != 0 ? c : Integer.compare(n0.getIndex(), n1.getIndex());
+        });
+        return result;
+    }
+    
+    /**
+     * Collect the indices of all tuples in the buckets of the given 
+     * signature, and the buckets that are obtained by flipping the 
+     * given number of bits where the projection is closest to zero
+     * 
+     * @param signature The signature
+     * @param probes The number of additional buckets per table
+     * @return The candidate indices, without duplicates
+     * @throws IllegalArgumentException If the number of probes is negative
+     */
+    private int[] collectCandidates(Signature signature, int probes)
+    {
+        if (probes < 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of probes may not be negative, but is " + probes);
+        }
+        int n = tuples.size();
+        int markerData[][] = threadLocalMarkers.get();
+        if (markerData[0].length < n)
+        {
+            markerData[0] = new int[Math.max(n, markerData[0].length * 2)];
+            markerData[1][0] = 0;
+        }
+        int markers[] = markerData[0];
+        int marker = ++markerData[1][0];
+        if (marker == 0)
+        {
+            Arrays.fill(markers, 0);
+            marker = markerData[1][0] = 1;
+        }
+        IntList result = new IntList();
+        int p = Math.min(probes, bitsPerTable);
+        int order[] = new int[p];
+        for (int t = 0; t < tables; t++)
+        {
+            BucketTable table = buckets[t];
+            long key = signature.bits[t];
+            collect(table.get(key), markers, marker, result);
+            if (p == 0)
+            {
+                continue;
+            }
+            selectClosestBits(
+                signature.projections, t * bitsPerTable, order);
+            for (int i = 0; i < p; i++)
+            {
+                long probeKey = key ^ (1L << order[i]);
+                collect(table.get(probeKey), markers, marker, result);
+            }
+        }
+        return Arrays.copyOf(result.values, result.size);
+    }
+    
+    /**
+     * Fill the given array with the positions of the bits of one table 
+     * whose projections have the smallest absolute values, in ascending 
+     * order of these values. This is an insertion sort that only keeps 
+     * the first <code>order.length</code> positions, which is sufficient 
+     * for the at most 64 bits of one table.
+     * 
+     * @param projections The projections
+     * @param offset The offset of the projections of the table
+     * @param order The array that will store the bit positions
+     */
+    private void selectClosestBits(
+        double projections[], int offset, int order[])
+    {
+        int p = order.length;
+        int count = 0;
+        for (int j = 0; j < bitsPerTable; j++)
+        {
+            double value = Math.abs(projections[offset + j]);
+            int i = Math.min(count, p - 1);
+            if (count == p && 
+                value >= Math.abs(projections[offset + order[i]]))
+            {
+                continue;
+            }
+            while (i > 0 && 
+                value < Math.abs(projections[offset + order[i - 1]]))
+            {
+                order[i] = order[i - 1];
+                i--;
+            }
+            order[i] = j;
+            if (count < p)
+            {
+                count++;
+            }
+        }
+    }
+    
+    /**
+     * Add all indices from the given bucket that have not been visited
+     * yet to the given result
+     * 
+     * @param bucket The bucket. May be <code>null</code>.
+     * @param markers The markers
+     * @param marker The marker for visited indices
+     * @param result The result
+     */
+    private static void collect(
+        IntList bucket, int markers[], int marker, IntList result)
+    {
+        if (bucket == null)
+        {
+            return;
+        }
+        for (int i = 0; i < bucket.size; i++)
+        {
+            int id = bucket.values[i];
+            if (markers[id] != marker)
+            {
+                markers[id] = marker;
+                result.add(id);
+            }
+        }
+    }
+    
+    /**
+     * Computes the Hamming distance between the given signature bits and
+     * the signature of the tuple with the given index
+     * 
+     * @param bits The signature bits
+     * @param id The tuple index
+     * @return The Hamming distance
+     */
+    private int hamming(long bits[], int id)
+    {
+        // Does not overflow, due to the checkCapacity call in add/addAll
+        int offset = id * tables;
+        int sum = 0;
+        for (int t = 0; t < tables; t++)
+        {
+            sum += Long.bitCount(bits[t] ^ signatures[offset + t]);
+        }
+        return sum;
+    }
+    
+    /**
+     * Sort the given candidates by the Hamming distance of their 
+     * signature to the given signature bits, using a counting sort
+     * 
+     * @param bits The signature bits
+     * @param candidates The candidate indices
+     * @return The sorted candidates
+     */
+    private int[] sortByHamming(long bits[], int candidates[])
+    {
+        int maxHamming = tables * bitsPerTable;
+        int hammings[] = new int[candidates.length];
+        int counts[] = new int[maxHamming + 2];
+        for (int i = 0; i < candidates.length; i++)
+        {
+            int h = hamming(bits, candidates[i]);
+            hammings[i] = h;
+            counts[h + 1]++;
+        }
+        for (int h = 0; h <= maxHamming; h++)
+        {
+            counts[h + 1] += counts[h];
+        }
+        int result[] = new int[candidates.length];
+        for (int i = 0; i < candidates.length; i++)
+        {
+            result[counts[hammings[i]]++] = candidates[i];
+        }
+        return result;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "AngularLshIndex[" + 
+            "dimensions=" + dimensions + 
+            ", tables=" + tables + 
+            ", bitsPerTable=" + bitsPerTable + 
+            ", size=" + size() + "]";
+    }
+}
@@ -0,0 +1,520 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.arrays.d.DoubleArraysND;
+import de.javagl.nd.arrays.d.MutableDoubleArrayND;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.i.IntTuples;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+/**
+ * Methods to compute covariance and correlation matrices of collections
+ * of {@link DoubleTuple}s.<br>
+ * <br>
+ * The tuples are copied into one packed, centered array. The matrix 
+ * is divided into square tiles of dimensions, and the tiles on and 
+ * above the diagonal are computed in parallel. For large collections, 
+ * the tuples are additionally divided into chunks, and the partial sums
+ * of the chunks are added in a fixed order, so that the results do not
+ * depend on the scheduling of the tasks.<br>
+ * <br>
+ * Consistent with {@link de.javagl.nd.tuples.d.DoubleTupleCollections#variance}, 
+ * the covariances are the <i>population</i> covariances, which are 
+ * normalized by the number of tuples, <code>n</code>, and not by 
+ * <code>n-1</code>.
+ */
+public class DoubleTupleCovariances
+{
+    /**
+     * The number of rows and columns in one tile
+     */
+    private static final int TILE_SIZE = 64;
+    
+    /**
+     * The minimum number of tuples in one chunk
+     */
+    private static final int MIN_CHUNK_SIZE = 4096;
+    
+    /**
+     * The maximum number of chunks that the tuples are divided into
+     */
+    private static final int MAX_CHUNKS = 16;
+    
+    /**
+     * Computes the covariance matrix of the given tuples.<br>
+     * <br>
+     * After this method returns, the element <code>(i,j)</code> of
+     * the result array will contain the covariance of the dimensions
+     * <code>i</code> and <code>j</code> of the given tuples. If the 
+     * given result array is <code>null</code>, then a new array will 
+     * be created and returned.
+     * 
+     * @param tuples The tuples
+     * @param result The result array. May be <code>null</code>.
+     * @return The result array
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If the given list is empty, if 
+     * the tuples do not all have the same size, or if the result is 
+     * not <code>null</code> and does not have the size <code>(d,d)</code>,
+     * where <code>d</code> is the size of the tuples
+     */
+    public static MutableDoubleArrayND computeCovarianceMatrix(
+        List<? extends DoubleTuple> tuples, MutableDoubleArrayND result)
+    {
+        int d = validateSize(tuples);
+        MutableDoubleArrayND finalResult = validateResult(result, d);
+        double mean[] = computeMean(tuples);
+        double centered[] = packCentered(tuples, mean);
+        double covariance[] = computeCovariance(centered, tuples.size(), d);
+        write(covariance, d, finalResult);
+        return finalResult;
+    }
+    
+    /**
+     * Computes the matrix of the Pearson correlation coefficients of 
+     * the given tuples.<br>
+     * <br>
+     * After this method returns, the element <code>(i,j)</code> of
+     * the result array will contain the correlation coefficient of the 
+     * dimensions <code>i</code> and <code>j</code> of the given tuples. 
+     * If the given result array is <code>null</code>, then a new array 
+     * will be created and returned.<br>
+     * <br>
+     * The correlation coefficient is not defined for dimensions where
+     * all tuples have the same value. The diagonal elements for such 
+     * dimensions will be 1.0, and the other elements in their rows and 
+     * columns will be 0.0.
+     * 
+     * @param tuples The tuples
+     * @param result The result array. May be <code>null</code>.
+     * @return The result array
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If the given list is empty, if 
+     * the tuples do not all have the same size, or if the result is 
+     * not <code>null</code> and does not have the size <code>(d,d)</code>,
+     * where <code>d</code> is the size of the tuples
+     */
+    public static MutableDoubleArrayND computeCorrelationMatrix(
+        List<? extends DoubleTuple> tuples, MutableDoubleArrayND result)
+    {
+        int d = validateSize(tuples);
+        MutableDoubleArrayND finalResult = validateResult(result, d);
+        double mean[] = computeMean(tuples);
+        double centered[] = packCentered(tuples, mean);
+        double covariance[] = computeCovariance(centered, tuples.size(), d);
+        double deviations[] = new double[d];
+        for (int i = 0; i < d; i++)
+        {
+            deviations[i] = Math.sqrt(covariance[i * d + i]);
+        }
+        for (int i = 0; i < d; i++)
+        {
+            for (int j = 0; j < d; j++)
+            {
+                double denominator = deviations[i] * deviations[j];
+                double value = 0.0;
+                if (i == j)
+                {
+                    value = 1.0;
+                }
+                else if (denominator > 0.0)
+                {
+                    value = covariance[i * d + j] / denominator;
+                    value = Math.max(-1.0, Math.min(1.0, value));
+                }
+                covariance[i * d + j] = value;
+            }
+        }
+        write(covariance, d, finalResult);
+        return finalResult;
+    }
+    
+    /**
+     * Make sure that the given list is not empty and all tuples have
+     * the same size, and return this size
+     * 
+     * @param tuples The tuples
+     * @return The size of the tuples
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If the list is empty or the
+     * tuples do not all have the same size
+     */
+    static int validateSize(List<? extends DoubleTuple> tuples)
+    {
+        Objects.requireNonNull(tuples, "The tuples are null");
+        if (tuples.isEmpty())
+        {
+            throw new IllegalArgumentException("The tuples are empty");
+        }
+        int d = tuples.get(0).getSize();
+        for (DoubleTuple tuple : tuples)
+        {
+            if (tuple.getSize() != d)
+            {
+                throw new IllegalArgumentException(
+                    "Expected tuples of size " + d + ", but found one " + 
+                    "with size " + tuple.getSize());
+            }
+        }
+        return d;
+    }
+    
+    /**
+     * Returns the given result array, or a new array with size 
+     * <code>(d,d)</code> if it is <code>null</code>
+     * 
+     * @param result The result array. May be <code>null</code>.
+     * @param d The number of dimensions
+     * @return The result array
+     * @throws IllegalArgumentException If the result does not have 
+     * the size <code>(d,d)</code>
+     */
+    private static MutableDoubleArrayND validateResult(
+        MutableDoubleArrayND result, int d)
+    {
+        if (result == null)
+        {
+            return DoubleArraysND.create(d, d);
+        }
+        if (!result.getSize().equals(IntTuples.of(d, d)))
+        {
+            throw new IllegalArgumentException(
+                "Expected a result of size (" + d + "," + d + "), but " + 
+                "the result has a size of " + result.getSize());
+        }
+        return result;
+    }
+    
+    /**
+     * Write the given packed <code>d x d</code> matrix into the given array
+     * 
+     * @param matrix The matrix, in row-major order
+     * @param d The number of dimensions
+     * @param result The result array
+     */
+    private static void write(
+        double matrix[], int d, MutableDoubleArrayND result)
+    {
+        MutableIntTuple index = IntTuples.create(2);
+        for (int i = 0; i < d; i++)
+        {
+            index.set(0, i);
+            for (int j = 0; j < d; j++)
+            {
+                index.set(1, j);
+                result.set(index, matrix[i * d + j]);
+            }
+        }
+    }
+    
+    /**
+     * Compute the mean of the given tuples. The tuples are summed in 
+     * parallel chunks, and the chunk sums are added in a fixed order.
+     * 
+     * @param tuples The tuples, which must all have the same size
+     * @return The mean
+     */
+    static double[] computeMean(List<? extends DoubleTuple> tuples)
+    {
+        int n = tuples.size();
+        int d = tuples.get(0).getSize();
+        int chunks = computeChunkCount(n);
+        double sums[][] = new double[chunks][d];
+        IntStream.range(0, chunks).parallel().forEach(c -> 
+        {
+            double sum[] = sums[c];
+            int min = chunkStart(n, chunks, c);
+            int max = chunkStart(n, chunks, c + 1);
+            for (int i = min; i < max; i++)
+            {
+                DoubleTuple tuple = tuples.get(i);
+                for (int j = 0; j < d; j++)
+                {
+                    sum[j] += tuple.get(j);
+                }
+            }
+        });
+        double mean[] = new double[d];
+        for (int c = 0; c < chunks; c++)
+        {
+            for (int j = 0; j < d; j++)
+            {
+                mean[j] += sums[c][j];
+            }
+        }
+        for (int j = 0; j < d; j++)
+        {
+            mean[j] /= n;
+        }
+        return mean;
+    }
+    
+    /**
+     * Copy the given tuples, minus the given mean, into one array, in
+     * row-major order, in parallel
+     * 
+     * @param tuples The tuples, which must all have the same size
+     * @param mean The mean
+     * @return The packed, centered tuples
+     */
+    static double[] packCentered(
+        List<? extends DoubleTuple> tuples, double mean[])
+    {
+        int n = tuples.size();
+        int d = mean.length;
+        double result[] = new double[Math.multiplyExact(n, d)];
+        IntStream.range(0, n).parallel().forEach(i -> 
+        {
+            DoubleTuple tuple = tuples.get(i);
+            int offset = i * d;
+            for (int j = 0; j < d; j++)
+            {
+                result[offset + j] = tuple.get(j) - mean[j];
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Compute the population covariance matrix of the given packed, 
+     * centered tuples
+     * 
+     * @param centered The centered tuples, in row-major order
+     * @param n The number of tuples
+     * @param d The number of dimensions
+     * @return The <code>d x d</code> covariance matrix, in row-major order
+     */
+    static double[] computeCovariance(double centered[], int n, int d)
+    {
+        // When there are enough tile pairs to keep all threads busy, 
+        // then the chunks of each tile pair are processed sequentially,
+        // so that only one accumulator and one scratch tile are live 
+        // for each tile pair that is currently processed. Otherwise, 
+        // the chunks of each tile pair are processed in parallel. 
+        int tiles = (d + TILE_SIZE - 1) / TILE_SIZE;
+        int tilePairs = tiles * (tiles + 1) / 2;
+        boolean parallelChunks = 
+            tilePairs < ForkJoinPool.getCommonPoolParallelism();
+        return computeCovariance(centered, n, d, parallelChunks);
+    }
+    
+    /**
+     * Compute the population covariance matrix of the given packed, 
+     * centered tuples. The result does not depend on whether the chunks
+     * of the tuples are processed in parallel.
+     * 
+     * @param centered The centered tuples, in row-major order
+     * @param n The number of tuples
+     * @param d The number of dimensions
+     * @param parallelChunks Whether the chunks of the tuples should be 
+     * processed in parallel for each tile pair
+     * @return The <code>d x d</code> covariance matrix, in row-major order
+     */
+    static double[] computeCovariance(
+        double centered[], int n, int d, boolean parallelChunks)
+    {
+        int tiles = (d + TILE_SIZE - 1) / TILE_SIZE;
+        int tilePairs = tiles * (tiles + 1) / 2;
+        int tileRows[] = new int[tilePairs];
+        int tileColumns[] = new int[tilePairs];
+        int pair = 0;
+        for (int a = 0; a < tiles; a++)
+        {
+            for (int b = a; b < tiles; b++)
+            {
+                tileRows[pair] = a;
+                tileColumns[pair] = b;
+                pair++;
+            }
+        }
+        int chunks = computeChunkCount(n);
+        double result[] = new double[d * d];
+        IntStream.range(0, tilePairs).parallel().forEach(p -> 
+        {
+            int i0 = tileRows[p] * TILE_SIZE;
+            int j0 = tileColumns[p] * TILE_SIZE;
+            double sums[] = computeTileSums(
+                centered, n, d, i0, j0, chunks, parallelChunks);
+            int rows = Math.min(TILE_SIZE, d - i0);
+            int columns = Math.min(TILE_SIZE, d - j0);
+            for (int i = 0; i < rows; i++)
+            {
+                int jMin = i0 == j0 ? i : 0;
+                for (int j = jMin; j < columns; j++)
+                {
+                    double value = sums[i * TILE_SIZE + j] / n;
+                    result[(i0 + i) * d + (j0 + j)] = value;
+                    result[(j0 + j) * d + (i0 + i)] = value;
+                }
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Compute the sums of the products of the dimensions in one tile,
+     * for all tuples. The tuples are divided into the given number of 
+     * chunks, and the sums of the chunks are added in a fixed order,
+     * so that the result does not depend on whether the chunks are
+     * processed in parallel.
+     * 
+     * @param centered The centered tuples, in row-major order
+     * @param n The number of tuples
+     * @param d The number of dimensions
+     * @param i0 The first dimension of the tile rows
+     * @param j0 The first dimension of the tile columns
+     * @param chunks The number of chunks
+     * @param parallel Whether the chunks should be processed in parallel
+     * @return The tile, with a size of <code>TILE_SIZE x TILE_SIZE</code>
+     */
+    private static double[] computeTileSums(double centered[], int n, 
+        int d, int i0, int j0, int chunks, boolean parallel)
+    {
+        double sums[] = new double[TILE_SIZE * TILE_SIZE];
+        if (parallel)
+        {
+            double partials[][] = new double[chunks][];
+            IntStream.range(0, chunks).parallel().forEach(c -> 
+            {
+                double tile[] = new double[TILE_SIZE * TILE_SIZE];
+                computeTile(centered, n, d, i0, j0, 
+                    chunkStart(n, chunks, c), chunkStart(n, chunks, c + 1),
+                    tile);
+                partials[c] = tile;
+            });
+            for (int c = 0; c < chunks; c++)
+            {
+                add(sums, partials[c]);
+            }
+            return sums;
+        }
+        double tile[] = new double[TILE_SIZE * TILE_SIZE];
+        for (int c = 0; c < chunks; c++)
+        {
+            Arrays.fill(tile, 0.0);
+            computeTile(centered, n, d, i0, j0, 
+                chunkStart(n, chunks, c), chunkStart(n, chunks, c + 1),
+                tile);
+            add(sums, tile);
+        }
+        return sums;
+    }
+    
+    /**
+     * Add the elements of the given tile to the given sums
+     * 
+     * @param sums The sums
+     * @param tile The tile
+     */
+    private static void add(double sums[], double tile[])
+    {
+        for (int i = 0; i < sums.length; i++)
+        {
+            sums[i] += tile[i];
+        }
+    }
+    
+    /**
+     * Compute the sums of the products of the dimensions in one tile,
+     * for the given range of tuples
+     * 
+     * @param centered The centered tuples, in row-major order
+     * @param n The number of tuples
+     * @param d The number of dimensions
+     * @param i0 The first dimension of the tile rows
+     * @param j0 The first dimension of the tile columns
+     * @param min The first tuple, inclusive
+     * @param max The last tuple, exclusive
+     * @param tile The tile, with a size of <code>TILE_SIZE x TILE_SIZE</code>,
+     * that the sums will be added to
+     */
+    private static void computeTile(double centered[], int n, int d,
+        int i0, int j0, int min, int max, double tile[])
+    {
+        int rows = Math.min(TILE_SIZE, d - i0);
+        int columns = Math.min(TILE_SIZE, d - j0);
+        for (int k = min; k < max; k++)
+        {
+            int offset = k * d;
+            for (int i = 0; i < rows; i++)
+            {
+                double x = centered[offset + i0 + i];
+                if (x == 0.0)
+                {
+                    continue;
+                }
+                int jMin = i0 == j0 ? i : 0;
+                int rowOffset = i * TILE_SIZE;
+                int columnOffset = offset + j0;
+                for (int j = jMin; j < columns; j++)
+                {
+                    tile[rowOffset + j] += x * centered[columnOffset + j];
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of chunks that the given number of tuples 
+     * should be divided into
+     * 
+     * @param n The number of tuples
+     * @return The number of chunks
+     */
+    static int computeChunkCount(int n)
+    {
+        return Math.max(1, Math.min(MAX_CHUNKS, n / MIN_CHUNK_SIZE));
+    }
+    
+    /**
+     * Returns the index of the first tuple of the given chunk
+     * 
+     * @param n The number of tuples
+     * @param chunks The number of chunks
+     * @param c The chunk index. May be equal to the number of chunks.
+     * @return The index of the first tuple
+     */
+    static int chunkStart(int n, int chunks, int c)
+    {
+        return (int) ((long) n * c / chunks);
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DoubleTupleCovariances()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -26,6 +26,8 @@
  */
 package de.javagl.nd.distance.tuples.d;
 
+import java.util.List;
+
 import de.javagl.nd.distance.DistanceFunction;
 import de.javagl.nd.tuples.d.DoubleTuple;
 
@@ -43,6 +45,14 @@ final class DoubleTupleDistanceFunctionAngular implements
         return 1 - 
             DoubleTupleDistanceFunctions.computeAngularSimilarity(t0, t1);
     }
+    
+    @Override
+    public void distances(DoubleTuple query, 
+        List<? extends DoubleTuple> candidates, double result[])
+    {
+        DoubleTupleDistanceFunctions.computeAngularDistances(
+            query, candidates, null, result);
+    }
 
     @Override
     public String toString() 
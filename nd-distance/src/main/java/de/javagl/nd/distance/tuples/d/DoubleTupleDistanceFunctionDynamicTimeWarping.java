@@ -36,16 +36,54 @@ import de.javagl.nd.tuples.d.DoubleTuple;
 final class DoubleTupleDistanceFunctionDynamicTimeWarping implements
     DistanceFunction<DoubleTuple>
 {
+    /**
+     * The width of the Sakoe-Chiba band
+     */
+    private final int window;
+    
+    /**
+     * The threshold for abandoning the computation
+     */
+    private final double threshold;
+    
+    /**
+     * Creates a new instance that computes the unconstrained
+     * dynamic time warping distance
+     */
+    DoubleTupleDistanceFunctionDynamicTimeWarping()
+    {
+        this(Integer.MAX_VALUE, Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param window The width of the Sakoe-Chiba band
+     * @param threshold The threshold for abandoning the computation
+     */
+    DoubleTupleDistanceFunctionDynamicTimeWarping(
+        int window, double threshold)
+    {
+        this.window = window;
+        this.threshold = threshold;
+    }
+    
     @Override
     public double distance(DoubleTuple t0, DoubleTuple t1) 
     {
-    	return DynamicTimeWarpingDistance.
-    		computeDynamicTimeWarpingDistance(t0, t1);
+        return DynamicTimeWarpingDistance.
+            computeDynamicTimeWarpingDistance(t0, t1, window, threshold);
     }
 
     @Override
     public String toString() 
     {
-        return "DynamicTimeWarping";
+        if (window == Integer.MAX_VALUE && 
+            threshold == Double.POSITIVE_INFINITY)
+        {
+            return "DynamicTimeWarping";
+        }
+        return "DynamicTimeWarping[window=" + window + 
+            ", threshold=" + threshold + "]";
     }
-}
\ No newline at end of file
+}
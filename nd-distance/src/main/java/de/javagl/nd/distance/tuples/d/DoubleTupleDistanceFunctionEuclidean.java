@@ -26,6 +26,8 @@
  */
 package de.javagl.nd.distance.tuples.d;
 
+import java.util.List;
+
 import de.javagl.nd.distance.DistanceFunction;
 import de.javagl.nd.tuples.d.DoubleTuple;
 
@@ -41,6 +43,19 @@ final class DoubleTupleDistanceFunctionEuclidean implements
     {
         return DoubleTupleDistanceFunctions.computeEuclidean(t0, t1);
     }
+    
+    @Override
+    public void distances(DoubleTuple query, 
+        List<? extends DoubleTuple> candidates, double result[])
+    {
+        DoubleTupleDistanceFunctions.computeEuclideanSquaredDistances(
+            query, candidates, result);
+        int n = candidates.size();
+        for (int i = 0; i < n; i++)
+        {
+            result[i] = Math.sqrt(result[i]);
+        }
+    }
 
     @Override
     public String toString() 
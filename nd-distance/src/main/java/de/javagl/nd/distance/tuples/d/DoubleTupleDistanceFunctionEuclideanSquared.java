@@ -26,6 +26,8 @@
  */
 package de.javagl.nd.distance.tuples.d;
 
+import java.util.List;
+
 import de.javagl.nd.distance.DistanceFunction;
 import de.javagl.nd.tuples.d.DoubleTuple;
 
@@ -41,6 +43,14 @@ final class DoubleTupleDistanceFunctionEuclideanSquared implements
     {
         return DoubleTupleDistanceFunctions.computeEuclideanSquared(t0, t1);
     }
+    
+    @Override
+    public void distances(DoubleTuple query, 
+        List<? extends DoubleTuple> candidates, double result[])
+    {
+        DoubleTupleDistanceFunctions.computeEuclideanSquaredDistances(
+            query, candidates, result);
+    }
 
     @Override
     public String toString() 
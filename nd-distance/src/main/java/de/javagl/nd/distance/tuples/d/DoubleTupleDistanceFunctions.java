@@ -27,12 +27,18 @@
 package de.javagl.nd.distance.tuples.d;
 
 import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
 import java.util.function.ToDoubleBiFunction;
 
+import de.javagl.nd.arrays.d.DoubleArrayND;
 import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.distance.NearestNeighbors;
+import de.javagl.nd.distance.Neighbor;
 import de.javagl.nd.tuples.Tuple;
 import de.javagl.nd.tuples.Utils;
 import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTupleKernels;
 import de.javagl.nd.tuples.d.DoubleTuples;
 
 /**
@@ -70,6 +76,52 @@ public class DoubleTupleDistanceFunctions
         };
     }
 
+    /**
+     * Returns the <code>k</code> tuples that have the smallest distance
+     * to the given reference, according to the given distance function,
+     * together with their distances. The distance of each tuple is 
+     * computed only once. See {@link NearestNeighbors#findNearest(Object,
+     * List, DistanceFunction, int)} for details.
+     * 
+     * @param reference The reference
+     * @param tuples The tuples
+     * @param distanceFunction The distance function
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors, sorted by their distance
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If <code>k</code> is not positive
+     */
+    public static List<Neighbor<DoubleTuple>> findNearest(
+        DoubleTuple reference, List<? extends DoubleTuple> tuples, 
+        DistanceFunction<? super DoubleTuple> distanceFunction, int k)
+    {
+        return NearestNeighbors.findNearest(
+            reference, tuples, distanceFunction, k);
+    }
+
+    /**
+     * Returns the <code>k</code> tuples that have the smallest distance
+     * to the given reference, according to the given distance function,
+     * together with their distances, processing the tuples in parallel. 
+     * See {@link NearestNeighbors#findNearestParallel(Object, List, 
+     * DistanceFunction, int)} for details.
+     * 
+     * @param reference The reference
+     * @param tuples The tuples
+     * @param distanceFunction The distance function
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors, sorted by their distance
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If <code>k</code> is not positive
+     */
+    public static List<Neighbor<DoubleTuple>> findNearestParallel(
+        DoubleTuple reference, List<? extends DoubleTuple> tuples, 
+        DistanceFunction<? super DoubleTuple> distanceFunction, int k)
+    {
+        return NearestNeighbors.findNearestParallel(
+            reference, tuples, distanceFunction, k);
+    }
+
     /**
      * Returns a {@link DistanceFunction} that computes the
      * Euclidean distance
@@ -119,8 +171,16 @@ public class DoubleTupleDistanceFunctions
         DoubleTuple t0, DoubleTuple t1)
     {
         Utils.checkForEqualSize(t0, t1);
-        double sum = 0;
         int n = t0.getSize();
+        double a0[] = DoubleTupleKernels.getArray(t0);
+        double a1[] = DoubleTupleKernels.getArray(t1);
+        if (a0 != null && a1 != null)
+        {
+            return DoubleTupleKernels.sumOfSquaredDifferences(
+                a0, DoubleTupleKernels.getArrayOffset(t0), 
+                a1, DoubleTupleKernels.getArrayOffset(t1), n);
+        }
+        double sum = 0;
         for (int i=0; i<n; i++)
         {
             double value0 = t0.get(i);
@@ -132,7 +192,261 @@ public class DoubleTupleDistanceFunctions
         return sum;
     }
 
+    /**
+     * Returns a {@link DistanceFunction} that computes the
+     * Manhattan distance
+     *
+     * @return The {@link DistanceFunction}
+     */
+    public static DistanceFunction<DoubleTuple> manhattan()
+    {
+        return new DoubleTupleDistanceFunctionManhattan();
+    }
+
+    /**
+     * Computes the Manhattan distance between the given tuples
+     *
+     * @param t0 The first tuple
+     * @param t1 The second tuple
+     * @return The distance
+     * @throws IllegalArgumentException If the given tuples do not
+     * have the same {@link Tuple#getSize() size}
+     */
+    public static double computeManhattan(DoubleTuple t0, DoubleTuple t1)
+    {
+        Utils.checkForEqualSize(t0, t1);
+        int n = t0.getSize();
+        double a0[] = DoubleTupleKernels.getArray(t0);
+        double a1[] = DoubleTupleKernels.getArray(t1);
+        if (a0 != null && a1 != null)
+        {
+            return DoubleTupleKernels.sumOfAbsoluteDifferences(
+                a0, DoubleTupleKernels.getArrayOffset(t0), 
+                a1, DoubleTupleKernels.getArrayOffset(t1), n);
+        }
+        double sum = 0;
+        for (int i=0; i<n; i++)
+        {
+            sum += Math.abs(t0.get(i) - t1.get(i));
+        }
+        return sum;
+    }
+
+    /**
+     * Returns a {@link DistanceFunction} that computes the
+     * Chebyshev distance
+     *
+     * @return The {@link DistanceFunction}
+     */
+    public static DistanceFunction<DoubleTuple> chebyshev()
+    {
+        return new DoubleTupleDistanceFunctionChebyshev();
+    }
+
+    /**
+     * Computes the Chebyshev distance between the given tuples
+     *
+     * @param t0 The first tuple
+     * @param t1 The second tuple
+     * @return The distance
+     * @throws IllegalArgumentException If the given tuples do not
+     * have the same {@link Tuple#getSize() size}
+     */
+    public static double computeChebyshev(DoubleTuple t0, DoubleTuple t1)
+    {
+        Utils.checkForEqualSize(t0, t1);
+        int n = t0.getSize();
+        double a0[] = DoubleTupleKernels.getArray(t0);
+        double a1[] = DoubleTupleKernels.getArray(t1);
+        if (a0 != null && a1 != null)
+        {
+            return DoubleTupleKernels.maxOfAbsoluteDifferences(
+                a0, DoubleTupleKernels.getArrayOffset(t0), 
+                a1, DoubleTupleKernels.getArrayOffset(t1), n);
+        }
+        double max = 0;
+        for (int i=0; i<n; i++)
+        {
+            max = Math.max(max, Math.abs(t0.get(i) - t1.get(i)));
+        }
+        return max;
+    }
+
+    /**
+     * Returns a {@link DistanceFunction} that computes the Mahalanobis
+     * distance for the given covariance matrix.<br>
+     * <br>
+     * The Cholesky factorization of the covariance matrix is computed 
+     * once, when this method is called. Later changes in the given
+     * matrix will not affect the returned distance function. See
+     * {@link MahalanobisWhitening} for details.
+     *
+     * @param covariance The covariance matrix
+     * @return The {@link DistanceFunction}
+     * @throws NullPointerException If the covariance is <code>null</code>
+     * @throws IllegalArgumentException If the covariance matrix is not
+     * a square, 2-dimensional array, or not positive definite
+     */
+    public static DistanceFunction<DoubleTuple> mahalanobis(
+        DoubleArrayND covariance)
+    {
+        return mahalanobis(new MahalanobisWhitening(covariance));
+    }
+
+    /**
+     * Returns a {@link DistanceFunction} that computes the Mahalanobis
+     * distance that is defined by the given {@link MahalanobisWhitening}.
+     * This allows using the same factorization for the distance function
+     * and for {@link MahalanobisWhitening#whiten(List) whitening} a set
+     * of tuples, so that the distances to these tuples may be computed 
+     * as {@link #euclidean()} distances to a whitened query.
+     *
+     * @param whitening The {@link MahalanobisWhitening}
+     * @return The {@link DistanceFunction}
+     * @throws NullPointerException If the whitening is <code>null</code>
+     */
+    public static DistanceFunction<DoubleTuple> mahalanobis(
+        MahalanobisWhitening whitening)
+    {
+        Objects.requireNonNull(whitening, "The whitening is null");
+        return new DoubleTupleDistanceFunctionMahalanobis(whitening);
+    }
+
+    /**
+     * Returns a {@link DistanceFunction} that computes the Minkowski 
+     * distance with the given exponent. For the exponents 1, 2 and
+     * <code>Double.POSITIVE_INFINITY</code>, this is the same as the
+     * {@link #manhattan()}, {@link #euclidean()} and {@link #chebyshev()}
+     * distance, respectively. See {@link #computeMinkowski(DoubleTuple, 
+     * DoubleTuple, double, DoubleTuple, double)} for details.
+     * 
+     * @param p The exponent
+     * @return The {@link DistanceFunction}
+     * @throws IllegalArgumentException If the exponent is smaller than 1.0
+     * or NaN
+     */
+    public static DistanceFunction<DoubleTuple> minkowski(double p)
+    {
+        de.javagl.nd.distance.Utils.checkMinkowskiExponent(p);
+        if (p == 1.0)
+        {
+            return manhattan();
+        }
+        if (p == 2.0)
+        {
+            return euclidean();
+        }
+        if (p == Double.POSITIVE_INFINITY)
+        {
+            return chebyshev();
+        }
+        return new DoubleTupleDistanceFunctionMinkowski(
+            p, null, Double.POSITIVE_INFINITY);
+    }
     
+    /**
+     * Returns a {@link DistanceFunction} that computes the weighted 
+     * Minkowski distance with the given exponent. A copy of the given 
+     * weights will be stored. See {@link #computeMinkowski(DoubleTuple, 
+     * DoubleTuple, double, DoubleTuple, double)} for details.
+     * 
+     * @param p The exponent
+     * @param weights The weights. May be <code>null</code>.
+     * @return The {@link DistanceFunction}
+     * @throws IllegalArgumentException If the exponent is smaller than 1.0
+     * or NaN, or any weight is negative, infinite or NaN
+     */
+    public static DistanceFunction<DoubleTuple> minkowski(
+        double p, DoubleTuple weights)
+    {
+        if (weights == null)
+        {
+            return minkowski(p);
+        }
+        return minkowski(p, weights, Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Returns a {@link DistanceFunction} that computes the weighted 
+     * Minkowski distance with the given exponent, and abandons the 
+     * computation when the distance exceeds the given threshold. A copy
+     * of the given weights will be stored. See 
+     * {@link #computeMinkowski(DoubleTuple, DoubleTuple, double, DoubleTuple, 
+     * double)} for details.
+     * 
+     * @param p The exponent
+     * @param weights The weights. May be <code>null</code>.
+     * @param threshold The threshold for abandoning the computation
+     * @return The {@link DistanceFunction}
+     * @throws IllegalArgumentException If the exponent is smaller than 1.0
+     * or NaN, or any weight is negative, infinite or NaN
+     */
+    public static DistanceFunction<DoubleTuple> minkowski(
+        double p, DoubleTuple weights, double threshold)
+    {
+        de.javagl.nd.distance.Utils.checkMinkowskiExponent(p);
+        return new DoubleTupleDistanceFunctionMinkowski(p, 
+            de.javagl.nd.distance.Utils.toWeightsArray(weights), threshold);
+    }
+    
+    /**
+     * Returns a {@link DistanceFunction} that computes the weighted 
+     * Euclidean distance, <code>sqrt(sum(w[i] * (t0[i]-t1[i])<sup>2</sup>))
+     * </code>. A copy of the given weights will be stored.
+     * 
+     * @param weights The weights
+     * @return The {@link DistanceFunction}
+     * @throws NullPointerException If the weights are <code>null</code>
+     * @throws IllegalArgumentException If any weight is negative, 
+     * infinite or NaN
+     */
+    public static DistanceFunction<DoubleTuple> weightedEuclidean(
+        DoubleTuple weights)
+    {
+        Objects.requireNonNull(weights, "The weights are null");
+        return minkowski(2.0, weights);
+    }
+    
+    /**
+     * Computes the weighted Minkowski distance between the given 
+     * tuples.<br>
+     * <br>
+     * For an exponent <code>p</code>, this is 
+     * <code>(sum(w[i] * |t0[i]-t1[i]|<sup>p</sup>))<sup>1/p</sup></code>,
+     * and for an exponent of <code>Double.POSITIVE_INFINITY</code>, this
+     * is <code>max(w[i] * |t0[i]-t1[i]|)</code>. If the given weights are
+     * <code>null</code>, then all weights are 1.0. The exponents 1, 2 and 
+     * <code>Double.POSITIVE_INFINITY</code> are computed without calling
+     * <code>Math.pow</code>.<br>
+     * <br>
+     * If the distance is larger than the given threshold, then the 
+     * computation is abandoned as early as possible, and 
+     * <code>Double.POSITIVE_INFINITY</code> is returned. This allows
+     * passing in the best distance that was found so far in a nearest
+     * neighbor search. A threshold of <code>Double.POSITIVE_INFINITY</code>
+     * will cause the exact distance to be computed.
+     * 
+     * @param t0 The first tuple
+     * @param t1 The second tuple
+     * @param p The exponent
+     * @param weights The weights. May be <code>null</code>.
+     * @param threshold The threshold for abandoning the computation
+     * @return The distance, or <code>Double.POSITIVE_INFINITY</code>
+     * if it is larger than the threshold
+     * @throws IllegalArgumentException If the given tuples do not have
+     * the same {@link Tuple#getSize() size}, if the weights are not 
+     * <code>null</code> and do not have the size of the tuples, if 
+     * the exponent is smaller than 1.0 or NaN, or any weight is negative,
+     * infinite or NaN
+     */
+    public static double computeMinkowski(DoubleTuple t0, DoubleTuple t1, 
+        double p, DoubleTuple weights, double threshold)
+    {
+        de.javagl.nd.distance.Utils.checkMinkowskiExponent(p);
+        return MinkowskiDistance.computeMinkowskiDistance(t0, t1, p, 
+            de.javagl.nd.distance.Utils.toWeightsArray(weights), threshold);
+    }
+        
     
     /**
      * Returns a {@link DistanceFunction} that computes the
@@ -209,6 +523,153 @@ public class DoubleTupleDistanceFunctions
         return 1 - Math.acos(computeCosineSimilarity(t0, t1)) / Math.PI;
     }
     
+    /**
+     * Computes the L2 norms of the given tuples, to be used in
+     * {@link #computeAngularDistances(DoubleTuple, List, double[], 
+     * double[])}. If the given result array is <code>null</code>, then 
+     * a new array will be created and returned.
+     * 
+     * @param tuples The tuples
+     * @param result The array that will store the norms
+     * @return The result array
+     * @throws IllegalArgumentException If the given result array is not
+     * <code>null</code> and smaller than the number of tuples
+     */
+    public static double[] computeNorms(
+        List<? extends DoubleTuple> tuples, double result[])
+    {
+        int n = tuples.size();
+        double finalResult[] = result;
+        if (finalResult == null)
+        {
+            finalResult = new double[n];
+        }
+        de.javagl.nd.distance.Utils.checkForBatchSize(tuples, finalResult);
+        for (int i = 0; i < n; i++)
+        {
+            finalResult[i] = DoubleTuples.computeL2(tuples.get(i));
+        }
+        return finalResult;
+    }
+    
+    /**
+     * Computes the angular distances between the given query and all 
+     * given candidates, as they would be computed with the 
+     * {@link #angular()} distance function. After this method returns, 
+     * <code>result[i]</code> will contain the distance between the 
+     * query and the candidate with index <code>i</code>.<br>
+     * <br>
+     * The given candidate norms may be <code>null</code>. Otherwise,
+     * they must contain the L2 norms of the candidates, as computed with
+     * {@link #computeNorms(List, double[])}. This allows reusing the 
+     * norms when the same candidates are compared to multiple queries.
+     * 
+     * @param query The query
+     * @param candidates The candidates
+     * @param candidateNorms The optional norms of the candidates
+     * @param result The array that will store the distances
+     * @throws IllegalArgumentException If the query and any candidate
+     * do not have the same {@link Tuple#getSize() size}, or if the
+     * result array or the norms array are smaller than the number of 
+     * candidates
+     */
+    public static void computeAngularDistances(DoubleTuple query, 
+        List<? extends DoubleTuple> candidates, double candidateNorms[], 
+        double result[])
+    {
+        de.javagl.nd.distance.Utils.checkForBatchSize(candidates, result);
+        if (candidateNorms != null)
+        {
+            de.javagl.nd.distance.Utils.checkForBatchSize(
+                candidates, candidateNorms);
+        }
+        int d = query.getSize();
+        double q[] = DoubleTuples.toArray(query);
+        double queryNorm = Math.sqrt(DoubleTupleKernels.dot(q, 0, q, 0, d));
+        final double epsilon = 1e-10;
+        int n = candidates.size();
+        for (int i = 0; i < n; i++)
+        {
+            DoubleTuple candidate = candidates.get(i);
+            Utils.checkForEqualSize(query, candidate);
+            double dot = dot(q, candidate);
+            double cosine = 0.0;
+            if (Math.abs(dot) >= epsilon)
+            {
+                double candidateNorm = candidateNorms != null ? 
+                    candidateNorms[i] : DoubleTuples.computeL2(candidate);
+                cosine = clamp(dot / (queryNorm * candidateNorm), -1.0, 1.0);
+            }
+            result[i] = 1 - (1 - Math.acos(cosine) / Math.PI);
+        }
+    }
+    
+    /**
+     * Computes the squared Euclidean distances between the given query 
+     * and all given candidates
+     * 
+     * @param query The query
+     * @param candidates The candidates
+     * @param result The array that will store the distances
+     * @throws IllegalArgumentException If the query and any candidate
+     * do not have the same {@link Tuple#getSize() size}, or if the
+     * result array is smaller than the number of candidates
+     */
+    static void computeEuclideanSquaredDistances(DoubleTuple query, 
+        List<? extends DoubleTuple> candidates, double result[])
+    {
+        de.javagl.nd.distance.Utils.checkForBatchSize(candidates, result);
+        int d = query.getSize();
+        double q[] = DoubleTuples.toArray(query);
+        int n = candidates.size();
+        for (int i = 0; i < n; i++)
+        {
+            DoubleTuple candidate = candidates.get(i);
+            Utils.checkForEqualSize(query, candidate);
+            double a[] = DoubleTupleKernels.getArray(candidate);
+            if (a != null)
+            {
+                result[i] = DoubleTupleKernels.sumOfSquaredDifferences(
+                    q, 0, a, DoubleTupleKernels.getArrayOffset(candidate), d);
+            }
+            else
+            {
+                double sum = 0;
+                for (int j = 0; j < d; j++)
+                {
+                    double difference = candidate.get(j) - q[j];
+                    sum += difference * difference;
+                }
+                result[i] = sum;
+            }
+        }
+    }
+    
+    /**
+     * Computes the dot product of the given array and the given tuple,
+     * which are assumed to have the same size
+     * 
+     * @param q The array
+     * @param t The tuple
+     * @return The dot product
+     */
+    private static double dot(double q[], DoubleTuple t)
+    {
+        int d = q.length;
+        double a[] = DoubleTupleKernels.getArray(t);
+        if (a != null)
+        {
+            return DoubleTupleKernels.dot(
+                q, 0, a, DoubleTupleKernels.getArrayOffset(t), d);
+        }
+        double sum = 0;
+        for (int j = 0; j < d; j++)
+        {
+            sum += q[j] * t.get(j);
+        }
+        return sum;
+    }
+    
     
     /**
      * Returns a {@link DistanceFunction} that computes the dynamic
@@ -221,6 +682,100 @@ public class DoubleTupleDistanceFunctions
 		return new DoubleTupleDistanceFunctionDynamicTimeWarping();
 	}
     
+    /**
+     * Returns a {@link DistanceFunction} that computes the dynamic
+     * time warping distance between two {@link DoubleTuple}s, where
+     * the warping path is restricted to a Sakoe-Chiba band with 
+     * the given width. See 
+     * {@link #computeDynamicTimeWarping(DoubleTuple, DoubleTuple, int, 
+     * double)} for details.
+     * 
+     * @param window The width of the band
+     * @return The {@link DistanceFunction}
+     * @throws IllegalArgumentException If the window is negative
+     */
+    public static DistanceFunction<DoubleTuple> dynamicTimeWarping(
+        int window)
+    {
+        return dynamicTimeWarping(window, Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Returns a {@link DistanceFunction} that computes the dynamic
+     * time warping distance between two {@link DoubleTuple}s, where
+     * the warping path is restricted to a Sakoe-Chiba band with 
+     * the given width, and the computation is abandoned when the
+     * distance exceeds the given threshold. See 
+     * {@link #computeDynamicTimeWarping(DoubleTuple, DoubleTuple, int, 
+     * double)} for details.
+     * 
+     * @param window The width of the band
+     * @param threshold The threshold for abandoning the computation
+     * @return The {@link DistanceFunction}
+     * @throws IllegalArgumentException If the window is negative
+     */
+    public static DistanceFunction<DoubleTuple> dynamicTimeWarping(
+        int window, double threshold)
+    {
+        checkWindow(window);
+        return new DoubleTupleDistanceFunctionDynamicTimeWarping(
+            window, threshold);
+    }
+    
+    /**
+     * Computes the dynamic time warping distance between the given 
+     * tuples.<br>
+     * <br>
+     * The warping path is restricted to a Sakoe-Chiba band with the 
+     * given width. This means that element <code>i</code> of the first 
+     * tuple may only be matched to the elements <code>j</code> of the 
+     * second tuple where <code>|i-j| &lt;= window</code>. If the tuples 
+     * have different sizes, then the window is enlarged to the size 
+     * difference, so that a warping path always exists. A window of
+     * <code>Integer.MAX_VALUE</code> imposes no restriction.<br>
+     * <br>
+     * If the distance is larger than the given threshold, then the 
+     * computation is abandoned as early as possible, and 
+     * <code>Double.POSITIVE_INFINITY</code> is returned. This allows
+     * passing in the best distance that was found so far in a nearest
+     * neighbor search. A threshold of <code>Double.POSITIVE_INFINITY</code>
+     * will cause the exact distance to be computed.<br>
+     * <br>
+     * The computation requires memory that is linear in the size of the 
+     * tuples, and time that is proportional to the number of cells in 
+     * the band.
+     * 
+     * @param t0 The first tuple
+     * @param t1 The second tuple
+     * @param window The width of the band
+     * @param threshold The threshold for abandoning the computation
+     * @return The distance, or <code>Double.POSITIVE_INFINITY</code>
+     * if it is larger than the threshold
+     * @throws IllegalArgumentException If the window is negative
+     */
+    public static double computeDynamicTimeWarping(
+        DoubleTuple t0, DoubleTuple t1, int window, double threshold)
+    {
+        checkWindow(window);
+        return DynamicTimeWarpingDistance.computeDynamicTimeWarpingDistance(
+            t0, t1, window, threshold);
+    }
+    
+    /**
+     * Make sure that the given window size is not negative
+     * 
+     * @param window The window size
+     * @throws IllegalArgumentException If the window is negative
+     */
+    private static void checkWindow(int window)
+    {
+        if (window < 0)
+        {
+            throw new IllegalArgumentException(
+                "The window may not be negative, but is " + window);
+        }
+    }
+    
 
 
     /**
@@ -0,0 +1,533 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.javagl.nd.arrays.d.DoubleArraysND;
+import de.javagl.nd.arrays.d.MutableDoubleArrayND;
+import de.javagl.nd.arrays.d.SparseDoubleArrayND;
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.tuples.Utils;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTupleKernels;
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.i.IntTuples;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+/**
+ * Methods to compute the matrices of the pairwise distances between 
+ * {@link DoubleTuple}s.<br>
+ * <br>
+ * The distance functions are assumed to be symmetric, so that only the
+ * distances for the pairs <code>(i,j)</code> with <code>i &lt;= j</code> 
+ * are computed. The computation is divided into square tiles of the 
+ * matrix, which are processed in parallel by a <code>ForkJoinPool</code>.
+ * <br>
+ * <br>
+ * When the distance function is the one that is returned by 
+ * {@link DoubleTupleDistanceFunctions#euclidean()} or
+ * {@link DoubleTupleDistanceFunctions#euclideanSquared()}, then the 
+ * distances are computed as 
+ * <code>||a||<sup>2</sup> + ||b||<sup>2</sup> - 2 a&middot;b</code>,
+ * using precomputed squared norms. Results that are slightly negative
+ * due to rounding errors are clamped to 0.0.
+ */
+public class DoubleTupleDistanceMatrices
+{
+    /**
+     * The number of rows and columns in one tile
+     */
+    private static final int TILE_SIZE = 64;
+    
+    /**
+     * Computes the full matrix of the pairwise distances between the 
+     * given tuples, using the common <code>ForkJoinPool</code>. See
+     * {@link #computeDistanceMatrix(List, DistanceFunction, 
+     * MutableDoubleArrayND, ForkJoinPool)} for details.
+     * 
+     * @param tuples The tuples
+     * @param distanceFunction The distance function
+     * @param result The result array. May be <code>null</code>.
+     * @return The result array
+     * @throws NullPointerException If the tuples or the distance function
+     * are <code>null</code>
+     * @throws IllegalArgumentException If the result is not 
+     * <code>null</code> and does not have the size <code>(n,n)</code>,
+     * where <code>n</code> is the number of tuples
+     */
+    public static MutableDoubleArrayND computeDistanceMatrix(
+        List<? extends DoubleTuple> tuples, 
+        DistanceFunction<? super DoubleTuple> distanceFunction,
+        MutableDoubleArrayND result)
+    {
+        return computeDistanceMatrix(tuples, distanceFunction, result, 
+            ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Computes the full matrix of the pairwise distances between the 
+     * given tuples, using the given <code>ForkJoinPool</code>. <br>
+     * <br>
+     * After this method returns, the element <code>(i,j)</code> of
+     * the result array will contain the distance between the tuples 
+     * <code>i</code> and <code>j</code>. If the given result array
+     * is <code>null</code>, then a new array will be created and 
+     * returned.<br>
+     * <br>
+     * If the given result array is a {@link SparseDoubleArrayND}, 
+     * which may not be modified concurrently, then the distances are 
+     * computed in a dense array, and copied into the result array on 
+     * the calling thread.
+     * 
+     * @param tuples The tuples
+     * @param distanceFunction The distance function
+     * @param result The result array. May be <code>null</code>.
+     * @param pool The pool that executes the computation
+     * @return The result array
+     * @throws NullPointerException If the tuples, the distance function
+     * or the pool are <code>null</code>
+     * @throws IllegalArgumentException If the result is not 
+     * <code>null</code> and does not have the size <code>(n,n)</code>,
+     * where <code>n</code> is the number of tuples
+     */
+    public static MutableDoubleArrayND computeDistanceMatrix(
+        List<? extends DoubleTuple> tuples, 
+        DistanceFunction<? super DoubleTuple> distanceFunction,
+        MutableDoubleArrayND result, ForkJoinPool pool)
+    {
+        int n = tuples.size();
+        MutableDoubleArrayND finalResult = result;
+        if (finalResult == null)
+        {
+            finalResult = DoubleArraysND.create(n, n);
+        }
+        else if (!finalResult.getSize().equals(IntTuples.of(n, n)))
+        {
+            throw new IllegalArgumentException(
+                "Expected a result of size (" + n + "," + n + "), but " + 
+                "the result has a size of " + finalResult.getSize());
+        }
+        if (finalResult instanceof SparseDoubleArrayND)
+        {
+            MutableDoubleArrayND dense = 
+                computeDistanceMatrix(tuples, distanceFunction, null, pool);
+            MutableIntTuple index = IntTuples.create(2);
+            for (int i = 0; i < n; i++)
+            {
+                index.set(0, i);
+                for (int j = 0; j < n; j++)
+                {
+                    index.set(1, j);
+                    finalResult.set(index, dense.get(index));
+                }
+            }
+            return finalResult;
+        }
+        MutableDoubleArrayND array = finalResult;
+        TileConsumer tileConsumer = (i0, j0, rows, columns, tile) ->
+        {
+            MutableIntTuple index = IntTuples.create(2);
+            for (int i = 0; i < rows; i++)
+            {
+                int jMin = i0 == j0 ? i : 0;
+                for (int j = jMin; j < columns; j++)
+                {
+                    double value = tile[i * TILE_SIZE + j];
+                    index.set(0, i0 + i);
+                    index.set(1, j0 + j);
+                    array.set(index, value);
+                    index.set(0, j0 + j);
+                    index.set(1, i0 + i);
+                    array.set(index, value);
+                }
+            }
+        };
+        compute(tuples, distanceFunction, tileConsumer, true, pool);
+        return finalResult;
+    }
+    
+    /**
+     * Computes the condensed matrix of the pairwise distances between the 
+     * given tuples, using the common <code>ForkJoinPool</code>. See
+     * {@link #computeCondensedDistanceMatrix(List, DistanceFunction, 
+     * double[], ForkJoinPool)} for details.
+     * 
+     * @param tuples The tuples
+     * @param distanceFunction The distance function
+     * @param result The result array. May be <code>null</code>.
+     * @return The result array
+     * @throws NullPointerException If the tuples or the distance function
+     * are <code>null</code>
+     * @throws IllegalArgumentException If the result is not 
+     * <code>null</code> and has a length that is different from 
+     * <code>n*(n-1)/2</code>, where <code>n</code> is the number of 
+     * tuples, or if this number is larger than 
+     * <code>Integer.MAX_VALUE</code>
+     */
+    public static double[] computeCondensedDistanceMatrix(
+        List<? extends DoubleTuple> tuples, 
+        DistanceFunction<? super DoubleTuple> distanceFunction,
+        double result[])
+    {
+        return computeCondensedDistanceMatrix(tuples, distanceFunction, 
+            result, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Computes the condensed matrix of the pairwise distances between the 
+     * given tuples, using the given <code>ForkJoinPool</code>.<br>
+     * <br>
+     * The condensed matrix is the upper triangle of the distance matrix,
+     * excluding the diagonal, stored row by row. The distance between
+     * the tuples <code>i</code> and <code>j</code> with 
+     * <code>i &lt; j</code> is stored at the index that is returned by
+     * {@link #condensedIndex(int, int, int)}. If the given result array
+     * is <code>null</code>, then a new array will be created and 
+     * returned.
+     * 
+     * @param tuples The tuples
+     * @param distanceFunction The distance function
+     * @param result The result array. May be <code>null</code>.
+     * @param pool The pool that executes the computation
+     * @return The result array
+     * @throws NullPointerException If the tuples, the distance function
+     * or the pool are <code>null</code>
+     * @throws IllegalArgumentException If the result is not 
+     * <code>null</code> and has a length that is different from 
+     * <code>n*(n-1)/2</code>, where <code>n</code> is the number of 
+     * tuples, or if this number is larger than 
+     * <code>Integer.MAX_VALUE</code>
+     */
+    public static double[] computeCondensedDistanceMatrix(
+        List<? extends DoubleTuple> tuples, 
+        DistanceFunction<? super DoubleTuple> distanceFunction,
+        double result[], ForkJoinPool pool)
+    {
+        int n = tuples.size();
+        long length = (long)n * (n - 1) / 2;
+        if (length > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException(
+                "The condensed matrix for " + n + " tuples would have " + 
+                length + " elements, which is too large for an array");
+        }
+        double finalResult[] = result;
+        if (finalResult == null)
+        {
+            finalResult = new double[(int)length];
+        }
+        else if (finalResult.length != length)
+        {
+            throw new IllegalArgumentException(
+                "Expected a result of length " + length + ", but the " + 
+                "result has a length of " + finalResult.length);
+        }
+        double array[] = finalResult;
+        TileConsumer tileConsumer = (i0, j0, rows, columns, tile) ->
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                int row = i0 + i;
+                int jMin = Math.max(0, row + 1 - j0);
+                if (jMin >= columns)
+                {
+                    continue;
+                }
+                int base = condensedIndex(n, row, j0 + jMin);
+                for (int j = jMin; j < columns; j++)
+                {
+                    array[base + j - jMin] = tile[i * TILE_SIZE + j];
+                }
+            }
+        };
+        compute(tuples, distanceFunction, tileConsumer, false, pool);
+        return finalResult;
+    }
+    
+    /**
+     * Returns the index of the distance between the tuples <code>i</code>
+     * and <code>j</code> in a condensed distance matrix for 
+     * <code>n</code> tuples, as computed with 
+     * {@link #computeCondensedDistanceMatrix(List, DistanceFunction, 
+     * double[])}. The indices are assumed to be valid, with
+     * <code>0 &lt;= i &lt; j &lt; n</code>.
+     * 
+     * @param n The number of tuples
+     * @param i The first index
+     * @param j The second index
+     * @return The index in the condensed matrix
+     */
+    public static int condensedIndex(int n, int i, int j)
+    {
+        long index = (long)n * i - (long)i * (i + 1) / 2 + (j - i - 1);
+        return (int)index;
+    }
+    
+    /**
+     * Interface for classes that receive the tiles of a distance matrix
+     */
+    private static interface TileConsumer
+    {
+        /**
+         * Accept the given tile
+         * 
+         * @param i0 The first row
+         * @param j0 The first column
+         * @param rows The number of rows
+         * @param columns The number of columns
+         * @param tile The tile, storing the elements row by row, with
+         * a stride of {@link DoubleTupleDistanceMatrices#TILE_SIZE}
+         */
+        void accept(int i0, int j0, int rows, int columns, double tile[]);
+    }
+    
+    /**
+     * Interface for classes that compute the distances in one tile
+     */
+    private static interface TileComputation
+    {
+        /**
+         * Compute the distances in the specified tile
+         * 
+         * @param i0 The first row
+         * @param j0 The first column
+         * @param rows The number of rows
+         * @param columns The number of columns
+         * @param tile The tile, storing the elements row by row, with
+         * a stride of {@link DoubleTupleDistanceMatrices#TILE_SIZE}
+         */
+        void compute(int i0, int j0, int rows, int columns, double tile[]);
+    }
+    
+    /**
+     * Compute all tiles in the upper triangle of the distance matrix, 
+     * including the diagonal, and pass them to the given consumer
+     * 
+     * @param tuples The tuples
+     * @param distanceFunction The distance function
+     * @param tileConsumer The tile consumer
+     * @param diagonal Whether the diagonal elements are required
+     * @param pool The pool
+     */
+    private static void compute(List<? extends DoubleTuple> tuples, 
+        DistanceFunction<? super DoubleTuple> distanceFunction,
+        TileConsumer tileConsumer, boolean diagonal, ForkJoinPool pool)
+    {
+        Objects.requireNonNull(tuples, "The tuples are null");
+        Objects.requireNonNull(distanceFunction, 
+            "The distanceFunction is null");
+        Objects.requireNonNull(pool, "The pool is null");
+        int n = tuples.size();
+        if (n == 0)
+        {
+            return;
+        }
+        TileComputation tileComputation = 
+            createTileComputation(tuples, distanceFunction, diagonal);
+        int blocks = (n + TILE_SIZE - 1) / TILE_SIZE;
+        pool.invoke(new BlockRowsAction(
+            n, 0, blocks, tileComputation, tileConsumer));
+    }
+    
+    /**
+     * Create the {@link TileComputation} for the given distance function
+     * 
+     * @param tuples The tuples
+     * @param distanceFunction The distance function
+     * @param diagonal Whether the diagonal elements are required
+     * @return The {@link TileComputation}
+     */
+    private static TileComputation createTileComputation(
+        List<? extends DoubleTuple> tuples, 
+        DistanceFunction<? super DoubleTuple> distanceFunction,
+        boolean diagonal)
+    {
+        boolean euclidean = 
+            distanceFunction instanceof DoubleTupleDistanceFunctionEuclidean;
+        boolean euclideanSquared = distanceFunction instanceof 
+            DoubleTupleDistanceFunctionEuclideanSquared;
+        if (euclidean || euclideanSquared)
+        {
+            return createEuclideanTileComputation(tuples, euclidean);
+        }
+        return (i0, j0, rows, columns, tile) ->
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                DoubleTuple t0 = tuples.get(i0 + i);
+                int jMin = i0 == j0 ? (diagonal ? i : i + 1) : 0;
+                for (int j = jMin; j < columns; j++)
+                {
+                    DoubleTuple t1 = tuples.get(j0 + j);
+                    tile[i * TILE_SIZE + j] = 
+                        distanceFunction.distance(t0, t1);
+                }
+            }
+        };
+    }
+    
+    /**
+     * Create the {@link TileComputation} for the euclidean distance
+     * 
+     * @param tuples The tuples
+     * @param root Whether the square root of the result should be taken
+     * @return The {@link TileComputation}
+     */
+    private static TileComputation createEuclideanTileComputation(
+        List<? extends DoubleTuple> tuples, boolean root)
+    {
+        int n = tuples.size();
+        double rows[][] = new double[n][];
+        double norms[] = new double[n];
+        DoubleTuple first = tuples.get(0);
+        for (int i = 0; i < n; i++)
+        {
+            DoubleTuple t = tuples.get(i);
+            Utils.checkForEqualSize(first, t);
+            double row[] = DoubleTuples.toArray(t);
+            rows[i] = row;
+            norms[i] = DoubleTupleKernels.dot(row, 0, row, 0, row.length);
+        }
+        int d = first.getSize();
+        return (i0, j0, tileRows, tileColumns, tile) ->
+        {
+            for (int i = 0; i < tileRows; i++)
+            {
+                int r0 = i0 + i;
+                double row0[] = rows[r0];
+                int jMin = i0 == j0 ? i : 0;
+                for (int j = jMin; j < tileColumns; j++)
+                {
+                    int r1 = j0 + j;
+                    double value = 0.0;
+                    if (r0 != r1)
+                    {
+                        double dot = DoubleTupleKernels.dot(
+                            row0, 0, rows[r1], 0, d);
+                        value = norms[r0] + norms[r1] - 2.0 * dot;
+                        value = value < 0.0 ? 0.0 : value;
+                        value = root ? Math.sqrt(value) : value;
+                    }
+                    tile[i * TILE_SIZE + j] = value;
+                }
+            }
+        };
+    }
+    
+    /**
+     * A <code>RecursiveAction</code> that processes a range of block rows 
+     * of the distance matrix, where each block row consists of the tiles 
+     * on and right of the diagonal
+     */
+    private static class BlockRowsAction extends RecursiveAction
+    {
+        /**
+         * Serial UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The number of tuples
+         */
+        private final int n;
+        
+        /**
+         * The first block row, inclusive
+         */
+        private final int min;
+        
+        /**
+         * The last block row, exclusive
+         */
+        private final int max;
+        
+        /**
+         * The {@link TileComputation}
+         */
+        private final TileComputation tileComputation;
+        
+        /**
+         * The {@link TileConsumer}
+         */
+        private final TileConsumer tileConsumer;
+        
+        /**
+         * Creates a new action
+         * 
+         * @param n The number of tuples
+         * @param min The first block row, inclusive
+         * @param max The last block row, exclusive
+         * @param tileComputation The {@link TileComputation}
+         * @param tileConsumer The {@link TileConsumer}
+         */
+        BlockRowsAction(int n, int min, int max, 
+            TileComputation tileComputation, TileConsumer tileConsumer)
+        {
+            this.n = n;
+            this.min = min;
+            this.max = max;
+            this.tileComputation = tileComputation;
+            this.tileConsumer = tileConsumer;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if (max - min > 1)
+            {
+                int middle = (min + max) >>> 1;
+                invokeAll(
+                    new BlockRowsAction(
+                        n, min, middle, tileComputation, tileConsumer),
+                    new BlockRowsAction(
+                        n, middle, max, tileComputation, tileConsumer));
+                return;
+            }
+            double tile[] = new double[TILE_SIZE * TILE_SIZE];
+            int i0 = min * TILE_SIZE;
+            int rows = Math.min(TILE_SIZE, n - i0);
+            for (int j0 = i0; j0 < n; j0 += TILE_SIZE)
+            {
+                int columns = Math.min(TILE_SIZE, n - j0);
+                tileComputation.compute(i0, j0, rows, columns, tile);
+                tileConsumer.accept(i0, j0, rows, columns, tile);
+            }
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DoubleTupleDistanceMatrices()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+/**
+ * Lower bounds for the dynamic time warping distance, as computed by the
+ * {@link DynamicTimeWarpingDistance} class.<br>
+ * <br>
+ * The bounds refer to the dynamic time warping distance that uses the 
+ * absolute difference of the elements as the local cost. They may be 
+ * used to prune candidates in a nearest neighbor search before the 
+ * actual distance is computed.
+ */
+class DynamicTimeWarpingBounds
+{
+    /**
+     * Computes the upper and lower envelope of the specified range of the 
+     * given array for a warping window of the given size. After this
+     * method returns, <code>upper[i]</code> and <code>lower[i]</code> will 
+     * contain the maximum and minimum of the elements 
+     * <code>a[offset+i-window]</code> to <code>a[offset+i+window]</code>,
+     * clamped to the specified range.<br>
+     * <br>
+     * The computation uses monotonic deques, and thus requires a time 
+     * that is linear in the number of elements, regardless of the window.
+     * 
+     * @param a The array
+     * @param offset The offset in the array
+     * @param n The number of elements
+     * @param window The window size, which is assumed to be non-negative
+     * @param upper The array that will store the upper envelope
+     * @param lower The array that will store the lower envelope
+     */
+    static void computeEnvelope(double a[], int offset, int n, int window,
+        double upper[], double lower[])
+    {
+        int w = (int)Math.min(window, (long)n);
+        int maxDeque[] = new int[n];
+        int minDeque[] = new int[n];
+        int maxHead = 0;
+        int maxTail = 0;
+        int minHead = 0;
+        int minTail = 0;
+        int next = 0;
+        for (int i = 0; i < n; i++)
+        {
+            int end = (int)Math.min(n - 1, (long)i + w);
+            while (next <= end)
+            {
+                double value = a[offset + next];
+                while (maxTail > maxHead && 
+                    a[offset + maxDeque[maxTail - 1]] <= value)
+                {
+                    maxTail--;
+                }
+                maxDeque[maxTail++] = next;
+                while (minTail > minHead && 
+                    a[offset + minDeque[minTail - 1]] >= value)
+                {
+                    minTail--;
+                }
+                minDeque[minTail++] = next;
+                next++;
+            }
+            int start = i - w;
+            while (maxDeque[maxHead] < start)
+            {
+                maxHead++;
+            }
+            while (minDeque[minHead] < start)
+            {
+                minHead++;
+            }
+            upper[i] = a[offset + maxDeque[maxHead]];
+            lower[i] = a[offset + minDeque[minHead]];
+        }
+    }
+    
+    /**
+     * Computes a lower bound for the dynamic time warping distance between
+     * the specified ranges of the given arrays, based on their first and
+     * last elements (LB_Kim). These elements are always matched by any 
+     * warping path.
+     * 
+     * @param u The first array
+     * @param uo The offset in the first array
+     * @param m The number of elements of the first array
+     * @param v The second array
+     * @param vo The offset in the second array
+     * @param n The number of elements of the second array
+     * @return The lower bound
+     */
+    static double lowerBoundKim(
+        double u[], int uo, int m, double v[], int vo, int n)
+    {
+        if (m == 0 || n == 0)
+        {
+            return m == n ? 0.0 : Double.POSITIVE_INFINITY;
+        }
+        double first = Math.abs(u[uo] - v[vo]);
+        if (m == 1 && n == 1)
+        {
+            return first;
+        }
+        return first + Math.abs(u[uo + m - 1] - v[vo + n - 1]);
+    }
+    
+    /**
+     * Computes a lower bound for the dynamic time warping distance between
+     * the specified range of the given array and a sequence of the same 
+     * length with the given envelope (LB_Keogh). This is the sum of the 
+     * distances of the elements to the envelope.<br>
+     * <br>
+     * The computation is abandoned as soon as the sum exceeds the given
+     * threshold. In this case, the partial sum is returned.
+     * 
+     * @param q The array
+     * @param qo The offset in the array
+     * @param n The number of elements
+     * @param upper The upper envelope of the other sequence
+     * @param lower The lower envelope of the other sequence
+     * @param threshold The threshold for abandoning the computation
+     * @return The lower bound
+     */
+    static double lowerBoundKeogh(double q[], int qo, int n, 
+        double upper[], double lower[], double threshold)
+    {
+        double sum = 0.0;
+        for (int i = 0; i < n; i++)
+        {
+            double value = q[qo + i];
+            if (value > upper[i])
+            {
+                sum += value - upper[i];
+            }
+            else if (value < lower[i])
+            {
+                sum += lower[i] - value;
+            }
+            if (sum > threshold)
+            {
+                return sum;
+            }
+        }
+        return sum;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DynamicTimeWarpingBounds()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -27,71 +27,237 @@
 package de.javagl.nd.distance.tuples.d;
 
 import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTupleKernels;
 
 
 /**
- * Simple implementation of a dynamic time warping distance computation
+ * Implementation of a dynamic time warping distance computation.<br>
+ * <br>
+ * The computation only stores two rows of the cost matrix, and thus
+ * requires O(n) memory. It optionally restricts the warping path to a 
+ * Sakoe-Chiba band around the diagonal, and abandons the computation
+ * as soon as the distance is known to exceed a given threshold.
  */
 class DynamicTimeWarpingDistance 
 {
-	/**
-	 * A thread local holder for the matrix that will be used for
-	 * the computation in {@link #computeDynamicTimeWarpingDistance} 
-	 */
-	private static final ThreadLocal<double[][]> threadLocalMatrix = 
-		new ThreadLocal<double[][]>() 
-	{
-		@Override
-		protected double[][] initialValue() 
-		{
-			return new double[1][1];
-		}
-	};
+    /**
+     * The arrays that are used for the computation in one thread
+     */
+    private static class Workspace
+    {
+        /**
+         * The previous row of the cost matrix
+         */
+        double previousRow[] = new double[0];
+        
+        /**
+         * The current row of the cost matrix
+         */
+        double currentRow[] = new double[0];
+        
+        /**
+         * The copy of the first tuple, if it is not backed by an array
+         */
+        double u[] = new double[0];
+        
+        /**
+         * The copy of the second tuple, if it is not backed by an array
+         */
+        double v[] = new double[0];
+    }
+    
+    /**
+     * A thread local holder for the {@link Workspace} that will be used 
+     * for the computation in {@link #computeDynamicTimeWarpingDistance} 
+     */
+    private static final ThreadLocal<Workspace> threadLocalWorkspace = 
+        new ThreadLocal<Workspace>() 
+    {
+        @Override
+        protected Workspace initialValue() 
+        {
+            return new Workspace();
+        }
+    };
 
-	/**
-	 * Performs the computation of the dynamic time warping distance
-	 * between the given {@link DoubleTuple}s
-	 * 
-	 * @param u The first {@link DoubleTuple}
-	 * @param v The second {@link DoubleTuple}
-	 * @return The dynamic time warping distance
-	 */
+    /**
+     * Performs the computation of the dynamic time warping distance
+     * between the given {@link DoubleTuple}s
+     * 
+     * @param u The first {@link DoubleTuple}
+     * @param v The second {@link DoubleTuple}
+     * @return The dynamic time warping distance
+     */
+    static double computeDynamicTimeWarpingDistance(
+        DoubleTuple u, DoubleTuple v)
+    {
+        return computeDynamicTimeWarpingDistance(
+            u, v, Integer.MAX_VALUE, Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Performs the computation of the dynamic time warping distance
+     * between the given {@link DoubleTuple}s.<br>
+     * <br>
+     * The warping path is restricted to a Sakoe-Chiba band with the 
+     * given width. This means that element <code>i</code> of the first 
+     * tuple may only be matched to the elements <code>j</code> of the 
+     * second tuple where <code>|i-j| &lt;= window</code>. If the tuples 
+     * have different sizes, then the window is enlarged to the size 
+     * difference, so that a warping path always exists.<br>
+     * <br>
+     * If the distance is larger than the given threshold, then
+     * the computation is abandoned as early as possible, and
+     * <code>Double.POSITIVE_INFINITY</code> is returned.
+     * 
+     * @param u The first {@link DoubleTuple}
+     * @param v The second {@link DoubleTuple}
+     * @param window The width of the band. This is assumed to be
+     * non-negative.
+     * @param threshold The threshold for abandoning the computation
+     * @return The dynamic time warping distance
+     */
+    static double computeDynamicTimeWarpingDistance(
+        DoubleTuple u, DoubleTuple v, int window, double threshold)
+    {
+        Workspace workspace = threadLocalWorkspace.get();
+        double ua[] = DoubleTupleKernels.getArray(u);
+        int uo = DoubleTupleKernels.getArrayOffset(u);
+        if (ua == null)
+        {
+            workspace.u = copy(u, workspace.u);
+            ua = workspace.u;
+            uo = 0;
+        }
+        double va[] = DoubleTupleKernels.getArray(v);
+        int vo = DoubleTupleKernels.getArrayOffset(v);
+        if (va == null)
+        {
+            workspace.v = copy(v, workspace.v);
+            va = workspace.v;
+            vo = 0;
+        }
+        return computeDynamicTimeWarpingDistance(
+            ua, uo, u.getSize(), va, vo, v.getSize(), window, threshold);
+    }
+    
+    /**
+     * Performs the computation of the dynamic time warping distance
+     * between the specified ranges of the given arrays. See
+     * {@link #computeDynamicTimeWarpingDistance(DoubleTuple, DoubleTuple, 
+     * int, double)} for details.
+     * 
+     * @param u The first array
+     * @param uo The offset in the first array
+     * @param m The number of elements of the first array
+     * @param v The second array
+     * @param vo The offset in the second array
+     * @param n The number of elements of the second array
+     * @param window The width of the band
+     * @param threshold The threshold for abandoning the computation
+     * @return The dynamic time warping distance
+     */
     static double computeDynamicTimeWarpingDistance(
-    	DoubleTuple u, DoubleTuple v)
+        double u[], int uo, int m, double v[], int vo, int n, 
+        int window, double threshold)
     {
-        int m = u.getSize();
-        int n = v.getSize();
-        double matrix[][] = threadLocalMatrix.get();
-        if (matrix.length < m || matrix[0].length < n)
+        if (m == 0 || n == 0)
+        {
+            return m == n ? 0.0 : Double.POSITIVE_INFINITY;
+        }
+        Workspace workspace = threadLocalWorkspace.get();
+        if (workspace.previousRow.length < n)
         {
-        	matrix = new double[m][n];
-        	threadLocalMatrix.set(matrix);
+            workspace.previousRow = new double[n];
+            workspace.currentRow = new double[n];
         }
-        double u0 = u.get(0);
-        double v0 = v.get(0);
-        matrix[0][0] = Math.abs(u0-v0);
-        for (int j=1; j<n; j++)
+        double previous[] = workspace.previousRow;
+        double current[] = workspace.currentRow;
+        int w = Math.max(window, Math.abs(m - n));
+        
+        double u0 = u[uo];
+        int previousStart = 0;
+        int previousEnd = (int)Math.min(n - 1, (long)w);
+        previous[0] = abs(u0 - v[vo]);
+        for (int j = 1; j <= previousEnd; j++)
         {
-            matrix[0][j] = Math.abs(u0-v.get(j)) + matrix[0][j-1];
+            previous[j] = previous[j - 1] + abs(u0 - v[vo + j]);
         }
-        for (int i=1; i<m; i++)
+        if (previous[0] > threshold)
         {
-           matrix[i][0] = Math.abs(u.get(i)-v0) + matrix[i-1][0];
+            return Double.POSITIVE_INFINITY;
         }
         for (int i = 1; i < m; i++)
         {
-            double ui = u.get(i);
-            for (int j = 1; j < n; j++)
+            double ui = u[uo + i];
+            int start = (int)Math.max(0, (long)i - w);
+            int end = (int)Math.min(n - 1, (long)i + w);
+            double rowMin = Double.POSITIVE_INFINITY;
+            for (int j = start; j <= end; j++)
             {
-                double vj = v.get(j);
-                double min = matrix[i - 1][j - 1];
-                min = min(min, matrix[i][j - 1]);
-                min = min(min, matrix[i - 1][j]);
-                double d = ui - vj;
-                matrix[i][j] = min + (d < 0 ? -d : d);
+                double min = Double.POSITIVE_INFINITY;
+                if (j - 1 >= previousStart && j - 1 <= previousEnd)
+                {
+                    min = previous[j - 1];
+                }
+                if (j > start)
+                {
+                    min = min(min, current[j - 1]);
+                }
+                if (j <= previousEnd)
+                {
+                    min = min(min, previous[j]);
+                }
+                double c = min + abs(ui - v[vo + j]);
+                current[j] = c;
+                rowMin = min(rowMin, c);
             }
+            if (rowMin > threshold)
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+            double temp[] = previous;
+            previous = current;
+            current = temp;
+            previousStart = start;
+            previousEnd = end;
+        }
+        double result = previous[n - 1];
+        if (result > threshold)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        return result;
+    }
+    
+    /**
+     * Copy the elements of the given tuple into the given array, 
+     * creating a new array if the given one is too small
+     * 
+     * @param t The tuple
+     * @param array The array
+     * @return The array
+     */
+    private static double[] copy(DoubleTuple t, double array[])
+    {
+        int n = t.getSize();
+        double result[] = array.length >= n ? array : new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            result[i] = t.get(i);
         }
-        return matrix[m-1][n-1];
+        return result;
+    }
+    
+    /**
+     * Returns the absolute value of the given value
+     * 
+     * @param d The value
+     * @return The absolute value
+     */
+    private static double abs(double d)
+    {
+        return d < 0 ? -d : d;
     }
     
     /**
@@ -103,7 +269,7 @@ class DynamicTimeWarpingDistance
      */
     private static double min(double d0, double d1)
     {
-    	return d0 < d1 ? d0 : d1;
+        return d0 < d1 ? d0 : d1;
     }
     
     /**
@@ -114,5 +280,3 @@ class DynamicTimeWarpingDistance
         // Private constructor to prevent instantiation
     }
 }
- 
-
@@ -0,0 +1,376 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+/**
+ * A class for finding the nearest neighbor of a {@link DoubleTuple} among
+ * a fixed set of reference tuples, according to the dynamic time warping 
+ * distance.<br>
+ * <br>
+ * The reference tuples are copied when the instance is created, and the
+ * upper and lower envelopes of all references are computed and cached.
+ * When searching for the nearest neighbor of a query, each reference is 
+ * first checked with a cascade of lower bounds (LB_Kim and LB_Keogh), 
+ * and the full dynamic time warping distance is only computed for the 
+ * references where these bounds do not exceed the best distance that 
+ * was found so far. The full computation itself is abandoned as soon 
+ * as it exceeds the best distance.<br>
+ * <br>
+ * The LB_Keogh bound is only applied to references that have the same
+ * size as the query.<br>
+ * <br>
+ * Instances of this class are thread-safe. The numbers of references 
+ * that have been pruned by the different bounds are recorded, and may
+ * be obtained with the respective methods.
+ */
+public final class DynamicTimeWarpingSearch
+{
+    /**
+     * The reference sequences
+     */
+    private final double references[][];
+    
+    /**
+     * The upper envelopes of the references
+     */
+    private final double uppers[][];
+    
+    /**
+     * The lower envelopes of the references
+     */
+    private final double lowers[][];
+    
+    /**
+     * The width of the Sakoe-Chiba band
+     */
+    private final int window;
+    
+    /**
+     * The number of queries that have been processed
+     */
+    private final LongAdder queryCount = new LongAdder();
+    
+    /**
+     * The number of references that have been pruned by LB_Kim
+     */
+    private final LongAdder prunedByKimCount = new LongAdder();
+    
+    /**
+     * The number of references that have been pruned by LB_Keogh
+     */
+    private final LongAdder prunedByKeoghCount = new LongAdder();
+    
+    /**
+     * The number of full dynamic time warping computations
+     */
+    private final LongAdder fullComputationCount = new LongAdder();
+    
+    /**
+     * The number of full computations that have been abandoned
+     */
+    private final LongAdder abandonedCount = new LongAdder();
+    
+    /**
+     * Creates a new search for the given references, using the 
+     * unconstrained dynamic time warping distance.
+     * 
+     * @param references The reference tuples
+     * @throws NullPointerException If the given list is <code>null</code>
+     * or contains <code>null</code> elements
+     */
+    public DynamicTimeWarpingSearch(List<? extends DoubleTuple> references)
+    {
+        this(references, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Creates a new search for the given references, using the dynamic 
+     * time warping distance where the warping path is restricted to a 
+     * Sakoe-Chiba band with the given width. See 
+     * {@link DoubleTupleDistanceFunctions#computeDynamicTimeWarping(
+     * DoubleTuple, DoubleTuple, int, double)} for details.
+     * 
+     * @param references The reference tuples
+     * @param window The width of the band
+     * @throws NullPointerException If the given list is <code>null</code>
+     * or contains <code>null</code> elements
+     * @throws IllegalArgumentException If the window is negative
+     */
+    public DynamicTimeWarpingSearch(
+        List<? extends DoubleTuple> references, int window)
+    {
+        Objects.requireNonNull(references, "The references are null");
+        if (window < 0)
+        {
+            throw new IllegalArgumentException(
+                "The window may not be negative, but is " + window);
+        }
+        this.window = window;
+        int n = references.size();
+        this.references = new double[n][];
+        this.uppers = new double[n][];
+        this.lowers = new double[n][];
+        for (int i = 0; i < n; i++)
+        {
+            DoubleTuple reference = Objects.requireNonNull(
+                references.get(i), "The reference " + i + " is null");
+            double r[] = DoubleTuples.toArray(reference);
+            double upper[] = new double[r.length];
+            double lower[] = new double[r.length];
+            DynamicTimeWarpingBounds.computeEnvelope(
+                r, 0, r.length, window, upper, lower);
+            this.references[i] = r;
+            this.uppers[i] = upper;
+            this.lowers[i] = lower;
+        }
+    }
+    
+    /**
+     * Returns the number of reference tuples
+     * 
+     * @return The number of references
+     */
+    public int getReferenceCount()
+    {
+        return references.length;
+    }
+    
+    /**
+     * Returns the width of the Sakoe-Chiba band that is used for the
+     * distance computations
+     * 
+     * @return The window
+     */
+    public int getWindow()
+    {
+        return window;
+    }
+    
+    /**
+     * Returns the index of the reference that has the smallest dynamic 
+     * time warping distance to the given query. If multiple references
+     * have the same distance, then the one with the smallest index is
+     * returned. If there are no references, then -1 is returned.
+     * 
+     * @param query The query
+     * @return The index of the nearest reference
+     */
+    public int findNearest(DoubleTuple query)
+    {
+        double distance[] = new double[1];
+        return findNearest(DoubleTuples.toArray(query), distance);
+    }
+    
+    /**
+     * Returns the indices of the references that are nearest to the 
+     * given queries. See {@link #findNearest(DoubleTuple)} for details.
+     * <br>
+     * <br>
+     * The queries are processed in parallel. If the given distances 
+     * array is not <code>null</code>, then it will receive the 
+     * distances of the queries to their nearest references.
+     * 
+     * @param queries The queries
+     * @param distances The optional array that will store the distances
+     * @return The indices of the nearest references
+     * @throws IllegalArgumentException If the given distances array is
+     * not <code>null</code> and smaller than the number of queries
+     */
+    public int[] findNearest(
+        List<? extends DoubleTuple> queries, double distances[])
+    {
+        int n = queries.size();
+        if (distances != null && distances.length < n)
+        {
+            throw new IllegalArgumentException(
+                "Expected at least " + n + " distances, but the array " + 
+                "only has a length of " + distances.length);
+        }
+        int result[] = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> 
+        {
+            double distance[] = new double[1];
+            double q[] = DoubleTuples.toArray(queries.get(i));
+            result[i] = findNearest(q, distance);
+            if (distances != null)
+            {
+                distances[i] = distance[0];
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Find the index of the reference that is nearest to the given query
+     * 
+     * @param q The query
+     * @param distance The array that will store the distance in its first
+     * element
+     * @return The index of the nearest reference, or -1 if there are
+     * no references
+     */
+    private int findNearest(double q[], double distance[])
+    {
+        queryCount.increment();
+        int m = q.length;
+        double best = Double.POSITIVE_INFINITY;
+        int bestIndex = -1;
+        int prunedByKim = 0;
+        int prunedByKeogh = 0;
+        int fullComputations = 0;
+        int abandoned = 0;
+        for (int i = 0; i < references.length; i++)
+        {
+            double r[] = references[i];
+            int n = r.length;
+            double lbKim = 
+                DynamicTimeWarpingBounds.lowerBoundKim(q, 0, m, r, 0, n);
+            if (bestIndex != -1 && lbKim >= best)
+            {
+                prunedByKim++;
+                continue;
+            }
+            if (bestIndex != -1 && n == m)
+            {
+                double lbKeogh = DynamicTimeWarpingBounds.lowerBoundKeogh(
+                    q, 0, m, uppers[i], lowers[i], best);
+                if (lbKeogh >= best)
+                {
+                    prunedByKeogh++;
+                    continue;
+                }
+            }
+            fullComputations++;
+            double d = DynamicTimeWarpingDistance
+                .computeDynamicTimeWarpingDistance(
+                    q, 0, m, r, 0, n, window, best);
+            if (bestIndex == -1 || d < best)
+            {
+                best = d;
+                bestIndex = i;
+            }
+            else
+            {
+                abandoned += d == Double.POSITIVE_INFINITY ? 1 : 0;
+            }
+        }
+        prunedByKimCount.add(prunedByKim);
+        prunedByKeoghCount.add(prunedByKeogh);
+        fullComputationCount.add(fullComputations);
+        abandonedCount.add(abandoned);
+        distance[0] = best;
+        return bestIndex;
+    }
+    
+    /**
+     * Returns the number of queries that have been processed
+     * 
+     * @return The number of queries
+     */
+    public long getQueryCount()
+    {
+        return queryCount.sum();
+    }
+    
+    /**
+     * Returns the number of references that have been pruned by the 
+     * LB_Kim lower bound, summed over all queries
+     * 
+     * @return The number of pruned references
+     */
+    public long getPrunedByKimCount()
+    {
+        return prunedByKimCount.sum();
+    }
+    
+    /**
+     * Returns the number of references that have been pruned by the 
+     * LB_Keogh lower bound, summed over all queries
+     * 
+     * @return The number of pruned references
+     */
+    public long getPrunedByKeoghCount()
+    {
+        return prunedByKeoghCount.sum();
+    }
+    
+    /**
+     * Returns the number of references for which the dynamic time warping
+     * distance computation was started, summed over all queries
+     * 
+     * @return The number of full computations
+     */
+    public long getFullComputationCount()
+    {
+        return fullComputationCount.sum();
+    }
+    
+    /**
+     * Returns the number of dynamic time warping distance computations 
+     * that have been abandoned because they exceeded the best distance 
+     * that was found so far, summed over all queries
+     * 
+     * @return The number of abandoned computations
+     */
+    public long getAbandonedCount()
+    {
+        return abandonedCount.sum();
+    }
+    
+    /**
+     * Reset all statistics about the processed queries
+     */
+    public void resetStatistics()
+    {
+        queryCount.reset();
+        prunedByKimCount.reset();
+        prunedByKeoghCount.reset();
+        fullComputationCount.reset();
+        abandonedCount.reset();
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "DynamicTimeWarpingSearch[" + 
+            "references=" + references.length + 
+            ", window=" + window + 
+            ", queries=" + getQueryCount() + 
+            ", prunedByKim=" + getPrunedByKimCount() + 
+            ", prunedByKeogh=" + getPrunedByKeoghCount() + 
+            ", fullComputations=" + getFullComputationCount() + 
+            ", abandoned=" + getAbandonedCount() + "]";
+    }
+}
@@ -0,0 +1,485 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTupleKernels;
+
+/**
+ * Methods for finding the subsequences of a long {@link DoubleTuple} that 
+ * best match a short query, according to the dynamic time warping 
+ * distance.<br>
+ * <br>
+ * The query is slid over the long sequence, and each subsequence is 
+ * compared to the query. When the sequence is backed by an array, the
+ * subsequences are accessed directly in this array, without creating
+ * copies. The subsequences are z-normalized on the fly, using running
+ * sums that are updated in constant time for each position. Before the
+ * full dynamic time warping distance is computed, the candidates are
+ * pruned with a cascade of lower bounds (LB_Kim, LB_Keogh with the 
+ * envelope of the query, and LB_Keogh with the envelope of the data), 
+ * and the full computation is abandoned as soon as it exceeds the 
+ * distance of the k-th best match that was found so far.<br>
+ * <br>
+ * The sequence is divided into chunks that are processed in parallel.
+ */
+public class DynamicTimeWarpingSubsequences
+{
+    /**
+     * The default number of positions that are processed in one chunk
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+    
+    /**
+     * The comparator that orders matches by their distance, and
+     * matches with equal distance by their position
+     */
+    private static final Comparator<SubsequenceMatch> MATCH_COMPARATOR =
+        Comparator.comparingDouble(SubsequenceMatch::getDistance)
+            .thenComparingInt(SubsequenceMatch::getPosition);
+    
+    /**
+     * Find the <code>k</code> subsequences of the given sequence that
+     * have the smallest dynamic time warping distance to the given query,
+     * after both have been z-normalized.<br>
+     * <br>
+     * The returned list will be sorted by the distance, in ascending 
+     * order. It will contain at most <code>k</code> elements. Matches 
+     * may overlap. If multiple subsequences have the same distance, then 
+     * it is unspecified which of them are returned.
+     * 
+     * @param sequence The sequence
+     * @param query The query
+     * @param window The width of the Sakoe-Chiba band. See
+     * {@link DoubleTupleDistanceFunctions#computeDynamicTimeWarping(
+     * DoubleTuple, DoubleTuple, int, double)} for details.
+     * @param k The maximum number of matches to return
+     * @return The best matches
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If the query is empty, the window 
+     * is negative, or <code>k</code> is not positive
+     */
+    public static List<SubsequenceMatch> findBestMatches(
+        DoubleTuple sequence, DoubleTuple query, int window, int k)
+    {
+        return findBestMatches(sequence, query, window, k, true);
+    }
+    
+    /**
+     * Find the <code>k</code> subsequences of the given sequence that
+     * have the smallest dynamic time warping distance to the given query.
+     * See {@link #findBestMatches(DoubleTuple, DoubleTuple, int, int)} for
+     * details.
+     * 
+     * @param sequence The sequence
+     * @param query The query
+     * @param window The width of the Sakoe-Chiba band
+     * @param k The maximum number of matches to return
+     * @param normalize Whether the query and the subsequences should
+     * be z-normalized before they are compared
+     * @return The best matches
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If the query is empty, the window 
+     * is negative, or <code>k</code> is not positive
+     */
+    public static List<SubsequenceMatch> findBestMatches(
+        DoubleTuple sequence, DoubleTuple query, int window, int k,
+        boolean normalize)
+    {
+        return findBestMatches(
+            sequence, query, window, k, normalize, DEFAULT_CHUNK_SIZE);
+    }
+    
+    /**
+     * Implementation of {@link #findBestMatches(DoubleTuple, DoubleTuple,
+     * int, int, boolean)} with a configurable chunk size
+     * 
+     * @param sequence The sequence
+     * @param query The query
+     * @param window The width of the Sakoe-Chiba band
+     * @param k The maximum number of matches to return
+     * @param normalize Whether the values should be z-normalized
+     * @param chunkSize The number of positions processed in one chunk
+     * @return The best matches
+     */
+    static List<SubsequenceMatch> findBestMatches(
+        DoubleTuple sequence, DoubleTuple query, int window, int k,
+        boolean normalize, int chunkSize)
+    {
+        Objects.requireNonNull(sequence, "The sequence is null");
+        Objects.requireNonNull(query, "The query is null");
+        int m = query.getSize();
+        if (m == 0)
+        {
+            throw new IllegalArgumentException("The query is empty");
+        }
+        if (window < 0)
+        {
+            throw new IllegalArgumentException(
+                "The window may not be negative, but is " + window);
+        }
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of matches must be positive, but is " + k);
+        }
+        int positions = sequence.getSize() - m + 1;
+        if (positions <= 0)
+        {
+            return new ArrayList<SubsequenceMatch>();
+        }
+        Query q = new Query(query, window, normalize);
+        AtomicLong sharedThreshold = new AtomicLong(
+            Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+        int chunks = (positions + chunkSize - 1) / chunkSize;
+        List<SubsequenceMatch> all = IntStream.range(0, chunks).parallel()
+            .mapToObj(c -> 
+            {
+                int p0 = c * chunkSize;
+                int p1 = (int)Math.min(positions, (long)p0 + chunkSize);
+                return processChunk(sequence, q, k, p0, p1, sharedThreshold);
+            })
+            .flatMap(List::stream)
+            .collect(Collectors.toList());
+        Collections.sort(all, MATCH_COMPARATOR);
+        if (all.size() > k)
+        {
+            return new ArrayList<SubsequenceMatch>(all.subList(0, k));
+        }
+        return all;
+    }
+    
+    /**
+     * The preprocessed query
+     */
+    private static class Query
+    {
+        /**
+         * The (normalized) values of the query
+         */
+        final double values[];
+        
+        /**
+         * The upper envelope of the query
+         */
+        final double upper[];
+        
+        /**
+         * The lower envelope of the query
+         */
+        final double lower[];
+        
+        /**
+         * The width of the Sakoe-Chiba band
+         */
+        final int window;
+        
+        /**
+         * Whether the subsequences should be normalized
+         */
+        final boolean normalize;
+        
+        /**
+         * Creates a new query
+         * 
+         * @param query The query tuple
+         * @param window The window
+         * @param normalize Whether the values should be normalized
+         */
+        Query(DoubleTuple query, int window, boolean normalize)
+        {
+            int m = query.getSize();
+            this.window = window;
+            this.normalize = normalize;
+            this.values = new double[m];
+            double sum = 0.0;
+            double sumOfSquares = 0.0;
+            for (int i = 0; i < m; i++)
+            {
+                double value = query.get(i);
+                values[i] = value;
+                sum += value;
+                sumOfSquares += value * value;
+            }
+            if (normalize)
+            {
+                double mean = sum / m;
+                double scale = computeScale(mean, sumOfSquares, m);
+                for (int i = 0; i < m; i++)
+                {
+                    values[i] = (values[i] - mean) * scale;
+                }
+            }
+            this.upper = new double[m];
+            this.lower = new double[m];
+            DynamicTimeWarpingBounds.computeEnvelope(
+                values, 0, m, window, upper, lower);
+        }
+    }
+    
+    /**
+     * Computes the factor for normalizing values with the given mean and
+     * sum of squares, which is the inverse of the standard deviation, or 
+     * 0.0 if the standard deviation is 0.0
+     * 
+     * @param mean The mean
+     * @param sumOfSquares The sum of squares
+     * @param m The number of values
+     * @return The scaling factor
+     */
+    private static double computeScale(
+        double mean, double sumOfSquares, int m)
+    {
+        double variance = sumOfSquares / m - mean * mean;
+        if (variance <= 0.0)
+        {
+            return 0.0;
+        }
+        return 1.0 / Math.sqrt(variance);
+    }
+    
+    /**
+     * Process the given range of start positions
+     * 
+     * @param sequence The sequence
+     * @param query The query
+     * @param k The maximum number of matches
+     * @param p0 The first position, inclusive
+     * @param p1 The last position, exclusive
+     * @param sharedThreshold The bits of the smallest distance of a 
+     * k-th best match among all chunks
+     * @return The best matches in the given range
+     */
+    private static List<SubsequenceMatch> processChunk(
+        DoubleTuple sequence, Query query, int k, int p0, int p1,
+        AtomicLong sharedThreshold)
+    {
+        double q[] = query.values;
+        int m = q.length;
+        
+        // The value at position x of the sequence is data[offset + x]
+        int length = p1 - p0 + m - 1;
+        double data[] = DoubleTupleKernels.getArray(sequence);
+        int offset = DoubleTupleKernels.getArrayOffset(sequence);
+        if (data == null)
+        {
+            data = new double[length];
+            for (int i = 0; i < length; i++)
+            {
+                data[i] = sequence.get(p0 + i);
+            }
+            offset = -p0;
+        }
+        double dataUpper[] = new double[length];
+        double dataLower[] = new double[length];
+        DynamicTimeWarpingBounds.computeEnvelope(
+            data, offset + p0, length, query.window, dataUpper, dataLower);
+        
+        double sum = 0.0;
+        double sumOfSquares = 0.0;
+        for (int i = 0; i < m - 1; i++)
+        {
+            double value = data[offset + p0 + i];
+            sum += value;
+            sumOfSquares += value * value;
+        }
+        
+        PriorityQueue<SubsequenceMatch> heap = 
+            new PriorityQueue<SubsequenceMatch>(
+                k + 1, MATCH_COMPARATOR.reversed());
+        double candidate[] = new double[m];
+        for (int p = p0; p < p1; p++)
+        {
+            int start = offset + p;
+            double added = data[start + m - 1];
+            sum += added;
+            sumOfSquares += added * added;
+            double mean = 0.0;
+            double scale = 1.0;
+            if (query.normalize)
+            {
+                mean = sum / m;
+                scale = computeScale(mean, sumOfSquares, m);
+            }
+            double removed = data[start];
+            
+            double threshold = Double.longBitsToDouble(sharedThreshold.get());
+            if (heap.size() == k)
+            {
+                threshold = Math.min(threshold, heap.peek().getDistance());
+            }
+            if (isPruned(data, start, p - p0, mean, scale, query, 
+                dataUpper, dataLower, threshold))
+            {
+                sum -= removed;
+                sumOfSquares -= removed * removed;
+                continue;
+            }
+            for (int i = 0; i < m; i++)
+            {
+                candidate[i] = (data[start + i] - mean) * scale;
+            }
+            double distance = DynamicTimeWarpingDistance
+                .computeDynamicTimeWarpingDistance(
+                    q, 0, m, candidate, 0, m, query.window, threshold);
+            if (distance < threshold)
+            {
+                heap.add(new SubsequenceMatch(p, distance));
+                if (heap.size() > k)
+                {
+                    heap.poll();
+                }
+                if (heap.size() == k)
+                {
+                    publish(sharedThreshold, heap.peek().getDistance());
+                }
+            }
+            sum -= removed;
+            sumOfSquares -= removed * removed;
+        }
+        return new ArrayList<SubsequenceMatch>(heap);
+    }
+    
+    /**
+     * Returns whether the subsequence at the given position can be pruned,
+     * because one of its lower bounds is not smaller than the threshold
+     * 
+     * @param data The data array
+     * @param start The index of the first element in the data array
+     * @param envelopeStart The index of the first element in the 
+     * data envelope arrays
+     * @param mean The mean for the normalization
+     * @param scale The scale for the normalization
+     * @param query The query
+     * @param dataUpper The upper envelope of the data
+     * @param dataLower The lower envelope of the data
+     * @param threshold The threshold
+     * @return Whether the subsequence can be pruned
+     */
+    private static boolean isPruned(double data[], int start,
+        int envelopeStart, double mean, double scale, Query query, 
+        double dataUpper[], double dataLower[], double threshold)
+    {
+        if (threshold == Double.POSITIVE_INFINITY)
+        {
+            return false;
+        }
+        double q[] = query.values;
+        int m = q.length;
+        
+        // LB_Kim, using the first and last element
+        double first = (data[start] - mean) * scale;
+        double lbKim = Math.abs(first - q[0]);
+        if (m > 1)
+        {
+            double last = (data[start + m - 1] - mean) * scale;
+            lbKim += Math.abs(last - q[m - 1]);
+        }
+        if (lbKim >= threshold)
+        {
+            return true;
+        }
+        
+        // LB_Keogh, using the envelope of the query
+        double upper[] = query.upper;
+        double lower[] = query.lower;
+        double lbKeogh = 0.0;
+        for (int i = 0; i < m; i++)
+        {
+            double value = (data[start + i] - mean) * scale;
+            if (value > upper[i])
+            {
+                lbKeogh += value - upper[i];
+            }
+            else if (value < lower[i])
+            {
+                lbKeogh += lower[i] - value;
+            }
+            if (lbKeogh >= threshold)
+            {
+                return true;
+            }
+        }
+        
+        // LB_Keogh, using the envelope of the data. The envelope of the
+        // data in the whole chunk may be wider than the envelope of the
+        // subsequence, but still yields a valid lower bound
+        double lbKeoghData = 0.0;
+        for (int i = 0; i < m; i++)
+        {
+            double value = q[i];
+            double u = (dataUpper[envelopeStart + i] - mean) * scale;
+            double l = (dataLower[envelopeStart + i] - mean) * scale;
+            if (value > u)
+            {
+                lbKeoghData += value - u;
+            }
+            else if (value < l)
+            {
+                lbKeoghData += l - value;
+            }
+            if (lbKeoghData >= threshold)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Update the given shared threshold to be the minimum of its current
+     * value and the given value
+     * 
+     * @param sharedThreshold The bits of the shared threshold
+     * @param value The value
+     */
+    private static void publish(AtomicLong sharedThreshold, double value)
+    {
+        // The long bits of non-negative doubles have the same order
+        // as the doubles themselves
+        long bits = Double.doubleToLongBits(value);
+        sharedThreshold.accumulateAndGet(bits, Math::min);
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DynamicTimeWarpingSubsequences()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,1215 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.distance.Neighbor;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTupleKernels;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+/**
+ * An index for approximate nearest neighbor searches among 
+ * {@link DoubleTuple}s, based on a Hierarchical Navigable Small World 
+ * (HNSW) graph.<br>
+ * <br>
+ * Each tuple that is added to the index becomes a node of a layered 
+ * proximity graph. The nodes are assigned to randomly chosen maximum 
+ * layers, with exponentially decreasing probability for higher layers.
+ * Searches start at the top layer, descend greedily to the lowest layer, 
+ * and perform a beam search with a configurable width there.<br>
+ * <br>
+ * The index works with any {@link DistanceFunction} for 
+ * {@link DoubleTuple}s. When the function is one of 
+ * {@link DoubleTupleDistanceFunctions#euclidean()},
+ * {@link DoubleTupleDistanceFunctions#euclideanSquared()} or
+ * {@link DoubleTupleDistanceFunctions#angular()}, then the graph is built 
+ * and searched using equivalent orderings that are computed directly on 
+ * the internal arrays. The distances that are reported in the search 
+ * results are always computed with the given distance function.<br>
+ * <br>
+ * Tuples may be added concurrently from multiple threads, and searches
+ * may be performed while tuples are added. The index has a fixed 
+ * capacity that is specified at construction time. The tuples are copied
+ * when they are added.<br>
+ * <br>
+ * The index may be {@link #write(OutputStream) written} to a stream, and
+ * {@link #read(InputStream, DistanceFunction) read} back, so that the 
+ * graph does not have to be rebuilt.
+ */
+public final class HnswIndex
+{
+    /**
+     * The magic number at the start of a serialized index
+     */
+    private static final int MAGIC = 0x484E5357;
+    
+    /**
+     * The version of the serialization format
+     */
+    private static final int VERSION = 1;
+    
+    /**
+     * The maximum layer that a node can be assigned to
+     */
+    private static final int MAX_LEVEL = 31;
+    
+    /**
+     * The kind of distance computation for arbitrary distance functions
+     */
+    private static final int KIND_GENERIC = 0;
+    
+    /**
+     * The kind of distance computation for the euclidean distance
+     */
+    private static final int KIND_EUCLIDEAN = 1;
+    
+    /**
+     * The kind of distance computation for the angular distance
+     */
+    private static final int KIND_ANGULAR = 2;
+    
+    /**
+     * A point for which distances can be computed
+     */
+    private static class Point
+    {
+        /**
+         * The coordinates
+         */
+        final double vector[];
+        
+        /**
+         * The L2 norm of the coordinates
+         */
+        final double norm;
+        
+        /**
+         * The tuple that is a view on the coordinates
+         */
+        final DoubleTuple tuple;
+        
+        /**
+         * Creates a new point
+         * 
+         * @param vector The coordinates
+         */
+        Point(double vector[])
+        {
+            this.vector = vector;
+            this.norm = Math.sqrt(
+                DoubleTupleKernels.dot(vector, 0, vector, 0, vector.length));
+            this.tuple = DoubleTuples.wrap(vector);
+        }
+    }
+    
+    /**
+     * A node of the graph
+     */
+    private static final class Node extends Point
+    {
+        /**
+         * The neighbors of this node, for each layer
+         */
+        final int neighbors[][];
+        
+        /**
+         * The numbers of neighbors, for each layer
+         */
+        final int counts[];
+        
+        /**
+         * Creates a new node
+         * 
+         * @param vector The coordinates
+         * @param level The highest layer of the node
+         * @param m The maximum number of neighbors in the upper layers
+         * @param m0 The maximum number of neighbors in the lowest layer
+         */
+        Node(double vector[], int level, int m, int m0)
+        {
+            super(vector);
+            this.neighbors = new int[level + 1][];
+            this.counts = new int[level + 1];
+            for (int i = 0; i <= level; i++)
+            {
+                neighbors[i] = new int[i == 0 ? m0 : m];
+            }
+        }
+        
+        /**
+         * Returns the highest layer of this node
+         * 
+         * @return The level
+         */
+        int level()
+        {
+            return neighbors.length - 1;
+        }
+    }
+    
+    /**
+     * A max-heap of node indices, ordered by a key
+     */
+    private static final class Heap
+    {
+        /**
+         * The keys
+         */
+        private double keys[] = new double[16];
+        
+        /**
+         * The node indices
+         */
+        private int ids[] = new int[16];
+        
+        /**
+         * The size of this heap
+         */
+        private int size;
+        
+        /**
+         * Add the given element
+         * 
+         * @param key The key
+         * @param id The node index
+         */
+        void add(double key, int id)
+        {
+            if (size == keys.length)
+            {
+                keys = Arrays.copyOf(keys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            int i = size++;
+            while (i > 0)
+            {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] >= key)
+                {
+                    break;
+                }
+                keys[i] = keys[parent];
+                ids[i] = ids[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            ids[i] = id;
+        }
+        
+        /**
+         * Returns the largest key
+         * 
+         * @return The largest key
+         */
+        double peekKey()
+        {
+            return keys[0];
+        }
+        
+        /**
+         * Remove the element with the largest key, and return its index
+         * 
+         * @return The node index
+         */
+        int poll()
+        {
+            int result = ids[0];
+            size--;
+            double key = keys[size];
+            int id = ids[size];
+            int i = 0;
+            while (true)
+            {
+                int child = 2 * i + 1;
+                if (child >= size)
+                {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] > keys[child])
+                {
+                    child++;
+                }
+                if (keys[child] <= key)
+                {
+                    break;
+                }
+                keys[i] = keys[child];
+                ids[i] = ids[child];
+                i = child;
+            }
+            keys[i] = key;
+            ids[i] = id;
+            return result;
+        }
+        
+        /**
+         * Returns the size of this heap
+         * 
+         * @return The size
+         */
+        int size()
+        {
+            return size;
+        }
+    }
+    
+    /**
+     * A set of visited nodes, that can be cleared in constant time
+     */
+    private static final class Visited
+    {
+        /**
+         * The marker for each node
+         */
+        int markers[] = new int[0];
+        
+        /**
+         * The marker for the current search
+         */
+        int marker;
+    }
+    
+    /**
+     * The thread-local {@link Visited} instances
+     */
+    private final ThreadLocal<Visited> threadLocalVisited = 
+        ThreadLocal.withInitial(Visited::new);
+    
+    /**
+     * The number of dimensions of the tuples
+     */
+    private final int dimensions;
+    
+    /**
+     * The distance function
+     */
+    private final DistanceFunction<DoubleTuple> distanceFunction;
+    
+    /**
+     * The kind of the distance computation
+     */
+    private final int kind;
+    
+    /**
+     * The maximum number of neighbors of a node in the upper layers
+     */
+    private final int m;
+    
+    /**
+     * The maximum number of neighbors of a node in the lowest layer
+     */
+    private final int m0;
+    
+    /**
+     * The size of the candidate list during construction
+     */
+    private final int efConstruction;
+    
+    /**
+     * The size of the candidate list during searches
+     */
+    private volatile int efSearch;
+    
+    /**
+     * The normalization factor for the level generation
+     */
+    private final double levelFactor;
+    
+    /**
+     * The random number generator for the levels
+     */
+    private final Random random;
+    
+    /**
+     * The nodes
+     */
+    private final Node nodes[];
+    
+    /**
+     * The number of node indices that have been reserved
+     */
+    private final AtomicInteger nodeCount;
+    
+    /**
+     * The number of nodes that have been published. All nodes with a 
+     * smaller index are stored in the {@link #nodes} array, and visible 
+     * to all threads that read this value.
+     */
+    private final AtomicInteger publishedCount;
+    
+    /**
+     * The lock for modifications of the entry point
+     */
+    private final ReentrantLock entryLock;
+    
+    /**
+     * The index of the entry point, or -1 if the index is empty
+     */
+    private volatile int entryPoint;
+    
+    /**
+     * The highest layer of the graph
+     */
+    private volatile int maxLevel;
+    
+    /**
+     * Creates a new, empty index
+     * 
+     * @param dimensions The number of dimensions of the tuples
+     * @param capacity The maximum number of tuples
+     * @param distanceFunction The distance function
+     * @param m The number of neighbors that are connected to each new
+     * node. Typical values are between 8 and 48. Nodes may have up to 
+     * <code>m</code> neighbors in the upper layers, and up to 
+     * <code>2*m</code> neighbors in the lowest layer.
+     * @param efConstruction The number of candidates that are considered
+     * when connecting a new node. Larger values lead to a better graph, 
+     * but a slower construction. This should be at least <code>m</code>.
+     * @throws NullPointerException If the distance function is 
+     * <code>null</code>
+     * @throws IllegalArgumentException If the dimensions or the capacity
+     * are negative, <code>m</code> is smaller than 2, or 
+     * <code>efConstruction</code> is not positive
+     */
+    public HnswIndex(int dimensions, int capacity,
+        DistanceFunction<DoubleTuple> distanceFunction, 
+        int m, int efConstruction)
+    {
+        this.distanceFunction = Objects.requireNonNull(
+            distanceFunction, "The distanceFunction is null");
+        if (dimensions < 0)
+        {
+            throw new IllegalArgumentException(
+                "The dimensions may not be negative, but are " + dimensions);
+        }
+        if (capacity < 0)
+        {
+            throw new IllegalArgumentException(
+                "The capacity may not be negative, but is " + capacity);
+        }
+        if (m < 2)
+        {
+            throw new IllegalArgumentException(
+                "The value for m must be at least 2, but is " + m);
+        }
+        if (efConstruction <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The efConstruction must be positive, but is " + 
+                efConstruction);
+        }
+        this.dimensions = dimensions;
+        this.kind = kindOf(distanceFunction);
+        this.m = m;
+        this.m0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.efSearch = Math.max(efConstruction / 2, 10);
+        this.levelFactor = 1.0 / Math.log(m);
+        this.random = new Random(0);
+        this.nodes = new Node[capacity];
+        this.nodeCount = new AtomicInteger();
+        this.publishedCount = new AtomicInteger();
+        this.entryLock = new ReentrantLock();
+        this.entryPoint = -1;
+        this.maxLevel = -1;
+    }
+    
+    /**
+     * Returns the kind of the distance computation for the given function
+     * 
+     * @param distanceFunction The distance function
+     * @return The kind
+     */
+    private static int kindOf(DistanceFunction<DoubleTuple> distanceFunction)
+    {
+        if (distanceFunction instanceof DoubleTupleDistanceFunctionEuclidean ||
+            distanceFunction instanceof 
+                DoubleTupleDistanceFunctionEuclideanSquared)
+        {
+            return KIND_EUCLIDEAN;
+        }
+        if (distanceFunction instanceof DoubleTupleDistanceFunctionAngular)
+        {
+            return KIND_ANGULAR;
+        }
+        return KIND_GENERIC;
+    }
+    
+    /**
+     * Returns the number of dimensions of the tuples in this index
+     * 
+     * @return The number of dimensions
+     */
+    public int getDimensions()
+    {
+        return dimensions;
+    }
+    
+    /**
+     * Returns the maximum number of tuples in this index
+     * 
+     * @return The capacity
+     */
+    public int getCapacity()
+    {
+        return nodes.length;
+    }
+    
+    /**
+     * Returns the number of tuples in this index. While tuples are added
+     * concurrently, this only counts the tuples that are already stored
+     * and available via {@link #get(int)}. These tuples may not yet be
+     * connected in the graph, and thus not be found by searches.
+     * 
+     * @return The size
+     */
+    public int size()
+    {
+        return publishedCount.get();
+    }
+    
+    /**
+     * Returns the number of candidates that are considered during a
+     * search
+     * 
+     * @return The efSearch value
+     */
+    public int getEfSearch()
+    {
+        return efSearch;
+    }
+    
+    /**
+     * Set the number of candidates that are considered during a search.
+     * Larger values lead to a higher recall, but slower searches. The
+     * number of candidates that is actually used in a search is at least 
+     * the number of requested neighbors.
+     * 
+     * @param efSearch The efSearch value
+     * @throws IllegalArgumentException If the value is not positive
+     */
+    public void setEfSearch(int efSearch)
+    {
+        if (efSearch <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The efSearch must be positive, but is " + efSearch);
+        }
+        this.efSearch = efSearch;
+    }
+    
+    /**
+     * Returns the tuple with the given index. The index of a tuple is the 
+     * value that was returned when it was {@link #add(DoubleTuple) added}.
+     * The returned tuple is the one that is stored internally, and may
+     * not be modified.
+     * 
+     * @param index The index
+     * @return The tuple
+     * @throws IndexOutOfBoundsException If the index is negative or not 
+     * smaller than the {@link #size()} of this index
+     */
+    public DoubleTuple get(int index)
+    {
+        if (index < 0 || index >= size())
+        {
+            throw new IndexOutOfBoundsException(
+                "Index " + index + ", size " + size());
+        }
+        return nodes[index].tuple;
+    }
+    
+    /**
+     * Add the given tuple to this index. This method may be called 
+     * concurrently from multiple threads.
+     * 
+     * @param tuple The tuple
+     * @return The index of the tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of {@link #getDimensions() dimensions} of this index
+     * @throws IllegalStateException If the index already contains
+     * as many tuples as its {@link #getCapacity() capacity}
+     */
+    public int add(DoubleTuple tuple)
+    {
+        checkSize(tuple);
+        double level0 = -Math.log(1.0 - random.nextDouble()) * levelFactor;
+        int level = (int)Math.min(level0, MAX_LEVEL);
+        Node node = new Node(DoubleTuples.toArray(tuple), level, m, m0);
+        int id = nodeCount.getAndIncrement();
+        if (id >= nodes.length)
+        {
+            nodeCount.decrementAndGet();
+            throw new IllegalStateException(
+                "The index is full, with a capacity of " + nodes.length);
+        }
+        nodes[id] = node;
+        publish(id);
+        insert(id, node);
+        return id;
+    }
+    
+    /**
+     * Publish the node with the given index, which has just been stored
+     * in the {@link #nodes} array. The nodes are published in the order 
+     * of their indices, so this waits until all nodes with smaller 
+     * indices have been published. The nodes are created before their
+     * index is reserved, so that this wait is only as long as it takes
+     * other threads to store their nodes.
+     * 
+     * @param id The index of the node
+     */
+    private void publish(int id)
+    {
+        while (publishedCount.get() != id)
+        {
+            Thread.yield();
+        }
+        publishedCount.set(id + 1);
+    }
+    
+    /**
+     * Add all given tuples to this index, in parallel. The indices of the 
+     * tuples will be consecutive, but their order is unspecified.
+     * 
+     * @param tuples The tuples
+     * @throws IllegalArgumentException If the size of any tuple is not
+     * the number of {@link #getDimensions() dimensions} of this index
+     * @throws IllegalStateException If the capacity of this index is
+     * exceeded
+     */
+    public void addAll(List<? extends DoubleTuple> tuples)
+    {
+        tuples.stream().forEach(this::checkSize);
+        if (size() + tuples.size() > nodes.length)
+        {
+            throw new IllegalStateException(
+                "Cannot add " + tuples.size() + " tuples to an index with " + 
+                size() + " tuples and a capacity of " + nodes.length);
+        }
+        tuples.parallelStream().forEach(this::add);
+    }
+    
+    /**
+     * Make sure that the given tuple has the right size
+     * 
+     * @param tuple The tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of {@link #getDimensions() dimensions} of this index
+     */
+    private void checkSize(DoubleTuple tuple)
+    {
+        if (tuple.getSize() != dimensions)
+        {
+            throw new IllegalArgumentException(
+                "Expected a tuple of size " + dimensions + 
+                ", but the size is " + tuple.getSize());
+        }
+    }
+    
+    /**
+     * Insert the given node into the graph
+     * 
+     * @param id The index of the node
+     * @param node The node
+     */
+    private void insert(int id, Node node)
+    {
+        int level = node.level();
+        entryLock.lock();
+        boolean locked = true;
+        try
+        {
+            int currentMaxLevel = maxLevel;
+            int currentEntryPoint = entryPoint;
+            if (currentEntryPoint == -1)
+            {
+                entryPoint = id;
+                maxLevel = level;
+                return;
+            }
+            if (level <= currentMaxLevel)
+            {
+                // Only new top-level nodes keep the entry lock during
+                // the insertion
+                entryLock.unlock();
+                locked = false;
+            }
+            int current = currentEntryPoint;
+            double currentDistance = distance(node, nodes[current]);
+            for (int layer = currentMaxLevel; layer > level; layer--)
+            {
+                current = greedySearch(
+                    node, current, currentDistance, layer);
+                currentDistance = distance(node, nodes[current]);
+            }
+            for (int layer = Math.min(level, currentMaxLevel); 
+                layer >= 0; layer--)
+            {
+                Heap results = searchLayer(
+                    node, current, currentDistance, efConstruction, layer);
+                int sorted[] = toSortedIds(results);
+                int maxNeighbors = layer == 0 ? m0 : m;
+                int selected[] = selectNeighbors(
+                    node, sorted, Math.min(m, maxNeighbors));
+                synchronized (node)
+                {
+                    System.arraycopy(selected, 0, 
+                        node.neighbors[layer], 0, selected.length);
+                    node.counts[layer] = selected.length;
+                }
+                for (int neighborId : selected)
+                {
+                    connect(nodes[neighborId], id, layer);
+                }
+                current = sorted[0];
+                currentDistance = distance(node, nodes[current]);
+            }
+            if (level > currentMaxLevel)
+            {
+                entryPoint = id;
+                maxLevel = level;
+            }
+        }
+        finally
+        {
+            if (locked)
+            {
+                entryLock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Add the node with the given index as a neighbor of the given node 
+     * in the given layer. If this exceeds the maximum number of neighbors,
+     * then the neighbors are selected again.
+     * 
+     * @param node The node
+     * @param id The index of the new neighbor
+     * @param layer The layer
+     */
+    private void connect(Node node, int id, int layer)
+    {
+        synchronized (node)
+        {
+            int neighbors[] = node.neighbors[layer];
+            int count = node.counts[layer];
+            if (count < neighbors.length)
+            {
+                neighbors[count] = id;
+                node.counts[layer]++;
+                return;
+            }
+            Heap heap = new Heap();
+            for (int i = 0; i < count; i++)
+            {
+                heap.add(distance(node, nodes[neighbors[i]]), neighbors[i]);
+            }
+            heap.add(distance(node, nodes[id]), id);
+            int sorted[] = toSortedIds(heap);
+            int selected[] = selectNeighbors(node, sorted, neighbors.length);
+            System.arraycopy(selected, 0, neighbors, 0, selected.length);
+            node.counts[layer] = selected.length;
+        }
+    }
+    
+    /**
+     * Select up to the given number of neighbors for the given point from 
+     * the given candidates, using the heuristic that keeps a candidate
+     * only if it is closer to the point than to all candidates that have
+     * already been selected.
+     * 
+     * @param point The point
+     * @param sorted The candidates, sorted by their distance to the point
+     * @param maxNeighbors The maximum number of neighbors
+     * @return The selected neighbors
+     */
+    private int[] selectNeighbors(Point point, int sorted[], int maxNeighbors)
+    {
+        int selected[] = new int[Math.min(sorted.length, maxNeighbors)];
+        int count = 0;
+        for (int i = 0; i < sorted.length && count < selected.length; i++)
+        {
+            Node candidate = nodes[sorted[i]];
+            double candidateDistance = distance(point, candidate);
+            boolean good = true;
+            for (int j = 0; j < count; j++)
+            {
+                if (distance(candidate, nodes[selected[j]]) < 
+                    candidateDistance)
+                {
+                    good = false;
+                    break;
+                }
+            }
+            if (good)
+            {
+                selected[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+    
+    /**
+     * Returns the approximate <code>k</code> nearest neighbors of the 
+     * given query. The returned list is sorted by the distance. The
+     * {@link Neighbor#getIndex() index} of each neighbor is the index
+     * that was returned when the tuple was {@link #add(DoubleTuple) added}.
+     * The elements are the stored tuples, which may not be modified.
+     * 
+     * @param query The query
+     * @param k The maximum number of neighbors
+     * @return The neighbors
+     * @throws IllegalArgumentException If the size of the query is not
+     * the number of {@link #getDimensions() dimensions} of this index,
+     * or <code>k</code> is not positive
+     */
+    public List<Neighbor<DoubleTuple>> search(DoubleTuple query, int k)
+    {
+        checkSize(query);
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of neighbors must be positive, but is " + k);
+        }
+        List<Neighbor<DoubleTuple>> result = 
+            new ArrayList<Neighbor<DoubleTuple>>();
+        // The entry point is always written before the maximum level. 
+        // Reading them in the opposite order makes sure that the entry
+        // point is at least on the maximum level
+        int currentMaxLevel = maxLevel;
+        int currentEntryPoint = entryPoint;
+        if (currentEntryPoint == -1)
+        {
+            return result;
+        }
+        Point point = new Point(DoubleTuples.toArray(query));
+        int current = currentEntryPoint;
+        double currentDistance = distance(point, nodes[current]);
+        for (int layer = currentMaxLevel; layer > 0; layer--)
+        {
+            current = greedySearch(point, current, currentDistance, layer);
+            currentDistance = distance(point, nodes[current]);
+        }
+        Heap results = searchLayer(point, current, currentDistance, 
+            Math.max(efSearch, k), 0);
+        int sorted[] = toSortedIds(results);
+        for (int i = 0; i < sorted.length && i < k; i++)
+        {
+            int id = sorted[i];
+            DoubleTuple tuple = nodes[id].tuple;
+            double distance = distanceFunction.distance(query, tuple);
+            result.add(new Neighbor<DoubleTuple>(tuple, id, distance));
+        }
+        return result;
+    }
+    
+    /**
+     * Perform a greedy search for the node that is closest to the given 
+     * point in the given layer, starting at the given node
+     * 
+     * @param point The point
+     * @param start The start node
+     * @param startDistance The distance of the start node to the point
+     * @param layer The layer
+     * @return The closest node that was found
+     */
+    private int greedySearch(
+        Point point, int start, double startDistance, int layer)
+    {
+        int current = start;
+        double currentDistance = startDistance;
+        boolean changed = true;
+        while (changed)
+        {
+            changed = false;
+            for (int neighbor : neighbors(current, layer))
+            {
+                double d = distance(point, nodes[neighbor]);
+                if (d < currentDistance)
+                {
+                    current = neighbor;
+                    currentDistance = d;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Perform a beam search for the nodes that are closest to the given
+     * point in the given layer, starting at the given node
+     * 
+     * @param point The point
+     * @param start The start node
+     * @param startDistance The distance of the start node to the point
+     * @param ef The maximum number of results
+     * @param layer The layer
+     * @return A max-heap containing the results
+     */
+    private Heap searchLayer(
+        Point point, int start, double startDistance, int ef, int layer)
+    {
+        Visited visited = threadLocalVisited.get();
+        if (visited.markers.length < nodes.length)
+        {
+            visited.markers = new int[nodes.length];
+            visited.marker = 0;
+        }
+        visited.marker++;
+        if (visited.marker == 0)
+        {
+            Arrays.fill(visited.markers, 0);
+            visited.marker = 1;
+        }
+        int markers[] = visited.markers;
+        int marker = visited.marker;
+        
+        Heap candidates = new Heap();
+        Heap results = new Heap();
+        markers[start] = marker;
+        candidates.add(-startDistance, start);
+        results.add(startDistance, start);
+        while (candidates.size() > 0)
+        {
+            double candidateDistance = -candidates.peekKey();
+            if (results.size() >= ef && candidateDistance > results.peekKey())
+            {
+                break;
+            }
+            int candidate = candidates.poll();
+            for (int neighbor : neighbors(candidate, layer))
+            {
+                if (markers[neighbor] == marker)
+                {
+                    continue;
+                }
+                markers[neighbor] = marker;
+                double d = distance(point, nodes[neighbor]);
+                if (results.size() < ef || d < results.peekKey())
+                {
+                    candidates.add(-d, neighbor);
+                    results.add(d, neighbor);
+                    if (results.size() > ef)
+                    {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Returns a copy of the neighbors of the given node in the given layer
+     * 
+     * @param id The node index
+     * @param layer The layer
+     * @return The neighbors
+     */
+    private int[] neighbors(int id, int layer)
+    {
+        Node node = nodes[id];
+        synchronized (node)
+        {
+            return Arrays.copyOf(node.neighbors[layer], node.counts[layer]);
+        }
+    }
+    
+    /**
+     * Empty the given max-heap, and return its node indices in ascending
+     * order of their keys
+     * 
+     * @param heap The heap
+     * @return The sorted node indices
+     */
+    private static int[] toSortedIds(Heap heap)
+    {
+        int result[] = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--)
+        {
+            result[i] = heap.poll();
+        }
+        return result;
+    }
+    
+    /**
+     * Computes the distance between the given points that is used for
+     * building and searching the graph. Depending on the distance 
+     * function, this may be a value that only has the same ordering as 
+     * the actual distance.
+     * 
+     * @param p0 The first point
+     * @param p1 The second point
+     * @return The distance
+     */
+    private double distance(Point p0, Point p1)
+    {
+        if (kind == KIND_EUCLIDEAN)
+        {
+            return DoubleTupleKernels.sumOfSquaredDifferences(
+                p0.vector, 0, p1.vector, 0, dimensions);
+        }
+        if (kind == KIND_ANGULAR)
+        {
+            double norms = p0.norm * p1.norm;
+            if (norms == 0.0)
+            {
+                return 1.0;
+            }
+            double dot = DoubleTupleKernels.dot(
+                p0.vector, 0, p1.vector, 0, dimensions);
+            return 1.0 - dot / norms;
+        }
+        return distanceFunction.distance(p0.tuple, p1.tuple);
+    }
+    
+    /**
+     * Write this index to the given stream. The stream will not be 
+     * closed. This method may not be called while tuples are added
+     * to the index.
+     * 
+     * @param outputStream The output stream
+     * @throws IOException If an IO error occurs
+     */
+    public void write(OutputStream outputStream) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(outputStream));
+        int size = size();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(dimensions);
+        out.writeInt(nodes.length);
+        out.writeInt(m);
+        out.writeInt(efConstruction);
+        out.writeInt(efSearch);
+        out.writeInt(size);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        for (int i = 0; i < size; i++)
+        {
+            Node node = nodes[i];
+            synchronized (node)
+            {
+                out.writeInt(node.level());
+                for (int d = 0; d < dimensions; d++)
+                {
+                    out.writeDouble(node.vector[d]);
+                }
+                for (int layer = 0; layer <= node.level(); layer++)
+                {
+                    int count = node.counts[layer];
+                    out.writeInt(count);
+                    for (int j = 0; j < count; j++)
+                    {
+                        out.writeInt(node.neighbors[layer][j]);
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+    
+    /**
+     * Read an index from the given stream, as it was written with
+     * {@link #write(OutputStream)}. The stream will not be closed.
+     * The given distance function must be the same as the one that
+     * was used for building the index.
+     * 
+     * @param inputStream The input stream
+     * @param distanceFunction The distance function
+     * @return The index
+     * @throws IOException If an IO error occurs, or the stream does
+     * not contain a valid index. This includes invalid parameters,
+     * neighbor indices or an entry point that are not in the range of
+     * the stored nodes, nodes that are listed as their own neighbors,
+     * neighbors in layers that are above their level, and a maximum 
+     * level that does not match the level of the entry point.
+     */
+    public static HnswIndex read(InputStream inputStream, 
+        DistanceFunction<DoubleTuple> distanceFunction) throws IOException
+    {
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(inputStream));
+        int magic = in.readInt();
+        int version = in.readInt();
+        if (magic != MAGIC || version != VERSION)
+        {
+            throw new IOException("The stream does not contain an index " + 
+                "in a supported format");
+        }
+        int dimensions = in.readInt();
+        int capacity = in.readInt();
+        int m = in.readInt();
+        int efConstruction = in.readInt();
+        int efSearch = in.readInt();
+        int size = in.readInt();
+        int entryPoint = in.readInt();
+        int maxLevel = in.readInt();
+        HnswIndex index;
+        try
+        {
+            index = new HnswIndex(
+                dimensions, capacity, distanceFunction, m, efConstruction);
+            index.setEfSearch(efSearch);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException("Invalid index parameters", e);
+        }
+        if (size < 0 || size > capacity)
+        {
+            throw new IOException(
+                "Invalid size " + size + " for capacity " + capacity);
+        }
+        boolean validEntryPoint = size == 0 ? 
+            entryPoint == -1 : entryPoint >= 0 && entryPoint < size;
+        if (!validEntryPoint)
+        {
+            throw new IOException(
+                "Invalid entry point " + entryPoint + " for size " + size);
+        }
+        for (int i = 0; i < size; i++)
+        {
+            int level = in.readInt();
+            if (level < 0 || level > MAX_LEVEL)
+            {
+                throw new IOException("Invalid level: " + level);
+            }
+            double vector[] = new double[dimensions];
+            for (int d = 0; d < dimensions; d++)
+            {
+                vector[d] = in.readDouble();
+            }
+            Node node = new Node(vector, level, m, 2 * m);
+            for (int layer = 0; layer <= level; layer++)
+            {
+                int count = in.readInt();
+                if (count < 0 || count > node.neighbors[layer].length)
+                {
+                    throw new IOException("Invalid neighbor count: " + count);
+                }
+                for (int j = 0; j < count; j++)
+                {
+                    int neighbor = in.readInt();
+                    if (neighbor < 0 || neighbor >= size || neighbor == i)
+                    {
+                        throw new IOException("Invalid neighbor " + 
+                            neighbor + " of node " + i + " for size " + size);
+                    }
+                    node.neighbors[layer][j] = neighbor;
+                }
+                node.counts[layer] = count;
+            }
+            index.nodes[i] = node;
+        }
+        int expectedMaxLevel = 
+            size == 0 ? -1 : index.nodes[entryPoint].level();
+        if (maxLevel != expectedMaxLevel)
+        {
+            throw new IOException("Invalid maximum level " + maxLevel + 
+                ", expected the level of the entry point, " + 
+                expectedMaxLevel);
+        }
+        validateNeighborLevels(index.nodes, size, maxLevel);
+        index.nodeCount.set(size);
+        index.publishedCount.set(size);
+        index.entryPoint = entryPoint;
+        index.maxLevel = maxLevel;
+        return index;
+    }
+    
+    /**
+     * Make sure that each of the given nodes has a level that is not 
+     * larger than the given maximum level, and that all neighbors of 
+     * each node in each layer are contained in this layer
+     * 
+     * @param nodes The nodes
+     * @param size The number of nodes
+     * @param maxLevel The maximum level
+     * @throws IOException If the nodes are not valid
+     */
+    private static void validateNeighborLevels(
+        Node nodes[], int size, int maxLevel) throws IOException
+    {
+        for (int i = 0; i < size; i++)
+        {
+            Node node = nodes[i];
+            if (node.level() > maxLevel)
+            {
+                throw new IOException("Invalid level " + node.level() + 
+                    " of node " + i + " for maximum level " + maxLevel);
+            }
+            for (int layer = 0; layer <= node.level(); layer++)
+            {
+                for (int j = 0; j < node.counts[layer]; j++)
+                {
+                    int neighbor = node.neighbors[layer][j];
+                    if (nodes[neighbor].level() < layer)
+                    {
+                        throw new IOException("Invalid neighbor " + 
+                            neighbor + " of node " + i + " in layer " + 
+                            layer + ", which has a level of " + 
+                            nodes[neighbor].level());
+                    }
+                }
+            }
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "HnswIndex[" + 
+            "dimensions=" + dimensions + 
+            ", size=" + size() + 
+            ", capacity=" + nodes.length + 
+            ", m=" + m + 
+            ", efConstruction=" + efConstruction + 
+            ", efSearch=" + efSearch + 
+            ", distanceFunction=" + distanceFunction + "]";
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.arrays.d.DoubleArrayND;
+import de.javagl.nd.tuples.Utils;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.d.MutableDoubleTuple;
+import de.javagl.nd.tuples.i.IntTuples;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+/**
+ * A whitening transform that is based on the Cholesky factorization 
+ * <code>C = L L<sup>T</sup></code> of a covariance matrix.<br>
+ * <br>
+ * The {@link #whiten(DoubleTuple) whitened} tuple for a tuple 
+ * <code>x</code> is <code>L<sup>-1</sup> x</code>. The Euclidean 
+ * distance between two whitened tuples is the Mahalanobis distance
+ * <code>sqrt((x-y)<sup>T</sup> C<sup>-1</sup> (x-y))</code> between
+ * the original tuples. So when many distances to the same tuples have 
+ * to be computed, these tuples may be whitened once with 
+ * {@link #whiten(List)}, and the distances may then be computed with
+ * the {@link DoubleTupleDistanceFunctions#euclidean()} distance to the 
+ * whitened queries.<br>
+ * <br>
+ * Instances of this class are immutable and thread-safe.
+ */
+public final class MahalanobisWhitening
+{
+    /**
+     * The number of dimensions
+     */
+    private final int dimensions;
+    
+    /**
+     * The lower triangle of the Cholesky factor, where row <code>i</code>
+     * starts at index <code>i*(i+1)/2</code>
+     */
+    private final double factor[];
+    
+    /**
+     * Creates a new whitening for the given covariance matrix.<br>
+     * <br>
+     * Only the lower triangle (including the diagonal) of the given 
+     * matrix is read. The matrix is assumed to be symmetric.
+     * 
+     * @param covariance The covariance matrix
+     * @throws NullPointerException If the covariance is <code>null</code>
+     * @throws IllegalArgumentException If the covariance matrix is not
+     * a square, 2-dimensional array, or not positive definite
+     */
+    public MahalanobisWhitening(DoubleArrayND covariance)
+    {
+        Objects.requireNonNull(covariance, "The covariance is null");
+        if (covariance.getSize().getSize() != 2 || 
+            covariance.getSize().get(0) != covariance.getSize().get(1))
+        {
+            throw new IllegalArgumentException(
+                "The covariance must be a square matrix, but has a size of "
+                + covariance.getSize());
+        }
+        this.dimensions = covariance.getSize().get(0);
+        this.factor = computeCholesky(covariance, dimensions);
+    }
+    
+    /**
+     * Computes the lower triangle of the Cholesky factor of the given 
+     * matrix
+     * 
+     * @param matrix The matrix
+     * @param n The size of the matrix
+     * @return The lower triangle of the Cholesky factor
+     * @throws IllegalArgumentException If the matrix is not positive
+     * definite
+     */
+    private static double[] computeCholesky(DoubleArrayND matrix, int n)
+    {
+        double result[] = new double[n * (n + 1) / 2];
+        MutableIntTuple index = IntTuples.create(2);
+        for (int i = 0; i < n; i++)
+        {
+            int rowI = i * (i + 1) / 2;
+            index.set(0, i);
+            for (int j = 0; j <= i; j++)
+            {
+                int rowJ = j * (j + 1) / 2;
+                index.set(1, j);
+                double sum = matrix.get(index);
+                for (int k = 0; k < j; k++)
+                {
+                    sum -= result[rowI + k] * result[rowJ + k];
+                }
+                if (i == j)
+                {
+                    if (!(sum > 0.0))
+                    {
+                        throw new IllegalArgumentException(
+                            "The covariance matrix is not positive " + 
+                            "definite (pivot " + i + " is " + sum + ")");
+                    }
+                    result[rowI + i] = Math.sqrt(sum);
+                }
+                else
+                {
+                    result[rowI + j] = sum / result[rowJ + j];
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of dimensions
+     * 
+     * @return The number of dimensions
+     */
+    public int getDimensions()
+    {
+        return dimensions;
+    }
+    
+    /**
+     * Whiten the given tuple
+     * 
+     * @param tuple The tuple
+     * @return The whitened tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of dimensions
+     */
+    public MutableDoubleTuple whiten(DoubleTuple tuple)
+    {
+        checkSize(tuple);
+        double values[] = DoubleTuples.toArray(tuple);
+        solveLower(values);
+        return DoubleTuples.wrap(values);
+    }
+    
+    /**
+     * Whiten all given tuples, in parallel
+     * 
+     * @param tuples The tuples
+     * @return The whitened tuples
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If the size of any tuple is not
+     * the number of dimensions
+     */
+    public List<MutableDoubleTuple> whiten(List<? extends DoubleTuple> tuples)
+    {
+        Objects.requireNonNull(tuples, "The tuples are null");
+        int n = tuples.size();
+        MutableDoubleTuple whitened[] = new MutableDoubleTuple[n];
+        IntStream.range(0, n).parallel().forEach(i -> 
+            whitened[i] = whiten(tuples.get(i)));
+        List<MutableDoubleTuple> result = 
+            new ArrayList<MutableDoubleTuple>(n);
+        for (MutableDoubleTuple t : whitened)
+        {
+            result.add(t);
+        }
+        return result;
+    }
+    
+    /**
+     * Computes the squared Mahalanobis distance between the given tuples
+     * 
+     * @param t0 The first tuple
+     * @param t1 The second tuple
+     * @return The squared distance
+     * @throws IllegalArgumentException If the sizes of the tuples are 
+     * not the number of dimensions
+     */
+    public double computeDistanceSquared(DoubleTuple t0, DoubleTuple t1)
+    {
+        Utils.checkForEqualSize(t0, t1);
+        checkSize(t0);
+        double values[] = new double[dimensions];
+        for (int i = 0; i < dimensions; i++)
+        {
+            values[i] = t0.get(i) - t1.get(i);
+        }
+        solveLower(values);
+        double sum = 0.0;
+        for (int i = 0; i < dimensions; i++)
+        {
+            sum += values[i] * values[i];
+        }
+        return sum;
+    }
+    
+    /**
+     * Computes the Mahalanobis distance between the given tuples
+     * 
+     * @param t0 The first tuple
+     * @param t1 The second tuple
+     * @return The distance
+     * @throws IllegalArgumentException If the sizes of the tuples are 
+     * not the number of dimensions
+     */
+    public double computeDistance(DoubleTuple t0, DoubleTuple t1)
+    {
+        return Math.sqrt(computeDistanceSquared(t0, t1));
+    }
+    
+    /**
+     * Solve <code>L y = x</code> by forward substitution, where 
+     * <code>L</code> is the Cholesky factor, overwriting the given 
+     * vector <code>x</code> with <code>y</code>
+     * 
+     * @param values The vector
+     */
+    private void solveLower(double values[])
+    {
+        for (int i = 0; i < dimensions; i++)
+        {
+            int row = i * (i + 1) / 2;
+            double sum = values[i];
+            for (int k = 0; k < i; k++)
+            {
+                sum -= factor[row + k] * values[k];
+            }
+            values[i] = sum / factor[row + i];
+        }
+    }
+    
+    /**
+     * Make sure that the given tuple has the number of dimensions as 
+     * its size
+     * 
+     * @param tuple The tuple
+     * @throws IllegalArgumentException If this is not the case
+     */
+    private void checkSize(DoubleTuple tuple)
+    {
+        if (tuple.getSize() != dimensions)
+        {
+            throw new IllegalArgumentException(
+                "Expected a tuple of size " + dimensions + 
+                ", but found size " + tuple.getSize());
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+/**
+ * A class for computing the dynamic time warping distance between a 
+ * fixed reference and a stream of samples that are appended one at a 
+ * time.<br>
+ * <br>
+ * The instance only stores the last column of the cost matrix, which 
+ * has the size of the reference. Appending a sample updates this column
+ * in a time that is linear in the size of the reference.<br>
+ * <br>
+ * In the default mode, the {@link #getDistance() current distance} is 
+ * the dynamic time warping distance between the reference and all 
+ * samples that have been appended so far. In the subsequence mode, the
+ * alignment may start at any sample, and the current distance is the
+ * smallest distance between the reference and any sequence of samples 
+ * that ends with the last sample. In both modes, the smallest distance
+ * that was observed so far, and the index of the last sample at this 
+ * point, are recorded.<br>
+ * <br>
+ * This class is not thread-safe.
+ */
+public final class OnlineDynamicTimeWarping
+{
+    /**
+     * The reference
+     */
+    private final double reference[];
+    
+    /**
+     * Whether the alignment may start at any sample
+     */
+    private final boolean subsequence;
+    
+    /**
+     * The last column of the cost matrix
+     */
+    private final double column[];
+    
+    /**
+     * The number of samples that have been appended
+     */
+    private long sampleCount;
+    
+    /**
+     * The smallest distance that was observed
+     */
+    private double bestDistance;
+    
+    /**
+     * The index of the sample where the smallest distance was observed
+     */
+    private long bestEndPosition;
+    
+    /**
+     * Creates a new instance that computes the dynamic time warping 
+     * distance between the given reference and all appended samples.
+     * A copy of the given reference will be stored internally.
+     * 
+     * @param reference The reference
+     * @throws NullPointerException If the reference is <code>null</code>
+     * @throws IllegalArgumentException If the reference is empty
+     */
+    public OnlineDynamicTimeWarping(DoubleTuple reference)
+    {
+        this(reference, false);
+    }
+    
+    /**
+     * Creates a new instance that computes the dynamic time warping 
+     * distance between the given reference and the appended samples.
+     * A copy of the given reference will be stored internally.
+     * 
+     * @param reference The reference
+     * @param subsequence Whether the alignment may start at any sample,
+     * instead of at the first sample
+     * @throws NullPointerException If the reference is <code>null</code>
+     * @throws IllegalArgumentException If the reference is empty
+     */
+    public OnlineDynamicTimeWarping(DoubleTuple reference, 
+        boolean subsequence)
+    {
+        Objects.requireNonNull(reference, "The reference is null");
+        if (reference.getSize() == 0)
+        {
+            throw new IllegalArgumentException("The reference is empty");
+        }
+        this.reference = DoubleTuples.toArray(reference);
+        this.subsequence = subsequence;
+        this.column = new double[this.reference.length];
+        reset();
+    }
+    
+    /**
+     * Reset this instance to its initial state, where no samples have
+     * been appended
+     */
+    public void reset()
+    {
+        Arrays.fill(column, Double.POSITIVE_INFINITY);
+        sampleCount = 0;
+        bestDistance = Double.POSITIVE_INFINITY;
+        bestEndPosition = -1;
+    }
+    
+    /**
+     * Append the given sample
+     * 
+     * @param sample The sample
+     */
+    public void append(double sample)
+    {
+        double r[] = reference;
+        double c[] = column;
+        int n = r.length;
+        double diagonal = c[0];
+        double start = subsequence || sampleCount == 0 ? 0.0 : c[0];
+        double previous = start + Math.abs(r[0] - sample);
+        c[0] = previous;
+        for (int i = 1; i < n; i++)
+        {
+            double left = c[i];
+            double min = diagonal < left ? diagonal : left;
+            min = previous < min ? previous : min;
+            previous = min + Math.abs(r[i] - sample);
+            diagonal = left;
+            c[i] = previous;
+        }
+        if (previous < bestDistance)
+        {
+            bestDistance = previous;
+            bestEndPosition = sampleCount;
+        }
+        sampleCount++;
+    }
+    
+    /**
+     * Append all elements of the given tuple as samples
+     * 
+     * @param samples The samples
+     */
+    public void append(DoubleTuple samples)
+    {
+        int size = samples.getSize();
+        for (int i = 0; i < size; i++)
+        {
+            append(samples.get(i));
+        }
+    }
+    
+    /**
+     * Returns the number of samples that have been appended
+     * 
+     * @return The number of samples
+     */
+    public long getSampleCount()
+    {
+        return sampleCount;
+    }
+    
+    /**
+     * Returns the current distance. This is the distance between the 
+     * reference and the samples that have been appended so far, as 
+     * described in the class documentation. If no samples have been 
+     * appended, then <code>Double.POSITIVE_INFINITY</code> is returned.
+     * 
+     * @return The current distance
+     */
+    public double getDistance()
+    {
+        return column[column.length - 1];
+    }
+    
+    /**
+     * Returns the smallest distance that was returned by 
+     * {@link #getDistance()} after any sample was appended. If no
+     * samples have been appended, then 
+     * <code>Double.POSITIVE_INFINITY</code> is returned.
+     * 
+     * @return The best distance
+     */
+    public double getBestDistance()
+    {
+        return bestDistance;
+    }
+    
+    /**
+     * Returns the index of the sample after which the 
+     * {@link #getBestDistance() best distance} was observed. If 
+     * multiple samples caused the same distance, then the first
+     * one is returned. If no samples have been appended, then -1 
+     * is returned.
+     * 
+     * @return The best end position
+     */
+    public long getBestEndPosition()
+    {
+        return bestEndPosition;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "OnlineDynamicTimeWarping[" + 
+            "referenceSize=" + reference.length + 
+            ", subsequence=" + subsequence + 
+            ", sampleCount=" + sampleCount + 
+            ", distance=" + getDistance() + "]";
+    }
+}
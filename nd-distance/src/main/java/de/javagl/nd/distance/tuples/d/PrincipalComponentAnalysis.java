@@ -0,0 +1,764 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.d.MutableDoubleTuple;
+
+/**
+ * A principal component analysis of a collection of {@link DoubleTuple}s.
+ * <br>
+ * <br>
+ * Instances are created with {@link #compute(List, int)}. They store 
+ * the mean of the tuples, and the requested number of principal 
+ * components, as unit vectors, sorted by descending variance. They 
+ * can be used to {@link #transform(DoubleTuple) transform} tuples 
+ * into the principal subspace.<br>
+ * <br>
+ * When the number of dimensions is small, the full covariance matrix 
+ * is computed with {@link DoubleTupleCovariances}, and its eigenvectors 
+ * are computed with the cyclic Jacobi method. Otherwise, the components
+ * are approximated with a randomized subspace iteration, which never 
+ * creates the covariance matrix: Its products with the subspace basis 
+ * are computed as <code>X<sup>T</sup>(X Q)</code> in parallel chunks of 
+ * the centered tuples <code>X</code>.<br>
+ * <br>
+ * The variances are <i>population</i> variances, which are normalized 
+ * by the number of tuples. The sign of each component is chosen so 
+ * that its element with the largest absolute value is positive.
+ */
+public final class PrincipalComponentAnalysis
+{
+    /**
+     * The maximum number of dimensions for which the covariance matrix
+     * is decomposed directly
+     */
+    private static final int EXACT_DIMENSIONS_LIMIT = 256;
+    
+    /**
+     * The number of additional basis vectors that are used in the 
+     * randomized subspace iteration
+     */
+    private static final int OVERSAMPLING = 10;
+    
+    /**
+     * The number of power iterations of the randomized subspace iteration
+     */
+    private static final int POWER_ITERATIONS = 4;
+    
+    /**
+     * The maximum number of sweeps of the Jacobi method
+     */
+    private static final int MAX_JACOBI_SWEEPS = 64;
+    
+    /**
+     * The number of dimensions
+     */
+    private final int dimensions;
+    
+    /**
+     * The number of components
+     */
+    private final int componentCount;
+    
+    /**
+     * The mean of the tuples
+     */
+    private final double mean[];
+    
+    /**
+     * The components, in row-major order
+     */
+    private final double components[];
+    
+    /**
+     * The variances along the components
+     */
+    private final double variances[];
+    
+    /**
+     * The total variance of the tuples
+     */
+    private final double totalVariance;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param mean The mean
+     * @param components The components
+     * @param variances The variances
+     * @param totalVariance The total variance
+     */
+    private PrincipalComponentAnalysis(double mean[], double components[],
+        double variances[], double totalVariance)
+    {
+        this.dimensions = mean.length;
+        this.componentCount = variances.length;
+        this.mean = mean;
+        this.components = components;
+        this.variances = variances;
+        this.totalVariance = totalVariance;
+    }
+    
+    /**
+     * Computes the principal component analysis of the given tuples, 
+     * with a seed of 0 for the randomized subspace iteration. See
+     * {@link #compute(List, int, long)} for details.
+     * 
+     * @param tuples The tuples
+     * @param componentCount The number of components
+     * @return The {@link PrincipalComponentAnalysis}
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If the given list is empty, if 
+     * the tuples do not all have the same size, or if the number of 
+     * components is not positive or larger than the size of the tuples
+     */
+    public static PrincipalComponentAnalysis compute(
+        List<? extends DoubleTuple> tuples, int componentCount)
+    {
+        return compute(tuples, componentCount, 0L);
+    }
+    
+    /**
+     * Computes the principal component analysis of the given tuples.<br>
+     * <br>
+     * If the tuples have at most 256 dimensions, then the result will 
+     * be computed from the full covariance matrix. Otherwise, it will 
+     * be approximated with a randomized subspace iteration, using the 
+     * given seed for the initial random basis.
+     * 
+     * @param tuples The tuples
+     * @param componentCount The number of components
+     * @param seed The seed for the random number generator
+     * @return The {@link PrincipalComponentAnalysis}
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If the given list is empty, if 
+     * the tuples do not all have the same size, or if the number of 
+     * components is not positive or larger than the size of the tuples
+     */
+    public static PrincipalComponentAnalysis compute(
+        List<? extends DoubleTuple> tuples, int componentCount, long seed)
+    {
+        int d = DoubleTupleCovariances.validateSize(tuples);
+        if (componentCount <= 0 || componentCount > d)
+        {
+            throw new IllegalArgumentException(
+                "The number of components must be between 1 and " + d + 
+                ", but is " + componentCount);
+        }
+        int n = tuples.size();
+        double mean[] = DoubleTupleCovariances.computeMean(tuples);
+        double centered[] = DoubleTupleCovariances.packCentered(tuples, mean);
+        if (d <= EXACT_DIMENSIONS_LIMIT)
+        {
+            double covariance[] = 
+                DoubleTupleCovariances.computeCovariance(centered, n, d);
+            double totalVariance = 0.0;
+            for (int i = 0; i < d; i++)
+            {
+                totalVariance += covariance[i * d + i];
+            }
+            double eigenvectors[] = new double[d * d];
+            jacobi(covariance, eigenvectors, d);
+            return create(mean, covariance, eigenvectors, 
+                null, d, d, componentCount, totalVariance);
+        }
+        double totalVariance = computeSumOfSquares(centered) / n;
+        int basisSize = Math.min(d, componentCount + OVERSAMPLING);
+        Random random = new Random(seed);
+        double basis[] = new double[d * basisSize];
+        for (int i = 0; i < basis.length; i++)
+        {
+            basis[i] = random.nextGaussian();
+        }
+        orthonormalize(basis, d, basisSize, random);
+        for (int iteration = 0; iteration < POWER_ITERATIONS; iteration++)
+        {
+            basis = multiplyCovariance(centered, n, d, basis, basisSize);
+            orthonormalize(basis, d, basisSize, random);
+        }
+        double product[] = 
+            multiplyCovariance(centered, n, d, basis, basisSize);
+        double projected[] = new double[basisSize * basisSize];
+        for (int r = 0; r < basisSize; r++)
+        {
+            for (int c = r; c < basisSize; c++)
+            {
+                double sum = 0.0;
+                for (int j = 0; j < d; j++)
+                {
+                    int row = j * basisSize;
+                    sum += basis[row + r] * product[row + c];
+                }
+                projected[r * basisSize + c] = sum;
+                projected[c * basisSize + r] = sum;
+            }
+        }
+        double eigenvectors[] = new double[basisSize * basisSize];
+        jacobi(projected, eigenvectors, basisSize);
+        return create(mean, projected, eigenvectors, 
+            basis, d, basisSize, componentCount, totalVariance);
+    }
+    
+    /**
+     * Create the {@link PrincipalComponentAnalysis} from the result of 
+     * an eigen-decomposition.<br>
+     * <br>
+     * The given eigenvectors are the columns of a <code>m x m</code>
+     * matrix. The components are the products of the given 
+     * <code>d x m</code> basis matrix with the eigenvectors that have
+     * the largest eigenvalues. If the basis is <code>null</code>, then
+     * the components are the eigenvectors themself.
+     * 
+     * @param mean The mean
+     * @param diagonalized The diagonalized <code>m x m</code> matrix
+     * @param eigenvectors The <code>m x m</code> eigenvectors
+     * @param basis The <code>d x m</code> basis. May be <code>null</code>.
+     * @param d The number of dimensions
+     * @param m The size of the decomposed matrix
+     * @param componentCount The number of components
+     * @param totalVariance The total variance
+     * @return The {@link PrincipalComponentAnalysis}
+     */
+    private static PrincipalComponentAnalysis create(double mean[], 
+        double diagonalized[], double eigenvectors[], double basis[],
+        int d, int m, int componentCount, double totalVariance)
+    {
+        Integer order[] = new Integer[m];
+        for (int i = 0; i < m; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i0, i1) -> Double.compare(
+            diagonalized[i1 * m + i1], diagonalized[i0 * m + i0]));
+        double components[] = new double[componentCount * d];
+        double variances[] = new double[componentCount];
+        for (int k = 0; k < componentCount; k++)
+        {
+            int e = order[k];
+            variances[k] = Math.max(0.0, diagonalized[e * m + e]);
+            int offset = k * d;
+            double maxAbs = -1.0;
+            double maxValue = 0.0;
+            for (int j = 0; j < d; j++)
+            {
+                double value = 0.0;
+                if (basis == null)
+                {
+                    value = eigenvectors[j * m + e];
+                }
+                else
+                {
+                    for (int c = 0; c < m; c++)
+                    {
+                        value += basis[j * m + c] * eigenvectors[c * m + e];
+                    }
+                }
+                components[offset + j] = value;
+                if (Math.abs(value) > maxAbs)
+                {
+                    maxAbs = Math.abs(value);
+                    maxValue = value;
+                }
+            }
+            double length = Math.sqrt(
+                dot(components, offset, components, offset, d));
+            double factor = (maxValue < 0 ? -1.0 : 1.0) / length;
+            for (int j = 0; j < d; j++)
+            {
+                components[offset + j] *= factor;
+            }
+        }
+        return new PrincipalComponentAnalysis(
+            mean, components, variances, totalVariance);
+    }
+    
+    /**
+     * Diagonalize the given symmetric matrix with the cyclic Jacobi 
+     * method. After this method returns, the diagonal of the given
+     * matrix will contain the eigenvalues, and the columns of the
+     * given eigenvector matrix will contain the eigenvectors
+     * 
+     * @param a The symmetric <code>m x m</code> matrix, in row-major order
+     * @param v The <code>m x m</code> matrix that will store the 
+     * eigenvectors
+     * @param m The size of the matrix
+     */
+    static void jacobi(double a[], double v[], int m)
+    {
+        Arrays.fill(v, 0.0);
+        double total = 0.0;
+        for (int i = 0; i < m; i++)
+        {
+            v[i * m + i] = 1.0;
+            for (int j = 0; j < m; j++)
+            {
+                total += a[i * m + j] * a[i * m + j];
+            }
+        }
+        double threshold = total * 1e-30;
+        for (int sweep = 0; sweep < MAX_JACOBI_SWEEPS; sweep++)
+        {
+            double off = 0.0;
+            for (int p = 0; p < m; p++)
+            {
+                for (int q = p + 1; q < m; q++)
+                {
+                    off += a[p * m + q] * a[p * m + q];
+                }
+            }
+            if (off <= threshold)
+            {
+                return;
+            }
+            for (int p = 0; p < m; p++)
+            {
+                for (int q = p + 1; q < m; q++)
+                {
+                    double apq = a[p * m + q];
+                    if (apq == 0.0)
+                    {
+                        continue;
+                    }
+                    double theta = 
+                        (a[q * m + q] - a[p * m + p]) / (2.0 * apq);
+                    double t = 1.0 / 
+                        (Math.abs(theta) + Math.sqrt(theta * theta + 1.0));
+                    if (theta < 0)
+                    {
+                        t = -t;
+                    }
+                    double c = 1.0 / Math.sqrt(t * t + 1.0);
+                    double s = t * c;
+                    for (int k = 0; k < m; k++)
+                    {
+                        double akp = a[k * m + p];
+                        double akq = a[k * m + q];
+                        a[k * m + p] = c * akp - s * akq;
+                        a[k * m + q] = s * akp + c * akq;
+                    }
+                    for (int k = 0; k < m; k++)
+                    {
+                        double apk = a[p * m + k];
+                        double aqk = a[q * m + k];
+                        a[p * m + k] = c * apk - s * aqk;
+                        a[q * m + k] = s * apk + c * aqk;
+                    }
+                    a[p * m + q] = 0.0;
+                    a[q * m + p] = 0.0;
+                    for (int k = 0; k < m; k++)
+                    {
+                        double vkp = v[k * m + p];
+                        double vkq = v[k * m + q];
+                        v[k * m + p] = c * vkp - s * vkq;
+                        v[k * m + q] = s * vkp + c * vkq;
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Compute the product of the covariance matrix of the given centered 
+     * tuples and the given <code>d x m</code> matrix, as 
+     * <code>X<sup>T</sup>(X Q) / n</code>, in parallel chunks of tuples
+     * whose partial results are added in a fixed order
+     * 
+     * @param centered The centered tuples, in row-major order
+     * @param n The number of tuples
+     * @param d The number of dimensions
+     * @param q The <code>d x m</code> matrix, in row-major order
+     * @param m The number of columns of the matrix
+     * @return The <code>d x m</code> product, in row-major order
+     */
+    private static double[] multiplyCovariance(
+        double centered[], int n, int d, double q[], int m)
+    {
+        int chunks = DoubleTupleCovariances.computeChunkCount(n);
+        double partials[][] = new double[chunks][];
+        IntStream.range(0, chunks).parallel().forEach(c -> 
+        {
+            double partial[] = new double[d * m];
+            double z[] = new double[m];
+            int min = DoubleTupleCovariances.chunkStart(n, chunks, c);
+            int max = DoubleTupleCovariances.chunkStart(n, chunks, c + 1);
+            for (int i = min; i < max; i++)
+            {
+                int offset = i * d;
+                Arrays.fill(z, 0.0);
+                for (int j = 0; j < d; j++)
+                {
+                    double x = centered[offset + j];
+                    int row = j * m;
+                    for (int k = 0; k < m; k++)
+                    {
+                        z[k] += x * q[row + k];
+                    }
+                }
+                for (int j = 0; j < d; j++)
+                {
+                    double x = centered[offset + j];
+                    int row = j * m;
+                    for (int k = 0; k < m; k++)
+                    {
+                        partial[row + k] += x * z[k];
+                    }
+                }
+            }
+            partials[c] = partial;
+        });
+        double result[] = partials[0];
+        for (int c = 1; c < chunks; c++)
+        {
+            double partial[] = partials[c];
+            for (int i = 0; i < result.length; i++)
+            {
+                result[i] += partial[i];
+            }
+        }
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] /= n;
+        }
+        return result;
+    }
+    
+    /**
+     * Orthonormalize the columns of the given <code>d x m</code> matrix
+     * with the modified Gram-Schmidt method. Columns that are linearly
+     * dependent on the previous columns are replaced with random vectors.
+     * 
+     * @param q The matrix, in row-major order
+     * @param d The number of rows
+     * @param m The number of columns
+     * @param random The random number generator
+     */
+    private static void orthonormalize(
+        double q[], int d, int m, Random random)
+    {
+        for (int c = 0; c < m; c++)
+        {
+            double initialLength = Math.sqrt(columnDot(q, d, m, c, c));
+            for (int attempt = 0; ; attempt++)
+            {
+                for (int p = 0; p < c; p++)
+                {
+                    double projection = columnDot(q, d, m, p, c);
+                    for (int j = 0; j < d; j++)
+                    {
+                        q[j * m + c] -= projection * q[j * m + p];
+                    }
+                }
+                double length = Math.sqrt(columnDot(q, d, m, c, c));
+                if (length > initialLength * 1e-10 || attempt > 2)
+                {
+                    double factor = length > 0 ? 1.0 / length : 0.0;
+                    for (int j = 0; j < d; j++)
+                    {
+                        q[j * m + c] *= factor;
+                    }
+                    break;
+                }
+                for (int j = 0; j < d; j++)
+                {
+                    q[j * m + c] = random.nextGaussian();
+                }
+                initialLength = Math.sqrt(columnDot(q, d, m, c, c));
+            }
+        }
+    }
+    
+    /**
+     * Compute the dot product of two columns of the given matrix
+     * 
+     * @param q The <code>d x m</code> matrix, in row-major order
+     * @param d The number of rows
+     * @param m The number of columns
+     * @param c0 The first column
+     * @param c1 The second column
+     * @return The dot product
+     */
+    private static double columnDot(double q[], int d, int m, int c0, int c1)
+    {
+        double sum = 0.0;
+        for (int j = 0; j < d; j++)
+        {
+            sum += q[j * m + c0] * q[j * m + c1];
+        }
+        return sum;
+    }
+    
+    /**
+     * Compute the dot product of two ranges of the given arrays
+     * 
+     * @param a The first array
+     * @param offsetA The offset in the first array
+     * @param b The second array
+     * @param offsetB The offset in the second array
+     * @param length The length of the ranges
+     * @return The dot product
+     */
+    private static double dot(
+        double a[], int offsetA, double b[], int offsetB, int length)
+    {
+        double sum = 0.0;
+        for (int i = 0; i < length; i++)
+        {
+            sum += a[offsetA + i] * b[offsetB + i];
+        }
+        return sum;
+    }
+    
+    /**
+     * Compute the sum of the squares of the elements of the given array
+     * 
+     * @param values The array
+     * @return The sum of squares
+     */
+    private static double computeSumOfSquares(double values[])
+    {
+        return IntStream.range(0, values.length).parallel()
+            .mapToDouble(i -> values[i] * values[i]).sum();
+    }
+    
+    /**
+     * Returns the number of dimensions of the tuples
+     * 
+     * @return The number of dimensions
+     */
+    public int getDimensions()
+    {
+        return dimensions;
+    }
+    
+    /**
+     * Returns the number of components
+     * 
+     * @return The number of components
+     */
+    public int getComponentCount()
+    {
+        return componentCount;
+    }
+    
+    /**
+     * Returns a copy of the mean of the tuples
+     * 
+     * @return The mean
+     */
+    public MutableDoubleTuple getMean()
+    {
+        return DoubleTuples.of(mean);
+    }
+    
+    /**
+     * Returns a copy of the specified component. This is a unit vector.
+     * 
+     * @param index The index of the component
+     * @return The component
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the number of components
+     */
+    public MutableDoubleTuple getComponent(int index)
+    {
+        checkIndex(index);
+        MutableDoubleTuple result = DoubleTuples.create(dimensions);
+        for (int j = 0; j < dimensions; j++)
+        {
+            result.set(j, components[index * dimensions + j]);
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the variance of the tuples along the specified component
+     * 
+     * @param index The index of the component
+     * @return The variance
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the number of components
+     */
+    public double getExplainedVariance(int index)
+    {
+        checkIndex(index);
+        return variances[index];
+    }
+    
+    /**
+     * Returns the ratio of the variance along the specified component
+     * and the total variance of the tuples. If the total variance is
+     * 0.0, then 0.0 is returned.
+     * 
+     * @param index The index of the component
+     * @return The ratio
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the number of components
+     */
+    public double getExplainedVarianceRatio(int index)
+    {
+        checkIndex(index);
+        if (totalVariance <= 0.0)
+        {
+            return 0.0;
+        }
+        return variances[index] / totalVariance;
+    }
+    
+    /**
+     * Returns the total variance of the tuples, which is the sum of
+     * the variances of all dimensions
+     * 
+     * @return The total variance
+     */
+    public double getTotalVariance()
+    {
+        return totalVariance;
+    }
+    
+    /**
+     * Transform the given tuple into the principal subspace. The element
+     * <code>k</code> of the result will be the dot product of the
+     * component <code>k</code> and the difference between the tuple 
+     * and the mean.
+     * 
+     * @param tuple The tuple
+     * @return The transformed tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of dimensions
+     */
+    public MutableDoubleTuple transform(DoubleTuple tuple)
+    {
+        checkSize(tuple, dimensions);
+        double centered[] = new double[dimensions];
+        for (int j = 0; j < dimensions; j++)
+        {
+            centered[j] = tuple.get(j) - mean[j];
+        }
+        MutableDoubleTuple result = DoubleTuples.create(componentCount);
+        for (int k = 0; k < componentCount; k++)
+        {
+            result.set(k, dot(components, k * dimensions, 
+                centered, 0, dimensions));
+        }
+        return result;
+    }
+    
+    /**
+     * Transform all given tuples into the principal subspace, in parallel.
+     * See {@link #transform(DoubleTuple)}.
+     * 
+     * @param tuples The tuples
+     * @return The transformed tuples
+     * @throws NullPointerException If the tuples are <code>null</code>
+     * @throws IllegalArgumentException If the size of any tuple is not
+     * the number of dimensions
+     */
+    public List<MutableDoubleTuple> transform(
+        List<? extends DoubleTuple> tuples)
+    {
+        Objects.requireNonNull(tuples, "The tuples are null");
+        int n = tuples.size();
+        MutableDoubleTuple transformed[] = new MutableDoubleTuple[n];
+        IntStream.range(0, n).parallel().forEach(i -> 
+            transformed[i] = transform(tuples.get(i)));
+        List<MutableDoubleTuple> result = 
+            new ArrayList<MutableDoubleTuple>(n);
+        for (MutableDoubleTuple t : transformed)
+        {
+            result.add(t);
+        }
+        return result;
+    }
+    
+    /**
+     * Transform the given tuple from the principal subspace back into 
+     * the original space. This is the mean, plus the sum of the 
+     * components, weighted with the elements of the given tuple.
+     * 
+     * @param tuple The tuple
+     * @return The reconstructed tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of components
+     */
+    public MutableDoubleTuple inverseTransform(DoubleTuple tuple)
+    {
+        checkSize(tuple, componentCount);
+        double result[] = mean.clone();
+        for (int k = 0; k < componentCount; k++)
+        {
+            double weight = tuple.get(k);
+            int offset = k * dimensions;
+            for (int j = 0; j < dimensions; j++)
+            {
+                result[j] += weight * components[offset + j];
+            }
+        }
+        return DoubleTuples.wrap(result);
+    }
+    
+    /**
+     * Make sure that the given index is a valid component index
+     * 
+     * @param index The index
+     * @throws IndexOutOfBoundsException If the index is not valid
+     */
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= componentCount)
+        {
+            throw new IndexOutOfBoundsException(
+                "Component index " + index + " is out of range for " + 
+                componentCount + " components");
+        }
+    }
+    
+    /**
+     * Make sure that the given tuple has the given size
+     * 
+     * @param tuple The tuple
+     * @param size The size
+     * @throws IllegalArgumentException If the tuple does not have 
+     * the given size
+     */
+    private static void checkSize(DoubleTuple tuple, int size)
+    {
+        if (tuple.getSize() != size)
+        {
+            throw new IllegalArgumentException(
+                "Expected a tuple of size " + size + 
+                ", but found size " + tuple.getSize());
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.distance.BoundedMaxHeap;
+import de.javagl.nd.distance.Neighbor;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.MutableDoubleTuple;
+
+/**
+ * A compressed collection of {@link DoubleTuple}s, which stores the 
+ * codes that are computed by a {@link ProductQuantizer}.<br>
+ * <br>
+ * The codes are stored in blocks of byte arrays, so that the number of 
+ * tuples is not limited by the maximum array size. Nearest neighbor 
+ * queries scan the codes of all blocks in parallel, using the 
+ * asymmetric distance computation of the quantizer. The distances that
+ * are reported are therefore approximations of the Euclidean distances
+ * between the query and the original tuples.<br>
+ * <br>
+ * Queries may be performed concurrently, but not while tuples are 
+ * added.
+ */
+public final class ProductQuantizedTuples
+{
+    /**
+     * The number of tuples in one block
+     */
+    private static final int BLOCK_SIZE = 1 << 16;
+    
+    /**
+     * The quantizer
+     */
+    private final ProductQuantizer quantizer;
+    
+    /**
+     * The number of bytes per code
+     */
+    private final int codeSize;
+    
+    /**
+     * The blocks of codes
+     */
+    private final List<byte[]> blocks;
+    
+    /**
+     * The number of tuples
+     */
+    private int size;
+    
+    /**
+     * Creates a new, empty collection using the given quantizer
+     * 
+     * @param quantizer The quantizer
+     * @throws NullPointerException If the quantizer is <code>null</code>
+     */
+    public ProductQuantizedTuples(ProductQuantizer quantizer)
+    {
+        this.quantizer = Objects.requireNonNull(
+            quantizer, "The quantizer is null");
+        this.codeSize = quantizer.getSubspaceCount();
+        this.blocks = new ArrayList<byte[]>();
+    }
+    
+    /**
+     * Returns the quantizer of this collection
+     * 
+     * @return The quantizer
+     */
+    public ProductQuantizer getQuantizer()
+    {
+        return quantizer;
+    }
+    
+    /**
+     * Returns the number of tuples in this collection
+     * 
+     * @return The size
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Add the given tuple to this collection
+     * 
+     * @param tuple The tuple
+     * @return The index of the tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of dimensions of the quantizer
+     */
+    public int add(DoubleTuple tuple)
+    {
+        ensureCapacity(size + 1);
+        quantizer.encode(tuple, 
+            blocks.get(size / BLOCK_SIZE), (size % BLOCK_SIZE) * codeSize);
+        return size++;
+    }
+    
+    /**
+     * Add all given tuples to this collection. The tuples are encoded in
+     * parallel, and receive consecutive indices in the order of the given
+     * list.
+     * 
+     * @param tuples The tuples
+     * @return The index of the first tuple
+     * @throws IllegalArgumentException If the size of any tuple is not
+     * the number of dimensions of the quantizer
+     */
+    public int addAll(List<? extends DoubleTuple> tuples)
+    {
+        int first = size;
+        ensureCapacity(size + tuples.size());
+        IntStream.range(0, tuples.size()).parallel().forEach(i -> 
+        {
+            int index = first + i;
+            quantizer.encode(tuples.get(i), blocks.get(index / BLOCK_SIZE), 
+                (index % BLOCK_SIZE) * codeSize);
+        });
+        size += tuples.size();
+        return first;
+    }
+    
+    /**
+     * Make sure that there are enough blocks for the given number of
+     * tuples
+     * 
+     * @param capacity The capacity
+     */
+    private void ensureCapacity(int capacity)
+    {
+        while (blocks.size() * (long)BLOCK_SIZE < capacity)
+        {
+            blocks.add(new byte[BLOCK_SIZE * codeSize]);
+        }
+    }
+    
+    /**
+     * Returns the decoded approximation of the tuple with the given index
+     * 
+     * @param index The index
+     * @return The decoded tuple
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the size of this collection
+     */
+    public MutableDoubleTuple get(int index)
+    {
+        checkIndex(index);
+        return quantizer.decode(blocks.get(index / BLOCK_SIZE), 
+            (index % BLOCK_SIZE) * codeSize);
+    }
+    
+    /**
+     * Returns a copy of the code of the tuple with the given index
+     * 
+     * @param index The index
+     * @return The code
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the size of this collection
+     */
+    public byte[] getCode(int index)
+    {
+        checkIndex(index);
+        byte code[] = new byte[codeSize];
+        System.arraycopy(blocks.get(index / BLOCK_SIZE), 
+            (index % BLOCK_SIZE) * codeSize, code, 0, codeSize);
+        return code;
+    }
+    
+    /**
+     * Make sure that the given index is valid
+     * 
+     * @param index The index
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the size of this collection
+     */
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException(
+                "Index: " + index + ", size: " + size);
+        }
+    }
+    
+    /**
+     * Computes the approximate Euclidean distances between the given query
+     * and all tuples of this collection, in parallel
+     * 
+     * @param query The query
+     * @param result The array that will store the distances
+     * @throws IllegalArgumentException If the size of the query is not
+     * the number of dimensions of the quantizer, or the result array is
+     * smaller than the size of this collection
+     */
+    public void computeDistances(DoubleTuple query, double result[])
+    {
+        if (result.length < size)
+        {
+            throw new IllegalArgumentException(
+                "The result array has a length of " + result.length + 
+                ", but the size is " + size);
+        }
+        double table[] = quantizer.computeDistanceTable(query);
+        IntStream.range(0, blocks.size()).parallel().forEach(b -> 
+        {
+            int from = b * BLOCK_SIZE;
+            int count = Math.min(BLOCK_SIZE, size - from);
+            if (count <= 0)
+            {
+                return;
+            }
+            double distances[] = new double[count];
+            quantizer.computeSquaredDistances(
+                table, blocks.get(b), 0, count, distances);
+            for (int i = 0; i < count; i++)
+            {
+                result[from + i] = Math.sqrt(distances[i]);
+            }
+        });
+    }
+    
+    /**
+     * Returns the <code>k</code> tuples that have the smallest approximate
+     * Euclidean distance to the given query. The neighbors are sorted by
+     * their distance, and neighbors with equal distances are sorted by 
+     * their index. The elements of the neighbors are the decoded 
+     * approximations of the tuples.
+     * 
+     * @param query The query
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors
+     * @throws IllegalArgumentException If the size of the query is not
+     * the number of dimensions of the quantizer, or <code>k</code> is 
+     * not positive
+     */
+    public List<Neighbor<DoubleTuple>> findNearest(DoubleTuple query, int k)
+    {
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of neighbors must be positive, but is " + k);
+        }
+        double table[] = quantizer.computeDistanceTable(query);
+        BoundedMaxHeap heap = IntStream.range(0, blocks.size()).parallel()
+            .mapToObj(b -> scanBlock(table, b, k))
+            .reduce(new BoundedMaxHeap(k), (h0, h1) -> 
+            {
+                BoundedMaxHeap merged = new BoundedMaxHeap(k);
+                merged.offerAll(h0);
+                merged.offerAll(h1);
+                return merged;
+            });
+        double squaredDistances[] = new double[heap.size()];
+        int indices[] = heap.toSortedIndices(squaredDistances);
+        List<Neighbor<DoubleTuple>> result = 
+            new ArrayList<Neighbor<DoubleTuple>>(indices.length);
+        for (int i = 0; i < indices.length; i++)
+        {
+            int index = indices[i];
+            result.add(new Neighbor<DoubleTuple>(
+                get(index), index, Math.sqrt(squaredDistances[i])));
+        }
+        return result;
+    }
+    
+    /**
+     * Scan the codes of the given block, and return a heap containing
+     * the nearest neighbors, based on the approximate squared distances
+     * 
+     * @param table The distance table
+     * @param b The block index
+     * @param k The maximum number of neighbors
+     * @return The heap
+     */
+    private BoundedMaxHeap scanBlock(double table[], int b, int k)
+    {
+        BoundedMaxHeap heap = new BoundedMaxHeap(k);
+        int from = b * BLOCK_SIZE;
+        int count = Math.min(BLOCK_SIZE, size - from);
+        if (count <= 0)
+        {
+            return heap;
+        }
+        double distances[] = new double[count];
+        quantizer.computeSquaredDistances(
+            table, blocks.get(b), 0, count, distances);
+        for (int i = 0; i < count; i++)
+        {
+            if (distances[i] <= heap.threshold())
+            {
+                heap.offer(distances[i], from + i);
+            }
+        }
+        return heap;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "ProductQuantizedTuples[" + 
+            "size=" + size + 
+            ", quantizer=" + quantizer + "]";
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.List;
+import java.util.Objects;
+
+import de.javagl.nd.distance.clustering.KMeans;
+import de.javagl.nd.distance.clustering.KMeansResult;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTupleKernels;
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.d.MutableDoubleTuple;
+
+/**
+ * A product quantizer for compressing {@link DoubleTuple}s into short 
+ * byte codes.<br>
+ * <br>
+ * The dimensions of the tuples are divided into a number of consecutive
+ * subspaces. For each subspace, a codebook with up to 256 centroids is 
+ * trained with {@link KMeans k-means} clustering on a sample of tuples. 
+ * A tuple is encoded by storing, for each subspace, the index of the 
+ * nearest centroid as one byte. A 128-dimensional tuple with 16 
+ * subspaces thus occupies 16 bytes instead of 1024 bytes.<br>
+ * <br>
+ * The squared Euclidean distance between a query tuple and an encoded 
+ * tuple can be approximated with an <i>asymmetric distance computation</i>:
+ * The squared distances between the query and all centroids are stored
+ * in a {@link #computeDistanceTable(DoubleTuple) distance table} once, 
+ * and the approximate distance to an encoded tuple is then the sum of 
+ * one table entry per subspace.<br>
+ * <br>
+ * Instances of this class are immutable and may be used by multiple
+ * threads.
+ * 
+ * @see ProductQuantizedTuples
+ */
+public final class ProductQuantizer
+{
+    /**
+     * The maximum number of centroids per subspace
+     */
+    private static final int MAX_CENTROIDS = 256;
+    
+    /**
+     * The number of dimensions
+     */
+    private final int dimensions;
+    
+    /**
+     * The number of subspaces
+     */
+    private final int subspaces;
+    
+    /**
+     * The number of centroids per subspace
+     */
+    private final int centroidCount;
+    
+    /**
+     * The start of each subspace. The last element is the number of 
+     * dimensions.
+     */
+    private final int subspaceStarts[];
+    
+    /**
+     * The centroids. For each subspace <code>s</code> with a size of
+     * <code>w</code>, the centroid <code>c</code> is stored at the offset 
+     * <code>subspaceStarts[s] * centroidCount + c * w</code>.
+     */
+    private final double centroids[];
+    
+    /**
+     * Creates a new product quantizer
+     * 
+     * @param dimensions The number of dimensions
+     * @param subspaces The number of subspaces
+     * @param centroidCount The number of centroids per subspace
+     * @param subspaceStarts The start of each subspace
+     * @param centroids The centroids
+     */
+    private ProductQuantizer(int dimensions, int subspaces, int centroidCount,
+        int subspaceStarts[], double centroids[])
+    {
+        this.dimensions = dimensions;
+        this.subspaces = subspaces;
+        this.centroidCount = centroidCount;
+        this.subspaceStarts = subspaceStarts;
+        this.centroids = centroids;
+    }
+    
+    /**
+     * Train a new product quantizer on the given sample of tuples.<br>
+     * <br>
+     * The dimensions are divided into the given number of subspaces, 
+     * which have the same size if the number of dimensions is a multiple
+     * of the number of subspaces. For each subspace, the given number of 
+     * centroids is computed with k-means clustering of the sample.
+     * 
+     * @param sample The sample of tuples
+     * @param subspaces The number of subspaces
+     * @param centroidCount The number of centroids per subspace, at 
+     * most 256
+     * @param seed The seed for the clustering
+     * @return The product quantizer
+     * @throws NullPointerException If the sample is <code>null</code>
+     * @throws IllegalArgumentException If the sample is empty, the 
+     * tuples do not all have the same size, the number of subspaces is
+     * not positive or larger than the number of dimensions, the number 
+     * of centroids is not between 1 and 256, or the sample contains 
+     * fewer tuples than the number of centroids
+     */
+    public static ProductQuantizer train(List<? extends DoubleTuple> sample,
+        int subspaces, int centroidCount, long seed)
+    {
+        Objects.requireNonNull(sample, "The sample is null");
+        if (sample.isEmpty())
+        {
+            throw new IllegalArgumentException("The sample is empty");
+        }
+        int dimensions = sample.get(0).getSize();
+        if (subspaces <= 0 || subspaces > dimensions)
+        {
+            throw new IllegalArgumentException(
+                "The number of subspaces must be between 1 and " + 
+                dimensions + ", but is " + subspaces);
+        }
+        if (centroidCount <= 0 || centroidCount > MAX_CENTROIDS)
+        {
+            throw new IllegalArgumentException(
+                "The number of centroids must be between 1 and " + 
+                MAX_CENTROIDS + ", but is " + centroidCount);
+        }
+        int n = sample.size();
+        double data[] = new double[n * dimensions];
+        for (int i = 0; i < n; i++)
+        {
+            DoubleTuple tuple = sample.get(i);
+            if (tuple.getSize() != dimensions)
+            {
+                throw new IllegalArgumentException(
+                    "Expected tuples of size " + dimensions + 
+                    ", but found a tuple of size " + tuple.getSize());
+            }
+            for (int x = 0; x < dimensions; x++)
+            {
+                data[i * dimensions + x] = tuple.get(x);
+            }
+        }
+        int subspaceStarts[] = new int[subspaces + 1];
+        for (int s = 0; s <= subspaces; s++)
+        {
+            subspaceStarts[s] = (int)((long)s * dimensions / subspaces);
+        }
+        double centroids[] = new double[dimensions * centroidCount];
+        KMeans kMeans = new KMeans(centroidCount);
+        for (int s = 0; s < subspaces; s++)
+        {
+            int start = subspaceStarts[s];
+            int width = subspaceStarts[s + 1] - start;
+            double subData[] = new double[n * width];
+            for (int i = 0; i < n; i++)
+            {
+                System.arraycopy(data, i * dimensions + start, 
+                    subData, i * width, width);
+            }
+            kMeans.setSeed(seed + s);
+            KMeansResult result = kMeans.cluster(
+                DoubleTuples.wrapPacked(subData, width));
+            for (int c = 0; c < centroidCount; c++)
+            {
+                DoubleTuple centroid = result.getCentroid(c);
+                for (int x = 0; x < width; x++)
+                {
+                    centroids[start * centroidCount + c * width + x] = 
+                        centroid.get(x);
+                }
+            }
+        }
+        return new ProductQuantizer(dimensions, subspaces, centroidCount, 
+            subspaceStarts, centroids);
+    }
+    
+    /**
+     * Returns the number of dimensions of the tuples
+     * 
+     * @return The number of dimensions
+     */
+    public int getDimensions()
+    {
+        return dimensions;
+    }
+    
+    /**
+     * Returns the number of subspaces. This is the number of bytes of 
+     * each code.
+     * 
+     * @return The number of subspaces
+     */
+    public int getSubspaceCount()
+    {
+        return subspaces;
+    }
+    
+    /**
+     * Returns the number of centroids per subspace
+     * 
+     * @return The number of centroids
+     */
+    public int getCentroidCount()
+    {
+        return centroidCount;
+    }
+    
+    /**
+     * Encode the given tuple, and return the code
+     * 
+     * @param tuple The tuple
+     * @return The code
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of dimensions of this quantizer
+     */
+    public byte[] encode(DoubleTuple tuple)
+    {
+        byte code[] = new byte[subspaces];
+        encode(tuple, code, 0);
+        return code;
+    }
+    
+    /**
+     * Encode the given tuple, and write the code into the given array,
+     * starting at the given offset
+     * 
+     * @param tuple The tuple
+     * @param codes The array that will store the code
+     * @param offset The offset in the array
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of dimensions of this quantizer
+     * @throws IndexOutOfBoundsException If the array is too small
+     */
+    public void encode(DoubleTuple tuple, byte codes[], int offset)
+    {
+        checkSize(tuple);
+        double v[] = DoubleTuples.toArray(tuple);
+        for (int s = 0; s < subspaces; s++)
+        {
+            int start = subspaceStarts[s];
+            int width = subspaceStarts[s + 1] - start;
+            int base = start * centroidCount;
+            int best = 0;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < centroidCount; c++)
+            {
+                double distance = DoubleTupleKernels.sumOfSquaredDifferences(
+                    v, start, centroids, base + c * width, width);
+                if (distance < bestDistance)
+                {
+                    bestDistance = distance;
+                    best = c;
+                }
+            }
+            codes[offset + s] = (byte)best;
+        }
+    }
+    
+    /**
+     * Decode the code that starts at the given offset in the given array.
+     * The result is the tuple that consists of the centroids of all 
+     * subspaces.
+     * 
+     * @param codes The codes
+     * @param offset The offset of the code
+     * @return The decoded tuple
+     * @throws IndexOutOfBoundsException If the array is too small
+     */
+    public MutableDoubleTuple decode(byte codes[], int offset)
+    {
+        double result[] = new double[dimensions];
+        for (int s = 0; s < subspaces; s++)
+        {
+            int start = subspaceStarts[s];
+            int width = subspaceStarts[s + 1] - start;
+            int c = codes[offset + s] & 0xFF;
+            System.arraycopy(centroids, start * centroidCount + c * width, 
+                result, start, width);
+        }
+        return DoubleTuples.wrap(result);
+    }
+    
+    /**
+     * Computes the table of the squared Euclidean distances between the 
+     * given query and all centroids. The distance to centroid 
+     * <code>c</code> in subspace <code>s</code> is stored at index
+     * <code>s * getCentroidCount() + c</code>.
+     * 
+     * @param query The query
+     * @return The distance table
+     * @throws IllegalArgumentException If the size of the query is not
+     * the number of dimensions of this quantizer
+     */
+    public double[] computeDistanceTable(DoubleTuple query)
+    {
+        checkSize(query);
+        double v[] = DoubleTuples.toArray(query);
+        double table[] = new double[subspaces * centroidCount];
+        for (int s = 0; s < subspaces; s++)
+        {
+            int start = subspaceStarts[s];
+            int width = subspaceStarts[s + 1] - start;
+            int base = start * centroidCount;
+            for (int c = 0; c < centroidCount; c++)
+            {
+                table[s * centroidCount + c] = 
+                    DoubleTupleKernels.sumOfSquaredDifferences(
+                        v, start, centroids, base + c * width, width);
+            }
+        }
+        return table;
+    }
+    
+    /**
+     * Computes the approximate squared Euclidean distance between the 
+     * query for which the given table was computed, and the tuple with 
+     * the code that starts at the given offset.
+     * 
+     * @param table The {@link #computeDistanceTable(DoubleTuple) table}
+     * @param codes The codes
+     * @param offset The offset of the code
+     * @return The approximate squared distance
+     */
+    public double computeSquaredDistance(
+        double table[], byte codes[], int offset)
+    {
+        double sum = 0;
+        int t = 0;
+        for (int s = 0; s < subspaces; s++)
+        {
+            sum += table[t + (codes[offset + s] & 0xFF)];
+            t += centroidCount;
+        }
+        return sum;
+    }
+    
+    /**
+     * Computes the approximate squared Euclidean distances between the 
+     * query for which the given table was computed, and the given number
+     * of consecutive codes that start at the given offset
+     * 
+     * @param table The {@link #computeDistanceTable(DoubleTuple) table}
+     * @param codes The codes
+     * @param offset The offset of the first code
+     * @param count The number of codes
+     * @param result The array that will store the squared distances
+     * @throws IndexOutOfBoundsException If the codes or the result array
+     * are too small
+     */
+    public void computeSquaredDistances(double table[], 
+        byte codes[], int offset, int count, double result[])
+    {
+        int o = offset;
+        for (int i = 0; i < count; i++)
+        {
+            double sum = 0;
+            int t = 0;
+            for (int s = 0; s < subspaces; s++)
+            {
+                sum += table[t + (codes[o + s] & 0xFF)];
+                t += centroidCount;
+            }
+            result[i] = sum;
+            o += subspaces;
+        }
+    }
+    
+    /**
+     * Make sure that the given tuple has the right size
+     * 
+     * @param tuple The tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of dimensions of this quantizer
+     */
+    private void checkSize(DoubleTuple tuple)
+    {
+        if (tuple.getSize() != dimensions)
+        {
+            throw new IllegalArgumentException(
+                "Expected a tuple of size " + dimensions + 
+                ", but the size is " + tuple.getSize());
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "ProductQuantizer[" + 
+            "dimensions=" + dimensions + 
+            ", subspaces=" + subspaces + 
+            ", centroids=" + centroidCount + "]";
+    }
+}
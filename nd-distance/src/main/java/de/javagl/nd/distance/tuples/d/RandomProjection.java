@@ -0,0 +1,529 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.d.MutableDoubleTuple;
+
+/**
+ * A random linear projection of {@link DoubleTuple}s into a space with
+ * a lower dimension.<br>
+ * <br>
+ * According to the Johnson-Lindenstrauss lemma, such a projection 
+ * approximately preserves the Euclidean distances between the tuples
+ * when the output dimension is large enough. This may be used for 
+ * speeding up nearest neighbor searches or clustering in 
+ * high-dimensional spaces. The required number of dimensions may be 
+ * estimated with {@link #computeMinimumDimensions(int, double)}.<br>
+ * <br>
+ * The entries of the projection matrix are either drawn from a 
+ * Gaussian distribution, or from the sparse distribution that was 
+ * proposed by Achlioptas, where two thirds of the entries are zero. 
+ * The entries are scaled so that the expected squared length of the 
+ * projected tuples is the squared length of the input tuples.<br>
+ * <br>
+ * The entries for each input dimension are generated from a random 
+ * number generator that is seeded with a combination of the seed of 
+ * the projection and the dimension. So the projection is reproducible, 
+ * and the matrix does not have to be stored: When the matrix is small,
+ * it is generated once. Otherwise, the collections of tuples are
+ * processed in chunks, and the matrix is generated block-wise for each
+ * chunk, so that only a small part of it has to be kept in memory.<br>
+ * <br>
+ * Instances of this class are immutable and may be used by multiple
+ * threads.
+ */
+public final class RandomProjection
+{
+    /**
+     * The maximum number of matrix entries for which the matrix is 
+     * generated once and stored
+     */
+    private static final long MAX_STORED_ENTRIES = 1L << 22;
+    
+    /**
+     * The maximum number of matrix entries in one block that is 
+     * generated while processing a chunk of tuples
+     */
+    private static final int MAX_BLOCK_ENTRIES = 1 << 16;
+    
+    /**
+     * The number of tuples in one chunk
+     */
+    private static final int CHUNK_SIZE = 1024;
+    
+    /**
+     * A set of matrix columns in compressed sparse form. Each column
+     * corresponds to one input dimension, and contains the non-zero 
+     * entries for the output dimensions.
+     */
+    private static final class Columns
+    {
+        /**
+         * The start of each column in the indices and values. The last
+         * element is the number of entries.
+         */
+        final int starts[];
+        
+        /**
+         * The output dimension of each entry
+         */
+        final int indices[];
+        
+        /**
+         * The value of each entry
+         */
+        final double values[];
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param starts The starts
+         * @param indices The indices
+         * @param values The values
+         */
+        Columns(int starts[], int indices[], double values[])
+        {
+            this.starts = starts;
+            this.indices = indices;
+            this.values = values;
+        }
+    }
+    
+    /**
+     * The number of input dimensions
+     */
+    private final int inputDimensions;
+    
+    /**
+     * The number of output dimensions
+     */
+    private final int outputDimensions;
+    
+    /**
+     * The seed
+     */
+    private final long seed;
+    
+    /**
+     * Whether the matrix is sparse
+     */
+    private final boolean sparse;
+    
+    /**
+     * The columns of the whole matrix, or <code>null</code> if the 
+     * matrix is too large to be stored
+     */
+    private final Columns storedColumns;
+    
+    /**
+     * Creates a new projection
+     * 
+     * @param inputDimensions The number of input dimensions
+     * @param outputDimensions The number of output dimensions
+     * @param seed The seed
+     * @param sparse Whether the matrix is sparse
+     * @throws IllegalArgumentException If any dimension is not positive
+     */
+    private RandomProjection(int inputDimensions, int outputDimensions, 
+        long seed, boolean sparse)
+    {
+        if (inputDimensions <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The input dimensions must be positive, but are " + 
+                inputDimensions);
+        }
+        if (outputDimensions <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The output dimensions must be positive, but are " + 
+                outputDimensions);
+        }
+        this.inputDimensions = inputDimensions;
+        this.outputDimensions = outputDimensions;
+        this.seed = seed;
+        this.sparse = sparse;
+        if ((long)inputDimensions * outputDimensions <= MAX_STORED_ENTRIES)
+        {
+            this.storedColumns = generateColumns(0, inputDimensions);
+        }
+        else
+        {
+            this.storedColumns = null;
+        }
+    }
+    
+    /**
+     * Creates a new projection with a dense matrix whose entries are 
+     * drawn from a normal distribution with a variance of 
+     * <code>1 / outputDimensions</code>
+     * 
+     * @param inputDimensions The number of input dimensions
+     * @param outputDimensions The number of output dimensions
+     * @param seed The seed for the random number generator
+     * @return The projection
+     * @throws IllegalArgumentException If any dimension is not positive
+     */
+    public static RandomProjection gaussian(
+        int inputDimensions, int outputDimensions, long seed)
+    {
+        return new RandomProjection(
+            inputDimensions, outputDimensions, seed, false);
+    }
+    
+    /**
+     * Creates a new projection with a sparse matrix as proposed by 
+     * Achlioptas: Each entry is <code>+s</code> or <code>-s</code> with
+     * a probability of 1/6 each, and 0 with a probability of 2/3, where 
+     * <code>s = sqrt(3 / outputDimensions)</code>
+     * 
+     * @param inputDimensions The number of input dimensions
+     * @param outputDimensions The number of output dimensions
+     * @param seed The seed for the random number generator
+     * @return The projection
+     * @throws IllegalArgumentException If any dimension is not positive
+     */
+    public static RandomProjection achlioptas(
+        int inputDimensions, int outputDimensions, long seed)
+    {
+        return new RandomProjection(
+            inputDimensions, outputDimensions, seed, true);
+    }
+    
+    /**
+     * Computes the number of output dimensions that, according to the 
+     * Johnson-Lindenstrauss lemma, is sufficient for preserving the 
+     * pairwise distances between the given number of tuples up to a 
+     * factor of <code>(1 +/- epsilon)</code> with a high probability
+     * 
+     * @param count The number of tuples
+     * @param epsilon The maximum relative distortion, between 0 and 1
+     * @return The number of dimensions
+     * @throws IllegalArgumentException If the count is not positive, or
+     * epsilon is not between 0 and 1 (exclusive)
+     */
+    public static int computeMinimumDimensions(int count, double epsilon)
+    {
+        if (count <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The count must be positive, but is " + count);
+        }
+        if (!(epsilon > 0 && epsilon < 1))
+        {
+            throw new IllegalArgumentException(
+                "The epsilon must be between 0 and 1, but is " + epsilon);
+        }
+        double denominator = 
+            epsilon * epsilon / 2 - epsilon * epsilon * epsilon / 3;
+        return (int)Math.ceil(4 * Math.log(Math.max(count, 2)) / denominator);
+    }
+    
+    /**
+     * Returns the number of input dimensions
+     * 
+     * @return The number of input dimensions
+     */
+    public int getInputDimensions()
+    {
+        return inputDimensions;
+    }
+    
+    /**
+     * Returns the number of output dimensions
+     * 
+     * @return The number of output dimensions
+     */
+    public int getOutputDimensions()
+    {
+        return outputDimensions;
+    }
+    
+    /**
+     * Project the given tuple. If the matrix of this projection is too 
+     * large to be stored, then it will be generated for each call, so
+     * {@link #project(List)} should be used for projecting many tuples.
+     * 
+     * @param tuple The tuple
+     * @return The projected tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of input dimensions
+     */
+    public MutableDoubleTuple project(DoubleTuple tuple)
+    {
+        checkSize(tuple);
+        double input[] = DoubleTuples.toArray(tuple);
+        double output[] = new double[outputDimensions];
+        projectPacked(input, output, 0, 1);
+        return DoubleTuples.wrap(output);
+    }
+    
+    /**
+     * Project all given tuples, in parallel
+     * 
+     * @param tuples The tuples
+     * @return The projected tuples
+     * @throws IllegalArgumentException If the size of any tuple is not
+     * the number of input dimensions
+     */
+    public List<MutableDoubleTuple> project(List<? extends DoubleTuple> tuples)
+    {
+        Objects.requireNonNull(tuples, "The tuples are null");
+        int n = tuples.size();
+        double output[] = new double[n * outputDimensions];
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(c -> 
+        {
+            int from = c * CHUNK_SIZE;
+            int count = Math.min(CHUNK_SIZE, n - from);
+            double input[] = new double[count * inputDimensions];
+            for (int i = 0; i < count; i++)
+            {
+                DoubleTuple tuple = tuples.get(from + i);
+                checkSize(tuple);
+                for (int x = 0; x < inputDimensions; x++)
+                {
+                    input[i * inputDimensions + x] = tuple.get(x);
+                }
+            }
+            projectPacked(input, output, from, count);
+        });
+        List<MutableDoubleTuple> result = 
+            new ArrayList<MutableDoubleTuple>(n);
+        for (int i = 0; i < n; i++)
+        {
+            result.add(DoubleTuples.wrap(
+                output, i * outputDimensions, outputDimensions));
+        }
+        return result;
+    }
+    
+    /**
+     * Project the given number of tuples that are stored consecutively 
+     * in the given array, in parallel
+     * 
+     * @param data The packed input tuples
+     * @param count The number of tuples
+     * @return The packed projected tuples
+     * @throws IllegalArgumentException If the array contains fewer than 
+     * <code>count</code> tuples with the input dimensions
+     */
+    public double[] projectPacked(double data[], int count)
+    {
+        if ((long)count * inputDimensions > data.length)
+        {
+            throw new IllegalArgumentException(
+                "The data has a length of " + data.length + ", but " + 
+                count + " tuples with " + inputDimensions + 
+                " dimensions are expected");
+        }
+        double output[] = new double[count * outputDimensions];
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(c -> 
+        {
+            int from = c * CHUNK_SIZE;
+            int chunkCount = Math.min(CHUNK_SIZE, count - from);
+            double input[] = new double[chunkCount * inputDimensions];
+            System.arraycopy(data, from * inputDimensions, 
+                input, 0, input.length);
+            projectPacked(input, output, from, chunkCount);
+        });
+        return output;
+    }
+    
+    /**
+     * Project the given number of tuples from the given input array, and
+     * write the results into the given output array, starting at the 
+     * given tuple index
+     * 
+     * @param input The packed input tuples
+     * @param output The packed output tuples
+     * @param outputIndex The index of the first output tuple
+     * @param count The number of tuples
+     */
+    private void projectPacked(
+        double input[], double output[], int outputIndex, int count)
+    {
+        if (storedColumns != null)
+        {
+            apply(storedColumns, 0, inputDimensions, 
+                input, output, outputIndex, count);
+            return;
+        }
+        int blockWidth = Math.max(1, MAX_BLOCK_ENTRIES / outputDimensions);
+        for (int c0 = 0; c0 < inputDimensions; c0 += blockWidth)
+        {
+            int c1 = Math.min(inputDimensions, c0 + blockWidth);
+            Columns columns = generateColumns(c0, c1);
+            apply(columns, c0, c1, input, output, outputIndex, count);
+        }
+    }
+    
+    /**
+     * Multiply the given input tuples with the given columns, and add
+     * the results to the given output tuples
+     * 
+     * @param columns The columns
+     * @param c0 The first input dimension of the columns, inclusive
+     * @param c1 The last input dimension of the columns, exclusive
+     * @param input The packed input tuples
+     * @param output The packed output tuples
+     * @param outputIndex The index of the first output tuple
+     * @param count The number of tuples
+     */
+    private void apply(Columns columns, int c0, int c1, 
+        double input[], double output[], int outputIndex, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            int inputOffset = i * inputDimensions;
+            int outputOffset = (outputIndex + i) * outputDimensions;
+            for (int c = c0; c < c1; c++)
+            {
+                double value = input[inputOffset + c];
+                if (value == 0)
+                {
+                    continue;
+                }
+                int end = columns.starts[c - c0 + 1];
+                for (int e = columns.starts[c - c0]; e < end; e++)
+                {
+                    output[outputOffset + columns.indices[e]] += 
+                        value * columns.values[e];
+                }
+            }
+        }
+    }
+    
+    /**
+     * Generate the matrix columns for the given input dimensions
+     * 
+     * @param c0 The first input dimension, inclusive
+     * @param c1 The last input dimension, exclusive
+     * @return The columns
+     */
+    private Columns generateColumns(int c0, int c1)
+    {
+        int width = c1 - c0;
+        int starts[] = new int[width + 1];
+        int indices[] = new int[width * outputDimensions];
+        double values[] = new double[width * outputDimensions];
+        int n = 0;
+        double scale = 1.0 / Math.sqrt(outputDimensions);
+        double sparseScale = Math.sqrt(3.0) * scale;
+        for (int c = c0; c < c1; c++)
+        {
+            starts[c - c0] = n;
+            SplittableRandom random = new SplittableRandom(mix(seed, c));
+            for (int o = 0; o < outputDimensions; o++)
+            {
+                if (sparse)
+                {
+                    int r = random.nextInt(6);
+                    if (r < 2)
+                    {
+                        indices[n] = o;
+                        values[n] = r == 0 ? sparseScale : -sparseScale;
+                        n++;
+                    }
+                }
+                else
+                {
+                    indices[n] = o;
+                    values[n] = nextGaussian(random) * scale;
+                    n++;
+                }
+            }
+        }
+        starts[width] = n;
+        return new Columns(starts, indices, values);
+    }
+    
+    /**
+     * Combine the given seed and column index into a seed for the 
+     * random number generator of the column
+     * 
+     * @param seed The seed
+     * @param column The column
+     * @return The combined seed
+     */
+    private static long mix(long seed, int column)
+    {
+        long z = seed + (column + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Returns a normally distributed random value, computed with the
+     * Box-Muller transform
+     * 
+     * @param random The random number generator
+     * @return The value
+     */
+    private static double nextGaussian(SplittableRandom random)
+    {
+        double u = 1.0 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+    }
+    
+    /**
+     * Make sure that the given tuple has the right size
+     * 
+     * @param tuple The tuple
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of input dimensions
+     */
+    private void checkSize(DoubleTuple tuple)
+    {
+        if (tuple.getSize() != inputDimensions)
+        {
+            throw new IllegalArgumentException(
+                "Expected a tuple of size " + inputDimensions + 
+                ", but the size is " + tuple.getSize());
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "RandomProjection[" + 
+            "inputDimensions=" + inputDimensions + 
+            ", outputDimensions=" + outputDimensions + 
+            ", sparse=" + sparse + "]";
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+/**
+ * A match of a query inside a longer sequence, as found with the
+ * {@link DynamicTimeWarpingSubsequences} class. It consists of the 
+ * start position of the matching subsequence, and its distance to 
+ * the query.
+ */
+public final class SubsequenceMatch
+{
+    /**
+     * The start position
+     */
+    private final int position;
+    
+    /**
+     * The distance
+     */
+    private final double distance;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param position The start position
+     * @param distance The distance
+     */
+    SubsequenceMatch(int position, double distance)
+    {
+        this.position = position;
+        this.distance = distance;
+    }
+    
+    /**
+     * Returns the start position of the matching subsequence
+     * 
+     * @return The position
+     */
+    public int getPosition()
+    {
+        return position;
+    }
+    
+    /**
+     * Returns the distance between the subsequence and the query
+     * 
+     * @return The distance
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * position + Double.hashCode(distance);
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if (this == object)
+        {
+            return true;
+        }
+        if (!(object instanceof SubsequenceMatch))
+        {
+            return false;
+        }
+        SubsequenceMatch other = (SubsequenceMatch) object;
+        return position == other.position && 
+            Double.compare(distance, other.distance) == 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SubsequenceMatch[position=" + position + 
+            ", distance=" + distance + "]";
+    }
+}
@@ -26,6 +26,8 @@
  */
 package de.javagl.nd.distance.tuples.i;
 
+import java.util.List;
+
 import de.javagl.nd.distance.DistanceFunction;
 import de.javagl.nd.tuples.i.IntTuple;
 
@@ -49,6 +51,14 @@ final class IntTupleDistanceFunctionChebyshev implements
     {
         return IntTupleDistanceFunctions.computeChebyshev(t0, t1);
     }
+    
+    @Override
+    public void distances(IntTuple query, 
+        List<? extends IntTuple> candidates, double result[])
+    {
+        IntTupleDistanceFunctions.computeChebyshevDistances(
+            query, candidates, result);
+    }
 
     @Override
     public String toString()
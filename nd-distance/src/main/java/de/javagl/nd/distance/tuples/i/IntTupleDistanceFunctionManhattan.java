@@ -26,6 +26,8 @@
  */
 package de.javagl.nd.distance.tuples.i;
 
+import java.util.List;
+
 import de.javagl.nd.distance.DistanceFunction;
 import de.javagl.nd.tuples.i.IntTuple;
 
@@ -49,6 +51,14 @@ final class IntTupleDistanceFunctionManhattan implements
     {
         return IntTupleDistanceFunctions.computeManhattan(t0, t1);
     }
+    
+    @Override
+    public void distances(IntTuple query, 
+        List<? extends IntTuple> candidates, double result[])
+    {
+        IntTupleDistanceFunctions.computeManhattanDistances(
+            query, candidates, result);
+    }
 
     @Override
     public String toString()
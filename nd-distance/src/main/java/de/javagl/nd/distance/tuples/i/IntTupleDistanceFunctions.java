@@ -27,12 +27,18 @@
 package de.javagl.nd.distance.tuples.i;
 
 import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
 import java.util.function.ToDoubleBiFunction;
 
 import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.distance.NearestNeighbors;
+import de.javagl.nd.distance.Neighbor;
 import de.javagl.nd.tuples.Tuple;
 import de.javagl.nd.tuples.Utils;
+import de.javagl.nd.tuples.d.DoubleTuple;
 import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.IntTupleKernels;
 import de.javagl.nd.tuples.i.IntTuples;
 
 /**
@@ -68,6 +74,52 @@ public class IntTupleDistanceFunctions
             }
         };
     }
+
+    /**
+     * Returns the <code>k</code> tuples that have the smallest distance
+     * to the given reference, according to the given distance function,
+     * together with their distances. The distance of each tuple is 
+     * computed only once. See {@link NearestNeighbors#findNearest(Object,
+     * List, DistanceFunction, int)} for details.
+     * 
+     * @param reference The reference
+     * @param tuples The tuples
+     * @param distanceFunction The distance function
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors, sorted by their distance
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If <code>k</code> is not positive
+     */
+    public static List<Neighbor<IntTuple>> findNearest(
+        IntTuple reference, List<? extends IntTuple> tuples, 
+        DistanceFunction<? super IntTuple> distanceFunction, int k)
+    {
+        return NearestNeighbors.findNearest(
+            reference, tuples, distanceFunction, k);
+    }
+
+    /**
+     * Returns the <code>k</code> tuples that have the smallest distance
+     * to the given reference, according to the given distance function,
+     * together with their distances, processing the tuples in parallel. 
+     * See {@link NearestNeighbors#findNearestParallel(Object, List, 
+     * DistanceFunction, int)} for details.
+     * 
+     * @param reference The reference
+     * @param tuples The tuples
+     * @param distanceFunction The distance function
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors, sorted by their distance
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If <code>k</code> is not positive
+     */
+    public static List<Neighbor<IntTuple>> findNearestParallel(
+        IntTuple reference, List<? extends IntTuple> tuples, 
+        DistanceFunction<? super IntTuple> distanceFunction, int k)
+    {
+        return NearestNeighbors.findNearestParallel(
+            reference, tuples, distanceFunction, k);
+    }
     
     /**
      * Returns a {@link DistanceFunction} that computes the 
@@ -167,7 +219,170 @@ public class IntTupleDistanceFunctions
     {
         return new IntTupleDistanceFunctionChebyshevWrapped(size);
     }
+
+    /**
+     * Returns a {@link DistanceFunction} that computes the Hamming 
+     * distance of {@link IntTuple}s when they are interpreted as packed
+     * bit vectors. This is the number of bits that are different in the 
+     * tuples.
+     * 
+     * @return The {@link DistanceFunction}
+     */
+    public static DistanceFunction<IntTuple> hamming()
+    {
+        return new IntTupleDistanceFunctionHamming();
+    }
+    
+    /**
+     * Returns a {@link DistanceFunction} that computes the Jaccard 
+     * distance of {@link IntTuple}s when they are interpreted as packed
+     * bit vectors (also known as Tanimoto distance). This is 
+     * <code>1 - bits(a AND b) / bits(a OR b)</code>, where <code>bits</code>
+     * is the number of bits that are set. The distance 
+     * between two tuples that have no bits set is 0.0.
+     * 
+     * @return The {@link DistanceFunction}
+     */
+    public static DistanceFunction<IntTuple> jaccard()
+    {
+        return new IntTupleDistanceFunctionJaccard();
+    }
+
+    /**
+     * Returns a {@link DistanceFunction} that computes the Minkowski 
+     * distance with the given exponent. For the exponents 1, 2 and
+     * <code>Double.POSITIVE_INFINITY</code>, this is the same as the
+     * {@link #manhattan()}, {@link #euclidean()} and {@link #chebyshev()}
+     * distance, respectively. See {@link #computeMinkowski(IntTuple, 
+     * IntTuple, double, DoubleTuple, double)} for details.
+     * 
+     * @param p The exponent
+     * @return The {@link DistanceFunction}
+     * @throws IllegalArgumentException If the exponent is smaller than 1.0
+     * or NaN
+     */
+    public static DistanceFunction<IntTuple> minkowski(double p)
+    {
+        de.javagl.nd.distance.Utils.checkMinkowskiExponent(p);
+        if (p == 1.0)
+        {
+            return manhattan();
+        }
+        if (p == 2.0)
+        {
+            return euclidean();
+        }
+        if (p == Double.POSITIVE_INFINITY)
+        {
+            return chebyshev();
+        }
+        return new IntTupleDistanceFunctionMinkowski(
+            p, null, Double.POSITIVE_INFINITY);
+    }
     
+    /**
+     * Returns a {@link DistanceFunction} that computes the weighted 
+     * Minkowski distance with the given exponent. A copy of the given 
+     * weights will be stored. See {@link #computeMinkowski(IntTuple, 
+     * IntTuple, double, DoubleTuple, double)} for details.
+     * 
+     * @param p The exponent
+     * @param weights The weights. May be <code>null</code>.
+     * @return The {@link DistanceFunction}
+     * @throws IllegalArgumentException If the exponent is smaller than 1.0
+     * or NaN, or any weight is negative, infinite or NaN
+     */
+    public static DistanceFunction<IntTuple> minkowski(
+        double p, DoubleTuple weights)
+    {
+        if (weights == null)
+        {
+            return minkowski(p);
+        }
+        return minkowski(p, weights, Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Returns a {@link DistanceFunction} that computes the weighted 
+     * Minkowski distance with the given exponent, and abandons the 
+     * computation when the distance exceeds the given threshold. A copy
+     * of the given weights will be stored. See 
+     * {@link #computeMinkowski(IntTuple, IntTuple, double, DoubleTuple, 
+     * double)} for details.
+     * 
+     * @param p The exponent
+     * @param weights The weights. May be <code>null</code>.
+     * @param threshold The threshold for abandoning the computation
+     * @return The {@link DistanceFunction}
+     * @throws IllegalArgumentException If the exponent is smaller than 1.0
+     * or NaN, or any weight is negative, infinite or NaN
+     */
+    public static DistanceFunction<IntTuple> minkowski(
+        double p, DoubleTuple weights, double threshold)
+    {
+        de.javagl.nd.distance.Utils.checkMinkowskiExponent(p);
+        return new IntTupleDistanceFunctionMinkowski(p, 
+            de.javagl.nd.distance.Utils.toWeightsArray(weights), threshold);
+    }
+    
+    /**
+     * Returns a {@link DistanceFunction} that computes the weighted 
+     * Euclidean distance, <code>sqrt(sum(w[i] * (t0[i]-t1[i])<sup>2</sup>))
+     * </code>. A copy of the given weights will be stored.
+     * 
+     * @param weights The weights
+     * @return The {@link DistanceFunction}
+     * @throws NullPointerException If the weights are <code>null</code>
+     * @throws IllegalArgumentException If any weight is negative, 
+     * infinite or NaN
+     */
+    public static DistanceFunction<IntTuple> weightedEuclidean(
+        DoubleTuple weights)
+    {
+        Objects.requireNonNull(weights, "The weights are null");
+        return minkowski(2.0, weights);
+    }
+    
+    /**
+     * Computes the weighted Minkowski distance between the given 
+     * tuples.<br>
+     * <br>
+     * For an exponent <code>p</code>, this is 
+     * <code>(sum(w[i] * |t0[i]-t1[i]|<sup>p</sup>))<sup>1/p</sup></code>,
+     * and for an exponent of <code>Double.POSITIVE_INFINITY</code>, this
+     * is <code>max(w[i] * |t0[i]-t1[i]|)</code>. If the given weights are
+     * <code>null</code>, then all weights are 1.0. The exponents 1, 2 and 
+     * <code>Double.POSITIVE_INFINITY</code> are computed without calling
+     * <code>Math.pow</code>.<br>
+     * <br>
+     * If the distance is larger than the given threshold, then the 
+     * computation is abandoned as early as possible, and 
+     * <code>Double.POSITIVE_INFINITY</code> is returned. This allows
+     * passing in the best distance that was found so far in a nearest
+     * neighbor search. A threshold of <code>Double.POSITIVE_INFINITY</code>
+     * will cause the exact distance to be computed.
+     * 
+     * @param t0 The first tuple
+     * @param t1 The second tuple
+     * @param p The exponent
+     * @param weights The weights. May be <code>null</code>.
+     * @param threshold The threshold for abandoning the computation
+     * @return The distance, or <code>Double.POSITIVE_INFINITY</code>
+     * if it is larger than the threshold
+     * @throws IllegalArgumentException If the given tuples do not have
+     * the same {@link Tuple#getSize() size}, if the weights are not 
+     * <code>null</code> and do not have the size of the tuples, if 
+     * the exponent is smaller than 1.0 or NaN, or any weight is negative,
+     * infinite or NaN
+     */
+    public static double computeMinkowski(IntTuple t0, IntTuple t1, 
+        double p, DoubleTuple weights, double threshold)
+    {
+        de.javagl.nd.distance.Utils.checkMinkowskiExponent(p);
+        return MinkowskiDistance.computeMinkowskiDistance(t0, t1, p, 
+            de.javagl.nd.distance.Utils.toWeightsArray(weights), threshold);
+    }
+            
     
     
     
@@ -321,6 +536,86 @@ public class IntTupleDistanceFunctions
         }
         return max;
     }
+    
+    /**
+     * Computes the Manhattan distances between the given query and all 
+     * given candidates
+     * 
+     * @param query The query
+     * @param candidates The candidates
+     * @param result The array that will store the distances
+     * @throws IllegalArgumentException If the query and any candidate
+     * do not have the same {@link Tuple#getSize() size}, or if the
+     * result array is smaller than the number of candidates
+     */
+    static void computeManhattanDistances(IntTuple query, 
+        List<? extends IntTuple> candidates, double result[])
+    {
+        de.javagl.nd.distance.Utils.checkForBatchSize(candidates, result);
+        int q[] = IntTuples.toArray(query);
+        int n = candidates.size();
+        for (int i=0; i<n; i++)
+        {
+            IntTuple candidate = candidates.get(i);
+            Utils.checkForEqualSize(query, candidate);
+            int c[] = IntTupleKernels.getArray(candidate);
+            if (c != null)
+            {
+                result[i] = IntTupleKernels.sumOfAbsoluteDifferences(q, 0, 
+                    c, IntTupleKernels.getArrayOffset(candidate), q.length);
+            }
+            else
+            {
+                int sum = 0;
+                for (int j=0; j<q.length; j++)
+                {
+                    int d = q[j]-candidate.get(j);
+                    sum += Math.abs(d);
+                }
+                result[i] = sum;
+            }
+        }
+    }
+    
+    /**
+     * Computes the Chebyshev distances between the given query and all 
+     * given candidates
+     * 
+     * @param query The query
+     * @param candidates The candidates
+     * @param result The array that will store the distances
+     * @throws IllegalArgumentException If the query and any candidate
+     * do not have the same {@link Tuple#getSize() size}, or if the
+     * result array is smaller than the number of candidates
+     */
+    static void computeChebyshevDistances(IntTuple query, 
+        List<? extends IntTuple> candidates, double result[])
+    {
+        de.javagl.nd.distance.Utils.checkForBatchSize(candidates, result);
+        int q[] = IntTuples.toArray(query);
+        int n = candidates.size();
+        for (int i=0; i<n; i++)
+        {
+            IntTuple candidate = candidates.get(i);
+            Utils.checkForEqualSize(query, candidate);
+            int c[] = IntTupleKernels.getArray(candidate);
+            if (c != null)
+            {
+                result[i] = IntTupleKernels.maxOfAbsoluteDifferences(q, 0, 
+                    c, IntTupleKernels.getArrayOffset(candidate), q.length);
+            }
+            else
+            {
+                int max = 0;
+                for (int j=0; j<q.length; j++)
+                {
+                    int d = q[j]-candidate.get(j);
+                    max = Math.max(max, Math.abs(d));
+                }
+                result[i] = max;
+            }
+        }
+    }
 
     /**
      * Computes the Chebyshev distance between the given tuples
@@ -348,6 +643,159 @@ public class IntTupleDistanceFunctions
         return max;
     }
     
+
+    /**
+     * Computes the Hamming distance between the given tuples, when they
+     * are interpreted as packed bit vectors
+     * 
+     * @param t0 The first tuple
+     * @param t1 The second tuple
+     * @return The distance
+     * @throws IllegalArgumentException If the given tuples do not 
+     * have the same {@link Tuple#getSize() size}
+     */
+    static int computeHamming(IntTuple t0, IntTuple t1)
+    {
+        Utils.checkForEqualSize(t0, t1);
+        int n = t0.getSize();
+        int a0[] = IntTupleKernels.getArray(t0);
+        int a1[] = IntTupleKernels.getArray(t1);
+        if (a0 != null && a1 != null)
+        {
+            return IntTupleKernels.bitCountOfXor(
+                a0, IntTupleKernels.getArrayOffset(t0), 
+                a1, IntTupleKernels.getArrayOffset(t1), n);
+        }
+        int sum = 0;
+        for (int i=0; i<n; i++)
+        {
+            sum += Integer.bitCount(t0.get(i) ^ t1.get(i));
+        }
+        return sum;
+    }
+    
+    /**
+     * Computes the Jaccard distance between the given tuples, when they
+     * are interpreted as packed bit vectors
+     * 
+     * @param t0 The first tuple
+     * @param t1 The second tuple
+     * @return The distance
+     * @throws IllegalArgumentException If the given tuples do not 
+     * have the same {@link Tuple#getSize() size}
+     */
+    static double computeJaccard(IntTuple t0, IntTuple t1)
+    {
+        Utils.checkForEqualSize(t0, t1);
+        int n = t0.getSize();
+        int a0[] = IntTupleKernels.getArray(t0);
+        int a1[] = IntTupleKernels.getArray(t1);
+        if (a0 != null && a1 != null)
+        {
+            int o0 = IntTupleKernels.getArrayOffset(t0);
+            int o1 = IntTupleKernels.getArrayOffset(t1);
+            return jaccard(
+                IntTupleKernels.bitCountOfAnd(a0, o0, a1, o1, n), 
+                IntTupleKernels.bitCountOfOr(a0, o0, a1, o1, n));
+        }
+        int and = 0;
+        int or = 0;
+        for (int i=0; i<n; i++)
+        {
+            int v0 = t0.get(i);
+            int v1 = t1.get(i);
+            and += Integer.bitCount(v0 & v1);
+            or += Integer.bitCount(v0 | v1);
+        }
+        return jaccard(and, or);
+    }
+    
+    /**
+     * Computes the Jaccard distance from the given numbers of bits
+     * 
+     * @param and The number of bits in the intersection
+     * @param or The number of bits in the union
+     * @return The distance
+     */
+    static double jaccard(long and, long or)
+    {
+        if (or == 0)
+        {
+            return 0.0;
+        }
+        return 1.0 - (double)and / or;
+    }
+    
+    /**
+     * Computes the Hamming distances between the given query and all 
+     * given candidates
+     * 
+     * @param query The query
+     * @param candidates The candidates
+     * @param result The array that will store the distances
+     * @throws IllegalArgumentException If the query and any candidate
+     * do not have the same {@link Tuple#getSize() size}, or if the
+     * result array is smaller than the number of candidates
+     */
+    static void computeHammingDistances(IntTuple query, 
+        List<? extends IntTuple> candidates, double result[])
+    {
+        de.javagl.nd.distance.Utils.checkForBatchSize(candidates, result);
+        int q[] = IntTuples.toArray(query);
+        int n = candidates.size();
+        for (int i=0; i<n; i++)
+        {
+            IntTuple candidate = candidates.get(i);
+            Utils.checkForEqualSize(query, candidate);
+            int c[] = IntTupleKernels.getArray(candidate);
+            if (c != null)
+            {
+                result[i] = IntTupleKernels.bitCountOfXor(q, 0, 
+                    c, IntTupleKernels.getArrayOffset(candidate), q.length);
+            }
+            else
+            {
+                result[i] = computeHamming(query, candidate);
+            }
+        }
+    }
+    
+    /**
+     * Computes the Jaccard distances between the given query and all 
+     * given candidates
+     * 
+     * @param query The query
+     * @param candidates The candidates
+     * @param result The array that will store the distances
+     * @throws IllegalArgumentException If the query and any candidate
+     * do not have the same {@link Tuple#getSize() size}, or if the
+     * result array is smaller than the number of candidates
+     */
+    static void computeJaccardDistances(IntTuple query, 
+        List<? extends IntTuple> candidates, double result[])
+    {
+        de.javagl.nd.distance.Utils.checkForBatchSize(candidates, result);
+        int q[] = IntTuples.toArray(query);
+        int n = candidates.size();
+        for (int i=0; i<n; i++)
+        {
+            IntTuple candidate = candidates.get(i);
+            Utils.checkForEqualSize(query, candidate);
+            int c[] = IntTupleKernels.getArray(candidate);
+            if (c != null)
+            {
+                int o = IntTupleKernels.getArrayOffset(candidate);
+                result[i] = jaccard(
+                    IntTupleKernels.bitCountOfAnd(q, 0, c, o, q.length), 
+                    IntTupleKernels.bitCountOfOr(q, 0, c, o, q.length));
+            }
+            else
+            {
+                result[i] = computeJaccard(query, candidate);
+            }
+        }
+    }
+    
  
     /**
      * Private constructor to prevent instantiation
@@ -0,0 +1,718 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.i;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.IntTupleIntMap;
+import de.javagl.nd.tuples.i.IntTuples;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+/**
+ * A uniform spatial hash grid for entities that are located at integer 
+ * coordinates. It allows finding all entities that are within a certain
+ * distance of a point.<br>
+ * <br>
+ * The space is divided into cubic cells with a fixed size. The entities
+ * are identified by non-negative <code>int</code> values, which should 
+ * be densely packed, because the internal storage is proportional to the
+ * largest identifier. The entities of each cell are stored in a linked 
+ * list, and the heads of these lists are stored in a map that is keyed 
+ * by the cell coordinates, so that inserting, moving and removing an 
+ * entity takes constant time.<br>
+ * <br>
+ * A radius query only visits the cells in the Moore neighborhood of the 
+ * cell that contains the query point, or only the occupied cells, if 
+ * there are fewer of them. For this to be correct, the 
+ * distance function that is used for the query must never be smaller 
+ * than the Chebyshev distance. This is the case for the Euclidean, 
+ * Manhattan and Chebyshev distances from {@link IntTupleDistanceFunctions}.
+ * <br>
+ * <br>
+ * When the grid is created with a wrapping size, then the coordinates are
+ * interpreted as points on a torus with this size, as in the wrapped
+ * distance functions like 
+ * {@link IntTupleDistanceFunctions#wrappedEuclidean(IntTuple)}: The
+ * positions of the entities are wrapped into the range 
+ * <code>[0, size)</code>, and radius queries also find the entities on 
+ * the opposite side of the torus. Such a grid should be used with the 
+ * wrapped distance function for the same size.<br>
+ * <br>
+ * This class is not thread-safe.
+ */
+public final class IntTupleSpatialHashGrid
+{
+    /**
+     * The value indicating the absence of an entity
+     */
+    private static final int NONE = -1;
+    
+    /**
+     * The number of dimensions
+     */
+    private final int dimensions;
+    
+    /**
+     * The size of the cells
+     */
+    private final int cellSize;
+    
+    /**
+     * The size of the torus, or <code>null</code> if the coordinates
+     * are not wrapped
+     */
+    private final IntTuple wrapSize;
+    
+    /**
+     * The number of cells along each dimension of the torus, or 
+     * <code>null</code> if the coordinates are not wrapped
+     */
+    private final int cellCounts[];
+    
+    /**
+     * The mapping from cell coordinates to the first entity in the cell
+     */
+    private final IntTupleIntMap cells;
+    
+    /**
+     * The positions of the entities, stored consecutively
+     */
+    private int positions[];
+    
+    /**
+     * The next entity in the same cell, for each entity
+     */
+    private int next[];
+    
+    /**
+     * The previous entity in the same cell, for each entity
+     */
+    private int previous[];
+    
+    /**
+     * Whether each entity is contained in this grid
+     */
+    private boolean contained[];
+    
+    /**
+     * The number of entities in this grid
+     */
+    private int size;
+    
+    /**
+     * The tuple for the cell coordinates during modifications
+     */
+    private final MutableIntTuple cell;
+    
+    /**
+     * Creates a new, empty grid
+     * 
+     * @param dimensions The number of dimensions
+     * @param cellSize The size of the cells. This should usually be in 
+     * the same order as the typical query radius. 
+     * @throws IllegalArgumentException If the dimensions or the cell 
+     * size are not positive
+     */
+    public IntTupleSpatialHashGrid(int dimensions, int cellSize)
+    {
+        this(dimensions, cellSize, null);
+    }
+    
+    /**
+     * Creates a new, empty grid where the coordinates wrap around at
+     * the given size
+     * 
+     * @param dimensions The number of dimensions
+     * @param cellSize The size of the cells. This should usually be in 
+     * the same order as the typical query radius. 
+     * @param wrapSize The size of the torus. If this is <code>null</code>,
+     * then the coordinates will not be wrapped. A copy of the given 
+     * tuple will be stored.
+     * @throws IllegalArgumentException If the dimensions or the cell 
+     * size are not positive, or the wrap size does not have the given
+     * dimensions, or any element of the wrap size is not a positive 
+     * multiple of the cell size
+     */
+    public IntTupleSpatialHashGrid(
+        int dimensions, int cellSize, IntTuple wrapSize)
+    {
+        if (dimensions <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The dimensions must be positive, but are " + dimensions);
+        }
+        if (cellSize <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The cell size must be positive, but is " + cellSize);
+        }
+        this.dimensions = dimensions;
+        this.cellSize = cellSize;
+        if (wrapSize == null)
+        {
+            this.wrapSize = null;
+            this.cellCounts = null;
+        }
+        else
+        {
+            if (wrapSize.getSize() != dimensions)
+            {
+                throw new IllegalArgumentException(
+                    "The wrap size must have a size of " + dimensions + 
+                    ", but has " + wrapSize.getSize());
+            }
+            this.wrapSize = IntTuples.copy(wrapSize);
+            this.cellCounts = new int[dimensions];
+            for (int d = 0; d < dimensions; d++)
+            {
+                int s = wrapSize.get(d);
+                if (s <= 0 || s % cellSize != 0)
+                {
+                    throw new IllegalArgumentException(
+                        "The wrap size must be a positive multiple of " + 
+                        "the cell size " + cellSize + ", but is " + wrapSize);
+                }
+                cellCounts[d] = s / cellSize;
+            }
+        }
+        this.cells = new IntTupleIntMap(dimensions);
+        this.positions = new int[0];
+        this.next = new int[0];
+        this.previous = new int[0];
+        this.contained = new boolean[0];
+        this.cell = IntTuples.create(dimensions);
+    }
+    
+    /**
+     * Returns the number of dimensions of this grid
+     * 
+     * @return The number of dimensions
+     */
+    public int getDimensions()
+    {
+        return dimensions;
+    }
+    
+    /**
+     * Returns the size of the cells of this grid
+     * 
+     * @return The cell size
+     */
+    public int getCellSize()
+    {
+        return cellSize;
+    }
+    
+    /**
+     * Returns the number of entities in this grid
+     * 
+     * @return The size
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns whether the entity with the given identifier is contained 
+     * in this grid
+     * 
+     * @param id The identifier
+     * @return Whether the entity is contained
+     */
+    public boolean contains(int id)
+    {
+        return id >= 0 && id < contained.length && contained[id];
+    }
+    
+    /**
+     * Returns a copy of the position of the entity with the given 
+     * identifier. For a wrapping grid, this is the wrapped position.
+     * 
+     * @param id The identifier
+     * @return The position
+     * @throws IllegalArgumentException If the entity is not contained
+     * in this grid
+     */
+    public MutableIntTuple getPosition(int id)
+    {
+        checkContained(id);
+        return IntTuples.copy(
+            IntTuples.wrap(positions, id * dimensions, dimensions));
+    }
+    
+    /**
+     * Insert the entity with the given identifier at the given position
+     * 
+     * @param id The identifier
+     * @param position The position
+     * @throws IllegalArgumentException If the identifier is negative,
+     * the entity is already contained in this grid, or the position 
+     * does not have the dimensions of this grid
+     */
+    public void insert(int id, IntTuple position)
+    {
+        if (id < 0)
+        {
+            throw new IllegalArgumentException(
+                "The id may not be negative, but is " + id);
+        }
+        if (contains(id))
+        {
+            throw new IllegalArgumentException(
+                "The entity with id " + id + " is already contained");
+        }
+        checkDimensions(position);
+        ensureCapacity(id + 1);
+        setPosition(id, position);
+        link(id);
+        contained[id] = true;
+        size++;
+    }
+    
+    /**
+     * Move the entity with the given identifier to the given position
+     * 
+     * @param id The identifier
+     * @param position The new position
+     * @throws IllegalArgumentException If the entity is not contained
+     * in this grid, or the position does not have the dimensions of 
+     * this grid
+     */
+    public void move(int id, IntTuple position)
+    {
+        checkContained(id);
+        checkDimensions(position);
+        int offset = id * dimensions;
+        boolean sameCell = true;
+        for (int d = 0; d < dimensions; d++)
+        {
+            int oldCell = Math.floorDiv(positions[offset + d], cellSize);
+            int newCell = Math.floorDiv(wrap(position.get(d), d), cellSize);
+            if (oldCell != newCell)
+            {
+                sameCell = false;
+                break;
+            }
+        }
+        if (sameCell)
+        {
+            setPosition(id, position);
+            return;
+        }
+        unlink(id);
+        setPosition(id, position);
+        link(id);
+    }
+    
+    /**
+     * Remove the entity with the given identifier from this grid
+     * 
+     * @param id The identifier
+     * @return Whether the entity was contained
+     */
+    public boolean remove(int id)
+    {
+        if (!contains(id))
+        {
+            return false;
+        }
+        unlink(id);
+        contained[id] = false;
+        size--;
+        return true;
+    }
+    
+    /**
+     * Remove all entities from this grid
+     */
+    public void clear()
+    {
+        cells.clear();
+        Arrays.fill(contained, false);
+        size = 0;
+    }
+    
+    /**
+     * Passes the identifiers of all entities whose distance to the given 
+     * center is not larger than the given radius to the given consumer. 
+     * The distance function must never be smaller than the Chebyshev 
+     * distance (or the wrapped Chebyshev distance, for a wrapping grid).
+     * <br>
+     * <br>
+     * The entities are visited cell by cell. The order of the identifiers
+     * is unspecified. The grid must not be modified by the consumer.
+     * 
+     * @param center The center
+     * @param radius The radius
+     * @param distanceFunction The distance function
+     * @param consumer The consumer for the identifiers
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If the center does not have the
+     * dimensions of this grid
+     */
+    public void forEachWithin(IntTuple center, double radius,
+        DistanceFunction<? super IntTuple> distanceFunction, 
+        IntConsumer consumer)
+    {
+        Objects.requireNonNull(distanceFunction, 
+            "The distanceFunction is null");
+        Objects.requireNonNull(consumer, "The consumer is null");
+        checkDimensions(center);
+        if (!(radius >= 0) || size == 0)
+        {
+            return;
+        }
+        long r = (long)Math.min(Math.floor(radius), 1L << 32);
+        long cellRadius = (r + cellSize - 1) / cellSize;
+        
+        // Compute the first cell and the number of cells of the 
+        // neighborhood along each dimension. For a wrapping grid, the
+        // range is limited to the number of cells, so that each cell 
+        // is visited only once. Otherwise, it is limited to the range
+        // of possible cell coordinates.
+        long minCells[] = new long[dimensions];
+        long cellExtents[] = new long[dimensions];
+        long neighborhoodSize = 1;
+        for (int d = 0; d < dimensions; d++)
+        {
+            long c = Math.floorDiv(wrap(center.get(d), d), cellSize);
+            long min = c - cellRadius;
+            long max = c + cellRadius;
+            if (cellCounts != null)
+            {
+                if (max - min + 1 >= cellCounts[d])
+                {
+                    min = 0;
+                    max = cellCounts[d] - 1;
+                }
+            }
+            else
+            {
+                min = Math.max(min, Integer.MIN_VALUE);
+                max = Math.min(max, Integer.MAX_VALUE);
+            }
+            minCells[d] = min;
+            cellExtents[d] = max - min + 1;
+            if (neighborhoodSize <= cells.size())
+            {
+                neighborhoodSize = cellExtents[d] > cells.size() ?
+                    Long.MAX_VALUE : neighborhoodSize * cellExtents[d];
+            }
+        }
+        
+        // When the neighborhood contains more cells than there are 
+        // occupied cells, then only the occupied cells are visited
+        if (neighborhoodSize > cells.size())
+        {
+            IntTupleIntMap.Cursor cursor = cells.cursor();
+            while (cursor.next())
+            {
+                if (isInRange(cursor.key(), minCells, cellExtents))
+                {
+                    visitCell(cursor.value(), 
+                        center, radius, distanceFunction, consumer);
+                }
+            }
+            return;
+        }
+        MutableIntTuple key = IntTuples.create(dimensions);
+        long offsets[] = new long[dimensions];
+        while (true)
+        {
+            for (int d = 0; d < dimensions; d++)
+            {
+                long c = minCells[d] + offsets[d];
+                key.set(d, (int)(cellCounts == null ? c : 
+                    Math.floorMod(c, cellCounts[d])));
+            }
+            visitCell(cells.getOrDefault(key, NONE), 
+                center, radius, distanceFunction, consumer);
+            int d = dimensions - 1;
+            while (d >= 0 && ++offsets[d] == cellExtents[d])
+            {
+                offsets[d] = 0;
+                d--;
+            }
+            if (d < 0)
+            {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Returns whether the given cell is in the given range of cells. 
+     * For a wrapping grid, the range may wrap around.
+     * 
+     * @param key The cell coordinates
+     * @param minCells The first cell of the range, per dimension
+     * @param cellExtents The number of cells of the range, per dimension
+     * @return Whether the cell is in the range
+     */
+    private boolean isInRange(IntTuple key, 
+        long minCells[], long cellExtents[])
+    {
+        for (int d = 0; d < dimensions; d++)
+        {
+            long offset = key.get(d) - minCells[d];
+            if (cellCounts != null)
+            {
+                offset = Math.floorMod(offset, cellCounts[d]);
+            }
+            if (offset < 0 || offset >= cellExtents[d])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Passes the identifiers of all entities in the list that starts 
+     * with the given entity whose distance to the given center is not 
+     * larger than the given radius to the given consumer
+     * 
+     * @param head The first entity of the list of a cell, or 
+     * {@link #NONE}
+     * @param center The center
+     * @param radius The radius
+     * @param distanceFunction The distance function
+     * @param consumer The consumer for the identifiers
+     */
+    private void visitCell(int head, IntTuple center, double radius,
+        DistanceFunction<? super IntTuple> distanceFunction, 
+        IntConsumer consumer)
+    {
+        int id = head;
+        while (id != NONE)
+        {
+            IntTuple position = 
+                IntTuples.wrap(positions, id * dimensions, dimensions);
+            if (distanceFunction.distance(center, position) <= radius)
+            {
+                consumer.accept(id);
+            }
+            id = next[id];
+        }
+    }
+    
+    /**
+     * Returns the identifiers of all entities whose distance to the given 
+     * center is not larger than the given radius, in ascending order.
+     * The distance function must never be smaller than the Chebyshev 
+     * distance (or the wrapped Chebyshev distance, for a wrapping grid).
+     * 
+     * @param center The center
+     * @param radius The radius
+     * @param distanceFunction The distance function
+     * @return The identifiers
+     * @throws NullPointerException If any argument is <code>null</code>
+     * @throws IllegalArgumentException If the center does not have the
+     * dimensions of this grid
+     */
+    public int[] findWithin(IntTuple center, double radius,
+        DistanceFunction<? super IntTuple> distanceFunction)
+    {
+        int result[][] = { new int[16] };
+        int count[] = { 0 };
+        forEachWithin(center, radius, distanceFunction, id -> 
+        {
+            if (count[0] == result[0].length)
+            {
+                result[0] = Arrays.copyOf(result[0], count[0] * 2);
+            }
+            result[0][count[0]++] = id;
+        });
+        int ids[] = Arrays.copyOf(result[0], count[0]);
+        Arrays.sort(ids);
+        return ids;
+    }
+    
+    /**
+     * Make sure that the entity with the given identifier is contained
+     * 
+     * @param id The identifier
+     * @throws IllegalArgumentException If the entity is not contained
+     */
+    private void checkContained(int id)
+    {
+        if (!contains(id))
+        {
+            throw new IllegalArgumentException(
+                "The entity with id " + id + " is not contained");
+        }
+    }
+    
+    /**
+     * Make sure that the given tuple has the dimensions of this grid
+     * 
+     * @param tuple The tuple
+     * @throws NullPointerException If the tuple is <code>null</code>
+     * @throws IllegalArgumentException If the tuple does not have the
+     * dimensions of this grid
+     */
+    private void checkDimensions(IntTuple tuple)
+    {
+        Objects.requireNonNull(tuple, "The tuple is null");
+        if (tuple.getSize() != dimensions)
+        {
+            throw new IllegalArgumentException(
+                "Expected a tuple of size " + dimensions + 
+                ", but the size is " + tuple.getSize());
+        }
+    }
+    
+    /**
+     * Make sure that the internal arrays can store the given number of
+     * entities
+     * 
+     * @param capacity The capacity
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity <= contained.length)
+        {
+            return;
+        }
+        int newCapacity = (int)Math.min(Integer.MAX_VALUE - 8, 
+            Math.max(capacity, contained.length * 2L));
+        positions = Arrays.copyOf(positions, newCapacity * dimensions);
+        next = Arrays.copyOf(next, newCapacity);
+        previous = Arrays.copyOf(previous, newCapacity);
+        contained = Arrays.copyOf(contained, newCapacity);
+    }
+    
+    /**
+     * Wrap the given coordinate for the given dimension, if this grid 
+     * is wrapping
+     * 
+     * @param value The coordinate
+     * @param dimension The dimension
+     * @return The wrapped coordinate
+     */
+    private int wrap(int value, int dimension)
+    {
+        if (wrapSize == null)
+        {
+            return value;
+        }
+        return MathUtils.wrap(value, wrapSize.get(dimension));
+    }
+    
+    /**
+     * Store the (wrapped) given position for the given entity
+     * 
+     * @param id The identifier
+     * @param position The position
+     */
+    private void setPosition(int id, IntTuple position)
+    {
+        int offset = id * dimensions;
+        for (int d = 0; d < dimensions; d++)
+        {
+            positions[offset + d] = wrap(position.get(d), d);
+        }
+    }
+    
+    /**
+     * Store the coordinates of the cell of the given entity in the
+     * {@link #cell} tuple
+     * 
+     * @param id The identifier
+     */
+    private void computeCell(int id)
+    {
+        int offset = id * dimensions;
+        for (int d = 0; d < dimensions; d++)
+        {
+            cell.set(d, Math.floorDiv(positions[offset + d], cellSize));
+        }
+    }
+    
+    /**
+     * Insert the given entity at the head of the list of its cell
+     * 
+     * @param id The identifier
+     */
+    private void link(int id)
+    {
+        computeCell(id);
+        int head = cells.getOrDefault(cell, NONE);
+        next[id] = head;
+        previous[id] = NONE;
+        if (head != NONE)
+        {
+            previous[head] = id;
+        }
+        cells.put(cell, id);
+    }
+    
+    /**
+     * Remove the given entity from the list of its cell
+     * 
+     * @param id The identifier
+     */
+    private void unlink(int id)
+    {
+        int p = previous[id];
+        int n = next[id];
+        if (n != NONE)
+        {
+            previous[n] = p;
+        }
+        if (p != NONE)
+        {
+            next[p] = n;
+            return;
+        }
+        computeCell(id);
+        if (n == NONE)
+        {
+            cells.remove(cell);
+        }
+        else
+        {
+            cells.put(cell, n);
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "IntTupleSpatialHashGrid[" + 
+            "dimensions=" + dimensions + 
+            ", cellSize=" + cellSize + 
+            ", wrapSize=" + wrapSize + 
+            ", size=" + size + 
+            ", cells=" + cells.size() + "]";
+    }
+}
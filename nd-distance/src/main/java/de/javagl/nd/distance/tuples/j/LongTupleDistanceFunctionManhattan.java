@@ -26,6 +26,8 @@
  */
 package de.javagl.nd.distance.tuples.j;
 
+import java.util.List;
+
 import de.javagl.nd.distance.DistanceFunction;
 import de.javagl.nd.tuples.j.LongTuple;
 
@@ -49,6 +51,14 @@ final class LongTupleDistanceFunctionManhattan implements
     {
         return LongTupleDistanceFunctions.computeManhattan(t0, t1);
     }
+    
+    @Override
+    public void distances(LongTuple query, 
+        List<? extends LongTuple> candidates, double result[])
+    {
+        LongTupleDistanceFunctions.computeManhattanDistances(
+            query, candidates, result);
+    }
 
     @Override
     public String toString()
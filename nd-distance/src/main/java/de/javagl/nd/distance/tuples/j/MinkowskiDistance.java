@@ -0,0 +1,259 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.j;
+
+import de.javagl.nd.tuples.Utils;
+import de.javagl.nd.tuples.j.LongTuple;
+import de.javagl.nd.tuples.j.LongTupleKernels;
+import de.javagl.nd.tuples.j.LongTuples;
+
+/**
+ * Implementation of a (weighted) Minkowski distance computation for 
+ * {@link LongTuple}s.<br>
+ * <br>
+ * The exponents 1, 2 and infinity are handled with dedicated loops 
+ * that do not call <code>Math.pow</code>. The computation is abandoned 
+ * as soon as the partial sum is known to exceed a given threshold.
+ */
+class MinkowskiDistance
+{
+    /**
+     * The relative tolerance for comparing the partial sums to the 
+     * threshold, raised to the power of the exponent. It avoids that the
+     * computation is abandoned due to rounding errors when the distance
+     * is equal to the threshold. The final result is always compared to
+     * the threshold directly.
+     */
+    private static final double LIMIT_TOLERANCE = 1e-12;
+    
+    /**
+     * Computes the Minkowski distance between the given tuples.<br>
+     * <br>
+     * For an exponent <code>p</code>, this is 
+     * <code>(sum(w[i] * |t0[i]-t1[i]|<sup>p</sup>))<sup>1/p</sup></code>,
+     * and for an exponent of <code>Double.POSITIVE_INFINITY</code>, this
+     * is <code>max(w[i] * |t0[i]-t1[i]|)</code>, where all weights are 
+     * 1.0 if the given weights are <code>null</code>.<br>
+     * <br>
+     * If the distance is larger than the given threshold, then
+     * the computation is abandoned as early as possible, and
+     * <code>Double.POSITIVE_INFINITY</code> is returned.
+     * 
+     * @param t0 The first tuple
+     * @param t1 The second tuple
+     * @param p The exponent, which is assumed to be at least 1.0
+     * @param weights The weights. May be <code>null</code>.
+     * @param threshold The threshold for abandoning the computation
+     * @return The distance, or <code>Double.POSITIVE_INFINITY</code>
+     * if it is larger than the threshold
+     * @throws IllegalArgumentException If the given tuples do not have
+     * the same size, or the weights are not <code>null</code> and do 
+     * not have the size of the tuples
+     */
+    static double computeMinkowskiDistance(LongTuple t0, LongTuple t1, 
+        double p, double weights[], double threshold)
+    {
+        Utils.checkForEqualSize(t0, t1);
+        int n = t0.getSize();
+        de.javagl.nd.distance.Utils.checkWeightsSize(weights, n);
+        long a0[] = LongTupleKernels.getArray(t0);
+        int o0 = LongTupleKernels.getArrayOffset(t0);
+        if (a0 == null)
+        {
+            a0 = LongTuples.toArray(t0);
+            o0 = 0;
+        }
+        long a1[] = LongTupleKernels.getArray(t1);
+        int o1 = LongTupleKernels.getArrayOffset(t1);
+        if (a1 == null)
+        {
+            a1 = LongTuples.toArray(t1);
+            o1 = 0;
+        }
+        double result;
+        if (p == 1.0)
+        {
+            result = computeSum(a0, o0, a1, o1, n, weights, threshold);
+        }
+        else if (p == 2.0)
+        {
+            double limit = threshold * threshold * (1.0 + LIMIT_TOLERANCE);
+            result = Math.sqrt(computeSumOfSquares(
+                a0, o0, a1, o1, n, weights, limit));
+        }
+        else if (p == Double.POSITIVE_INFINITY)
+        {
+            result = computeMax(a0, o0, a1, o1, n, weights, threshold);
+        }
+        else
+        {
+            double limit = Math.pow(threshold, p) * (1.0 + LIMIT_TOLERANCE);
+            result = Math.pow(computeSumOfPowers(
+                a0, o0, a1, o1, n, weights, p, limit), 1.0 / p);
+        }
+        if (result > threshold)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        return result;
+    }
+    
+    /**
+     * Computes the weighted sum of the absolute differences of the
+     * specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @param weights The weights. May be <code>null</code>.
+     * @param limit The limit for abandoning the computation
+     * @return The sum, or <code>Double.POSITIVE_INFINITY</code> if it
+     * is larger than the limit
+     */
+    private static double computeSum(long a0[], int o0, 
+        long a1[], int o1, int n, double weights[], double limit)
+    {
+        double sum = 0;
+        for (int i = 0; i < n; i++)
+        {
+            double d = Math.abs((double)a0[o0 + i] - a1[o1 + i]);
+            sum += weights == null ? d : weights[i] * d;
+            if (sum > limit)
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return sum;
+    }
+    
+    /**
+     * Computes the weighted sum of the squared differences of the
+     * specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @param weights The weights. May be <code>null</code>.
+     * @param limit The limit for abandoning the computation
+     * @return The sum, or <code>Double.POSITIVE_INFINITY</code> if it
+     * is larger than the limit
+     */
+    private static double computeSumOfSquares(long a0[], int o0, 
+        long a1[], int o1, int n, double weights[], double limit)
+    {
+        double sum = 0;
+        for (int i = 0; i < n; i++)
+        {
+            double d = (double)a0[o0 + i] - a1[o1 + i];
+            double dd = d * d;
+            sum += weights == null ? dd : weights[i] * dd;
+            if (sum > limit)
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return sum;
+    }
+    
+    /**
+     * Computes the maximum of the weighted absolute differences of the
+     * specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @param weights The weights. May be <code>null</code>.
+     * @param limit The limit for abandoning the computation
+     * @return The maximum, or <code>Double.POSITIVE_INFINITY</code> if it
+     * is larger than the limit
+     */
+    private static double computeMax(long a0[], int o0, 
+        long a1[], int o1, int n, double weights[], double limit)
+    {
+        double max = 0;
+        for (int i = 0; i < n; i++)
+        {
+            double d = Math.abs((double)a0[o0 + i] - a1[o1 + i]);
+            max = Math.max(max, weights == null ? d : weights[i] * d);
+            if (max > limit)
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * Computes the weighted sum of the absolute differences of the
+     * specified array ranges, raised to the given power
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @param weights The weights. May be <code>null</code>.
+     * @param p The exponent
+     * @param limit The limit for abandoning the computation
+     * @return The sum, or <code>Double.POSITIVE_INFINITY</code> if it
+     * is larger than the limit
+     */
+    private static double computeSumOfPowers(long a0[], int o0, 
+        long a1[], int o1, int n, double weights[], double p, double limit)
+    {
+        double sum = 0;
+        for (int i = 0; i < n; i++)
+        {
+            double d = Math.abs((double)a0[o0 + i] - a1[o1 + i]);
+            if (d == 0.0)
+            {
+                continue;
+            }
+            double dp = Math.pow(d, p);
+            sum += weights == null ? dp : weights[i] * dp;
+            if (sum > limit)
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return sum;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MinkowskiDistance()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
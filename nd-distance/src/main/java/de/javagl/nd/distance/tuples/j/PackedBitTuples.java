@@ -0,0 +1,556 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import de.javagl.nd.distance.BoundedMaxHeap;
+import de.javagl.nd.distance.Neighbor;
+import de.javagl.nd.tuples.j.LongTuple;
+import de.javagl.nd.tuples.j.LongTupleKernels;
+import de.javagl.nd.tuples.j.LongTuples;
+import de.javagl.nd.tuples.j.MutableLongTuple;
+
+/**
+ * A collection of binary fingerprints, which are given as 
+ * {@link LongTuple}s that contain bit vectors, packed into 64-bit 
+ * words.<br>
+ * <br>
+ * The words are stored in blocks of long arrays, so that the number of
+ * fingerprints is not limited by the maximum array size. For each 
+ * fingerprint, the number of bits that are set is stored as well.
+ * Queries scan all blocks in parallel. The nearest neighbor queries 
+ * skip fingerprints based on the bounds that are implied by the bit 
+ * counts: The Hamming distance is at least <code>|a - b|</code>, and 
+ * the Jaccard distance is at least <code>1 - min(a,b) / max(a,b)</code>, 
+ * where <code>a</code> and <code>b</code> are the bit counts. The 
+ * computation of a Hamming distance is stopped as soon as it exceeds
+ * the distance of the current <code>k</code>-th neighbor.<br>
+ * <br>
+ * The distances are the same as the ones that are computed with
+ * {@link LongTupleDistanceFunctions#hamming()} and
+ * {@link LongTupleDistanceFunctions#jaccard()}.<br>
+ * <br>
+ * Queries may be performed concurrently, but not while fingerprints 
+ * are added.
+ */
+public final class PackedBitTuples
+{
+    /**
+     * The number of fingerprints in one block
+     */
+    private static final int BLOCK_SIZE = 1 << 16;
+    
+    /**
+     * The number of words per fingerprint
+     */
+    private final int wordCount;
+    
+    /**
+     * The blocks of words
+     */
+    private final List<long[]> blocks;
+    
+    /**
+     * The blocks of bit counts
+     */
+    private final List<int[]> bitCountBlocks;
+    
+    /**
+     * The number of fingerprints
+     */
+    private int size;
+    
+    /**
+     * Creates a new, empty collection for fingerprints with the given
+     * number of words
+     * 
+     * @param wordCount The number of words per fingerprint
+     * @throws IllegalArgumentException If the number of words is not
+     * positive
+     */
+    public PackedBitTuples(int wordCount)
+    {
+        if (wordCount <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of words must be positive, but is " + wordCount);
+        }
+        this.wordCount = wordCount;
+        this.blocks = new ArrayList<long[]>();
+        this.bitCountBlocks = new ArrayList<int[]>();
+    }
+    
+    /**
+     * Returns the number of words per fingerprint
+     * 
+     * @return The number of words
+     */
+    public int getWordCount()
+    {
+        return wordCount;
+    }
+    
+    /**
+     * Returns the number of fingerprints in this collection
+     * 
+     * @return The size
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Add the given fingerprint to this collection
+     * 
+     * @param tuple The fingerprint
+     * @return The index of the fingerprint
+     * @throws IllegalArgumentException If the size of the tuple is not
+     * the number of words
+     */
+    public int add(LongTuple tuple)
+    {
+        checkSize(tuple);
+        ensureCapacity(size + 1);
+        store(tuple, size);
+        return size++;
+    }
+    
+    /**
+     * Add all given fingerprints to this collection. The fingerprints 
+     * are stored in parallel, and receive consecutive indices in the 
+     * order of the given list.
+     * 
+     * @param tuples The fingerprints
+     * @return The index of the first fingerprint
+     * @throws IllegalArgumentException If the size of any tuple is not
+     * the number of words
+     */
+    public int addAll(List<? extends LongTuple> tuples)
+    {
+        for (LongTuple tuple : tuples)
+        {
+            checkSize(tuple);
+        }
+        int first = size;
+        ensureCapacity(size + tuples.size());
+        IntStream.range(0, tuples.size()).parallel().forEach(i -> 
+            store(tuples.get(i), first + i));
+        size += tuples.size();
+        return first;
+    }
+    
+    /**
+     * Store the given fingerprint at the given index
+     * 
+     * @param tuple The fingerprint
+     * @param index The index
+     */
+    private void store(LongTuple tuple, int index)
+    {
+        long block[] = blocks.get(index / BLOCK_SIZE);
+        int offset = (index % BLOCK_SIZE) * wordCount;
+        int bitCount = 0;
+        for (int w = 0; w < wordCount; w++)
+        {
+            long word = tuple.get(w);
+            block[offset + w] = word;
+            bitCount += Long.bitCount(word);
+        }
+        bitCountBlocks.get(index / BLOCK_SIZE)[index % BLOCK_SIZE] = bitCount;
+    }
+    
+    /**
+     * Make sure that there are enough blocks for the given number of
+     * fingerprints
+     * 
+     * @param capacity The capacity
+     */
+    private void ensureCapacity(int capacity)
+    {
+        while (blocks.size() * (long)BLOCK_SIZE < capacity)
+        {
+            blocks.add(new long[BLOCK_SIZE * wordCount]);
+            bitCountBlocks.add(new int[BLOCK_SIZE]);
+        }
+    }
+    
+    /**
+     * Returns a copy of the fingerprint with the given index
+     * 
+     * @param index The index
+     * @return The fingerprint
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the size of this collection
+     */
+    public MutableLongTuple get(int index)
+    {
+        checkIndex(index);
+        long words[] = new long[wordCount];
+        System.arraycopy(blocks.get(index / BLOCK_SIZE), 
+            (index % BLOCK_SIZE) * wordCount, words, 0, wordCount);
+        return LongTuples.wrap(words);
+    }
+    
+    /**
+     * Returns the number of bits that are set in the fingerprint with 
+     * the given index
+     * 
+     * @param index The index
+     * @return The number of bits
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the size of this collection
+     */
+    public int getBitCount(int index)
+    {
+        checkIndex(index);
+        return bitCountBlocks.get(index / BLOCK_SIZE)[index % BLOCK_SIZE];
+    }
+    
+    /**
+     * Computes the Hamming distances between the given query and all 
+     * fingerprints of this collection, in parallel
+     * 
+     * @param query The query
+     * @param result The array that will store the distances
+     * @throws IllegalArgumentException If the size of the query is not
+     * the number of words, or the result array is smaller than the size 
+     * of this collection
+     */
+    public void computeHammingDistances(LongTuple query, double result[])
+    {
+        checkSize(query);
+        checkResult(result);
+        long q[] = LongTuples.toArray(query);
+        IntStream.range(0, blocks.size()).parallel().forEach(b -> 
+        {
+            long block[] = blocks.get(b);
+            int from = b * BLOCK_SIZE;
+            int count = Math.min(BLOCK_SIZE, size - from);
+            for (int i = 0; i < count; i++)
+            {
+                result[from + i] = LongTupleKernels.bitCountOfXor(
+                    q, 0, block, i * wordCount, wordCount);
+            }
+        });
+    }
+    
+    /**
+     * Computes the Jaccard distances between the given query and all 
+     * fingerprints of this collection, in parallel
+     * 
+     * @param query The query
+     * @param result The array that will store the distances
+     * @throws IllegalArgumentException If the size of the query is not
+     * the number of words, or the result array is smaller than the size 
+     * of this collection
+     */
+    public void computeJaccardDistances(LongTuple query, double result[])
+    {
+        checkSize(query);
+        checkResult(result);
+        long q[] = LongTuples.toArray(query);
+        int queryBitCount = bitCount(q);
+        IntStream.range(0, blocks.size()).parallel().forEach(b -> 
+        {
+            long block[] = blocks.get(b);
+            int bitCounts[] = bitCountBlocks.get(b);
+            int from = b * BLOCK_SIZE;
+            int count = Math.min(BLOCK_SIZE, size - from);
+            for (int i = 0; i < count; i++)
+            {
+                long and = LongTupleKernels.bitCountOfAnd(
+                    q, 0, block, i * wordCount, wordCount);
+                result[from + i] = LongTupleDistanceFunctions.jaccard(
+                    and, queryBitCount + bitCounts[i] - and);
+            }
+        });
+    }
+    
+    /**
+     * Returns the <code>k</code> fingerprints that have the smallest 
+     * Hamming distance to the given query. The neighbors are sorted by
+     * their distance, and neighbors with equal distances are sorted by 
+     * their index.
+     * 
+     * @param query The query
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors
+     * @throws IllegalArgumentException If the size of the query is not
+     * the number of words, or <code>k</code> is not positive
+     */
+    public List<Neighbor<LongTuple>> findNearestHamming(
+        LongTuple query, int k)
+    {
+        checkSize(query);
+        checkK(k);
+        long q[] = LongTuples.toArray(query);
+        int queryBitCount = bitCount(q);
+        BoundedMaxHeap heap = IntStream.range(0, blocks.size()).parallel()
+            .mapToObj(b -> scanBlockHamming(q, queryBitCount, b, k))
+            .reduce(new BoundedMaxHeap(k), (h0, h1) -> merge(h0, h1, k));
+        return createNeighbors(heap);
+    }
+    
+    /**
+     * Returns the <code>k</code> fingerprints that have the smallest 
+     * Jaccard distance to the given query. The neighbors are sorted by
+     * their distance, and neighbors with equal distances are sorted by 
+     * their index.
+     * 
+     * @param query The query
+     * @param k The maximum number of neighbors
+     * @return The nearest neighbors
+     * @throws IllegalArgumentException If the size of the query is not
+     * the number of words, or <code>k</code> is not positive
+     */
+    public List<Neighbor<LongTuple>> findNearestJaccard(
+        LongTuple query, int k)
+    {
+        checkSize(query);
+        checkK(k);
+        long q[] = LongTuples.toArray(query);
+        int queryBitCount = bitCount(q);
+        BoundedMaxHeap heap = IntStream.range(0, blocks.size()).parallel()
+            .mapToObj(b -> scanBlockJaccard(q, queryBitCount, b, k))
+            .reduce(new BoundedMaxHeap(k), (h0, h1) -> merge(h0, h1, k));
+        return createNeighbors(heap);
+    }
+    
+    /**
+     * Scan the given block, and return a heap containing the nearest 
+     * neighbors, based on the Hamming distance
+     * 
+     * @param q The query words
+     * @param queryBitCount The number of bits that are set in the query
+     * @param b The block index
+     * @param k The maximum number of neighbors
+     * @return The heap
+     */
+    private BoundedMaxHeap scanBlockHamming(
+        long q[], int queryBitCount, int b, int k)
+    {
+        BoundedMaxHeap heap = new BoundedMaxHeap(k);
+        long block[] = blocks.get(b);
+        int bitCounts[] = bitCountBlocks.get(b);
+        int from = b * BLOCK_SIZE;
+        int count = Math.min(BLOCK_SIZE, size - from);
+        for (int i = 0; i < count; i++)
+        {
+            double threshold = heap.threshold();
+            if (Math.abs(queryBitCount - bitCounts[i]) > threshold)
+            {
+                continue;
+            }
+            int offset = i * wordCount;
+            int distance = 0;
+            for (int w = 0; w < wordCount; w++)
+            {
+                distance += Long.bitCount(q[w] ^ block[offset + w]);
+                if (distance > threshold)
+                {
+                    break;
+                }
+            }
+            if (distance <= threshold)
+            {
+                heap.offer(distance, from + i);
+            }
+        }
+        return heap;
+    }
+    
+    /**
+     * Scan the given block, and return a heap containing the nearest 
+     * neighbors, based on the Jaccard distance
+     * 
+     * @param q The query words
+     * @param queryBitCount The number of bits that are set in the query
+     * @param b The block index
+     * @param k The maximum number of neighbors
+     * @return The heap
+     */
+    private BoundedMaxHeap scanBlockJaccard(
+        long q[], int queryBitCount, int b, int k)
+    {
+        BoundedMaxHeap heap = new BoundedMaxHeap(k);
+        long block[] = blocks.get(b);
+        int bitCounts[] = bitCountBlocks.get(b);
+        int from = b * BLOCK_SIZE;
+        int count = Math.min(BLOCK_SIZE, size - from);
+        for (int i = 0; i < count; i++)
+        {
+            double threshold = heap.threshold();
+            int bitCount = bitCounts[i];
+            double bound = LongTupleDistanceFunctions.jaccard(
+                Math.min(queryBitCount, bitCount), 
+                Math.max(queryBitCount, bitCount));
+            if (bound > threshold)
+            {
+                continue;
+            }
+            long and = LongTupleKernels.bitCountOfAnd(
+                q, 0, block, i * wordCount, wordCount);
+            double distance = LongTupleDistanceFunctions.jaccard(
+                and, queryBitCount + bitCount - and);
+            if (distance <= threshold)
+            {
+                heap.offer(distance, from + i);
+            }
+        }
+        return heap;
+    }
+    
+    /**
+     * Merge the given heaps into a new one
+     * 
+     * @param h0 The first heap
+     * @param h1 The second heap
+     * @param k The maximum number of neighbors
+     * @return The merged heap
+     */
+    private static BoundedMaxHeap merge(
+        BoundedMaxHeap h0, BoundedMaxHeap h1, int k)
+    {
+        BoundedMaxHeap merged = new BoundedMaxHeap(k);
+        merged.offerAll(h0);
+        merged.offerAll(h1);
+        return merged;
+    }
+    
+    /**
+     * Returns the number of bits that are set in the given words
+     * 
+     * @param words The words
+     * @return The number of bits
+     */
+    private static int bitCount(long words[])
+    {
+        int result = 0;
+        for (long word : words)
+        {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+    
+    /**
+     * Create the list of neighbors from the given heap
+     * 
+     * @param heap The heap
+     * @return The neighbors
+     */
+    private List<Neighbor<LongTuple>> createNeighbors(BoundedMaxHeap heap)
+    {
+        double distances[] = new double[heap.size()];
+        int indices[] = heap.toSortedIndices(distances);
+        List<Neighbor<LongTuple>> result = 
+            new ArrayList<Neighbor<LongTuple>>(indices.length);
+        for (int i = 0; i < indices.length; i++)
+        {
+            int index = indices[i];
+            result.add(new Neighbor<LongTuple>(
+                get(index), index, distances[i]));
+        }
+        return result;
+    }
+    
+    /**
+     * Make sure that the given tuple has the number of words as its size
+     * 
+     * @param tuple The tuple
+     * @throws IllegalArgumentException If this is not the case
+     */
+    private void checkSize(LongTuple tuple)
+    {
+        if (tuple.getSize() != wordCount)
+        {
+            throw new IllegalArgumentException(
+                "Expected a tuple of size " + wordCount + 
+                ", but found size " + tuple.getSize());
+        }
+    }
+    
+    /**
+     * Make sure that the given result array can store the distances
+     * for all fingerprints
+     * 
+     * @param result The result array
+     * @throws IllegalArgumentException If the array is too small
+     */
+    private void checkResult(double result[])
+    {
+        if (result.length < size)
+        {
+            throw new IllegalArgumentException(
+                "The result array has a length of " + result.length + 
+                ", but the size is " + size);
+        }
+    }
+    
+    /**
+     * Make sure that the given number of neighbors is positive
+     * 
+     * @param k The number of neighbors
+     * @throws IllegalArgumentException If the number is not positive
+     */
+    private static void checkK(int k)
+    {
+        if (k <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The number of neighbors must be positive, but is " + k);
+        }
+    }
+    
+    /**
+     * Make sure that the given index is valid
+     * 
+     * @param index The index
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the size of this collection
+     */
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException(
+                "Index: " + index + ", size: " + size);
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "PackedBitTuples[" + 
+            "size=" + size + 
+            ", wordCount=" + wordCount + "]";
+    }
+}
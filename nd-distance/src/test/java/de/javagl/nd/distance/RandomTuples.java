@@ -0,0 +1,117 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+/**
+ * Utility methods for creating random {@link DoubleTuple}s in tests
+ */
+public final class RandomTuples
+{
+    /**
+     * Creates a list of tuples with the given size, whose elements are
+     * uniformly distributed between the given minimum (inclusive) and
+     * maximum (exclusive)
+     * 
+     * @param random The random number generator
+     * @param count The number of tuples
+     * @param size The size of the tuples
+     * @param min The minimum value
+     * @param max The maximum value
+     * @return The tuples
+     */
+    public static List<DoubleTuple> createRandomTuples(
+        Random random, int count, int size, double min, double max)
+    {
+        List<DoubleTuple> result = new ArrayList<DoubleTuple>();
+        for (int i = 0; i < count; i++)
+        {
+            double array[] = new double[size];
+            for (int j = 0; j < size; j++)
+            {
+                array[j] = min + random.nextDouble() * (max - min);
+            }
+            result.add(DoubleTuples.wrap(array));
+        }
+        return result;
+    }
+    
+    /**
+     * Creates a list of tuples with the given size, whose elements are
+     * uniformly distributed between 0.0 (inclusive) and 1.0 (exclusive)
+     * 
+     * @param random The random number generator
+     * @param count The number of tuples
+     * @param size The size of the tuples
+     * @return The tuples
+     */
+    public static List<DoubleTuple> createRandomTuples(
+        Random random, int count, int size)
+    {
+        return createRandomTuples(random, count, size, 0.0, 1.0);
+    }
+    
+    /**
+     * Creates a list of tuples with the given size, whose elements are
+     * normally distributed, with a mean of 0.0 and a standard deviation 
+     * of 1.0
+     * 
+     * @param random The random number generator
+     * @param count The number of tuples
+     * @param size The size of the tuples
+     * @return The tuples
+     */
+    public static List<DoubleTuple> createGaussianTuples(
+        Random random, int count, int size)
+    {
+        List<DoubleTuple> result = new ArrayList<DoubleTuple>();
+        for (int i = 0; i < count; i++)
+        {
+            double array[] = new double[size];
+            for (int j = 0; j < size; j++)
+            {
+                array[j] = random.nextGaussian();
+            }
+            result.add(DoubleTuples.wrap(array));
+        }
+        return result;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private RandomTuples()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.tuples.d.DoubleTupleDistanceFunctions;
+import de.javagl.nd.distance.tuples.i.IntTupleDistanceFunctions;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.IntTuples;
+
+@SuppressWarnings("javadoc")
+public class TestNearestNeighbors
+{
+    @Test
+    public void testFindNearestMatchesSorting()
+    {
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(new Random(0), 1000, 3);
+        DoubleTuple reference = DoubleTuples.of(0.5, 0.5, 0.5);
+        DistanceFunction<DoubleTuple> distanceFunction = 
+            DoubleTupleDistanceFunctions.euclidean();
+        
+        List<DoubleTuple> sorted = new ArrayList<DoubleTuple>(tuples);
+        Collections.sort(sorted, DoubleTupleDistanceFunctions
+            .byDistanceComparator(reference, distanceFunction));
+        
+        List<Neighbor<DoubleTuple>> neighbors = DoubleTupleDistanceFunctions
+            .findNearest(reference, tuples, distanceFunction, 10);
+        assertEquals(10, neighbors.size());
+        for (int i = 0; i < neighbors.size(); i++)
+        {
+            Neighbor<DoubleTuple> neighbor = neighbors.get(i);
+            assertSame(sorted.get(i), neighbor.getElement());
+            assertSame(tuples.get(neighbor.getIndex()), neighbor.getElement());
+            assertEquals(distanceFunction.distance(reference, sorted.get(i)),
+                neighbor.getDistance(), 0.0);
+        }
+    }
+    
+    @Test
+    public void testFindNearestParallelMatchesSequential()
+    {
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(new Random(1), 20000, 3);
+        DoubleTuple reference = DoubleTuples.of(0.2, 0.4, 0.6);
+        DistanceFunction<DoubleTuple> distanceFunction = 
+            DoubleTupleDistanceFunctions.manhattan();
+        
+        List<Neighbor<DoubleTuple>> expected = DoubleTupleDistanceFunctions
+            .findNearest(reference, tuples, distanceFunction, 25);
+        List<Neighbor<DoubleTuple>> actual = DoubleTupleDistanceFunctions
+            .findNearestParallel(reference, tuples, distanceFunction, 25);
+        assertEquals(expected, actual);
+    }
+    
+    @Test
+    public void testFindNearestWithTiesAndFewCandidates()
+    {
+        List<IntTuple> tuples = new ArrayList<IntTuple>();
+        tuples.add(IntTuples.of(2, 0));
+        tuples.add(IntTuples.of(0, 1));
+        tuples.add(IntTuples.of(1, 0));
+        tuples.add(IntTuples.of(0, 2));
+        
+        List<Neighbor<IntTuple>> neighbors = IntTupleDistanceFunctions
+            .findNearest(IntTuples.of(0, 0), tuples, 
+                IntTupleDistanceFunctions.manhattan(), 10);
+        assertEquals(4, neighbors.size());
+        assertEquals(1, neighbors.get(0).getIndex());
+        assertEquals(2, neighbors.get(1).getIndex());
+        assertEquals(0, neighbors.get(2).getIndex());
+        assertEquals(3, neighbors.get(3).getIndex());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindNearestWithInvalidK()
+    {
+        NearestNeighbors.findNearest(DoubleTuples.of(0.0), 
+            new ArrayList<DoubleTuple>(), 
+            DoubleTupleDistanceFunctions.euclidean(), 0);
+    }
+}
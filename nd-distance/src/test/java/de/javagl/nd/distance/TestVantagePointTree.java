@@ -0,0 +1,140 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.tuples.d.DoubleTupleDistanceFunctions;
+import de.javagl.nd.distance.tuples.i.IntTupleDistanceFunctions;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.IntTuples;
+
+@SuppressWarnings("javadoc")
+public class TestVantagePointTree
+{
+    private static List<IntTuple> createRandomIntTuples(
+        Random random, int count, int bound)
+    {
+        List<IntTuple> result = new ArrayList<IntTuple>();
+        for (int i = 0; i < count; i++)
+        {
+            result.add(IntTuples.of(random.nextInt(bound), 
+                random.nextInt(bound), random.nextInt(bound)));
+        }
+        return result;
+    }
+    
+    @Test
+    public void testFindNearestWrappedMatchesLinearSearch()
+    {
+        Random random = new Random(0);
+        List<IntTuple> tuples = createRandomIntTuples(random, 5000, 100);
+        DistanceFunction<IntTuple> distanceFunction = 
+            IntTupleDistanceFunctions.wrappedEuclidean(
+                IntTuples.of(100, 100, 100));
+        VantagePointTree<IntTuple> tree = 
+            new VantagePointTree<IntTuple>(tuples, distanceFunction);
+        assertEquals(5000, tree.size());
+        assertTrue(tree.getBuildDistanceComputationCount() > 0);
+        
+        List<IntTuple> queries = createRandomIntTuples(random, 50, 100);
+        List<List<Neighbor<IntTuple>>> results = tree.findNearest(queries, 5);
+        for (int i = 0; i < queries.size(); i++)
+        {
+            List<Neighbor<IntTuple>> expected = NearestNeighbors.findNearest(
+                queries.get(i), tuples, distanceFunction, 5);
+            assertEquals(expected, results.get(i));
+        }
+        assertEquals(50, tree.getQueryCount());
+        assertTrue(tree.getDistanceComputationCount() < 50L * 5000);
+        
+        tree.resetStatistics();
+        assertEquals(0, tree.getQueryCount());
+        assertEquals(0, tree.getDistanceComputationCount());
+    }
+    
+    @Test
+    public void testFindWithinMatchesLinearSearch()
+    {
+        Random random = new Random(1);
+        List<DoubleTuple> tuples = new ArrayList<DoubleTuple>();
+        for (int i = 0; i < 3000; i++)
+        {
+            tuples.add(DoubleTuples.of(
+                random.nextDouble(), random.nextDouble()));
+        }
+        DistanceFunction<DoubleTuple> distanceFunction = 
+            DoubleTupleDistanceFunctions.manhattan();
+        VantagePointTree<DoubleTuple> tree = 
+            new VantagePointTree<DoubleTuple>(tuples, distanceFunction);
+        
+        DoubleTuple query = DoubleTuples.of(0.3, 0.6);
+        List<Neighbor<DoubleTuple>> neighbors = tree.findWithin(query, 0.1);
+        int expectedCount = 0;
+        for (DoubleTuple tuple : tuples)
+        {
+            if (distanceFunction.distance(query, tuple) <= 0.1)
+            {
+                expectedCount++;
+            }
+        }
+        assertEquals(expectedCount, neighbors.size());
+        for (int i = 1; i < neighbors.size(); i++)
+        {
+            assertTrue(neighbors.get(i - 1).getDistance() <= 
+                neighbors.get(i).getDistance());
+        }
+    }
+    
+    @Test
+    public void testEmptyTree()
+    {
+        VantagePointTree<DoubleTuple> tree = new VantagePointTree<DoubleTuple>(
+            new ArrayList<DoubleTuple>(), 
+            DoubleTupleDistanceFunctions.euclidean());
+        assertTrue(tree.findNearest(DoubleTuples.of(1, 2), 3).isEmpty());
+        assertTrue(tree.findWithin(DoubleTuples.of(1, 2), 3).isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidK()
+    {
+        VantagePointTree<DoubleTuple> tree = new VantagePointTree<DoubleTuple>(
+            new ArrayList<DoubleTuple>(), 
+            DoubleTupleDistanceFunctions.euclidean());
+        tree.findNearest(DoubleTuples.of(1, 2), 0);
+    }
+}
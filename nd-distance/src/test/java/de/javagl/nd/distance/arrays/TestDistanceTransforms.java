@@ -0,0 +1,159 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.arrays.d.DoubleArraysND;
+import de.javagl.nd.arrays.d.MutableDoubleArrayND;
+import de.javagl.nd.arrays.i.IntArraysND;
+import de.javagl.nd.arrays.i.MutableIntArrayND;
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.distance.tuples.i.IntTupleDistanceFunctions;
+import de.javagl.nd.iteration.tuples.i.IntTupleIterables;
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.IntTuples;
+import de.javagl.nd.tuples.i.MutableIntTuple;
+
+@SuppressWarnings("javadoc")
+public class TestDistanceTransforms
+{
+    private interface Transform
+    {
+        void apply(MutableIntArrayND seeds, boolean wrapped, 
+            MutableDoubleArrayND distances, MutableIntArrayND labels);
+    }
+    
+    private static void check(IntTuple size, int seedCount, long seed,
+        boolean wrapped, DistanceFunction<IntTuple> distanceFunction, 
+        Transform transform)
+    {
+        Random random = new Random(seed);
+        MutableIntArrayND seeds = IntArraysND.create(size);
+        List<IntTuple> seedCoordinates = new ArrayList<IntTuple>();
+        for (int i = 0; i < seedCount; i++)
+        {
+            MutableIntTuple c = IntTuples.create(size.getSize());
+            for (int d = 0; d < size.getSize(); d++)
+            {
+                c.set(d, random.nextInt(size.get(d)));
+            }
+            if (seeds.get(c) == 0)
+            {
+                seedCoordinates.add(c);
+                seeds.set(c, seedCoordinates.size());
+            }
+        }
+        MutableDoubleArrayND distances = DoubleArraysND.create(size);
+        MutableIntArrayND labels = IntArraysND.create(size);
+        transform.apply(seeds, wrapped, distances, labels);
+        
+        for (IntTuple c : IntTupleIterables.lexicographicalIterable(size))
+        {
+            double expected = Double.POSITIVE_INFINITY;
+            for (IntTuple s : seedCoordinates)
+            {
+                expected = Math.min(expected, distanceFunction.distance(c, s));
+            }
+            assertEquals(expected, distances.get(c), 1e-9);
+            int label = labels.get(c);
+            assertTrue(label > 0);
+            IntTuple nearest = seedCoordinates.get(label - 1);
+            assertEquals(expected, 
+                distanceFunction.distance(c, nearest), 1e-9);
+        }
+    }
+    
+    @Test
+    public void testEuclidean()
+    {
+        IntTuple size = IntTuples.of(23, 17);
+        check(size, 6, 0, false, 
+            IntTupleDistanceFunctions.euclidean(), 
+            DistanceTransforms::euclidean);
+        check(size, 6, 1, true, 
+            IntTupleDistanceFunctions.wrappedEuclidean(size), 
+            DistanceTransforms::euclidean);
+    }
+    
+    @Test
+    public void testManhattan()
+    {
+        IntTuple size = IntTuples.of(9, 11, 7);
+        check(size, 5, 2, false, 
+            IntTupleDistanceFunctions.manhattan(), 
+            DistanceTransforms::manhattan);
+        check(size, 5, 3, true, 
+            IntTupleDistanceFunctions.wrappedManhattan(size), 
+            DistanceTransforms::manhattan);
+    }
+    
+    @Test
+    public void testChebyshev()
+    {
+        IntTuple size = IntTuples.of(31, 13);
+        check(size, 7, 4, false, 
+            IntTupleDistanceFunctions.chebyshev(), 
+            DistanceTransforms::chebyshev);
+        check(size, 7, 5, true, 
+            IntTupleDistanceFunctions.wrappedChebyshev(size), 
+            DistanceTransforms::chebyshev);
+    }
+    
+    @Test
+    public void testEuclideanThreeDimensional()
+    {
+        IntTuple size = IntTuples.of(8, 10, 12);
+        check(size, 4, 6, false, 
+            IntTupleDistanceFunctions.euclidean(), 
+            DistanceTransforms::euclidean);
+    }
+    
+    @Test
+    public void testWithoutSeeds()
+    {
+        MutableIntArrayND seeds = IntArraysND.create(4, 5);
+        MutableDoubleArrayND distances = 
+            DistanceTransforms.manhattan(seeds, false);
+        assertEquals(Double.POSITIVE_INFINITY, 
+            distances.get(IntTuples.of(2, 3)), 0.0);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMismatch()
+    {
+        DistanceTransforms.euclidean(IntArraysND.create(4, 5), false, 
+            DoubleArraysND.create(5, 4), null);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.clustering;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.distance.tuples.d.DoubleTupleDistanceFunctions;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+@SuppressWarnings("javadoc")
+public class TestDbscan
+{
+    private static int[] clusterLinear(List<DoubleTuple> tuples, 
+        double epsilon, int minPoints, DistanceFunction<DoubleTuple> df)
+    {
+        int n = tuples.size();
+        boolean core[] = new boolean[n];
+        for (int i = 0; i < n; i++)
+        {
+            int count = 0;
+            for (int j = 0; j < n; j++)
+            {
+                if (df.distance(tuples.get(i), tuples.get(j)) <= epsilon)
+                {
+                    count++;
+                }
+            }
+            core[i] = count >= minPoints;
+        }
+        int roots[] = new int[n];
+        Arrays.fill(roots, -1);
+        for (int i = 0; i < n; i++)
+        {
+            if (!core[i] || roots[i] != -1)
+            {
+                continue;
+            }
+            Deque<Integer> queue = new ArrayDeque<Integer>();
+            queue.add(i);
+            roots[i] = i;
+            while (!queue.isEmpty())
+            {
+                int p = queue.poll();
+                for (int j = 0; j < n; j++)
+                {
+                    if (core[j] && roots[j] == -1 && 
+                        df.distance(tuples.get(p), tuples.get(j)) <= epsilon)
+                    {
+                        roots[j] = i;
+                        queue.add(j);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < n; i++)
+        {
+            if (core[i])
+            {
+                continue;
+            }
+            for (int j = 0; j < n; j++)
+            {
+                if (core[j] && 
+                    df.distance(tuples.get(i), tuples.get(j)) <= epsilon)
+                {
+                    roots[i] = roots[j];
+                    break;
+                }
+            }
+        }
+        int labels[] = new int[n];
+        List<Integer> seenRoots = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++)
+        {
+            if (roots[i] == -1)
+            {
+                labels[i] = DbscanResult.NOISE;
+                continue;
+            }
+            if (!seenRoots.contains(roots[i]))
+            {
+                seenRoots.add(roots[i]);
+            }
+            labels[i] = seenRoots.indexOf(roots[i]);
+        }
+        return labels;
+    }
+    
+    private static List<DoubleTuple> createPoints(Random random, int count)
+    {
+        List<DoubleTuple> tuples = new ArrayList<DoubleTuple>();
+        for (int i = 0; i < count; i++)
+        {
+            if (random.nextBoolean())
+            {
+                double cx = random.nextInt(5) * 10.0;
+                tuples.add(DoubleTuples.of(
+                    cx + random.nextGaussian(), random.nextGaussian() - 5));
+            }
+            else
+            {
+                tuples.add(DoubleTuples.of(
+                    random.nextDouble() * 60 - 5, random.nextDouble() * 20 - 10));
+            }
+        }
+        return tuples;
+    }
+    
+    @Test
+    public void testMatchesLinearClustering()
+    {
+        List<DoubleTuple> tuples = createPoints(new Random(0), 1500);
+        DistanceFunction<DoubleTuple> df = 
+            DoubleTupleDistanceFunctions.euclidean();
+        DbscanResult result = new Dbscan(0.8, 5, df).cluster(tuples);
+        int expected[] = clusterLinear(tuples, 0.8, 5, df);
+        assertArrayEquals(expected, result.getLabels());
+        int max = Arrays.stream(expected).max().getAsInt();
+        assertEquals(max + 1, result.getClusterCount());
+    }
+    
+    @Test
+    public void testMatchesLinearClusteringManhattan()
+    {
+        List<DoubleTuple> tuples = createPoints(new Random(1), 1000);
+        DistanceFunction<DoubleTuple> df = 
+            DoubleTupleDistanceFunctions.manhattan();
+        DbscanResult result = new Dbscan(1.0, 4, df).cluster(tuples);
+        assertArrayEquals(clusterLinear(tuples, 1.0, 4, df), 
+            result.getLabels());
+    }
+    
+    @Test
+    public void testSimpleClusters()
+    {
+        List<DoubleTuple> tuples = Arrays.asList(
+            DoubleTuples.of(0.0, 0.0), DoubleTuples.of(0.5, 0.0),
+            DoubleTuples.of(1.0, 0.0), DoubleTuples.of(10.0, 10.0),
+            DoubleTuples.of(20.0, 0.0), DoubleTuples.of(20.5, 0.0), 
+            DoubleTuples.of(20.0, 0.5));
+        DbscanResult result = new Dbscan(0.6, 2, 
+            DoubleTupleDistanceFunctions.euclidean()).cluster(tuples);
+        assertArrayEquals(new int[] { 0, 0, 0, -1, 1, 1, 1 }, 
+            result.getLabels());
+        assertEquals(2, result.getClusterCount());
+        assertEquals(1, result.getNoiseCount());
+    }
+    
+    @Test
+    public void testEmpty()
+    {
+        DbscanResult result = new Dbscan(1.0, 2, 
+            DoubleTupleDistanceFunctions.euclidean()).cluster(
+                new ArrayList<DoubleTuple>());
+        assertEquals(0, result.getClusterCount());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidEpsilon()
+    {
+        new Dbscan(0.0, 2, DoubleTupleDistanceFunctions.euclidean());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.clustering;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+@SuppressWarnings("javadoc")
+public class TestKMeans
+{
+    private static List<DoubleTuple> createBlobs(
+        Random random, int blobs, int perBlob, int size)
+    {
+        List<DoubleTuple> result = new ArrayList<DoubleTuple>();
+        for (int b = 0; b < blobs; b++)
+        {
+            double center[] = new double[size];
+            for (int x = 0; x < size; x++)
+            {
+                center[x] = random.nextDouble() * 100;
+            }
+            for (int i = 0; i < perBlob; i++)
+            {
+                double array[] = new double[size];
+                for (int x = 0; x < size; x++)
+                {
+                    array[x] = center[x] + random.nextGaussian();
+                }
+                result.add(DoubleTuples.wrap(array));
+            }
+        }
+        return result;
+    }
+    
+    private static KMeansResult cluster(List<DoubleTuple> tuples, int k, 
+        KMeans.Algorithm algorithm)
+    {
+        KMeans kMeans = new KMeans(k);
+        kMeans.setAlgorithm(algorithm);
+        kMeans.setSeed(1);
+        return kMeans.cluster(tuples);
+    }
+    
+    @Test
+    public void testAcceleratedAlgorithmsMatchLloyd()
+    {
+        List<DoubleTuple> tuples = createBlobs(new Random(0), 10, 1000, 8);
+        KMeansResult lloyd = cluster(tuples, 10, KMeans.Algorithm.LLOYD);
+        KMeansResult hamerly = cluster(tuples, 10, KMeans.Algorithm.HAMERLY);
+        KMeansResult elkan = cluster(tuples, 10, KMeans.Algorithm.ELKAN);
+        
+        assertTrue(lloyd.isConverged());
+        assertArrayEquals(lloyd.getAssignments(), hamerly.getAssignments());
+        assertArrayEquals(lloyd.getAssignments(), elkan.getAssignments());
+        assertEquals(lloyd.getInertia(), hamerly.getInertia(), 1e-6);
+        assertEquals(lloyd.getInertia(), elkan.getInertia(), 1e-6);
+        assertEquals(lloyd.getIterationCount(), hamerly.getIterationCount());
+        assertEquals(lloyd.getIterationCount(), 
+            hamerly.getIterationNanos().length);
+        assertTrue(hamerly.getDistanceComputationCount() < 
+            lloyd.getDistanceComputationCount());
+        assertTrue(elkan.getDistanceComputationCount() < 
+            lloyd.getDistanceComputationCount());
+    }
+    
+    @Test
+    public void testFindsSeparatedClusters()
+    {
+        List<DoubleTuple> tuples = createBlobs(new Random(1), 4, 500, 2);
+        KMeansResult result = cluster(tuples, 4, KMeans.Algorithm.HAMERLY);
+        int sizes[] = result.getClusterSizes();
+        Arrays.sort(sizes);
+        assertArrayEquals(new int[] { 500, 500, 500, 500 }, sizes);
+        int assignments[] = result.getAssignments();
+        for (int i = 0; i < tuples.size(); i++)
+        {
+            assertEquals(assignments[i / 500 * 500], assignments[i]);
+        }
+    }
+    
+    @Test
+    public void testMiniBatch()
+    {
+        List<DoubleTuple> tuples = createBlobs(new Random(2), 5, 2000, 4);
+        KMeans kMeans = new KMeans(5);
+        kMeans.setBatchSize(256);
+        kMeans.setMaxIterations(50);
+        KMeansResult miniBatch = kMeans.clusterMiniBatch(tuples);
+        KMeansResult full = kMeans.cluster(tuples);
+        assertEquals(50, miniBatch.getIterationCount());
+        assertEquals(tuples.size(), miniBatch.getAssignments().length);
+        assertTrue(miniBatch.getInertia() < full.getInertia() * 1.1);
+    }
+    
+    @Test
+    public void testSingleCluster()
+    {
+        List<DoubleTuple> tuples = Arrays.asList(
+            DoubleTuples.of(0, 0), DoubleTuples.of(2, 0), 
+            DoubleTuples.of(0, 2), DoubleTuples.of(2, 2));
+        KMeansResult result = new KMeans(1).cluster(tuples);
+        assertEquals(DoubleTuples.of(1, 1), result.getCentroid(0));
+        assertEquals(8.0, result.getInertia(), 1e-12);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooFewTuples()
+    {
+        new KMeans(3).cluster(Arrays.asList(
+            DoubleTuples.of(0, 0), DoubleTuples.of(1, 1)));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyElements()
+    {
+        // 70000 tuples of size 40000 do not fit into one packed array
+        DoubleTuple tuple = DoubleTuples.create(40000);
+        List<DoubleTuple> tuples = Collections.nCopies(70000, tuple);
+        new KMeans(2).cluster(tuples);
+    }
+}
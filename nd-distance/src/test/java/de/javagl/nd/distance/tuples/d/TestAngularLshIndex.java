@@ -0,0 +1,190 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.Neighbor;
+import de.javagl.nd.distance.RandomTuples;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+@SuppressWarnings("javadoc")
+public class TestAngularLshIndex
+{
+    private static DoubleTuple perturb(
+        Random random, DoubleTuple tuple, double amount)
+    {
+        double array[] = DoubleTuples.toArray(tuple);
+        for (int j = 0; j < array.length; j++)
+        {
+            array[j] += (random.nextDouble() - 0.5) * amount;
+        }
+        return DoubleTuples.wrap(array);
+    }
+    
+    @Test
+    public void testFindsNearDuplicates()
+    {
+        Random random = new Random(0);
+        int size = 32;
+        List<DoubleTuple> tuples = 
+            RandomTuples.createGaussianTuples(random, 2000, size);
+        AngularLshIndex index = new AngularLshIndex(size, 8, 12, 0);
+        assertEquals(0, index.addAll(tuples));
+        assertEquals(2000, index.size());
+        
+        List<DoubleTuple> queries = new ArrayList<DoubleTuple>();
+        for (int i = 0; i < 100; i++)
+        {
+            queries.add(perturb(random, tuples.get(i * 20), 0.1));
+        }
+        List<List<Neighbor<DoubleTuple>>> results = 
+            index.search(queries, 1, 2);
+        int hits = 0;
+        for (int i = 0; i < queries.size(); i++)
+        {
+            List<Neighbor<DoubleTuple>> neighbors = results.get(i);
+            if (!neighbors.isEmpty() && neighbors.get(0).getIndex() == i * 20)
+            {
+                hits++;
+            }
+        }
+        assertTrue("Recall was " + hits + "%", hits >= 95);
+    }
+    
+    @Test
+    public void testSearchWithin()
+    {
+        Random random = new Random(1);
+        int size = 16;
+        List<DoubleTuple> tuples = 
+            RandomTuples.createGaussianTuples(random, 500, size);
+        AngularLshIndex index = new AngularLshIndex(size, 10, 8, 1);
+        for (DoubleTuple tuple : tuples)
+        {
+            index.add(tuple);
+        }
+        DoubleTuple duplicate = DoubleTuples.copy(tuples.get(42));
+        int id = index.add(duplicate);
+        assertEquals(500, id);
+        
+        List<Neighbor<DoubleTuple>> neighbors = 
+            index.searchWithin(tuples.get(42), 0.01, 1);
+        assertEquals(2, neighbors.size());
+        assertEquals(42, neighbors.get(0).getIndex());
+        assertEquals(500, neighbors.get(1).getIndex());
+        assertEquals(0.0, neighbors.get(0).getDistance(), 1e-6);
+    }
+    
+    @Test
+    public void testSearchReturnsSortedExactDistances()
+    {
+        Random random = new Random(2);
+        int size = 8;
+        List<DoubleTuple> tuples = 
+            RandomTuples.createGaussianTuples(random, 300, size);
+        AngularLshIndex index = new AngularLshIndex(size, 6, 6, 2);
+        index.addAll(tuples);
+        DoubleTuple query = tuples.get(7);
+        List<Neighbor<DoubleTuple>> neighbors = index.search(query, 5, 3);
+        assertEquals(7, neighbors.get(0).getIndex());
+        for (int i = 0; i < neighbors.size(); i++)
+        {
+            Neighbor<DoubleTuple> neighbor = neighbors.get(i);
+            double expected = DoubleTupleDistanceFunctions.angular()
+                .distance(query, tuples.get(neighbor.getIndex()));
+            assertEquals(expected, neighbor.getDistance(), 0.0);
+            if (i > 0)
+            {
+                assertTrue(neighbors.get(i - 1).getDistance() <= 
+                    neighbor.getDistance());
+            }
+        }
+    }
+    
+    @Test
+    public void testEmptyIndex()
+    {
+        AngularLshIndex index = new AngularLshIndex(3, 2, 4, 0);
+        assertTrue(index.search(DoubleTuples.of(1, 2, 3), 3, 1).isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBitsPerTable()
+    {
+        new AngularLshIndex(3, 2, 65, 0);
+    }
+    
+    @Test
+    public void testProbingAllBits()
+    {
+        Random random = new Random(3);
+        int size = 8;
+        List<DoubleTuple> tuples = 
+            RandomTuples.createGaussianTuples(random, 300, size);
+        AngularLshIndex index = new AngularLshIndex(size, 4, 5, 3);
+        index.addAll(tuples);
+        DoubleTuple query = tuples.get(11);
+        List<Neighbor<DoubleTuple>> all = index.search(query, 3, 5);
+        List<Neighbor<DoubleTuple>> more = index.search(query, 3, 100);
+        assertEquals(11, all.get(0).getIndex());
+        assertEquals(all.size(), more.size());
+        for (int i = 0; i < all.size(); i++)
+        {
+            assertEquals(all.get(i).getIndex(), more.get(i).getIndex());
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyHyperplanes()
+    {
+        new AngularLshIndex(1 << 16, 1 << 10, 64, 0);
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testTooManySignatures()
+    {
+        AngularLshIndex index = new AngularLshIndex(1, 1 << 20, 1, 0);
+        index.addAll(Collections.nCopies(2048, DoubleTuples.of(1.0)));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTupleSize()
+    {
+        AngularLshIndex index = new AngularLshIndex(3, 2, 4, 0);
+        index.add(DoubleTuples.of(1, 2));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.arrays.d.MutableDoubleArrayND;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.i.IntTuples;
+
+@SuppressWarnings("javadoc")
+public class TestDoubleTupleCovariances
+{
+    @Test
+    public void testCovarianceMatchesBruteForce()
+    {
+        List<DoubleTuple> tuples = createTuples(10000, 70, 0);
+        MutableDoubleArrayND covariance = 
+            DoubleTupleCovariances.computeCovarianceMatrix(tuples, null);
+        double expected[][] = computeCovariance(tuples);
+        for (int i = 0; i < 70; i++)
+        {
+            for (int j = 0; j < 70; j++)
+            {
+                assertEquals(expected[i][j], 
+                    covariance.get(IntTuples.of(i, j)), 1e-10);
+            }
+        }
+    }
+    
+    @Test
+    public void testCorrelation()
+    {
+        List<DoubleTuple> tuples = new ArrayList<DoubleTuple>();
+        for (int i = 0; i < 100; i++)
+        {
+            tuples.add(DoubleTuples.of(i, -2.0 * i + 3.0, 5.0));
+        }
+        MutableDoubleArrayND correlation = 
+            DoubleTupleCovariances.computeCorrelationMatrix(tuples, null);
+        assertEquals(1.0, correlation.get(IntTuples.of(0, 0)), 1e-12);
+        assertEquals(-1.0, correlation.get(IntTuples.of(0, 1)), 1e-12);
+        assertEquals(-1.0, correlation.get(IntTuples.of(1, 0)), 1e-12);
+        assertEquals(1.0, correlation.get(IntTuples.of(2, 2)), 0.0);
+        assertEquals(0.0, correlation.get(IntTuples.of(0, 2)), 0.0);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidResultSize()
+    {
+        List<DoubleTuple> tuples = createTuples(10, 3, 0);
+        DoubleTupleCovariances.computeCovarianceMatrix(tuples, 
+            de.javagl.nd.arrays.d.DoubleArraysND.create(3, 4));
+    }
+    
+    @Test
+    public void testChunkProcessingIsDeterministic()
+    {
+        int n = 20000;
+        int d = 150;
+        Random random = new Random(1);
+        double centered[] = new double[n * d];
+        for (int i = 0; i < centered.length; i++)
+        {
+            centered[i] = random.nextGaussian();
+        }
+        double sequential[] = 
+            DoubleTupleCovariances.computeCovariance(centered, n, d, false);
+        double parallel[] = 
+            DoubleTupleCovariances.computeCovariance(centered, n, d, true);
+        assertArrayEquals(sequential, parallel, 0.0);
+        assertEquals(1.0, sequential[0], 0.05);
+        assertEquals(sequential[d + 3], sequential[3 * d + 1], 0.0);
+    }
+    
+    private static List<DoubleTuple> createTuples(int n, int d, long seed)
+    {
+        Random random = new Random(seed);
+        List<DoubleTuple> tuples = new ArrayList<DoubleTuple>();
+        for (int i = 0; i < n; i++)
+        {
+            double values[] = new double[d];
+            for (int j = 0; j < d; j++)
+            {
+                values[j] = random.nextGaussian() * (j + 1) + j;
+            }
+            values[d - 1] += values[0];
+            tuples.add(DoubleTuples.of(values));
+        }
+        return tuples;
+    }
+    
+    private static double[][] computeCovariance(List<DoubleTuple> tuples)
+    {
+        int n = tuples.size();
+        int d = tuples.get(0).getSize();
+        double mean[] = new double[d];
+        for (DoubleTuple t : tuples)
+        {
+            for (int j = 0; j < d; j++)
+            {
+                mean[j] += t.get(j) / n;
+            }
+        }
+        double result[][] = new double[d][d];
+        for (DoubleTuple t : tuples)
+        {
+            for (int i = 0; i < d; i++)
+            {
+                for (int j = 0; j < d; j++)
+                {
+                    result[i][j] += 
+                        (t.get(i) - mean[i]) * (t.get(j) - mean[j]) / n;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -7,12 +7,19 @@ package de.javagl.nd.distance.tuples.d;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
+import de.javagl.nd.arrays.d.DoubleArraysND;
+import de.javagl.nd.arrays.d.MutableDoubleArrayND;
 import de.javagl.nd.distance.DistanceFunction;
 import de.javagl.nd.distance.tuples.d.DoubleTupleDistanceFunctions;
 import de.javagl.nd.tuples.d.DoubleTuple;
 import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.d.MutableDoubleTuple;
+import de.javagl.nd.tuples.i.IntTuples;
 
 @SuppressWarnings("javadoc")
 public class TestDoubleTupleDistanceFunctions
@@ -85,6 +92,55 @@ public class TestDoubleTupleDistanceFunctions
         
     }
     
+    @Test
+    public void testDynamicTimeWarpingWideWindow()
+    {
+        DoubleTuple t0 = DoubleTuples.of(1,3,4,9,8,2,1,5);
+        DoubleTuple t1 = DoubleTuples.of(2,1,3,7,9,3,2,2,6);
+        double expected = DoubleTupleDistanceFunctions
+            .dynamicTimeWarping().distance(t0, t1);
+        double actual = DoubleTupleDistanceFunctions
+            .dynamicTimeWarping(t1.getSize()).distance(t0, t1);
+        assertEquals(expected, actual, EPSILON);
+    }
+    
+    @Test
+    public void testDynamicTimeWarpingZeroWindow()
+    {
+        DoubleTuple t0 = DoubleTuples.of(1,1,4,1);
+        DoubleTuple t1 = DoubleTuples.of(1,4,1,1);
+        
+        double actual = DoubleTupleDistanceFunctions
+            .dynamicTimeWarping(0).distance(t0, t1);
+        double expected = 6.0;
+        assertEquals(expected, actual, EPSILON);
+        
+        double unconstrained = DoubleTupleDistanceFunctions
+            .dynamicTimeWarping().distance(t0, t1);
+        assertEquals(0.0, unconstrained, EPSILON);
+    }
+    
+    @Test
+    public void testDynamicTimeWarpingThreshold()
+    {
+        DoubleTuple t0 = DoubleTuples.of(1,2,3);
+        DoubleTuple t1 = DoubleTuples.of(2,4,6);
+        
+        double below = DoubleTupleDistanceFunctions
+            .computeDynamicTimeWarping(t0, t1, Integer.MAX_VALUE, 5.0);
+        assertEquals(5.0, below, EPSILON);
+
+        double above = DoubleTupleDistanceFunctions
+            .computeDynamicTimeWarping(t0, t1, Integer.MAX_VALUE, 4.5);
+        assertEquals(Double.POSITIVE_INFINITY, above, 0.0);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testDynamicTimeWarpingNegativeWindow()
+    {
+        DoubleTupleDistanceFunctions.dynamicTimeWarping(-1);
+    }
+    
     @Test
     public void testEuclidean()
     {
@@ -109,6 +165,232 @@ public class TestDoubleTupleDistanceFunctions
         assertEquals(expected, actual, EPSILON);
     }
 
+    @Test
+    public void testEuclideanSquaredWithArrayViews()
+    {
+        DoubleTuple t0 = DoubleTuples.of(9,1,2,3,9).subTuple(1, 4);
+        DoubleTuple t1 = DoubleTuples.of(2,4,6,9).subTuple(0, 3);
+        
+        double actual = 
+            DoubleTupleDistanceFunctions.computeEuclideanSquared(t0, t1);
+        double expected = 14.0;
+        assertEquals(expected, actual, EPSILON);
+    }
+
+    @Test
+    public void testManhattan()
+    {
+        DistanceFunction<DoubleTuple> distanceFunction =
+            DoubleTupleDistanceFunctions.manhattan();
+        
+        double actual = distanceFunction.distance(
+            DoubleTuples.of(1,2,3), DoubleTuples.of(2,4,-6));
+        double expected = 12.0;
+        assertEquals(expected, actual, EPSILON);
+    }
+
+    @Test
+    public void testBatchDistances()
+    {
+        Random random = new Random(0);
+        double packed[] = new double[4 * 50];
+        for (int i = 0; i < packed.length; i++)
+        {
+            packed[i] = random.nextDouble() - 0.5;
+        }
+        List<? extends DoubleTuple> candidates = 
+            DoubleTuples.wrapPacked(packed, 4);
+        DoubleTuple query = DoubleTuples.of(0.1, -0.2, 0.3, 0.0);
+        
+        assertBatchDistances(DoubleTupleDistanceFunctions.euclidean(), 
+            query, candidates);
+        assertBatchDistances(DoubleTupleDistanceFunctions.euclideanSquared(), 
+            query, candidates);
+        assertBatchDistances(DoubleTupleDistanceFunctions.angular(), 
+            query, candidates);
+        assertBatchDistances(DoubleTupleDistanceFunctions.manhattan(), 
+            query, candidates);
+    }
+    
+    @Test
+    public void testAngularDistancesWithNorms()
+    {
+        List<? extends DoubleTuple> candidates = DoubleTuples.wrapPacked(
+            new double[] { 1,0, 0,1, -1,0, 2,2 }, 2);
+        double norms[] = 
+            DoubleTupleDistanceFunctions.computeNorms(candidates, null);
+        double actual[] = new double[candidates.size()];
+        DoubleTupleDistanceFunctions.computeAngularDistances(
+            DoubleTuples.of(1, 0), candidates, norms, actual);
+        assertEquals(0.0, actual[0], EPSILON);
+        assertEquals(0.5, actual[1], EPSILON);
+        assertEquals(1.0, actual[2], EPSILON);
+        assertEquals(0.25, actual[3], EPSILON);
+    }
     
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchDistancesWithSmallResult()
+    {
+        List<? extends DoubleTuple> candidates = 
+            DoubleTuples.wrapPacked(new double[6], 2);
+        DoubleTupleDistanceFunctions.euclidean().distances(
+            DoubleTuples.of(1, 2), candidates, new double[2]);
+    }
+    
+    private static void assertBatchDistances(
+        DistanceFunction<DoubleTuple> distanceFunction, 
+        DoubleTuple query, List<? extends DoubleTuple> candidates)
+    {
+        double actual[] = new double[candidates.size()];
+        distanceFunction.distances(query, candidates, actual);
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            double expected = 
+                distanceFunction.distance(query, candidates.get(i));
+            assertEquals(expected, actual[i], EPSILON);
+        }
+    }
+
+    @Test
+    public void testChebyshev()
+    {
+        DistanceFunction<DoubleTuple> distanceFunction =
+            DoubleTupleDistanceFunctions.chebyshev();
+        
+        double actual = distanceFunction.distance(
+            DoubleTuples.of(1,2,3), DoubleTuples.of(2,-4,6));
+        double expected = 6.0;
+        assertEquals(expected, actual, EPSILON);
+    }
+
+    @Test
+    public void testMahalanobis()
+    {
+        DistanceFunction<DoubleTuple> distanceFunction =
+            DoubleTupleDistanceFunctions.mahalanobis(
+                createMatrix(4.0, 2.0, 2.0, 3.0));
+        
+        // The inverse covariance is (0.375, -0.25, -0.25, 0.5)
+        double actual = distanceFunction.distance(
+            DoubleTuples.of(3,5), DoubleTuples.of(2,3));
+        double expected = Math.sqrt(0.375 - 1.0 + 2.0);
+        assertEquals(expected, actual, EPSILON);
+    }
+
+    @Test
+    public void testMahalanobisWhitening()
+    {
+        MahalanobisWhitening whitening = new MahalanobisWhitening(
+            createMatrix(4.0, 2.0, 2.0, 3.0));
+        DistanceFunction<DoubleTuple> distanceFunction =
+            DoubleTupleDistanceFunctions.mahalanobis(whitening);
+        DistanceFunction<DoubleTuple> euclidean =
+            DoubleTupleDistanceFunctions.euclidean();
+        
+        Random random = new Random(0);
+        List<DoubleTuple> tuples = new java.util.ArrayList<DoubleTuple>();
+        for (int i = 0; i < 20; i++)
+        {
+            tuples.add(DoubleTuples.of(
+                random.nextGaussian(), random.nextGaussian()));
+        }
+        List<MutableDoubleTuple> whitened = whitening.whiten(tuples);
+        DoubleTuple query = DoubleTuples.of(0.5, -1.0);
+        DoubleTuple whitenedQuery = whitening.whiten(query);
+        for (int i = 0; i < tuples.size(); i++)
+        {
+            double expected = distanceFunction.distance(query, tuples.get(i));
+            double actual = euclidean.distance(whitenedQuery, whitened.get(i));
+            assertEquals(expected, actual, EPSILON);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMahalanobisNotPositiveDefinite()
+    {
+        DoubleTupleDistanceFunctions.mahalanobis(
+            createMatrix(1.0, 2.0, 2.0, 1.0));
+    }
+
+    @Test
+    public void testMinkowski()
+    {
+        DoubleTuple t0 = DoubleTuples.of(1, 2, 3);
+        DoubleTuple t1 = DoubleTuples.of(2, -4, 6);
+        
+        double actual = DoubleTupleDistanceFunctions.minkowski(3.0)
+            .distance(t0, t1);
+        double expected = Math.pow(1 + 216 + 27, 1.0 / 3.0);
+        assertEquals(expected, actual, EPSILON);
+        
+        assertEquals(10.0, DoubleTupleDistanceFunctions.minkowski(1.0)
+            .distance(t0, t1), EPSILON);
+        assertEquals(Math.sqrt(46.0), DoubleTupleDistanceFunctions
+            .minkowski(2.0).distance(t0, t1), EPSILON);
+        assertEquals(6.0, DoubleTupleDistanceFunctions
+            .minkowski(Double.POSITIVE_INFINITY).distance(t0, t1), EPSILON);
+    }
+
+    @Test
+    public void testWeightedMinkowski()
+    {
+        DoubleTuple t0 = DoubleTuples.of(1, 2, 3);
+        DoubleTuple t1 = DoubleTuples.of(2, -4, 6);
+        DoubleTuple weights = DoubleTuples.of(2.0, 0.5, 0.0);
+        
+        assertEquals(Math.sqrt(2 + 18), DoubleTupleDistanceFunctions
+            .weightedEuclidean(weights).distance(t0, t1), EPSILON);
+        assertEquals(2 + 3, DoubleTupleDistanceFunctions
+            .minkowski(1.0, weights).distance(t0, t1), EPSILON);
+        assertEquals(3.0, DoubleTupleDistanceFunctions
+            .minkowski(Double.POSITIVE_INFINITY, weights)
+            .distance(t0, t1), EPSILON);
+        assertEquals(Math.pow(2 + 0.5 * 216, 1.0 / 3.0), 
+            DoubleTupleDistanceFunctions.minkowski(3.0, weights)
+            .distance(t0, t1), EPSILON);
+    }
+
+    @Test
+    public void testMinkowskiThreshold()
+    {
+        DoubleTuple t0 = DoubleTuples.of(1, 2, 3);
+        DoubleTuple t1 = DoubleTuples.of(2, -4, 6);
+        for (double p : new double[] { 1.0, 2.0, 3.0, 
+            Double.POSITIVE_INFINITY })
+        {
+            double exact = DoubleTupleDistanceFunctions.computeMinkowski(
+                t0, t1, p, null, Double.POSITIVE_INFINITY);
+            double below = DoubleTupleDistanceFunctions.computeMinkowski(
+                t0, t1, p, null, exact);
+            assertEquals(exact, below, 0.0);
+            double above = DoubleTupleDistanceFunctions.computeMinkowski(
+                t0, t1, p, null, exact * 0.9);
+            assertEquals(Double.POSITIVE_INFINITY, above, 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinkowskiInvalidExponent()
+    {
+        DoubleTupleDistanceFunctions.minkowski(0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinkowskiNegativeWeight()
+    {
+        DoubleTupleDistanceFunctions.minkowski(
+            2.0, DoubleTuples.of(1.0, -1.0));
+    }
+
+    private static MutableDoubleArrayND createMatrix(
+        double a00, double a01, double a10, double a11)
+    {
+        MutableDoubleArrayND matrix = DoubleArraysND.create(2, 2);
+        matrix.set(IntTuples.of(0, 0), a00);
+        matrix.set(IntTuples.of(0, 1), a01);
+        matrix.set(IntTuples.of(1, 0), a10);
+        matrix.set(IntTuples.of(1, 1), a11);
+        return matrix;
+    }
     
 }
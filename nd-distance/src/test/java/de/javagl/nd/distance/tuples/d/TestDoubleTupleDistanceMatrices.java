@@ -0,0 +1,151 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.RandomTuples;
+import de.javagl.nd.arrays.d.DoubleArraysND;
+import de.javagl.nd.arrays.d.MutableDoubleArrayND;
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.i.IntTuples;
+
+@SuppressWarnings("javadoc")
+public class TestDoubleTupleDistanceMatrices
+{
+    private static final double EPSILON = 1e-8;
+    
+    private static void assertFullMatrix(List<DoubleTuple> tuples, 
+        DistanceFunction<DoubleTuple> distanceFunction)
+    {
+        MutableDoubleArrayND matrix = DoubleTupleDistanceMatrices
+            .computeDistanceMatrix(tuples, distanceFunction, null);
+        int n = tuples.size();
+        for (int i = 0; i < n; i++)
+        {
+            for (int j = 0; j < n; j++)
+            {
+                double expected = distanceFunction.distance(
+                    tuples.get(i), tuples.get(j));
+                double actual = matrix.get(IntTuples.of(i, j));
+                assertEquals(expected, actual, EPSILON);
+            }
+        }
+    }
+    
+    @Test
+    public void testFullMatrixGeneric()
+    {
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(new Random(0), 150, 5);
+        assertFullMatrix(tuples, DoubleTupleDistanceFunctions.manhattan());
+    }
+    
+    @Test
+    public void testFullMatrixEuclidean()
+    {
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(new Random(1), 150, 7);
+        assertFullMatrix(tuples, DoubleTupleDistanceFunctions.euclidean());
+        assertFullMatrix(tuples, 
+            DoubleTupleDistanceFunctions.euclideanSquared());
+    }
+    
+    @Test
+    public void testFullMatrixSparseResult()
+    {
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(new Random(3), 300, 4);
+        DistanceFunction<DoubleTuple> distanceFunction = 
+            DoubleTupleDistanceFunctions.manhattan();
+        int n = tuples.size();
+        MutableDoubleArrayND result = DoubleArraysND.createSparse(n, n);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            DoubleTupleDistanceMatrices.computeDistanceMatrix(
+                tuples, distanceFunction, result, pool);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        for (int i = 0; i < n; i++)
+        {
+            for (int j = 0; j < n; j++)
+            {
+                double expected = distanceFunction.distance(
+                    tuples.get(i), tuples.get(j));
+                double actual = result.get(IntTuples.of(i, j));
+                assertEquals(expected, actual, EPSILON);
+            }
+        }
+    }
+    
+    @Test
+    public void testCondensedMatrix()
+    {
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(new Random(2), 130, 3);
+        DistanceFunction<DoubleTuple> distanceFunction = 
+            DoubleTupleDistanceFunctions.euclidean();
+        double condensed[] = DoubleTupleDistanceMatrices
+            .computeCondensedDistanceMatrix(tuples, distanceFunction, null);
+        int n = tuples.size();
+        assertEquals(n * (n - 1) / 2, condensed.length);
+        int index = 0;
+        for (int i = 0; i < n; i++)
+        {
+            for (int j = i + 1; j < n; j++)
+            {
+                assertEquals(index, 
+                    DoubleTupleDistanceMatrices.condensedIndex(n, i, j));
+                double expected = distanceFunction.distance(
+                    tuples.get(i), tuples.get(j));
+                assertEquals(expected, condensed[index], EPSILON);
+                index++;
+            }
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testFullMatrixWithInvalidResultSize()
+    {
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(new Random(3), 4, 2);
+        DoubleTupleDistanceMatrices.computeDistanceMatrix(tuples, 
+            DoubleTupleDistanceFunctions.euclidean(), 
+            DoubleArraysND.create(4, 5));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+@SuppressWarnings("javadoc")
+public class TestDynamicTimeWarpingSearch
+{
+    private static final double EPSILON = 1e-8;
+    
+    private static List<DoubleTuple> createRandomWalks(
+        Random random, int count, int size)
+    {
+        List<DoubleTuple> result = new ArrayList<DoubleTuple>();
+        for (int i = 0; i < count; i++)
+        {
+            double array[] = new double[size];
+            double value = 0.0;
+            for (int j = 0; j < size; j++)
+            {
+                value += random.nextGaussian();
+                array[j] = value;
+            }
+            result.add(DoubleTuples.wrap(array));
+        }
+        return result;
+    }
+    
+    @Test
+    public void testFindNearestMatchesBruteForce()
+    {
+        Random random = new Random(0);
+        List<DoubleTuple> references = createRandomWalks(random, 200, 32);
+        List<DoubleTuple> queries = createRandomWalks(random, 20, 32);
+        int window = 4;
+        
+        DynamicTimeWarpingSearch search = 
+            new DynamicTimeWarpingSearch(references, window);
+        double distances[] = new double[queries.size()];
+        int actual[] = search.findNearest(queries, distances);
+        
+        DistanceFunction<DoubleTuple> distanceFunction = 
+            DoubleTupleDistanceFunctions.dynamicTimeWarping(window);
+        for (int q = 0; q < queries.size(); q++)
+        {
+            int expected = -1;
+            double best = Double.POSITIVE_INFINITY;
+            for (int r = 0; r < references.size(); r++)
+            {
+                double d = distanceFunction.distance(
+                    queries.get(q), references.get(r));
+                if (d < best)
+                {
+                    best = d;
+                    expected = r;
+                }
+            }
+            assertEquals(expected, actual[q]);
+            assertEquals(best, distances[q], EPSILON);
+            assertEquals(expected, search.findNearest(queries.get(q)));
+        }
+        
+        long pruned = search.getPrunedByKimCount() + 
+            search.getPrunedByKeoghCount();
+        assertEquals(2 * queries.size(), search.getQueryCount());
+        assertEquals(2 * queries.size() * references.size(), 
+            pruned + search.getFullComputationCount());
+        assertTrue(pruned > 0);
+    }
+    
+    @Test
+    public void testFindNearestDifferentSizes()
+    {
+        List<DoubleTuple> references = new ArrayList<DoubleTuple>();
+        references.add(DoubleTuples.of(0, 0, 0, 0, 0));
+        references.add(DoubleTuples.of(1, 2, 4));
+        references.add(DoubleTuples.of(1, 2, 2, 3, 3, 3));
+        
+        DynamicTimeWarpingSearch search = 
+            new DynamicTimeWarpingSearch(references);
+        assertEquals(2, search.findNearest(DoubleTuples.of(1, 1, 2, 3)));
+    }
+    
+    @Test
+    public void testFindNearestWithoutReferences()
+    {
+        DynamicTimeWarpingSearch search = 
+            new DynamicTimeWarpingSearch(new ArrayList<DoubleTuple>());
+        assertEquals(-1, search.findNearest(DoubleTuples.of(1, 2, 3)));
+    }
+    
+    @Test
+    public void testResetStatistics()
+    {
+        List<DoubleTuple> references = new ArrayList<DoubleTuple>();
+        references.add(DoubleTuples.of(1, 2, 4));
+        DynamicTimeWarpingSearch search = 
+            new DynamicTimeWarpingSearch(references);
+        search.findNearest(DoubleTuples.of(1, 2, 3));
+        assertEquals(1, search.getQueryCount());
+        search.resetStatistics();
+        assertEquals(0, search.getQueryCount());
+        assertEquals(0, search.getFullComputationCount());
+    }
+}
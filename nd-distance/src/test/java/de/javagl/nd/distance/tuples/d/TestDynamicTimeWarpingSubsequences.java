@@ -0,0 +1,164 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+@SuppressWarnings("javadoc")
+public class TestDynamicTimeWarpingSubsequences
+{
+    private static final double EPSILON = 1e-6;
+    
+    private static double[] createRandomWalk(Random random, int size)
+    {
+        double array[] = new double[size];
+        double value = 0.0;
+        for (int i = 0; i < size; i++)
+        {
+            value += random.nextGaussian();
+            array[i] = value;
+        }
+        return array;
+    }
+    
+    private static double[] normalize(double array[], int offset, int m)
+    {
+        double sum = 0.0;
+        double sumOfSquares = 0.0;
+        for (int i = 0; i < m; i++)
+        {
+            sum += array[offset + i];
+            sumOfSquares += array[offset + i] * array[offset + i];
+        }
+        double mean = sum / m;
+        double std = Math.sqrt(sumOfSquares / m - mean * mean);
+        double result[] = new double[m];
+        for (int i = 0; i < m; i++)
+        {
+            result[i] = (array[offset + i] - mean) / std;
+        }
+        return result;
+    }
+    
+    private static double[] computeSortedDistances(
+        double sequence[], double query[], int window)
+    {
+        int m = query.length;
+        int positions = sequence.length - m + 1;
+        DoubleTuple q = DoubleTuples.wrap(normalize(query, 0, m));
+        double result[] = new double[positions];
+        for (int p = 0; p < positions; p++)
+        {
+            DoubleTuple c = DoubleTuples.wrap(normalize(sequence, p, m));
+            result[p] = DoubleTupleDistanceFunctions
+                .computeDynamicTimeWarping(
+                    q, c, window, Double.POSITIVE_INFINITY);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+    
+    @Test
+    public void testFindBestMatchesMatchesBruteForce()
+    {
+        Random random = new Random(0);
+        double sequence[] = createRandomWalk(random, 3000);
+        double query[] = Arrays.copyOfRange(sequence, 1234, 1234 + 40);
+        for (int i = 0; i < query.length; i++)
+        {
+            query[i] = query[i] * 2.0 + 5.0 + random.nextGaussian() * 0.1;
+        }
+        int window = 4;
+        int k = 5;
+        
+        List<SubsequenceMatch> matches = 
+            DynamicTimeWarpingSubsequences.findBestMatches(
+                DoubleTuples.wrap(sequence), DoubleTuples.wrap(query), 
+                window, k, true, 100);
+        double expected[] = computeSortedDistances(sequence, query, window);
+        
+        assertEquals(k, matches.size());
+        assertEquals(1234, matches.get(0).getPosition());
+        for (int i = 0; i < k; i++)
+        {
+            assertEquals(expected[i], matches.get(i).getDistance(), EPSILON);
+        }
+    }
+    
+    @Test
+    public void testFindBestMatchesWithSubTuple()
+    {
+        Random random = new Random(1);
+        double sequence[] = createRandomWalk(random, 500);
+        DoubleTuple query = DoubleTuples.wrap(
+            Arrays.copyOfRange(sequence, 300, 320));
+        DoubleTuple padded = DoubleTuples.wrap(sequence).subTuple(100, 500);
+        
+        List<SubsequenceMatch> matches = 
+            DynamicTimeWarpingSubsequences.findBestMatches(
+                padded, query, 2, 1);
+        
+        assertEquals(1, matches.size());
+        assertEquals(200, matches.get(0).getPosition());
+        assertEquals(0.0, matches.get(0).getDistance(), EPSILON);
+    }
+    
+    @Test
+    public void testFindBestMatchesWithoutNormalization()
+    {
+        DoubleTuple sequence = DoubleTuples.of(0, 0, 1, 2, 3, 0, 5, 6, 7);
+        DoubleTuple query = DoubleTuples.of(5, 6, 7);
+        
+        List<SubsequenceMatch> matches = 
+            DynamicTimeWarpingSubsequences.findBestMatches(
+                sequence, query, 1, 2, false);
+        
+        assertEquals(2, matches.size());
+        assertEquals(6, matches.get(0).getPosition());
+        assertEquals(0.0, matches.get(0).getDistance(), EPSILON);
+        assertTrue(matches.get(1).getDistance() > 0.0);
+    }
+    
+    @Test
+    public void testFindBestMatchesWithLongQuery()
+    {
+        List<SubsequenceMatch> matches = 
+            DynamicTimeWarpingSubsequences.findBestMatches(
+                DoubleTuples.of(1, 2), DoubleTuples.of(1, 2, 3), 1, 1);
+        assertTrue(matches.isEmpty());
+    }
+}
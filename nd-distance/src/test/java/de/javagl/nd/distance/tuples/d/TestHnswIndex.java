@@ -0,0 +1,327 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.distance.Neighbor;
+import de.javagl.nd.distance.RandomTuples;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+@SuppressWarnings("javadoc")
+public class TestHnswIndex
+{
+    private static double computeRecall(HnswIndex index, 
+        List<DoubleTuple> tuples, List<DoubleTuple> queries, 
+        DistanceFunction<DoubleTuple> distanceFunction, int k)
+    {
+        int found = 0;
+        for (DoubleTuple query : queries)
+        {
+            Set<DoubleTuple> expected = new HashSet<DoubleTuple>();
+            for (Neighbor<DoubleTuple> neighbor : 
+                DoubleTupleDistanceFunctions.findNearest(
+                    query, tuples, distanceFunction, k))
+            {
+                expected.add(neighbor.getElement());
+            }
+            List<Neighbor<DoubleTuple>> actual = index.search(query, k);
+            assertEquals(k, actual.size());
+            for (Neighbor<DoubleTuple> neighbor : actual)
+            {
+                if (expected.contains(neighbor.getElement()))
+                {
+                    found++;
+                }
+                assertEquals(
+                    distanceFunction.distance(query, neighbor.getElement()), 
+                    neighbor.getDistance(), 0.0);
+            }
+        }
+        return (double) found / (queries.size() * k);
+    }
+    
+    @Test
+    public void testSearchEuclidean()
+    {
+        Random random = new Random(0);
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(random, 2000, 8, -0.5, 0.5);
+        List<DoubleTuple> queries = 
+            RandomTuples.createRandomTuples(random, 50, 8, -0.5, 0.5);
+        DistanceFunction<DoubleTuple> distanceFunction = 
+            DoubleTupleDistanceFunctions.euclidean();
+        HnswIndex index = new HnswIndex(8, 2000, distanceFunction, 12, 100);
+        for (DoubleTuple tuple : tuples)
+        {
+            index.add(tuple);
+        }
+        index.setEfSearch(64);
+        double recall = 
+            computeRecall(index, tuples, queries, distanceFunction, 10);
+        assertTrue("Recall is " + recall, recall > 0.9);
+    }
+    
+    @Test
+    public void testSearchAngularWithConcurrentInsertion()
+    {
+        Random random = new Random(1);
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(random, 2000, 6, -0.5, 0.5);
+        List<DoubleTuple> queries = 
+            RandomTuples.createRandomTuples(random, 50, 6, -0.5, 0.5);
+        DistanceFunction<DoubleTuple> distanceFunction = 
+            DoubleTupleDistanceFunctions.angular();
+        HnswIndex index = new HnswIndex(6, 2000, distanceFunction, 12, 100);
+        index.addAll(tuples);
+        assertEquals(2000, index.size());
+        index.setEfSearch(64);
+        double recall = 
+            computeRecall(index, tuples, queries, distanceFunction, 10);
+        assertTrue("Recall is " + recall, recall > 0.9);
+    }
+    
+    @Test
+    public void testSearchGeneric()
+    {
+        Random random = new Random(2);
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(random, 1000, 4, -0.5, 0.5);
+        List<DoubleTuple> queries = 
+            RandomTuples.createRandomTuples(random, 20, 4, -0.5, 0.5);
+        DistanceFunction<DoubleTuple> distanceFunction = 
+            DoubleTupleDistanceFunctions.manhattan();
+        HnswIndex index = new HnswIndex(4, 1000, distanceFunction, 8, 64);
+        index.addAll(tuples);
+        index.setEfSearch(64);
+        double recall = 
+            computeRecall(index, tuples, queries, distanceFunction, 5);
+        assertTrue("Recall is " + recall, recall > 0.9);
+    }
+    
+    @Test
+    public void testWriteAndRead() throws IOException
+    {
+        Random random = new Random(3);
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(random, 500, 5, -0.5, 0.5);
+        DistanceFunction<DoubleTuple> distanceFunction = 
+            DoubleTupleDistanceFunctions.euclidean();
+        HnswIndex index = new HnswIndex(5, 600, distanceFunction, 8, 50);
+        for (DoubleTuple tuple : tuples)
+        {
+            index.add(tuple);
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        index.write(outputStream);
+        HnswIndex readIndex = HnswIndex.read(
+            new ByteArrayInputStream(outputStream.toByteArray()), 
+            distanceFunction);
+        
+        assertEquals(index.size(), readIndex.size());
+        assertEquals(index.getCapacity(), readIndex.getCapacity());
+        assertEquals(index.getEfSearch(), readIndex.getEfSearch());
+        for (DoubleTuple query : 
+            RandomTuples.createRandomTuples(random, 20, 5, -0.5, 0.5))
+        {
+            assertEquals(index.search(query, 5), readIndex.search(query, 5));
+        }
+        readIndex.add(tuples.get(0));
+        assertEquals(501, readIndex.size());
+    }
+    
+    private static byte[] writeSmallIndex() throws IOException
+    {
+        HnswIndex index = new HnswIndex(2, 10, 
+            DoubleTupleDistanceFunctions.euclidean(), 4, 10);
+        for (int i = 0; i < 5; i++)
+        {
+            index.add(DoubleTuples.of(i, i * i));
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        index.write(outputStream);
+        return outputStream.toByteArray();
+    }
+    
+    private static void assertReadFails(byte data[])
+    {
+        try
+        {
+            HnswIndex.read(new ByteArrayInputStream(data), 
+                DoubleTupleDistanceFunctions.euclidean());
+            fail("Expected an IOException");
+        }
+        catch (IOException e)
+        {
+            // Expected
+        }
+    }
+    
+    @Test
+    public void testReadInvalid() throws IOException
+    {
+        // Header: magic, version, dimensions, capacity, m, efConstruction, 
+        // efSearch, size, entryPoint, maxLevel. Then, for the first node:
+        // level, 2 coordinates, and the neighbor count and neighbors of
+        // the lowest layer
+        byte data[] = writeSmallIndex();
+        
+        byte invalidM[] = data.clone();
+        ByteBuffer.wrap(invalidM).putInt(16, 1);
+        assertReadFails(invalidM);
+        
+        byte invalidSize[] = data.clone();
+        ByteBuffer.wrap(invalidSize).putInt(28, 11);
+        assertReadFails(invalidSize);
+        
+        byte invalidEntryPoint[] = data.clone();
+        ByteBuffer.wrap(invalidEntryPoint).putInt(32, 5);
+        assertReadFails(invalidEntryPoint);
+        
+        byte invalidMaxLevel[] = data.clone();
+        ByteBuffer buffer = ByteBuffer.wrap(invalidMaxLevel);
+        buffer.putInt(36, buffer.getInt(36) + 1);
+        assertReadFails(invalidMaxLevel);
+        
+        byte invalidNeighbor[] = data.clone();
+        assertTrue(ByteBuffer.wrap(invalidNeighbor).getInt(60) > 0);
+        ByteBuffer.wrap(invalidNeighbor).putInt(64, 5);
+        assertReadFails(invalidNeighbor);
+        
+        byte selfNeighbor[] = data.clone();
+        ByteBuffer.wrap(selfNeighbor).putInt(64, 0);
+        assertReadFails(selfNeighbor);
+    }
+    
+    private static byte[] createTwoNodeIndex(byte header[], 
+        int neighbor0, int ... upperNeighbors1) throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(outputStream);
+        
+        // Magic and version, dimensions, capacity, m, efConstruction, 
+        // efSearch, size, entryPoint and maxLevel
+        out.write(header, 0, 8);
+        for (int value : new int[] { 1, 4, 2, 4, 4, 2, 1, 1 })
+        {
+            out.writeInt(value);
+        }
+        
+        // Node 0 with level 0
+        out.writeInt(0);
+        out.writeDouble(0.0);
+        out.writeInt(1);
+        out.writeInt(neighbor0);
+        
+        // Node 1 with level 1
+        out.writeInt(1);
+        out.writeDouble(1.0);
+        out.writeInt(1);
+        out.writeInt(0);
+        out.writeInt(upperNeighbors1.length);
+        for (int neighbor : upperNeighbors1)
+        {
+            out.writeInt(neighbor);
+        }
+        out.flush();
+        return outputStream.toByteArray();
+    }
+    
+    @Test
+    public void testReadInvalidNeighborLevel() throws IOException
+    {
+        byte header[] = writeSmallIndex();
+        HnswIndex index = HnswIndex.read(
+            new ByteArrayInputStream(createTwoNodeIndex(header, 1)), 
+            DoubleTupleDistanceFunctions.euclidean());
+        assertEquals(2, index.size());
+        assertEquals(1, index.search(DoubleTuples.of(0.9), 1)
+            .get(0).getIndex());
+        
+        // Node 1 lists node 0 as a neighbor in layer 1, but node 0 
+        // only has level 0
+        assertReadFails(createTwoNodeIndex(header, 1, 0));
+        
+        // Node 1 lists itself as a neighbor in layer 1
+        assertReadFails(createTwoNodeIndex(header, 1, 1));
+    }
+    
+    @Test
+    public void testConcurrentGet()
+    {
+        Random random = new Random(4);
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(random, 2000, 4, -0.5, 0.5);
+        HnswIndex index = new HnswIndex(4, 2000, 
+            DoubleTupleDistanceFunctions.euclidean(), 4, 10);
+        Thread thread = new Thread(() -> index.addAll(tuples));
+        thread.start();
+        while (thread.isAlive())
+        {
+            int size = index.size();
+            if (size > 0)
+            {
+                assertNotNull(index.get(size - 1));
+            }
+        }
+        assertEquals(2000, index.size());
+    }
+    
+    @Test
+    public void testSearchEmpty()
+    {
+        HnswIndex index = new HnswIndex(2, 10, 
+            DoubleTupleDistanceFunctions.euclidean(), 4, 10);
+        assertTrue(index.search(DoubleTuples.of(1, 2), 3).isEmpty());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testAddBeyondCapacity()
+    {
+        HnswIndex index = new HnswIndex(2, 1, 
+            DoubleTupleDistanceFunctions.euclidean(), 4, 10);
+        index.add(DoubleTuples.of(1, 2));
+        index.add(DoubleTuples.of(3, 4));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+@SuppressWarnings("javadoc")
+public class TestOnlineDynamicTimeWarping
+{
+    private static final double EPSILON = 1e-8;
+    
+    private static double[] createRandomArray(Random random, int size)
+    {
+        double array[] = new double[size];
+        for (int i = 0; i < size; i++)
+        {
+            array[i] = random.nextDouble();
+        }
+        return array;
+    }
+    
+    @Test
+    public void testAppendMatchesBatchComputation()
+    {
+        Random random = new Random(0);
+        DoubleTuple reference = DoubleTuples.wrap(createRandomArray(random, 8));
+        double samples[] = createRandomArray(random, 30);
+        
+        OnlineDynamicTimeWarping online = 
+            new OnlineDynamicTimeWarping(reference);
+        for (int t = 0; t < samples.length; t++)
+        {
+            online.append(samples[t]);
+            DoubleTuple prefix = DoubleTuples.wrap(samples).subTuple(0, t + 1);
+            double expected = DoubleTupleDistanceFunctions
+                .dynamicTimeWarping().distance(reference, prefix);
+            assertEquals(expected, online.getDistance(), EPSILON);
+        }
+        assertEquals(samples.length, online.getSampleCount());
+    }
+    
+    @Test
+    public void testSubsequenceMatchesBruteForce()
+    {
+        Random random = new Random(1);
+        DoubleTuple reference = DoubleTuples.wrap(createRandomArray(random, 5));
+        double samples[] = createRandomArray(random, 25);
+        
+        OnlineDynamicTimeWarping online = 
+            new OnlineDynamicTimeWarping(reference, true);
+        online.append(DoubleTuples.wrap(samples));
+        
+        double best = Double.POSITIVE_INFINITY;
+        int bestEnd = -1;
+        for (int end = 0; end < samples.length; end++)
+        {
+            for (int start = 0; start <= end; start++)
+            {
+                DoubleTuple s = 
+                    DoubleTuples.wrap(samples).subTuple(start, end + 1);
+                double d = DoubleTupleDistanceFunctions
+                    .dynamicTimeWarping().distance(reference, s);
+                if (d < best)
+                {
+                    best = d;
+                    bestEnd = end;
+                }
+            }
+        }
+        assertEquals(best, online.getBestDistance(), EPSILON);
+        assertEquals(bestEnd, online.getBestEndPosition());
+    }
+    
+    @Test
+    public void testReset()
+    {
+        OnlineDynamicTimeWarping online = 
+            new OnlineDynamicTimeWarping(DoubleTuples.of(1, 2, 3));
+        online.append(DoubleTuples.of(1, 2, 3));
+        assertEquals(0.0, online.getDistance(), EPSILON);
+        assertEquals(2, online.getBestEndPosition());
+        
+        online.reset();
+        assertEquals(0, online.getSampleCount());
+        assertEquals(-1, online.getBestEndPosition());
+        assertEquals(Double.POSITIVE_INFINITY, online.getDistance(), 0.0);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.d.MutableDoubleTuple;
+
+@SuppressWarnings("javadoc")
+public class TestPrincipalComponentAnalysis
+{
+    @Test
+    public void testExactFindsScaledAxes()
+    {
+        int d = 8;
+        List<DoubleTuple> tuples = createTuples(5000, d, 0);
+        PrincipalComponentAnalysis pca = 
+            PrincipalComponentAnalysis.compute(tuples, 3);
+        assertEquals(3, pca.getComponentCount());
+        // The standard deviations are 10, 5, 1, 1... along the axes 
+        // that are rotated by 45 degrees in the plane of 0 and 1
+        assertAxis(pca.getComponent(0), d, 0, 1, 1e-3);
+        assertAxis(pca.getComponent(1), d, 0, -1, 1e-3);
+        assertEquals(100.0, pca.getExplainedVariance(0), 5.0);
+        assertEquals(25.0, pca.getExplainedVariance(1), 1.5);
+        assertTrue(pca.getExplainedVarianceRatio(0) > 0.7);
+    }
+    
+    @Test
+    public void testRandomizedMatchesExact()
+    {
+        int d = 300;
+        List<DoubleTuple> tuples = createTuples(2000, d, 1);
+        PrincipalComponentAnalysis pca = 
+            PrincipalComponentAnalysis.compute(tuples, 2, 123);
+        
+        // The sampling noise of the 298 other dimensions slightly
+        // tilts the components of the sample covariance matrix
+        assertAxis(pca.getComponent(0), d, 0, 1, 1e-2);
+        assertAxis(pca.getComponent(1), d, 0, -1, 1e-2);
+        assertEquals(100.0, pca.getExplainedVariance(0), 6.0);
+        assertEquals(25.0, pca.getExplainedVariance(1), 1.5);
+        assertEquals(100.0 + 25.0 + (d - 2), pca.getTotalVariance(), 10.0);
+    }
+    
+    @Test
+    public void testTransformRoundTrip()
+    {
+        int d = 5;
+        List<DoubleTuple> tuples = createTuples(1000, d, 2);
+        PrincipalComponentAnalysis pca = 
+            PrincipalComponentAnalysis.compute(tuples, d);
+        List<MutableDoubleTuple> transformed = pca.transform(tuples);
+        for (int i = 0; i < 10; i++)
+        {
+            MutableDoubleTuple reconstructed = 
+                pca.inverseTransform(transformed.get(i));
+            for (int j = 0; j < d; j++)
+            {
+                assertEquals(tuples.get(i).get(j), 
+                    reconstructed.get(j), 1e-9);
+            }
+        }
+        double variance = 0.0;
+        for (MutableDoubleTuple t : transformed)
+        {
+            variance += t.get(0) * t.get(0);
+        }
+        variance /= transformed.size();
+        assertEquals(pca.getExplainedVariance(0), variance, 1e-9);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyComponents()
+    {
+        PrincipalComponentAnalysis.compute(createTuples(10, 3, 0), 4);
+    }
+    
+    private static void assertAxis(
+        DoubleTuple component, int d, int i0, int sign, double epsilon)
+    {
+        double s = Math.sqrt(0.5);
+        MutableDoubleTuple expected = DoubleTuples.create(d);
+        expected.set(i0, s);
+        expected.set(i0 + 1, sign * s);
+        double dot = 0.0;
+        for (int j = 0; j < d; j++)
+        {
+            dot += expected.get(j) * component.get(j);
+        }
+        assertEquals(1.0, Math.abs(dot), epsilon);
+    }
+    
+    private static List<DoubleTuple> createTuples(int n, int d, long seed)
+    {
+        Random random = new Random(seed);
+        double s = Math.sqrt(0.5);
+        List<DoubleTuple> tuples = new ArrayList<DoubleTuple>();
+        for (int i = 0; i < n; i++)
+        {
+            double values[] = new double[d];
+            for (int j = 0; j < d; j++)
+            {
+                values[j] = random.nextGaussian() + 3.0;
+            }
+            double a = random.nextGaussian() * 10.0;
+            double b = random.nextGaussian() * 5.0;
+            values[0] = a * s + b * s + 1.0;
+            values[1] = a * s - b * s - 2.0;
+            tuples.add(DoubleTuples.of(values));
+        }
+        return tuples;
+    }
+}
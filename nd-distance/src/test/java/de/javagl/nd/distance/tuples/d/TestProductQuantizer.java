@@ -0,0 +1,139 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.distance.NearestNeighbors;
+import de.javagl.nd.distance.Neighbor;
+import de.javagl.nd.distance.RandomTuples;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+
+@SuppressWarnings("javadoc")
+public class TestProductQuantizer
+{
+    @Test
+    public void testTableDistanceMatchesDecodedDistance()
+    {
+        Random random = new Random(0);
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(random, 1000, 12);
+        ProductQuantizer quantizer = ProductQuantizer.train(tuples, 5, 16, 0);
+        assertEquals(5, quantizer.getSubspaceCount());
+        
+        DoubleTuple query = 
+            RandomTuples.createRandomTuples(random, 1, 12).get(0);
+        double table[] = quantizer.computeDistanceTable(query);
+        DistanceFunction<DoubleTuple> euclideanSquared = 
+            DoubleTupleDistanceFunctions.euclideanSquared();
+        for (int i = 0; i < 50; i++)
+        {
+            byte code[] = quantizer.encode(tuples.get(i));
+            DoubleTuple decoded = quantizer.decode(code, 0);
+            assertEquals(euclideanSquared.distance(query, decoded), 
+                quantizer.computeSquaredDistance(table, code, 0), 1e-10);
+            assertTrue(euclideanSquared.distance(tuples.get(i), decoded) < 
+                euclideanSquared.distance(tuples.get(i), 
+                    DoubleTuples.create(12)));
+        }
+    }
+    
+    @Test
+    public void testFindNearestRecall()
+    {
+        Random random = new Random(1);
+        int size = 16;
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(random, 5000, size);
+        ProductQuantizer quantizer = ProductQuantizer.train(
+            tuples.subList(0, 2000), 8, 64, 1);
+        ProductQuantizedTuples compressed = 
+            new ProductQuantizedTuples(quantizer);
+        assertEquals(0, compressed.addAll(tuples));
+        assertEquals(5000, compressed.size());
+        
+        DistanceFunction<DoubleTuple> euclidean = 
+            DoubleTupleDistanceFunctions.euclidean();
+        List<DoubleTuple> queries = 
+            RandomTuples.createRandomTuples(random, 50, size);
+        int hits = 0;
+        for (DoubleTuple query : queries)
+        {
+            int expected = NearestNeighbors.findNearest(
+                query, tuples, euclidean, 1).get(0).getIndex();
+            List<Neighbor<DoubleTuple>> neighbors = 
+                compressed.findNearest(query, 10);
+            assertEquals(10, neighbors.size());
+            for (Neighbor<DoubleTuple> neighbor : neighbors)
+            {
+                if (neighbor.getIndex() == expected)
+                {
+                    hits++;
+                }
+            }
+        }
+        assertTrue("Recall was " + hits + " of 50", hits >= 40);
+    }
+    
+    @Test
+    public void testComputeDistances()
+    {
+        Random random = new Random(2);
+        List<DoubleTuple> tuples = 
+            RandomTuples.createRandomTuples(random, 300, 6);
+        ProductQuantizer quantizer = ProductQuantizer.train(tuples, 3, 8, 2);
+        ProductQuantizedTuples compressed = 
+            new ProductQuantizedTuples(quantizer);
+        for (DoubleTuple tuple : tuples)
+        {
+            compressed.add(tuple);
+        }
+        DoubleTuple query = tuples.get(0);
+        double distances[] = new double[compressed.size()];
+        compressed.computeDistances(query, distances);
+        for (int i = 0; i < compressed.size(); i++)
+        {
+            assertEquals(DoubleTupleDistanceFunctions.euclidean().distance(
+                query, compressed.get(i)), distances[i], 1e-10);
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCentroidCount()
+    {
+        ProductQuantizer.train(
+            RandomTuples.createRandomTuples(new Random(0), 300, 4), 2, 257, 0);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.RandomTuples;
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.tuples.d.DoubleTuple;
+import de.javagl.nd.tuples.d.DoubleTuples;
+import de.javagl.nd.tuples.d.MutableDoubleTuple;
+
+@SuppressWarnings("javadoc")
+public class TestRandomProjection
+{
+    private static void checkDistancesPreserved(RandomProjection projection)
+    {
+        List<DoubleTuple> tuples = RandomTuples.createGaussianTuples(
+            new Random(0), 30, projection.getInputDimensions());
+        List<MutableDoubleTuple> projected = projection.project(tuples);
+        DistanceFunction<DoubleTuple> euclidean = 
+            DoubleTupleDistanceFunctions.euclidean();
+        for (int i = 0; i < tuples.size(); i++)
+        {
+            for (int j = i + 1; j < tuples.size(); j++)
+            {
+                double d = euclidean.distance(tuples.get(i), tuples.get(j));
+                double p = euclidean.distance(
+                    projected.get(i), projected.get(j));
+                assertTrue(p > d * 0.7 && p < d * 1.3);
+            }
+        }
+    }
+    
+    @Test
+    public void testGaussianPreservesDistances()
+    {
+        checkDistancesPreserved(RandomProjection.gaussian(1000, 256, 0));
+    }
+    
+    @Test
+    public void testAchlioptasPreservesDistances()
+    {
+        checkDistancesPreserved(RandomProjection.achlioptas(1000, 256, 1));
+    }
+    
+    @Test
+    public void testReproducibleAndConsistent()
+    {
+        List<DoubleTuple> tuples = 
+            RandomTuples.createGaussianTuples(new Random(1), 2500, 40);
+        RandomProjection p0 = RandomProjection.gaussian(40, 8, 123);
+        RandomProjection p1 = RandomProjection.gaussian(40, 8, 123);
+        List<MutableDoubleTuple> r0 = p0.project(tuples);
+        List<MutableDoubleTuple> r1 = p1.project(tuples);
+        double packed[] = new double[tuples.size() * 40];
+        for (int i = 0; i < tuples.size(); i++)
+        {
+            System.arraycopy(DoubleTuples.toArray(tuples.get(i)), 0, 
+                packed, i * 40, 40);
+        }
+        double r2[] = p0.projectPacked(packed, tuples.size());
+        for (int i = 0; i < tuples.size(); i++)
+        {
+            assertEquals(r0.get(i), r1.get(i));
+            assertEquals(r0.get(i), p0.project(tuples.get(i)));
+            assertArrayEquals(DoubleTuples.toArray(r0.get(i)), 
+                DoubleTuples.toArray(DoubleTuples.wrap(r2, i * 8, 8)), 0.0);
+        }
+    }
+    
+    @Test
+    public void testWideInputIsStreamed()
+    {
+        int inputDimensions = 70000;
+        RandomProjection projection = 
+            RandomProjection.achlioptas(inputDimensions, 64, 2);
+        List<DoubleTuple> tuples = 
+            RandomTuples.createGaussianTuples(
+                new Random(2), 3, inputDimensions);
+        List<MutableDoubleTuple> projected = projection.project(tuples);
+        for (int i = 0; i < tuples.size(); i++)
+        {
+            assertEquals(projected.get(i), projection.project(tuples.get(i)));
+            double length = DoubleTuples.computeL2(tuples.get(i));
+            double projectedLength = DoubleTuples.computeL2(projected.get(i));
+            assertTrue(projectedLength > length * 0.6 && 
+                projectedLength < length * 1.4);
+        }
+    }
+    
+    @Test
+    public void testComputeMinimumDimensions()
+    {
+        assertTrue(RandomProjection.computeMinimumDimensions(1000000, 0.1) > 
+            RandomProjection.computeMinimumDimensions(1000, 0.1));
+        assertTrue(RandomProjection.computeMinimumDimensions(1000, 0.1) > 
+            RandomProjection.computeMinimumDimensions(1000, 0.5));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize()
+    {
+        RandomProjection.gaussian(4, 2, 0).project(DoubleTuples.of(1, 2));
+    }
+}
@@ -7,10 +7,14 @@ package de.javagl.nd.distance.tuples.i;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
 import de.javagl.nd.distance.DistanceFunction;
 import de.javagl.nd.distance.tuples.i.IntTupleDistanceFunctions;
+import de.javagl.nd.tuples.d.DoubleTuples;
 import de.javagl.nd.tuples.i.IntTuple;
 import de.javagl.nd.tuples.i.IntTuples;
 
@@ -120,6 +124,89 @@ public class TestIntTupleDistanceFunctions
         assertEquals(expected, actual, EPSILON);
     }
 
+    @Test
+    public void testBatchDistances()
+    {
+        IntTuple query = IntTuples.of(1,-2,3);
+        List<? extends IntTuple> candidates = IntTuples.wrapPacked(
+            new int[] { 2,4,6, -1,0,9, 1,-2,3, 5,5,-5 }, 3);
+        assertBatchDistances(IntTupleDistanceFunctions.manhattan(), 
+            query, candidates);
+        assertBatchDistances(IntTupleDistanceFunctions.chebyshev(), 
+            query, candidates);
+        assertBatchDistances(IntTupleDistanceFunctions.euclidean(), 
+            query, candidates);
+        
+        // Candidates that are not backed by arrays
+        List<IntTuple> mixed = Arrays.asList(
+            IntTuples.constant(3, -4), IntTuples.of(2,4,6), 
+            IntTuples.reversed(IntTuples.of(1,0,-7)));
+        assertBatchDistances(IntTupleDistanceFunctions.manhattan(), 
+            query, mixed);
+        assertBatchDistances(IntTupleDistanceFunctions.chebyshev(), 
+            query, mixed);
+    }
+    
+    private static void assertBatchDistances(
+        DistanceFunction<IntTuple> distanceFunction, 
+        IntTuple query, List<? extends IntTuple> candidates)
+    {
+        double actual[] = new double[candidates.size()];
+        distanceFunction.distances(query, candidates, actual);
+        for (int i=0; i<candidates.size(); i++)
+        {
+            double expected = 
+                distanceFunction.distance(query, candidates.get(i));
+            assertEquals(expected, actual[i], EPSILON);
+        }
+    }
     
+    @Test
+    public void testMinkowski()
+    {
+        IntTuple t0 = IntTuples.of(1, 2, 3);
+        IntTuple t1 = IntTuples.of(2, -4, 6);
+        
+        double actual = IntTupleDistanceFunctions.minkowski(3.0)
+            .distance(t0, t1);
+        double expected = Math.pow(1 + 216 + 27, 1.0 / 3.0);
+        assertEquals(expected, actual, EPSILON);
+        
+        double weighted = IntTupleDistanceFunctions.weightedEuclidean(
+            DoubleTuples.of(2.0, 0.5, 0.0)).distance(t0, t1);
+        assertEquals(Math.sqrt(2 + 18), weighted, EPSILON);
+        
+        double abandoned = IntTupleDistanceFunctions.minkowski(
+            3.0, null, expected * 0.9).distance(t0, t1);
+        assertEquals(Double.POSITIVE_INFINITY, abandoned, 0.0);
+    }
+
+    @Test
+    public void testHamming()
+    {
+        DistanceFunction<IntTuple> distanceFunction =
+            IntTupleDistanceFunctions.hamming();
+        
+        double actual = distanceFunction.distance(
+            IntTuples.of(0b1011, -1), IntTuples.of(0b0110, 0));
+        double expected = 3.0 + 32.0;
+        assertEquals(expected, actual, EPSILON);
+    }
+
+    @Test
+    public void testJaccard()
+    {
+        DistanceFunction<IntTuple> distanceFunction =
+            IntTupleDistanceFunctions.jaccard();
+        
+        double actual = distanceFunction.distance(
+            IntTuples.of(0b1011, 0), IntTuples.of(0b0110, 0));
+        double expected = 1.0 - 1.0 / 4.0;
+        assertEquals(expected, actual, EPSILON);
+        
+        double empty = distanceFunction.distance(
+            IntTuples.of(0, 0), IntTuples.of(0, 0));
+        assertEquals(0.0, empty, 0.0);
+    }
     
 }
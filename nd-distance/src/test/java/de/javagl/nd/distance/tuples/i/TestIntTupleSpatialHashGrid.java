@@ -0,0 +1,201 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.i;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.tuples.i.IntTuple;
+import de.javagl.nd.tuples.i.IntTuples;
+
+@SuppressWarnings("javadoc")
+public class TestIntTupleSpatialHashGrid
+{
+    private static int[] findLinear(List<IntTuple> positions, 
+        IntTuple center, double radius, DistanceFunction<IntTuple> df)
+    {
+        List<Integer> result = new ArrayList<Integer>();
+        for (int i = 0; i < positions.size(); i++)
+        {
+            IntTuple position = positions.get(i);
+            if (position != null && df.distance(center, position) <= radius)
+            {
+                result.add(i);
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    private static void checkQueries(Random random, 
+        IntTupleSpatialHashGrid grid, List<IntTuple> positions, 
+        DistanceFunction<IntTuple> df, int bound)
+    {
+        for (int q = 0; q < 50; q++)
+        {
+            IntTuple center = IntTuples.of(
+                random.nextInt(bound), random.nextInt(bound));
+            double radius = random.nextInt(25);
+            assertArrayEquals(findLinear(positions, center, radius, df),
+                grid.findWithin(center, radius, df));
+        }
+    }
+    
+    @Test
+    public void testQueriesMatchLinearSearch()
+    {
+        Random random = new Random(0);
+        IntTupleSpatialHashGrid grid = new IntTupleSpatialHashGrid(2, 8);
+        List<IntTuple> positions = new ArrayList<IntTuple>();
+        for (int i = 0; i < 1000; i++)
+        {
+            IntTuple position = IntTuples.of(
+                random.nextInt(200) - 50, random.nextInt(200) - 50);
+            positions.add(position);
+            grid.insert(i, position);
+        }
+        assertEquals(1000, grid.size());
+        checkQueries(random, grid, positions, 
+            IntTupleDistanceFunctions.euclidean(), 150);
+        checkQueries(random, grid, positions, 
+            IntTupleDistanceFunctions.manhattan(), 150);
+        checkQueries(random, grid, positions, 
+            IntTupleDistanceFunctions.chebyshev(), 150);
+        
+        for (int i = 0; i < 1000; i += 3)
+        {
+            IntTuple position = IntTuples.of(
+                random.nextInt(200) - 50, random.nextInt(200) - 50);
+            positions.set(i, position);
+            grid.move(i, position);
+        }
+        for (int i = 0; i < 1000; i += 7)
+        {
+            positions.set(i, null);
+            assertTrue(grid.remove(i));
+        }
+        assertFalse(grid.remove(0));
+        checkQueries(random, grid, positions, 
+            IntTupleDistanceFunctions.euclidean(), 150);
+    }
+    
+    @Test
+    public void testWrappedQueriesMatchLinearSearch()
+    {
+        Random random = new Random(1);
+        IntTuple size = IntTuples.of(60, 40);
+        IntTupleSpatialHashGrid grid = 
+            new IntTupleSpatialHashGrid(2, 10, size);
+        List<IntTuple> positions = new ArrayList<IntTuple>();
+        for (int i = 0; i < 500; i++)
+        {
+            IntTuple position = IntTuples.of(
+                random.nextInt(60), random.nextInt(40));
+            positions.add(position);
+            grid.insert(i, position);
+        }
+        checkQueries(random, grid, positions, 
+            IntTupleDistanceFunctions.wrappedEuclidean(size), 60);
+        checkQueries(random, grid, positions, 
+            IntTupleDistanceFunctions.wrappedManhattan(size), 60);
+        checkQueries(random, grid, positions, 
+            IntTupleDistanceFunctions.wrappedChebyshev(size), 60);
+    }
+    
+    @Test
+    public void testWrappedPositions()
+    {
+        IntTupleSpatialHashGrid grid = 
+            new IntTupleSpatialHashGrid(2, 5, IntTuples.of(10, 10));
+        grid.insert(3, IntTuples.of(-1, 12));
+        assertEquals(IntTuples.of(9, 2), grid.getPosition(3));
+        assertArrayEquals(new int[] { 3 }, grid.findWithin(
+            IntTuples.of(0, 2), 1, 
+            IntTupleDistanceFunctions.wrappedManhattan(IntTuples.of(10, 10))));
+    }
+    
+    @Test
+    public void testHugeRadius()
+    {
+        IntTupleSpatialHashGrid grid = new IntTupleSpatialHashGrid(2, 1);
+        grid.insert(0, IntTuples.of(0, 0));
+        grid.insert(1, IntTuples.of(5, 5));
+        grid.insert(2, IntTuples.of(Integer.MAX_VALUE, -1000));
+        DistanceFunction<IntTuple> df = IntTupleDistanceFunctions.chebyshev();
+        assertArrayEquals(new int[] { 0, 1, 2 }, 
+            grid.findWithin(IntTuples.of(0, 0), 1e12, df));
+        assertArrayEquals(new int[] { 2 }, grid.findWithin(
+            IntTuples.of(Integer.MAX_VALUE, -1000), 0, df));
+    }
+    
+    @Test(timeout = 10000)
+    public void testRadiusLargerThanWrapSize()
+    {
+        IntTuple size = IntTuples.of(1000, 1000);
+        IntTupleSpatialHashGrid grid = 
+            new IntTupleSpatialHashGrid(2, 1, size);
+        grid.insert(0, IntTuples.of(500, 500));
+        DistanceFunction<IntTuple> df = 
+            IntTupleDistanceFunctions.wrappedChebyshev(size);
+        for (int i = 0; i < 100; i++)
+        {
+            assertArrayEquals(new int[] { 0 }, 
+                grid.findWithin(IntTuples.of(i, i), 5000, df));
+        }
+        
+        IntTupleSpatialHashGrid smallGrid = 
+            new IntTupleSpatialHashGrid(2, 2, IntTuples.of(4, 4));
+        smallGrid.insert(0, IntTuples.of(0, 0));
+        smallGrid.insert(1, IntTuples.of(3, 1));
+        smallGrid.insert(2, IntTuples.of(2, 3));
+        assertArrayEquals(new int[] { 0, 1, 2 }, smallGrid.findWithin(
+            IntTuples.of(1, 1), 10, 
+            IntTupleDistanceFunctions.wrappedManhattan(IntTuples.of(4, 4))));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateInsert()
+    {
+        IntTupleSpatialHashGrid grid = new IntTupleSpatialHashGrid(2, 4);
+        grid.insert(0, IntTuples.of(1, 2));
+        grid.insert(0, IntTuples.of(3, 4));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWrapSize()
+    {
+        new IntTupleSpatialHashGrid(2, 4, IntTuples.of(10, 12));
+    }
+}
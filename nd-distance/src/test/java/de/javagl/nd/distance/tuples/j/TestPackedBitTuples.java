@@ -0,0 +1,139 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.distance.tuples.j;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.nd.distance.DistanceFunction;
+import de.javagl.nd.distance.Neighbor;
+import de.javagl.nd.tuples.j.LongTuple;
+import de.javagl.nd.tuples.j.LongTuples;
+
+@SuppressWarnings("javadoc")
+public class TestPackedBitTuples
+{
+    @Test
+    public void testDistancesMatchDistanceFunctions()
+    {
+        List<LongTuple> tuples = createTuples(1000, 3, 0);
+        PackedBitTuples packed = new PackedBitTuples(3);
+        packed.addAll(tuples);
+        LongTuple query = createTuples(1, 3, 1).get(0);
+        
+        double hamming[] = new double[tuples.size()];
+        double jaccard[] = new double[tuples.size()];
+        packed.computeHammingDistances(query, hamming);
+        packed.computeJaccardDistances(query, jaccard);
+        
+        double expectedHamming[] = new double[tuples.size()];
+        double expectedJaccard[] = new double[tuples.size()];
+        LongTupleDistanceFunctions.hamming().distances(
+            query, tuples, expectedHamming);
+        LongTupleDistanceFunctions.jaccard().distances(
+            query, tuples, expectedJaccard);
+        for (int i = 0; i < tuples.size(); i++)
+        {
+            assertEquals(expectedHamming[i], hamming[i], 0.0);
+            assertEquals(expectedJaccard[i], jaccard[i], 1e-15);
+            assertEquals(tuples.get(i), packed.get(i));
+        }
+    }
+    
+    @Test
+    public void testFindNearestMatchesBruteForce()
+    {
+        // More than one block, with sparse fingerprints, so that the
+        // bit count bounds are actually used for pruning
+        List<LongTuple> tuples = createTuples(70000, 4, 2);
+        PackedBitTuples packed = new PackedBitTuples(4);
+        packed.addAll(tuples);
+        LongTuple query = createTuples(1, 4, 3).get(0);
+        
+        assertNeighbors(tuples, query, 
+            LongTupleDistanceFunctions.hamming(),
+            packed.findNearestHamming(query, 25));
+        assertNeighbors(tuples, query, 
+            LongTupleDistanceFunctions.jaccard(),
+            packed.findNearestJaccard(query, 25));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize()
+    {
+        new PackedBitTuples(2).add(LongTuples.of(1, 2, 3));
+    }
+    
+    private static void assertNeighbors(List<LongTuple> tuples, 
+        LongTuple query, DistanceFunction<LongTuple> distanceFunction,
+        List<Neighbor<LongTuple>> actual)
+    {
+        double distances[] = new double[tuples.size()];
+        distanceFunction.distances(query, tuples, distances);
+        Integer order[] = new Integer[tuples.size()];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator
+            .comparingDouble((Integer i) -> distances[i])
+            .thenComparingInt(i -> i));
+        assertEquals(25, actual.size());
+        for (int i = 0; i < actual.size(); i++)
+        {
+            Neighbor<LongTuple> neighbor = actual.get(i);
+            assertEquals(order[i].intValue(), neighbor.getIndex());
+            assertEquals(distances[order[i]], neighbor.getDistance(), 0.0);
+            assertEquals(tuples.get(order[i]), neighbor.getElement());
+        }
+    }
+    
+    private static List<LongTuple> createTuples(int n, int words, long seed)
+    {
+        Random random = new Random(seed);
+        List<LongTuple> tuples = new ArrayList<LongTuple>();
+        for (int i = 0; i < n; i++)
+        {
+            long values[] = new long[words];
+            int bits = 4 + random.nextInt(40);
+            for (int b = 0; b < bits; b++)
+            {
+                int bit = random.nextInt(words * 64);
+                values[bit / 64] |= 1L << (bit % 64);
+            }
+            tuples.add(LongTuples.of(values));
+        }
+        return tuples;
+    }
+}
@@ -64,6 +64,10 @@ public class NDGen
         generateTuples(doubleType);
         generateTuples(longType);
         generateTuples(intType);
+        
+        generateIntTupleMap(doubleType);
+        generateIntTupleMap(longType);
+        generateIntTupleMap(intType);
     }
     
     private static void generateTuples(Type type) throws IOException
@@ -81,12 +85,31 @@ public class NDGen
         
         generate("tuples", "", type, "TupleCollections");
         generate("tuples", "", type, "TupleFunctions");
+        generate("tuples", "", type, "TupleKernels");
         generate("tuples", "", type, "Tuples");
         generate("tuples", "", type, "TupleSpliterator");
         generate("tuples", "", type, "TupleStreams");
         
     }
     
+    private static void generateIntTupleMap(Type type) throws IOException
+    {
+        File outputDirectory = 
+            new File("src/generated/de/javagl/nd/tuples/i");
+        outputDirectory.mkdirs();
+        
+        ST st = rawGroupDir.getInstanceOf("tuples/IntTupleTypeMap");
+        st.add("type", type);
+        
+        String outputFileName = 
+            "IntTuple" + type.getUppercaseName() + "Map.java";
+        File outputFile = 
+            new File(outputDirectory, outputFileName);
+        st.write(outputFile, ErrorManager.DEFAULT_ERROR_LISTENER);
+        
+        System.out.println("Created " + outputFile);
+    }
+    
     private static void generateArrays() throws IOException
     {
         generateArrays(doubleType);
@@ -107,6 +130,9 @@ public class NDGen
 
         generate("arrays", "MutableTuple", type, "ArrayND");
         generate("arrays", "Tuple", type, "ArrayND");
+
+        generate("arrays", "Sparse", type, "ArrayND");
+        generate("arrays", "BlockSparse", type, "ArrayND");
         
         generate("arrays", "", type, "ArraysND");
         generate("arrays", "", type, "ArrayFunctionsND");
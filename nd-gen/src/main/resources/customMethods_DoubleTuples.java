@@ -127,13 +127,7 @@
      */
     public static double computeL2(DoubleTuple t)
     {
-        double sum = 0;
-        for (int i=0; i<t.getSize(); i++)
-        {
-            double ti = t.get(i);
-            sum += ti * ti;
-        }
-        return Math.sqrt(sum);
+        return Math.sqrt(dot(t, t));
     }
 
     /**
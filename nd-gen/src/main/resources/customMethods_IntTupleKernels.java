@@ -0,0 +1,67 @@
+
+    /**
+     * Computes the number of bits that are set in the exclusive or of 
+     * the elements in the specified array ranges (that is, the Hamming 
+     * distance between the bit vectors that are stored in the ranges)
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The number of bits
+     */
+    public static int bitCountOfXor(
+        int a0[], int o0, int a1[], int o1, int n)
+    {
+        int result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += Integer.bitCount(a0[o0+i] ^ a1[o1+i]);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the number of bits that are set in the bitwise and of 
+     * the elements in the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The number of bits
+     */
+    public static int bitCountOfAnd(
+        int a0[], int o0, int a1[], int o1, int n)
+    {
+        int result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += Integer.bitCount(a0[o0+i] & a1[o1+i]);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the number of bits that are set in the bitwise or of 
+     * the elements in the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The number of bits
+     */
+    public static int bitCountOfOr(
+        int a0[], int o0, int a1[], int o1, int n)
+    {
+        int result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += Integer.bitCount(a0[o0+i] | a1[o1+i]);
+        }
+        return result;
+    }
@@ -0,0 +1,67 @@
+
+    /**
+     * Computes the number of bits that are set in the exclusive or of 
+     * the elements in the specified array ranges (that is, the Hamming 
+     * distance between the bit vectors that are stored in the ranges)
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The number of bits
+     */
+    public static long bitCountOfXor(
+        long a0[], int o0, long a1[], int o1, int n)
+    {
+        long result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += Long.bitCount(a0[o0+i] ^ a1[o1+i]);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the number of bits that are set in the bitwise and of 
+     * the elements in the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The number of bits
+     */
+    public static long bitCountOfAnd(
+        long a0[], int o0, long a1[], int o1, int n)
+    {
+        long result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += Long.bitCount(a0[o0+i] & a1[o1+i]);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the number of bits that are set in the bitwise or of 
+     * the elements in the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The number of bits
+     */
+    public static long bitCountOfOr(
+        long a0[], int o0, long a1[], int o1, int n)
+    {
+        long result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += Long.bitCount(a0[o0+i] | a1[o1+i]);
+        }
+        return result;
+    }
@@ -118,12 +118,33 @@ final class ArrayDoubleTuple extends AbstractMutableDoubleTuple
     @Override
     public MutableDoubleTuple subTuple(int fromIndex, int toIndex)
     {
+        Utils.checkForValidSubTupleIndices(size, fromIndex, toIndex);
         return new ArrayDoubleTuple(data, offset+fromIndex, toIndex-fromIndex);
     }
 
     @Override
     public DoubleStream stream()
     {
-        return Arrays.stream(data);
+        return Arrays.stream(data, offset, offset+size);
+    }
+
+    /**
+     * Returns a reference to the array that stores the data of this tuple
+     *
+     * @return The data array
+     */
+    double[] getData()
+    {
+        return data;
+    }
+
+    /**
+     * Returns the offset of this tuple in its {@link #getData() data} array
+     *
+     * @return The offset
+     */
+    int getOffset()
+    {
+        return offset;
     }
 }
@@ -26,6 +26,7 @@
  */
 package de.javagl.nd.tuples.d;
 
+import java.util.Arrays;
 import java.util.stream.DoubleStream;
 import java.util.stream.StreamSupport;
 
@@ -52,7 +53,10 @@ class DoubleTupleStreams
     }
 
     /**
-     * Returns a stream of the specified range of the given {@link DoubleTuple}
+     * Returns a stream of the specified range of the given {@link DoubleTuple}.
+     * If the tuple is backed by an array, then the stream will be based
+     * on the array directly, so that it can efficiently be split for
+     * parallel processing.
      * 
      * @param tuple The tuple
      * @param startInclusive The start index, inclusive
@@ -62,6 +66,15 @@ class DoubleTupleStreams
     static DoubleStream stream(
         DoubleTuple tuple, int startInclusive, int endExclusive) 
     {
+        double array[] = DoubleTupleKernels.getArray(tuple);
+        if (array != null && startInclusive >= 0 && 
+            startInclusive <= endExclusive && 
+            endExclusive <= tuple.getSize())
+        {
+            int offset = DoubleTupleKernels.getArrayOffset(tuple);
+            return Arrays.stream(array, 
+                offset + startInclusive, offset + endExclusive);
+        }
         DoubleTupleSpliterator doubleTupleSpliterator = 
             new DoubleTupleSpliterator(
                 tuple, startInclusive, endExclusive);
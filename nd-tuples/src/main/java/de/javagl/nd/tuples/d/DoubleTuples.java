@@ -208,6 +208,51 @@ public class DoubleTuples
         return new ArrayDoubleTuple(data, offset, size);
     }
 
+    /**
+     * Returns an unmodifiable list of tuples that are <i>views</i> on 
+     * consecutive portions of the given array. The tuple with index 
+     * <code>i</code> in the returned list will be a view on the 
+     * elements <code>i*size</code> to <code>(i+1)*size</code> (exclusive)
+     * of the given array. If the length of the array is not a multiple 
+     * of the given size, then the remaining elements will be ignored.
+     * 
+     * @param data The packed data for the tuples
+     * @param size The size of each tuple
+     * @return The list of tuples
+     * @throws NullPointerException If the given data array is <code>null</code>
+     * @throws IllegalArgumentException If the given size is not positive
+     */
+    public static List<MutableDoubleTuple> wrapPacked(
+        final double[] data, final int size)
+    {
+        Objects.requireNonNull(data, "The data is null");
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The size must be positive, but is "+size);
+        }
+        final int count = data.length / size;
+        return new AbstractList<MutableDoubleTuple>()
+        {
+            @Override
+            public MutableDoubleTuple get(int index)
+            {
+                if (index < 0 || index >= count)
+                {
+                    throw new IndexOutOfBoundsException(
+                        "Index "+index+", size "+count);
+                }
+                return new ArrayDoubleTuple(data, index * size, size);
+            }
+
+            @Override
+            public int size()
+            {
+                return count;
+            }
+        };
+    }
+
 
     /**
      * Creates a new tuple that is a <i>view</i>
@@ -657,8 +702,21 @@ public class DoubleTuples
     public static MutableDoubleTuple add(
         DoubleTuple t0, DoubleTuple t1, MutableDoubleTuple result)
     {
-        return DoubleTupleFunctions.apply(
-            t0, t1, (a,b)->(a+b), result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        double a0[] = DoubleTupleKernels.getArray(t0);
+        double a1[] = DoubleTupleKernels.getArray(t1);
+        double ar[] = DoubleTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return DoubleTupleFunctions.apply(
+                t0, t1, (a,b)->(a+b), result);
+        }
+        DoubleTupleKernels.add(
+            a0, DoubleTupleKernels.getArrayOffset(t0), 
+            a1, DoubleTupleKernels.getArrayOffset(t1), 
+            ar, DoubleTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -675,8 +733,21 @@ public class DoubleTuples
     public static MutableDoubleTuple subtract(
         DoubleTuple t0, DoubleTuple t1, MutableDoubleTuple result)
     {
-        return DoubleTupleFunctions.apply(
-            t0, t1, (a,b)->(a-b), result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        double a0[] = DoubleTupleKernels.getArray(t0);
+        double a1[] = DoubleTupleKernels.getArray(t1);
+        double ar[] = DoubleTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return DoubleTupleFunctions.apply(
+                t0, t1, (a,b)->(a-b), result);
+        }
+        DoubleTupleKernels.subtract(
+            a0, DoubleTupleKernels.getArrayOffset(t0), 
+            a1, DoubleTupleKernels.getArrayOffset(t1), 
+            ar, DoubleTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -693,8 +764,21 @@ public class DoubleTuples
     public static MutableDoubleTuple multiply(
         DoubleTuple t0, DoubleTuple t1, MutableDoubleTuple result)
     {
-        return DoubleTupleFunctions.apply(
-            t0, t1, (a,b)->(a*b), result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        double a0[] = DoubleTupleKernels.getArray(t0);
+        double a1[] = DoubleTupleKernels.getArray(t1);
+        double ar[] = DoubleTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return DoubleTupleFunctions.apply(
+                t0, t1, (a,b)->(a*b), result);
+        }
+        DoubleTupleKernels.multiply(
+            a0, DoubleTupleKernels.getArrayOffset(t0), 
+            a1, DoubleTupleKernels.getArrayOffset(t1), 
+            ar, DoubleTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -808,6 +892,14 @@ public class DoubleTuples
     public static double dot(DoubleTuple t0, DoubleTuple t1)
     {
         Utils.checkForEqualSize(t0, t1);
+        double a0[] = DoubleTupleKernels.getArray(t0);
+        double a1[] = DoubleTupleKernels.getArray(t1);
+        if (a0 != null && a1 != null)
+        {
+            return DoubleTupleKernels.dot(
+                a0, DoubleTupleKernels.getArrayOffset(t0), 
+                a1, DoubleTupleKernels.getArrayOffset(t1), t0.getSize());
+        }
         double result = 0;
         for (int i=0; i<t0.getSize(); i++)
         {
@@ -861,8 +953,21 @@ public class DoubleTuples
     public static MutableDoubleTuple min(
         DoubleTuple t0, DoubleTuple t1, MutableDoubleTuple result)
     {
-        return DoubleTupleFunctions.apply(
-            t0, t1, Math::min, result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        double a0[] = DoubleTupleKernels.getArray(t0);
+        double a1[] = DoubleTupleKernels.getArray(t1);
+        double ar[] = DoubleTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return DoubleTupleFunctions.apply(
+                t0, t1, Math::min, result);
+        }
+        DoubleTupleKernels.min(
+            a0, DoubleTupleKernels.getArrayOffset(t0), 
+            a1, DoubleTupleKernels.getArrayOffset(t1), 
+            ar, DoubleTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -880,8 +985,21 @@ public class DoubleTuples
     public static MutableDoubleTuple max(
         DoubleTuple t0, DoubleTuple t1, MutableDoubleTuple result)
     {
-        return DoubleTupleFunctions.apply(
-            t0, t1, Math::max, result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        double a0[] = DoubleTupleKernels.getArray(t0);
+        double a1[] = DoubleTupleKernels.getArray(t1);
+        double ar[] = DoubleTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return DoubleTupleFunctions.apply(
+                t0, t1, Math::max, result);
+        }
+        DoubleTupleKernels.max(
+            a0, DoubleTupleKernels.getArrayOffset(t0), 
+            a1, DoubleTupleKernels.getArrayOffset(t1), 
+            ar, DoubleTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
 
@@ -1571,13 +1689,7 @@ public class DoubleTuples
      */
     public static double computeL2(DoubleTuple t)
     {
-        double sum = 0;
-        for (int i=0; i<t.getSize(); i++)
-        {
-            double ti = t.get(i);
-            sum += ti * ti;
-        }
-        return Math.sqrt(sum);
+        return Math.sqrt(dot(t, t));
     }
 
     /**
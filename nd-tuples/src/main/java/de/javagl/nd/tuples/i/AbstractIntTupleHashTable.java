@@ -0,0 +1,683 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.tuples.i;
+
+import java.util.Arrays;
+
+import de.javagl.nd.tuples.Tuple;
+
+/**
+ * Abstract base class for open-addressing hash tables that use 
+ * {@link IntTuple} instances as their keys.<br>
+ * <br>
+ * All keys of one table have the same {@link Tuple#getSize() size}, 
+ * which is given as the number of dimensions of the table. The keys
+ * are not stored as objects. Instead, as long as all coordinates of 
+ * all keys fit into the bits that are available for one coordinate, 
+ * they are packed into a single <code>long</code> value. When a key 
+ * is inserted that can not be packed, or when the tuples have too 
+ * many dimensions for packing them, the coordinates are stored in 
+ * a plain <code>int</code> array.<br>
+ * <br>
+ * The table uses linear probing, and removes entries with backward 
+ * shifting, so that no tombstones are required. Implementations store
+ * their values in arrays that are indexed with the slots of this table.
+ */
+abstract class AbstractIntTupleHashTable
+{
+    /**
+     * The default capacity
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+    
+    /**
+     * The minimum number of bits per coordinate for which keys may be
+     * packed into a <code>long</code>
+     */
+    private static final int MIN_PACKED_BITS = 8;
+    
+    /**
+     * The number of dimensions of the keys
+     */
+    private final int dimensions;
+    
+    /**
+     * The number of bits that are used for each coordinate in the
+     * packed representation, or 0 if the keys can never be packed
+     */
+    private final int bits;
+    
+    /**
+     * The minimum coordinate value that can be packed
+     */
+    private final int minPackable;
+    
+    /**
+     * The maximum coordinate value that can be packed
+     */
+    private final int maxPackable;
+    
+    /**
+     * Whether the keys are currently stored in packed form
+     */
+    private boolean packed;
+    
+    /**
+     * The packed keys, if the keys are stored in packed form
+     */
+    private long packedKeys[];
+    
+    /**
+     * The coordinates of the keys, if they are not stored in packed form.
+     * The key in slot <code>s</code> is stored at indices
+     * <code>[s*dimensions, (s+1)*dimensions)</code>.
+     */
+    private int wideKeys[];
+    
+    /**
+     * Whether the respective slots are occupied
+     */
+    private boolean used[];
+    
+    /**
+     * The mask for the slot indices, namely the capacity minus one
+     */
+    private int mask;
+    
+    /**
+     * The number of entries
+     */
+    private int size;
+    
+    /**
+     * The number of entries above which the table will be enlarged
+     */
+    private int maxFill;
+    
+    /**
+     * Creates a new table for keys with the given number of dimensions,
+     * that can store the given number of entries without being 
+     * enlarged
+     * 
+     * @param dimensions The number of dimensions
+     * @param expectedSize The expected number of entries
+     * @throws IllegalArgumentException If any argument is negative
+     */
+    AbstractIntTupleHashTable(int dimensions, int expectedSize)
+    {
+        if (dimensions < 0)
+        {
+            throw new IllegalArgumentException(
+                "The dimensions may not be negative, but are " + dimensions);
+        }
+        if (expectedSize < 0)
+        {
+            throw new IllegalArgumentException(
+                "The expected size may not be negative, but is " + 
+                expectedSize);
+        }
+        this.dimensions = dimensions;
+        int b = dimensions == 0 ? 32 : Math.min(32, 64 / dimensions);
+        if (b >= MIN_PACKED_BITS)
+        {
+            this.bits = b;
+            this.minPackable = (int)(-(1L << (b - 1)));
+            this.maxPackable = (int)((1L << (b - 1)) - 1);
+            this.packed = true;
+        }
+        else
+        {
+            this.bits = 0;
+            this.minPackable = 0;
+            this.maxPackable = -1;
+            this.packed = false;
+        }
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * 3L / 4 < expectedSize)
+        {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+    
+    /**
+     * Allocate the key arrays for the given capacity
+     * 
+     * @param capacity The capacity, a power of 2
+     */
+    private void allocate(int capacity)
+    {
+        if (packed)
+        {
+            packedKeys = new long[capacity];
+            wideKeys = null;
+        }
+        else
+        {
+            packedKeys = null;
+            wideKeys = new int[capacity * dimensions];
+        }
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        maxFill = (int)(capacity * 3L / 4);
+    }
+    
+    /**
+     * Returns the number of dimensions of the keys, which is the 
+     * {@link Tuple#getSize() size} of all keys of this table
+     * 
+     * @return The number of dimensions
+     */
+    public final int getDimensions()
+    {
+        return dimensions;
+    }
+    
+    /**
+     * Returns the number of entries
+     * 
+     * @return The number of entries
+     */
+    public final int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns whether this table is empty
+     * 
+     * @return Whether this table is empty
+     */
+    public final boolean isEmpty()
+    {
+        return size == 0;
+    }
+    
+    /**
+     * Removes all entries. The capacity of this table is not changed.
+     */
+    public final void clear()
+    {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+    
+    /**
+     * Returns the capacity of this table, which is the length of the
+     * arrays that implementations use for storing the values
+     * 
+     * @return The capacity
+     */
+    final int capacity()
+    {
+        return used.length;
+    }
+    
+    /**
+     * Make sure that the given key has the number of dimensions of
+     * this table
+     * 
+     * @param key The key
+     * @throws NullPointerException If the key is <code>null</code>
+     * @throws IllegalArgumentException If the key has a different 
+     * {@link Tuple#getSize() size}
+     */
+    private void validate(IntTuple key)
+    {
+        if (key.getSize() != dimensions)
+        {
+            throw new IllegalArgumentException(
+                "Expected a key of size " + dimensions + 
+                ", but found size " + key.getSize());
+        }
+    }
+    
+    /**
+     * Returns whether the given key can be packed into a <code>long</code>
+     * 
+     * @param key The key
+     * @return Whether the key can be packed
+     */
+    private boolean isPackable(IntTuple key)
+    {
+        for (int i = 0; i < dimensions; i++)
+        {
+            int c = key.get(i);
+            if (c < minPackable || c > maxPackable)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Pack the given key into a <code>long</code> value. The caller is
+     * responsible for checking that the key is packable.
+     * 
+     * @param key The key
+     * @return The packed key
+     */
+    private long pack(IntTuple key)
+    {
+        long bitMask = (1L << bits) - 1;
+        long result = 0;
+        for (int i = 0; i < dimensions; i++)
+        {
+            result = (result << bits) | (key.get(i) & bitMask);
+        }
+        return result;
+    }
+    
+    /**
+     * Extract the specified coordinate from the given packed key
+     * 
+     * @param packedKey The packed key
+     * @param index The index of the coordinate
+     * @return The coordinate
+     */
+    private int unpack(long packedKey, int index)
+    {
+        int shift = bits * (dimensions - 1 - index);
+        long value = packedKey >>> shift;
+        return (int)((value << (64 - bits)) >> (64 - bits));
+    }
+    
+    /**
+     * Mix the bits of the given value, to obtain a hash code
+     * 
+     * @param value The value
+     * @return The hash code
+     */
+    private static int mix(long value)
+    {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+    
+    /**
+     * Computes the hash code of the given key, for the case that the 
+     * keys are not stored in packed form
+     * 
+     * @param key The key
+     * @return The hash code
+     */
+    private int hashWide(IntTuple key)
+    {
+        long h = 1;
+        for (int i = 0; i < dimensions; i++)
+        {
+            h = h * 0x100000001B3L + key.get(i);
+        }
+        return mix(h);
+    }
+    
+    /**
+     * Computes the hash code of the key that is stored in the given array,
+     * starting at the given offset, for the case that the keys are not 
+     * stored in packed form
+     * 
+     * @param array The array
+     * @param offset The offset
+     * @return The hash code
+     */
+    private int hashWide(int array[], int offset)
+    {
+        long h = 1;
+        for (int i = 0; i < dimensions; i++)
+        {
+            h = h * 0x100000001B3L + array[offset + i];
+        }
+        return mix(h);
+    }
+    
+    /**
+     * Returns whether the key in the given slot is equal to the given key,
+     * for the case that the keys are not stored in packed form
+     * 
+     * @param slot The slot
+     * @param key The key
+     * @return Whether the keys are equal
+     */
+    private boolean matchesWide(int slot, IntTuple key)
+    {
+        int offset = slot * dimensions;
+        for (int i = 0; i < dimensions; i++)
+        {
+            if (wideKeys[offset + i] != key.get(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the slot that the key in the given slot would ideally 
+     * be stored in
+     * 
+     * @param slot The slot
+     * @return The ideal slot
+     */
+    private int idealSlot(int slot)
+    {
+        if (packed)
+        {
+            return mix(packedKeys[slot]) & mask;
+        }
+        return hashWide(wideKeys, slot * dimensions) & mask;
+    }
+    
+    /**
+     * Returns the slot that contains the given key, or -1 if the 
+     * given key is not contained in this table
+     * 
+     * @param key The key
+     * @return The slot
+     * @throws NullPointerException If the key is <code>null</code>
+     * @throws IllegalArgumentException If the key does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this table
+     */
+    final int find(IntTuple key)
+    {
+        validate(key);
+        if (packed)
+        {
+            if (!isPackable(key))
+            {
+                return -1;
+            }
+            long k = pack(key);
+            int slot = mix(k) & mask;
+            while (used[slot])
+            {
+                if (packedKeys[slot] == k)
+                {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+        int slot = hashWide(key) & mask;
+        while (used[slot])
+        {
+            if (matchesWide(slot, key))
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the slot that contains the given key. If the key is not 
+     * yet contained in this table, it is inserted, and 
+     * <code>-(slot+1)</code> is returned, where <code>slot</code> is
+     * the slot that the key was inserted into. The caller is then 
+     * responsible for initializing the value in this slot.
+     * 
+     * @param key The key
+     * @return The slot
+     * @throws NullPointerException If the key is <code>null</code>
+     * @throws IllegalArgumentException If the key does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this table
+     */
+    final int insert(IntTuple key)
+    {
+        int slot = find(key);
+        if (slot != -1)
+        {
+            return slot;
+        }
+        if (packed && !isPackable(key))
+        {
+            rehash(capacity(), false);
+        }
+        else if (size + 1 > maxFill)
+        {
+            rehash(capacity() << 1, packed);
+        }
+        if (packed)
+        {
+            long k = pack(key);
+            slot = mix(k) & mask;
+            while (used[slot])
+            {
+                slot = (slot + 1) & mask;
+            }
+            packedKeys[slot] = k;
+        }
+        else
+        {
+            slot = hashWide(key) & mask;
+            while (used[slot])
+            {
+                slot = (slot + 1) & mask;
+            }
+            int offset = slot * dimensions;
+            for (int i = 0; i < dimensions; i++)
+            {
+                wideKeys[offset + i] = key.get(i);
+            }
+        }
+        used[slot] = true;
+        size++;
+        return -(slot + 1);
+    }
+    
+    /**
+     * Rebuild the table with the given capacity
+     * 
+     * @param newCapacity The new capacity, a power of 2
+     * @param newPacked Whether the keys should be stored in packed form
+     */
+    private void rehash(int newCapacity, boolean newPacked)
+    {
+        int oldCapacity = capacity();
+        boolean oldPacked = packed;
+        long oldPackedKeys[] = packedKeys;
+        int oldWideKeys[] = wideKeys;
+        boolean oldUsed[] = used;
+        
+        packed = newPacked;
+        allocate(newCapacity);
+        
+        int newSlots[] = new int[oldCapacity];
+        int coordinates[] = new int[dimensions];
+        for (int s = 0; s < oldCapacity; s++)
+        {
+            if (!oldUsed[s])
+            {
+                newSlots[s] = -1;
+                continue;
+            }
+            int slot;
+            if (packed)
+            {
+                long k = oldPackedKeys[s];
+                slot = mix(k) & mask;
+                while (used[slot])
+                {
+                    slot = (slot + 1) & mask;
+                }
+                packedKeys[slot] = k;
+            }
+            else
+            {
+                if (oldPacked)
+                {
+                    long k = oldPackedKeys[s];
+                    for (int i = 0; i < dimensions; i++)
+                    {
+                        coordinates[i] = unpack(k, i);
+                    }
+                }
+                else
+                {
+                    System.arraycopy(oldWideKeys, s * dimensions, 
+                        coordinates, 0, dimensions);
+                }
+                slot = hashWide(coordinates, 0) & mask;
+                while (used[slot])
+                {
+                    slot = (slot + 1) & mask;
+                }
+                System.arraycopy(coordinates, 0, 
+                    wideKeys, slot * dimensions, dimensions);
+            }
+            used[slot] = true;
+            newSlots[s] = slot;
+        }
+        rehashValues(newCapacity, newSlots);
+    }
+    
+    /**
+     * Removes the entry in the given slot
+     * 
+     * @param slot The slot
+     */
+    final void removeSlot(int slot)
+    {
+        size--;
+        int last = slot;
+        int next = (last + 1) & mask;
+        while (used[next])
+        {
+            int ideal = idealSlot(next);
+            boolean mayMove;
+            if (last <= next)
+            {
+                mayMove = ideal <= last || ideal > next;
+            }
+            else
+            {
+                mayMove = ideal <= last && ideal > next;
+            }
+            if (mayMove)
+            {
+                if (packed)
+                {
+                    packedKeys[last] = packedKeys[next];
+                }
+                else
+                {
+                    System.arraycopy(wideKeys, next * dimensions, 
+                        wideKeys, last * dimensions, dimensions);
+                }
+                moveValue(next, last);
+                last = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[last] = false;
+    }
+    
+    /**
+     * Returns the index of the first occupied slot that is larger than 
+     * the given slot, or -1 if there is no such slot
+     * 
+     * @param slot The slot
+     * @return The next slot
+     */
+    final int nextSlot(int slot)
+    {
+        for (int s = slot + 1; s < used.length; s++)
+        {
+            if (used[s])
+            {
+                return s;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the specified coordinate of the key in the given slot
+     * 
+     * @param slot The slot
+     * @param index The index of the coordinate
+     * @return The coordinate
+     */
+    final int getKeyCoordinate(int slot, int index)
+    {
+        if (packed)
+        {
+            return unpack(packedKeys[slot], index);
+        }
+        return wideKeys[slot * dimensions + index];
+    }
+    
+    /**
+     * Called when the table was rebuilt. Implementations have to create
+     * new value arrays with the given capacity, and move each value from
+     * slot <code>s</code> of the old array to slot 
+     * <code>newSlots[s]</code> of the new array, if this is not -1.
+     * 
+     * @param newCapacity The new capacity
+     * @param newSlots The new slots
+     */
+    abstract void rehashValues(int newCapacity, int newSlots[]);
+    
+    /**
+     * Called when the entry in one slot was moved to a different slot 
+     * during a removal. Implementations have to move the value 
+     * accordingly.
+     * 
+     * @param from The source slot
+     * @param to The target slot
+     */
+    abstract void moveValue(int from, int to);
+    
+    /**
+     * A read-only view on the key in one slot of this table. Instances
+     * of this class are used for the allocation-free iteration over 
+     * the entries.
+     */
+    final class SlotKey extends AbstractIntTuple
+    {
+        /**
+         * The slot
+         */
+        int slot = -1;
+        
+        @Override
+        public int getSize()
+        {
+            return dimensions;
+        }
+
+        @Override
+        public int get(int index)
+        {
+            return getKeyCoordinate(slot, index);
+        }
+    }
+}
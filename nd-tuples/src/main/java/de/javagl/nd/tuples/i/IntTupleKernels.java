@@ -0,0 +1,377 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.tuples.i;
+
+/*
+ * Note: This class is automatically generated. Do not modify this class
+ * directly. See https://github.com/javagl/ND/tree/master/nd-gen/ for
+ * further information.
+ */
+
+/**
+ * Internal methods for bulk operations on the arrays that back 
+ * {@link IntTuple} instances.<br>
+ * <br>
+ * The operations receive the arrays, the offsets of the tuples in these
+ * arrays, and the number of elements to process. The result arrays may
+ * be identical to the input arrays, as long as the offsets are the same, 
+ * or the ranges do not overlap.<br>
+ * <br>
+ * Depending on the Java version, this class may be replaced by a version
+ * that uses vectorized implementations of the operations. In this case,
+ * reductions like the {@link #dot dot product} may be computed in a 
+ * different order, causing slightly different floating point results.<br>
+ * <br>
+ * These methods should <b>not</b> be considered as being a part of the 
+ * public API.
+ */
+public class IntTupleKernels
+{
+    /**
+     * Returns the array that the given tuple is backed by, or 
+     * <code>null</code> if the given tuple is not backed by an 
+     * accessible array. If the returned array is not <code>null</code>,
+     * then the element <code>i</code> of the tuple is stored at index
+     * <code>{@link #getArrayOffset(IntTuple) getArrayOffset(t)}+i</code>
+     * of the array.
+     * 
+     * @param t The tuple
+     * @return The backing array, or <code>null</code>
+     */
+    public static int[] getArray(IntTuple t)
+    {
+        if (t instanceof DefaultIntTuple)
+        {
+            return ((DefaultIntTuple)t).getData();
+        }
+        if (t instanceof ArrayIntTuple)
+        {
+            return ((ArrayIntTuple)t).getData();
+        }
+        if (t instanceof BufferIntTuple)
+        {
+            return ((BufferIntTuple)t).getData();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the offset of the given tuple in the array that is returned
+     * by {@link #getArray(IntTuple)}, or 0 if the given tuple is not
+     * backed by an accessible array.
+     * 
+     * @param t The tuple
+     * @return The offset
+     */
+    public static int getArrayOffset(IntTuple t)
+    {
+        if (t instanceof ArrayIntTuple)
+        {
+            return ((ArrayIntTuple)t).getOffset();
+        }
+        if (t instanceof BufferIntTuple)
+        {
+            return ((BufferIntTuple)t).getOffset();
+        }
+        return 0;
+    }
+
+    /**
+     * Computes the dot product of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The dot product
+     */
+    public static int dot(
+        int a0[], int o0, int a1[], int o1, int n)
+    {
+        int result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += a0[o0+i] * a1[o1+i];
+        }
+        return result;
+    }
+
+    /**
+     * Computes the sum of the absolute differences of the elements in 
+     * the specified array ranges (that is, the Manhattan distance)
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The sum of the absolute differences
+     */
+    public static int sumOfAbsoluteDifferences(
+        int a0[], int o0, int a1[], int o1, int n)
+    {
+        int result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += Math.abs(a0[o0+i] - a1[o1+i]);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the sum of the squared differences of the elements in 
+     * the specified array ranges (that is, the squared Euclidean distance)
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The sum of the squared differences
+     */
+    public static double sumOfSquaredDifferences(
+        int a0[], int o0, int a1[], int o1, int n)
+    {
+        double result = 0;
+        for (int i=0; i<n; i++)
+        {
+            double d = a0[o0+i] - a1[o1+i];
+            result += d * d;
+        }
+        return result;
+    }
+
+    /**
+     * Computes the maximum of the absolute differences of the elements in 
+     * the specified array ranges (that is, the Chebyshev distance)
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The maximum absolute difference
+     */
+    public static int maxOfAbsoluteDifferences(
+        int a0[], int o0, int a1[], int o1, int n)
+    {
+        int result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result = Math.max(result, Math.abs(a0[o0+i] - a1[o1+i]));
+        }
+        return result;
+    }
+
+    /**
+     * Adds the elements of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param r The result array
+     * @param or The offset in the result array
+     * @param n The number of elements
+     */
+    public static void add(
+        int a0[], int o0, int a1[], int o1, 
+        int r[], int or, int n)
+    {
+        for (int i=0; i<n; i++)
+        {
+            r[or+i] = a0[o0+i] + a1[o1+i];
+        }
+    }
+
+    /**
+     * Subtracts the elements of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param r The result array
+     * @param or The offset in the result array
+     * @param n The number of elements
+     */
+    public static void subtract(
+        int a0[], int o0, int a1[], int o1, 
+        int r[], int or, int n)
+    {
+        for (int i=0; i<n; i++)
+        {
+            r[or+i] = a0[o0+i] - a1[o1+i];
+        }
+    }
+
+    /**
+     * Multiplies the elements of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param r The result array
+     * @param or The offset in the result array
+     * @param n The number of elements
+     */
+    public static void multiply(
+        int a0[], int o0, int a1[], int o1, 
+        int r[], int or, int n)
+    {
+        for (int i=0; i<n; i++)
+        {
+            r[or+i] = a0[o0+i] * a1[o1+i];
+        }
+    }
+
+    /**
+     * Computes the element-wise minimum of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param r The result array
+     * @param or The offset in the result array
+     * @param n The number of elements
+     */
+    public static void min(
+        int a0[], int o0, int a1[], int o1, 
+        int r[], int or, int n)
+    {
+        for (int i=0; i<n; i++)
+        {
+            r[or+i] = Math.min(a0[o0+i], a1[o1+i]);
+        }
+    }
+
+    /**
+     * Computes the element-wise maximum of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param r The result array
+     * @param or The offset in the result array
+     * @param n The number of elements
+     */
+    public static void max(
+        int a0[], int o0, int a1[], int o1, 
+        int r[], int or, int n)
+    {
+        for (int i=0; i<n; i++)
+        {
+            r[or+i] = Math.max(a0[o0+i], a1[o1+i]);
+        }
+    }
+
+    //=========================================================================
+    // Start of custom methods
+
+
+    /**
+     * Computes the number of bits that are set in the exclusive or of 
+     * the elements in the specified array ranges (that is, the Hamming 
+     * distance between the bit vectors that are stored in the ranges)
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The number of bits
+     */
+    public static int bitCountOfXor(
+        int a0[], int o0, int a1[], int o1, int n)
+    {
+        int result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += Integer.bitCount(a0[o0+i] ^ a1[o1+i]);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the number of bits that are set in the bitwise and of 
+     * the elements in the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The number of bits
+     */
+    public static int bitCountOfAnd(
+        int a0[], int o0, int a1[], int o1, int n)
+    {
+        int result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += Integer.bitCount(a0[o0+i] & a1[o1+i]);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the number of bits that are set in the bitwise or of 
+     * the elements in the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements
+     * @return The number of bits
+     */
+    public static int bitCountOfOr(
+        int a0[], int o0, int a1[], int o1, int n)
+    {
+        int result = 0;
+        for (int i=0; i<n; i++)
+        {
+            result += Integer.bitCount(a0[o0+i] | a1[o1+i]);
+        }
+        return result;
+    }
+
+    // End   of custom methods
+    //=========================================================================
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private IntTupleKernels()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.tuples.i;
+
+import java.util.function.ObjLongConsumer;
+
+import de.javagl.nd.tuples.Tuple;
+
+/*
+ * Note: This class is automatically generated. Do not modify this class
+ * directly. See https://github.com/javagl/ND/tree/master/nd-gen/ for
+ * further information.
+ */
+
+/**
+ * A map from {@link IntTuple} keys to primitive <code>long</code> values,
+ * which is intended for storing sparse data that is associated with 
+ * the cells of a grid.<br>
+ * <br>
+ * All keys of one map must have the {@link Tuple#getSize() size} that
+ * is given by the {@link #getDimensions() dimensions} of the map. 
+ * The keys are copied when they are inserted, so later changes in the 
+ * given key tuples will not affect the map. As long as the coordinates
+ * of the keys are small enough, they are packed into a single 
+ * <code>long</code> value. The values are stored in a primitive array, 
+ * without boxing.<br>
+ * <br>
+ * The {@link #forEach(ObjLongConsumer)} method and the {@link Cursor} 
+ * allow iterating over the entries without allocating objects for the
+ * individual entries. The key tuples that are passed to the consumer 
+ * or returned by the cursor are <i>views</i> that are only valid until
+ * the next entry is visited. They have to be copied, for example with
+ * {@link IntTuples#copy(IntTuple)}, when they should be stored.<br>
+ * <br>
+ * The map must not be structurally modified (that is, keys must not be 
+ * added or removed) while iterating over the entries. The behavior is
+ * unspecified if this is done anyhow.<br>
+ * <br>
+ * This class is not thread-safe.
+ */
+public final class IntTupleLongMap extends AbstractIntTupleHashTable
+{
+    /**
+     * The values
+     */
+    private long values[];
+
+    /**
+     * Creates a new, empty map for keys with the given number of 
+     * dimensions
+     * 
+     * @param dimensions The number of dimensions
+     * @throws IllegalArgumentException If the dimensions are negative
+     */
+    public IntTupleLongMap(int dimensions)
+    {
+        this(dimensions, 0);
+    }
+
+    /**
+     * Creates a new, empty map for keys with the given number of 
+     * dimensions, that can store the given number of entries without
+     * being enlarged
+     * 
+     * @param dimensions The number of dimensions
+     * @param expectedSize The expected number of entries
+     * @throws IllegalArgumentException If any argument is negative
+     */
+    public IntTupleLongMap(int dimensions, int expectedSize)
+    {
+        super(dimensions, expectedSize);
+        this.values = new long[capacity()];
+    }
+
+    /**
+     * Returns whether this map contains the given key
+     * 
+     * @param key The key
+     * @return Whether the key is contained in this map
+     * @throws NullPointerException If the key is <code>null</code>
+     * @throws IllegalArgumentException If the key does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this map
+     */
+    public boolean containsKey(IntTuple key)
+    {
+        return find(key) != -1;
+    }
+
+    /**
+     * Returns the value that is associated with the given key, or 
+     * <code>0</code> if the key is not contained in this map
+     * 
+     * @param key The key
+     * @return The value
+     * @throws NullPointerException If the key is <code>null</code>
+     * @throws IllegalArgumentException If the key does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this map
+     */
+    public long get(IntTuple key)
+    {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * Returns the value that is associated with the given key, or 
+     * the given default value if the key is not contained in this map
+     * 
+     * @param key The key
+     * @param defaultValue The default value
+     * @return The value
+     * @throws NullPointerException If the key is <code>null</code>
+     * @throws IllegalArgumentException If the key does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this map
+     */
+    public long getOrDefault(IntTuple key, long defaultValue)
+    {
+        int slot = find(key);
+        if (slot == -1)
+        {
+            return defaultValue;
+        }
+        return values[slot];
+    }
+
+    /**
+     * Associates the given value with the given key
+     * 
+     * @param key The key
+     * @param value The value
+     * @return The value that was previously associated with the key, 
+     * or <code>0</code> if the key was not contained in this map
+     * @throws NullPointerException If the key is <code>null</code>
+     * @throws IllegalArgumentException If the key does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this map
+     */
+    public long put(IntTuple key, long value)
+    {
+        int slot = insert(key);
+        if (slot < 0)
+        {
+            values[-slot - 1] = value;
+            return 0;
+        }
+        long oldValue = values[slot];
+        values[slot] = value;
+        return oldValue;
+    }
+
+    /**
+     * Adds the given value to the value that is associated with the 
+     * given key. If the key is not contained in this map, then it is 
+     * inserted with the given value.
+     * 
+     * @param key The key
+     * @param value The value to add
+     * @return The new value that is associated with the key
+     * @throws NullPointerException If the key is <code>null</code>
+     * @throws IllegalArgumentException If the key does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this map
+     */
+    public long add(IntTuple key, long value)
+    {
+        int slot = insert(key);
+        if (slot < 0)
+        {
+            values[-slot - 1] = value;
+            return value;
+        }
+        values[slot] += value;
+        return values[slot];
+    }
+
+    /**
+     * Removes the given key from this map
+     * 
+     * @param key The key
+     * @return Whether the key was contained in this map
+     * @throws NullPointerException If the key is <code>null</code>
+     * @throws IllegalArgumentException If the key does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this map
+     */
+    public boolean remove(IntTuple key)
+    {
+        int slot = find(key);
+        if (slot == -1)
+        {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Passes each entry of this map to the given consumer. The key that 
+     * is passed to the consumer is a view that is only valid during the
+     * call to the consumer.
+     * 
+     * @param consumer The consumer
+     */
+    public void forEach(ObjLongConsumer<? super IntTuple> consumer)
+    {
+        SlotKey key = new SlotKey();
+        for (int s = nextSlot(-1); s != -1; s = nextSlot(s))
+        {
+            key.slot = s;
+            consumer.accept(key, values[s]);
+        }
+    }
+
+    /**
+     * Returns a new {@link Cursor} for iterating over the entries 
+     * of this map
+     * 
+     * @return The cursor
+     */
+    public Cursor cursor()
+    {
+        return new Cursor();
+    }
+
+    @Override
+    void rehashValues(int newCapacity, int newSlots[])
+    {
+        long newValues[] = new long[newCapacity];
+        for (int s = 0; s < newSlots.length; s++)
+        {
+            if (newSlots[s] != -1)
+            {
+                newValues[newSlots[s]] = values[s];
+            }
+        }
+        values = newValues;
+    }
+
+    @Override
+    void moveValue(int from, int to)
+    {
+        values[to] = values[from];
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("{");
+        Cursor cursor = cursor();
+        boolean first = true;
+        while (cursor.next())
+        {
+            if (!first)
+            {
+                sb.append(", ");
+            }
+            first = false;
+            sb.append(cursor.key()).append("=").append(cursor.value());
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    /**
+     * A cursor for iterating over the entries of an 
+     * {@link IntTupleLongMap}. A cursor is initially placed before the 
+     * first entry. The {@link #next()} method moves it to the next 
+     * entry, if there is one:
+     * <pre><code>
+     * IntTupleLongMap.Cursor cursor = map.cursor();
+     * while (cursor.next())
+     * {
+     *     IntTuple key = cursor.key();
+     *     long value = cursor.value();
+     *     ...
+     * }
+     * </code></pre>
+     */
+    public final class Cursor
+    {
+        /**
+         * The view on the current key
+         */
+        private final SlotKey key = new SlotKey();
+
+        /**
+         * Private constructor
+         */
+        private Cursor()
+        {
+            // Private constructor
+        }
+
+        /**
+         * Move this cursor to the next entry
+         * 
+         * @return Whether there was a next entry
+         */
+        public boolean next()
+        {
+            if (key.slot == -2)
+            {
+                return false;
+            }
+            int s = nextSlot(key.slot);
+            key.slot = s == -1 ? -2 : s;
+            return s != -1;
+        }
+
+        /**
+         * Returns a view on the key of the current entry. The returned 
+         * tuple is only valid until {@link #next()} is called.
+         * 
+         * @return The key
+         * @throws IllegalStateException If the cursor is not placed 
+         * on an entry
+         */
+        public IntTuple key()
+        {
+            checkValid();
+            return key;
+        }
+
+        /**
+         * Returns the value of the current entry
+         * 
+         * @return The value
+         * @throws IllegalStateException If the cursor is not placed 
+         * on an entry
+         */
+        public long value()
+        {
+            checkValid();
+            return values[key.slot];
+        }
+
+        /**
+         * Sets the value of the current entry
+         * 
+         * @param value The value
+         * @throws IllegalStateException If the cursor is not placed 
+         * on an entry
+         */
+        public void setValue(long value)
+        {
+            checkValid();
+            values[key.slot] = value;
+        }
+
+        /**
+         * Make sure that this cursor is placed on an entry
+         * 
+         * @throws IllegalStateException If the cursor is not placed 
+         * on an entry
+         */
+        private void checkValid()
+        {
+            if (key.slot < 0)
+            {
+                throw new IllegalStateException(
+                    "The cursor is not placed on an entry");
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.tuples.i;
+
+import java.util.function.Consumer;
+
+import de.javagl.nd.tuples.Tuple;
+
+/**
+ * A set of {@link IntTuple} instances, which is intended for storing 
+ * sets of cells of a grid.<br>
+ * <br>
+ * All elements of one set must have the {@link Tuple#getSize() size} 
+ * that is given by the {@link #getDimensions() dimensions} of the set. 
+ * The elements are copied when they are added, so later changes in the 
+ * given tuples will not affect the set. As long as the coordinates
+ * of the elements are small enough, they are packed into a single 
+ * <code>long</code> value.<br>
+ * <br>
+ * The {@link #forEach(Consumer)} method and the {@link Cursor} allow 
+ * iterating over the elements without allocating objects for the 
+ * individual elements. The tuples that are passed to the consumer 
+ * or returned by the cursor are <i>views</i> that are only valid until
+ * the next element is visited. They have to be copied, for example with
+ * {@link IntTuples#copy(IntTuple)}, when they should be stored.<br>
+ * <br>
+ * The set must not be modified while iterating over the elements. 
+ * The behavior is unspecified if this is done anyhow.<br>
+ * <br>
+ * This class is not thread-safe.
+ */
+public final class IntTupleSet extends AbstractIntTupleHashTable
+{
+    /**
+     * Creates a new, empty set for elements with the given number of 
+     * dimensions
+     * 
+     * @param dimensions The number of dimensions
+     * @throws IllegalArgumentException If the dimensions are negative
+     */
+    public IntTupleSet(int dimensions)
+    {
+        this(dimensions, 0);
+    }
+    
+    /**
+     * Creates a new, empty set for elements with the given number of 
+     * dimensions, that can store the given number of elements without
+     * being enlarged
+     * 
+     * @param dimensions The number of dimensions
+     * @param expectedSize The expected number of elements
+     * @throws IllegalArgumentException If any argument is negative
+     */
+    public IntTupleSet(int dimensions, int expectedSize)
+    {
+        super(dimensions, expectedSize);
+    }
+    
+    /**
+     * Returns whether this set contains the given element
+     * 
+     * @param element The element
+     * @return Whether the element is contained in this set
+     * @throws NullPointerException If the element is <code>null</code>
+     * @throws IllegalArgumentException If the element does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this set
+     */
+    public boolean contains(IntTuple element)
+    {
+        return find(element) != -1;
+    }
+    
+    /**
+     * Adds the given element to this set
+     * 
+     * @param element The element
+     * @return Whether the element was added, meaning that it was not
+     * yet contained in this set
+     * @throws NullPointerException If the element is <code>null</code>
+     * @throws IllegalArgumentException If the element does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this set
+     */
+    public boolean add(IntTuple element)
+    {
+        return insert(element) < 0;
+    }
+    
+    /**
+     * Removes the given element from this set
+     * 
+     * @param element The element
+     * @return Whether the element was contained in this set
+     * @throws NullPointerException If the element is <code>null</code>
+     * @throws IllegalArgumentException If the element does not have 
+     * the {@link Tuple#getSize() size} that is given by the 
+     * {@link #getDimensions() dimensions} of this set
+     */
+    public boolean remove(IntTuple element)
+    {
+        int slot = find(element);
+        if (slot == -1)
+        {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+    
+    /**
+     * Passes each element of this set to the given consumer. The tuple 
+     * that is passed to the consumer is a view that is only valid during 
+     * the call to the consumer.
+     * 
+     * @param consumer The consumer
+     */
+    public void forEach(Consumer<? super IntTuple> consumer)
+    {
+        SlotKey key = new SlotKey();
+        for (int s = nextSlot(-1); s != -1; s = nextSlot(s))
+        {
+            key.slot = s;
+            consumer.accept(key);
+        }
+    }
+    
+    /**
+     * Returns a new {@link Cursor} for iterating over the elements 
+     * of this set
+     * 
+     * @return The cursor
+     */
+    public Cursor cursor()
+    {
+        return new Cursor();
+    }
+    
+    @Override
+    void rehashValues(int newCapacity, int newSlots[])
+    {
+        // No values are stored
+    }
+    
+    @Override
+    void moveValue(int from, int to)
+    {
+        // No values are stored
+    }
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("{");
+        Cursor cursor = cursor();
+        boolean first = true;
+        while (cursor.next())
+        {
+            if (!first)
+            {
+                sb.append(", ");
+            }
+            first = false;
+            sb.append(cursor.element());
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+    
+    /**
+     * A cursor for iterating over the elements of an {@link IntTupleSet}.
+     * A cursor is initially placed before the first element. The 
+     * {@link #next()} method moves it to the next element, if there 
+     * is one:
+     * <pre><code>
+     * IntTupleSet.Cursor cursor = set.cursor();
+     * while (cursor.next())
+     * {
+     *     IntTuple element = cursor.element();
+     *     ...
+     * }
+     * </code></pre>
+     */
+    public final class Cursor
+    {
+        /**
+         * The view on the current element
+         */
+        private final SlotKey key = new SlotKey();
+        
+        /**
+         * Private constructor
+         */
+        private Cursor()
+        {
+            // Private constructor
+        }
+        
+        /**
+         * Move this cursor to the next element
+         * 
+         * @return Whether there was a next element
+         */
+        public boolean next()
+        {
+            if (key.slot == -2)
+            {
+                return false;
+            }
+            int s = nextSlot(key.slot);
+            key.slot = s == -1 ? -2 : s;
+            return s != -1;
+        }
+        
+        /**
+         * Returns a view on the current element. The returned tuple is
+         * only valid until {@link #next()} is called.
+         * 
+         * @return The element
+         * @throws IllegalStateException If the cursor is not placed 
+         * on an element
+         */
+        public IntTuple element()
+        {
+            if (key.slot < 0)
+            {
+                throw new IllegalStateException(
+                    "The cursor is not placed on an element");
+            }
+            return key;
+        }
+    }
+}
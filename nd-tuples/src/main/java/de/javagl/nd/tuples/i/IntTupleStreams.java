@@ -26,6 +26,7 @@
  */
 package de.javagl.nd.tuples.i;
 
+import java.util.Arrays;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
@@ -52,7 +53,10 @@ class IntTupleStreams
     }
 
     /**
-     * Returns a stream of the specified range of the given {@link IntTuple}
+     * Returns a stream of the specified range of the given {@link IntTuple}.
+     * If the tuple is backed by an array, then the stream will be based
+     * on the array directly, so that it can efficiently be split for
+     * parallel processing.
      * 
      * @param tuple The tuple
      * @param startInclusive The start index, inclusive
@@ -62,6 +66,15 @@ class IntTupleStreams
     static IntStream stream(
         IntTuple tuple, int startInclusive, int endExclusive) 
     {
+        int array[] = IntTupleKernels.getArray(tuple);
+        if (array != null && startInclusive >= 0 && 
+            startInclusive <= endExclusive && 
+            endExclusive <= tuple.getSize())
+        {
+            int offset = IntTupleKernels.getArrayOffset(tuple);
+            return Arrays.stream(array, 
+                offset + startInclusive, offset + endExclusive);
+        }
         IntTupleSpliterator intTupleSpliterator = 
             new IntTupleSpliterator(
                 tuple, startInclusive, endExclusive);
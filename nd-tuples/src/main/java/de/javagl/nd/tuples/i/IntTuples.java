@@ -210,6 +210,51 @@ public class IntTuples
         return new ArrayIntTuple(data, offset, size);
     }
 
+    /**
+     * Returns an unmodifiable list of tuples that are <i>views</i> on 
+     * consecutive portions of the given array. The tuple with index 
+     * <code>i</code> in the returned list will be a view on the 
+     * elements <code>i*size</code> to <code>(i+1)*size</code> (exclusive)
+     * of the given array. If the length of the array is not a multiple 
+     * of the given size, then the remaining elements will be ignored.
+     * 
+     * @param data The packed data for the tuples
+     * @param size The size of each tuple
+     * @return The list of tuples
+     * @throws NullPointerException If the given data array is <code>null</code>
+     * @throws IllegalArgumentException If the given size is not positive
+     */
+    public static List<MutableIntTuple> wrapPacked(
+        final int[] data, final int size)
+    {
+        Objects.requireNonNull(data, "The data is null");
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The size must be positive, but is "+size);
+        }
+        final int count = data.length / size;
+        return new AbstractList<MutableIntTuple>()
+        {
+            @Override
+            public MutableIntTuple get(int index)
+            {
+                if (index < 0 || index >= count)
+                {
+                    throw new IndexOutOfBoundsException(
+                        "Index "+index+", size "+count);
+                }
+                return new ArrayIntTuple(data, index * size, size);
+            }
+
+            @Override
+            public int size()
+            {
+                return count;
+            }
+        };
+    }
+
 
     /**
      * Creates a new tuple that is a <i>view</i>
@@ -659,8 +704,21 @@ public class IntTuples
     public static MutableIntTuple add(
         IntTuple t0, IntTuple t1, MutableIntTuple result)
     {
-        return IntTupleFunctions.apply(
-            t0, t1, (a,b)->(a+b), result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        int a0[] = IntTupleKernels.getArray(t0);
+        int a1[] = IntTupleKernels.getArray(t1);
+        int ar[] = IntTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return IntTupleFunctions.apply(
+                t0, t1, (a,b)->(a+b), result);
+        }
+        IntTupleKernels.add(
+            a0, IntTupleKernels.getArrayOffset(t0), 
+            a1, IntTupleKernels.getArrayOffset(t1), 
+            ar, IntTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -677,8 +735,21 @@ public class IntTuples
     public static MutableIntTuple subtract(
         IntTuple t0, IntTuple t1, MutableIntTuple result)
     {
-        return IntTupleFunctions.apply(
-            t0, t1, (a,b)->(a-b), result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        int a0[] = IntTupleKernels.getArray(t0);
+        int a1[] = IntTupleKernels.getArray(t1);
+        int ar[] = IntTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return IntTupleFunctions.apply(
+                t0, t1, (a,b)->(a-b), result);
+        }
+        IntTupleKernels.subtract(
+            a0, IntTupleKernels.getArrayOffset(t0), 
+            a1, IntTupleKernels.getArrayOffset(t1), 
+            ar, IntTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -695,8 +766,21 @@ public class IntTuples
     public static MutableIntTuple multiply(
         IntTuple t0, IntTuple t1, MutableIntTuple result)
     {
-        return IntTupleFunctions.apply(
-            t0, t1, (a,b)->(a*b), result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        int a0[] = IntTupleKernels.getArray(t0);
+        int a1[] = IntTupleKernels.getArray(t1);
+        int ar[] = IntTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return IntTupleFunctions.apply(
+                t0, t1, (a,b)->(a*b), result);
+        }
+        IntTupleKernels.multiply(
+            a0, IntTupleKernels.getArrayOffset(t0), 
+            a1, IntTupleKernels.getArrayOffset(t1), 
+            ar, IntTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -810,6 +894,14 @@ public class IntTuples
     public static int dot(IntTuple t0, IntTuple t1)
     {
         Utils.checkForEqualSize(t0, t1);
+        int a0[] = IntTupleKernels.getArray(t0);
+        int a1[] = IntTupleKernels.getArray(t1);
+        if (a0 != null && a1 != null)
+        {
+            return IntTupleKernels.dot(
+                a0, IntTupleKernels.getArrayOffset(t0), 
+                a1, IntTupleKernels.getArrayOffset(t1), t0.getSize());
+        }
         int result = 0;
         for (int i=0; i<t0.getSize(); i++)
         {
@@ -863,8 +955,21 @@ public class IntTuples
     public static MutableIntTuple min(
         IntTuple t0, IntTuple t1, MutableIntTuple result)
     {
-        return IntTupleFunctions.apply(
-            t0, t1, Math::min, result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        int a0[] = IntTupleKernels.getArray(t0);
+        int a1[] = IntTupleKernels.getArray(t1);
+        int ar[] = IntTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return IntTupleFunctions.apply(
+                t0, t1, Math::min, result);
+        }
+        IntTupleKernels.min(
+            a0, IntTupleKernels.getArrayOffset(t0), 
+            a1, IntTupleKernels.getArrayOffset(t1), 
+            ar, IntTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -882,8 +987,21 @@ public class IntTuples
     public static MutableIntTuple max(
         IntTuple t0, IntTuple t1, MutableIntTuple result)
     {
-        return IntTupleFunctions.apply(
-            t0, t1, Math::max, result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        int a0[] = IntTupleKernels.getArray(t0);
+        int a1[] = IntTupleKernels.getArray(t1);
+        int ar[] = IntTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return IntTupleFunctions.apply(
+                t0, t1, Math::max, result);
+        }
+        IntTupleKernels.max(
+            a0, IntTupleKernels.getArrayOffset(t0), 
+            a1, IntTupleKernels.getArrayOffset(t1), 
+            ar, IntTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
 
@@ -96,4 +96,35 @@ final class BufferLongTuple extends AbstractMutableLongTuple
         buffer.limit(oldLimit);
         return result;
     }
+
+    /**
+     * Returns a reference to the array that backs the buffer of this tuple,
+     * or <code>null</code> if the buffer is not backed by an accessible
+     * array (for example, because it is a direct or a read-only buffer)
+     *
+     * @return The data array, or <code>null</code>
+     */
+    long[] getData()
+    {
+        if (buffer.hasArray())
+        {
+            return buffer.array();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the offset of this tuple in its {@link #getData() data} 
+     * array, or 0 if the buffer is not backed by an accessible array
+     *
+     * @return The offset
+     */
+    int getOffset()
+    {
+        if (buffer.hasArray())
+        {
+            return buffer.arrayOffset();
+        }
+        return 0;
+    }
 }
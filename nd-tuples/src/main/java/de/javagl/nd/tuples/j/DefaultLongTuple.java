@@ -28,6 +28,8 @@ package de.javagl.nd.tuples.j;
 
 import java.util.Objects;
 
+import de.javagl.nd.tuples.Utils;
+
 /*
  * Note: This class is automatically generated. Do not modify this class
  * directly. See https://github.com/javagl/ND/tree/master/nd-gen/ for
@@ -106,5 +108,22 @@ class DefaultLongTuple extends AbstractMutableLongTuple
         data[index] = value;
     }
 
+    @Override
+    public MutableLongTuple subTuple(int fromIndex, int toIndex)
+    {
+        Utils.checkForValidSubTupleIndices(data.length, fromIndex, toIndex);
+        return new ArrayLongTuple(data, fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * Returns a reference to the array that stores the data of this tuple
+     *
+     * @return The data array
+     */
+    long[] getData()
+    {
+        return data;
+    }
+
 
 }
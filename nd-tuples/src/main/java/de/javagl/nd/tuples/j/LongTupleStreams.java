@@ -26,6 +26,7 @@
  */
 package de.javagl.nd.tuples.j;
 
+import java.util.Arrays;
 import java.util.stream.LongStream;
 import java.util.stream.StreamSupport;
 
@@ -52,7 +53,10 @@ class LongTupleStreams
     }
 
     /**
-     * Returns a stream of the specified range of the given {@link LongTuple}
+     * Returns a stream of the specified range of the given {@link LongTuple}.
+     * If the tuple is backed by an array, then the stream will be based
+     * on the array directly, so that it can efficiently be split for
+     * parallel processing.
      * 
      * @param tuple The tuple
      * @param startInclusive The start index, inclusive
@@ -62,6 +66,15 @@ class LongTupleStreams
     static LongStream stream(
         LongTuple tuple, int startInclusive, int endExclusive) 
     {
+        long array[] = LongTupleKernels.getArray(tuple);
+        if (array != null && startInclusive >= 0 && 
+            startInclusive <= endExclusive && 
+            endExclusive <= tuple.getSize())
+        {
+            int offset = LongTupleKernels.getArrayOffset(tuple);
+            return Arrays.stream(array, 
+                offset + startInclusive, offset + endExclusive);
+        }
         LongTupleSpliterator longTupleSpliterator = 
             new LongTupleSpliterator(
                 tuple, startInclusive, endExclusive);
@@ -210,6 +210,51 @@ public class LongTuples
         return new ArrayLongTuple(data, offset, size);
     }
 
+    /**
+     * Returns an unmodifiable list of tuples that are <i>views</i> on 
+     * consecutive portions of the given array. The tuple with index 
+     * <code>i</code> in the returned list will be a view on the 
+     * elements <code>i*size</code> to <code>(i+1)*size</code> (exclusive)
+     * of the given array. If the length of the array is not a multiple 
+     * of the given size, then the remaining elements will be ignored.
+     * 
+     * @param data The packed data for the tuples
+     * @param size The size of each tuple
+     * @return The list of tuples
+     * @throws NullPointerException If the given data array is <code>null</code>
+     * @throws IllegalArgumentException If the given size is not positive
+     */
+    public static List<MutableLongTuple> wrapPacked(
+        final long[] data, final int size)
+    {
+        Objects.requireNonNull(data, "The data is null");
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The size must be positive, but is "+size);
+        }
+        final int count = data.length / size;
+        return new AbstractList<MutableLongTuple>()
+        {
+            @Override
+            public MutableLongTuple get(int index)
+            {
+                if (index < 0 || index >= count)
+                {
+                    throw new IndexOutOfBoundsException(
+                        "Index "+index+", size "+count);
+                }
+                return new ArrayLongTuple(data, index * size, size);
+            }
+
+            @Override
+            public int size()
+            {
+                return count;
+            }
+        };
+    }
+
 
     /**
      * Creates a new tuple that is a <i>view</i>
@@ -659,8 +704,21 @@ public class LongTuples
     public static MutableLongTuple add(
         LongTuple t0, LongTuple t1, MutableLongTuple result)
     {
-        return LongTupleFunctions.apply(
-            t0, t1, (a,b)->(a+b), result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        long a0[] = LongTupleKernels.getArray(t0);
+        long a1[] = LongTupleKernels.getArray(t1);
+        long ar[] = LongTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return LongTupleFunctions.apply(
+                t0, t1, (a,b)->(a+b), result);
+        }
+        LongTupleKernels.add(
+            a0, LongTupleKernels.getArrayOffset(t0), 
+            a1, LongTupleKernels.getArrayOffset(t1), 
+            ar, LongTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -677,8 +735,21 @@ public class LongTuples
     public static MutableLongTuple subtract(
         LongTuple t0, LongTuple t1, MutableLongTuple result)
     {
-        return LongTupleFunctions.apply(
-            t0, t1, (a,b)->(a-b), result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        long a0[] = LongTupleKernels.getArray(t0);
+        long a1[] = LongTupleKernels.getArray(t1);
+        long ar[] = LongTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return LongTupleFunctions.apply(
+                t0, t1, (a,b)->(a-b), result);
+        }
+        LongTupleKernels.subtract(
+            a0, LongTupleKernels.getArrayOffset(t0), 
+            a1, LongTupleKernels.getArrayOffset(t1), 
+            ar, LongTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -695,8 +766,21 @@ public class LongTuples
     public static MutableLongTuple multiply(
         LongTuple t0, LongTuple t1, MutableLongTuple result)
     {
-        return LongTupleFunctions.apply(
-            t0, t1, (a,b)->(a*b), result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        long a0[] = LongTupleKernels.getArray(t0);
+        long a1[] = LongTupleKernels.getArray(t1);
+        long ar[] = LongTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return LongTupleFunctions.apply(
+                t0, t1, (a,b)->(a*b), result);
+        }
+        LongTupleKernels.multiply(
+            a0, LongTupleKernels.getArrayOffset(t0), 
+            a1, LongTupleKernels.getArrayOffset(t1), 
+            ar, LongTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -810,6 +894,14 @@ public class LongTuples
     public static long dot(LongTuple t0, LongTuple t1)
     {
         Utils.checkForEqualSize(t0, t1);
+        long a0[] = LongTupleKernels.getArray(t0);
+        long a1[] = LongTupleKernels.getArray(t1);
+        if (a0 != null && a1 != null)
+        {
+            return LongTupleKernels.dot(
+                a0, LongTupleKernels.getArrayOffset(t0), 
+                a1, LongTupleKernels.getArrayOffset(t1), t0.getSize());
+        }
         long result = 0;
         for (int i=0; i<t0.getSize(); i++)
         {
@@ -863,8 +955,21 @@ public class LongTuples
     public static MutableLongTuple min(
         LongTuple t0, LongTuple t1, MutableLongTuple result)
     {
-        return LongTupleFunctions.apply(
-            t0, t1, Math::min, result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        long a0[] = LongTupleKernels.getArray(t0);
+        long a1[] = LongTupleKernels.getArray(t1);
+        long ar[] = LongTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return LongTupleFunctions.apply(
+                t0, t1, Math::min, result);
+        }
+        LongTupleKernels.min(
+            a0, LongTupleKernels.getArrayOffset(t0), 
+            a1, LongTupleKernels.getArrayOffset(t1), 
+            ar, LongTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
     /**
@@ -882,8 +987,21 @@ public class LongTuples
     public static MutableLongTuple max(
         LongTuple t0, LongTuple t1, MutableLongTuple result)
     {
-        return LongTupleFunctions.apply(
-            t0, t1, Math::max, result);
+        Utils.checkForEqualSize(t0, t1);
+        result = validate(t0, result);
+        long a0[] = LongTupleKernels.getArray(t0);
+        long a1[] = LongTupleKernels.getArray(t1);
+        long ar[] = LongTupleKernels.getArray(result);
+        if (a0 == null || a1 == null || ar == null)
+        {
+            return LongTupleFunctions.apply(
+                t0, t1, Math::max, result);
+        }
+        LongTupleKernels.max(
+            a0, LongTupleKernels.getArrayOffset(t0), 
+            a1, LongTupleKernels.getArrayOffset(t1), 
+            ar, LongTupleKernels.getArrayOffset(result), t0.getSize());
+        return result;
     }
 
 
@@ -0,0 +1,287 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.tuples.d;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementations of the {@link DoubleTupleKernels} operations that use
+ * the Vector API. <br>
+ * <br>
+ * All methods process the given number of elements, which must be a
+ * multiple of the vector length, as returned by {@link #loopBound(int)}.
+ * The remaining elements are processed by the calling methods.<br>
+ * <br>
+ * This class may only be loaded when the <code>jdk.incubator.vector</code>
+ * module is available.
+ */
+final class DoubleTupleVectorKernels
+{
+    /**
+     * The preferred vector species
+     */
+    private static final VectorSpecies<Double> SPECIES = 
+        DoubleVector.SPECIES_PREFERRED;
+    
+    /**
+     * Returns whether the vectorized implementations are supported. 
+     * This is the case when the preferred species contains more than
+     * one element.
+     * 
+     * @return Whether the vectorized implementations are supported
+     */
+    static boolean isSupported()
+    {
+        return SPECIES.length() > 1;
+    }
+    
+    /**
+     * Returns the largest multiple of the vector length that is not 
+     * larger than the given number of elements
+     * 
+     * @param n The number of elements
+     * @return The loop bound
+     */
+    static int loopBound(int n)
+    {
+        return SPECIES.loopBound(n);
+    }
+
+    /**
+     * Computes the dot product of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements, a multiple of the vector length
+     * @return The result
+     */
+    static double dot(double a0[], int o0, double a1[], int o1, int n)
+    {
+        DoubleVector v = DoubleVector.zero(SPECIES);
+        for (int i=0; i<n; i+=SPECIES.length())
+        {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a0, o0+i);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a1, o1+i);
+            v = v0.mul(v1).add(v);
+        }
+        return v.reduceLanes(VectorOperators.ADD);
+    }
+
+    /**
+     * Computes the sum of the absolute differences
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements, a multiple of the vector length
+     * @return The result
+     */
+    static double sumOfAbsoluteDifferences(double a0[], int o0, double a1[], int o1, int n)
+    {
+        DoubleVector v = DoubleVector.zero(SPECIES);
+        for (int i=0; i<n; i+=SPECIES.length())
+        {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a0, o0+i);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a1, o1+i);
+            v = v0.sub(v1).abs().add(v);
+        }
+        return v.reduceLanes(VectorOperators.ADD);
+    }
+
+    /**
+     * Computes the sum of the squared differences
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements, a multiple of the vector length
+     * @return The result
+     */
+    static double sumOfSquaredDifferences(double a0[], int o0, double a1[], int o1, int n)
+    {
+        DoubleVector v = DoubleVector.zero(SPECIES);
+        for (int i=0; i<n; i+=SPECIES.length())
+        {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a0, o0+i);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a1, o1+i);
+            DoubleVector d = v0.sub(v1);
+            v = d.mul(d).add(v);
+        }
+        return v.reduceLanes(VectorOperators.ADD);
+    }
+
+    /**
+     * Computes the maximum of the absolute differences
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param n The number of elements, a multiple of the vector length
+     * @return The result
+     */
+    static double maxOfAbsoluteDifferences(double a0[], int o0, double a1[], int o1, int n)
+    {
+        DoubleVector v = DoubleVector.zero(SPECIES);
+        for (int i=0; i<n; i+=SPECIES.length())
+        {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a0, o0+i);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a1, o1+i);
+            v = v0.sub(v1).abs().max(v);
+        }
+        return v.reduceLanes(VectorOperators.MAX);
+    }
+
+    /**
+     * Adds the elements of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param r The result array
+     * @param or The offset in the result array
+     * @param n The number of elements, a multiple of the vector length
+     */
+    static void add(
+        double a0[], int o0, double a1[], int o1, 
+        double r[], int or, int n)
+    {
+        for (int i=0; i<n; i+=SPECIES.length())
+        {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a0, o0+i);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a1, o1+i);
+            v0.add(v1).intoArray(r, or+i);
+        }
+    }
+
+    /**
+     * Subtracts the elements of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param r The result array
+     * @param or The offset in the result array
+     * @param n The number of elements, a multiple of the vector length
+     */
+    static void subtract(
+        double a0[], int o0, double a1[], int o1, 
+        double r[], int or, int n)
+    {
+        for (int i=0; i<n; i+=SPECIES.length())
+        {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a0, o0+i);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a1, o1+i);
+            v0.sub(v1).intoArray(r, or+i);
+        }
+    }
+
+    /**
+     * Multiplies the elements of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param r The result array
+     * @param or The offset in the result array
+     * @param n The number of elements, a multiple of the vector length
+     */
+    static void multiply(
+        double a0[], int o0, double a1[], int o1, 
+        double r[], int or, int n)
+    {
+        for (int i=0; i<n; i+=SPECIES.length())
+        {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a0, o0+i);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a1, o1+i);
+            v0.mul(v1).intoArray(r, or+i);
+        }
+    }
+
+    /**
+     * Computes the element-wise minimum of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param r The result array
+     * @param or The offset in the result array
+     * @param n The number of elements, a multiple of the vector length
+     */
+    static void min(
+        double a0[], int o0, double a1[], int o1, 
+        double r[], int or, int n)
+    {
+        for (int i=0; i<n; i+=SPECIES.length())
+        {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a0, o0+i);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a1, o1+i);
+            v0.min(v1).intoArray(r, or+i);
+        }
+    }
+
+    /**
+     * Computes the element-wise maximum of the specified array ranges
+     * 
+     * @param a0 The first array
+     * @param o0 The offset in the first array
+     * @param a1 The second array
+     * @param o1 The offset in the second array
+     * @param r The result array
+     * @param or The offset in the result array
+     * @param n The number of elements, a multiple of the vector length
+     */
+    static void max(
+        double a0[], int o0, double a1[], int o1, 
+        double r[], int or, int n)
+    {
+        for (int i=0; i<n; i+=SPECIES.length())
+        {
+            DoubleVector v0 = DoubleVector.fromArray(SPECIES, a0, o0+i);
+            DoubleVector v1 = DoubleVector.fromArray(SPECIES, a1, o1+i);
+            v0.max(v1).intoArray(r, or+i);
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DoubleTupleVectorKernels()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
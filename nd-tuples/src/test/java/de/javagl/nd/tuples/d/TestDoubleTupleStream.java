@@ -6,6 +6,7 @@
 package de.javagl.nd.tuples.d;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
 
@@ -21,6 +22,25 @@ public class TestDoubleTupleStream
         assertArrayEquals(expected, actual, 0.0);
     }
 
+    @Test
+    public void testArrayViewStream()
+    {
+        double data[] = { 9.0, 3.0, 2.0, 1.0, 0.0, 9.0 };
+        MutableDoubleTuple t0 = DoubleTuples.wrap(data, 1, 4);
+        double expected[] = { 3.0, 2.0, 1.0, 0.0 };
+        double actual[] = t0.stream().toArray();
+        assertArrayEquals(expected, actual, 0.0);
+    }
+
+    @Test
+    public void testParallelStream()
+    {
+        MutableDoubleTuple t0 = DoubleTuples.create(10000);
+        DoubleTuples.set(t0, 1.0);
+        double actual = t0.stream().parallel().sum();
+        assertEquals(10000.0, actual, 0.0);
+    }
+
     @Test
     public void testSortedStream()
     {
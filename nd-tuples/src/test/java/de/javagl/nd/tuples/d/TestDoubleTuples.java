@@ -50,6 +50,17 @@ public class TestDoubleTuples
         assertEquals(expected, actual);
     }
     
+    @Test
+    public void testWrapPacked()
+    {
+        double data[] = { 0.0, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0 };
+        List<MutableDoubleTuple> list = DoubleTuples.wrapPacked(data, 3);
+        assertEquals(2, list.size());
+        assertEquals(DoubleTuples.of(3.0, 4.0, 5.0), list.get(1));
+        list.get(0).set(1, 123.0);
+        assertEquals(123.0, data[1], 0.0);
+    }
+    
     @Test
     public void testAsListWriteThrough()
     {
@@ -324,6 +335,43 @@ public class TestDoubleTuples
         assertEquals(140.0, actual, 0.0);
     }
     
+    @Test
+    public void testAddWithArrayViews()
+    {
+        double data[] = { 9.0, 0.0, 1.0, 2.0, 3.0, 9.0 };
+        MutableDoubleTuple t0 = DoubleTuples.wrap(data, 1, 4);
+        MutableDoubleTuple t1 = DoubleTuples.wrap(data, 2, 4);
+        MutableDoubleTuple expected = DoubleTuples.of(1.0, 3.0, 5.0, 12.0);
+        MutableDoubleTuple actual = 
+            DoubleTuples.add(t0, t1, DoubleTuples.reversed(
+                DoubleTuples.create(4)));
+        assertEquals(expected, actual);
+        assertEquals(expected, DoubleTuples.add(t0, t1, null));
+    }
+    
+    @Test
+    public void testDotWithArrayViews()
+    {
+        double data[] = { 9.0, 0.0, 1.0, 2.0, 3.0, 9.0 };
+        MutableDoubleTuple t0 = DoubleTuples.wrap(data, 1, 4);
+        MutableDoubleTuple t1 = DoubleTuples.reversed(t0);
+        double actual = DoubleTuples.dot(t0, t0);
+        assertEquals(14.0, actual, 0.0);
+        assertEquals(4.0, DoubleTuples.dot(t0, t1), 0.0);
+    }
+    
+    @Test
+    public void testMinMaxWithArrayViewsInPlace()
+    {
+        double data[] = { 9.0, 4.0, 1.0, 2.0, 3.0, 9.0 };
+        MutableDoubleTuple t0 = DoubleTuples.wrap(data, 0, 3);
+        MutableDoubleTuple t1 = DoubleTuples.wrap(data, 3, 3);
+        DoubleTuples.min(t0, t1, t0);
+        assertEquals(DoubleTuples.of(2.0, 3.0, 1.0), t0);
+        DoubleTuples.max(t0, t1, t1);
+        assertEquals(DoubleTuples.of(2.0, 3.0, 9.0), t1);
+    }
+    
     @Test
     public void testMinElement()
     {
@@ -0,0 +1,119 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ */ 
+package de.javagl.nd.tuples.i;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestIntTupleDoubleMap
+{
+    @Test
+    public void testPutGetRemove()
+    {
+        IntTupleDoubleMap map = new IntTupleDoubleMap(2);
+        assertEquals(0.0, map.put(IntTuples.of(1, 2), 3.0), 0.0);
+        assertEquals(3.0, map.put(IntTuples.of(1, 2), 4.0), 0.0);
+        assertEquals(4.0, map.get(IntTuples.of(1, 2)), 0.0);
+        assertEquals(0.0, map.get(IntTuples.of(2, 1)), 0.0);
+        assertEquals(-1.0, map.getOrDefault(IntTuples.of(2, 1), -1.0), 0.0);
+        assertEquals(6.0, map.add(IntTuples.of(1, 2), 2.0), 0.0);
+        assertEquals(1, map.size());
+        assertTrue(map.remove(IntTuples.of(1, 2)));
+        assertFalse(map.remove(IntTuples.of(1, 2)));
+        assertTrue(map.isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidKeySize()
+    {
+        IntTupleDoubleMap map = new IntTupleDoubleMap(2);
+        map.put(IntTuples.of(1, 2, 3), 1.0);
+    }
+    
+    @Test
+    public void testPackedKeys()
+    {
+        checkAgainstHashMap(3, 1000, 20000);
+    }
+    
+    @Test
+    public void testUnpackableCoordinates()
+    {
+        checkAgainstHashMap(3, Integer.MAX_VALUE, 20000);
+    }
+    
+    @Test
+    public void testWideKeys()
+    {
+        checkAgainstHashMap(10, 5, 20000);
+    }
+    
+    @Test
+    public void testCursor()
+    {
+        IntTupleDoubleMap map = new IntTupleDoubleMap(2);
+        map.put(IntTuples.of(-1, 2), 1.0);
+        map.put(IntTuples.of(3, -4), 2.0);
+        
+        double sum = 0;
+        IntTupleDoubleMap.Cursor cursor = map.cursor();
+        while (cursor.next())
+        {
+            IntTuple key = cursor.key();
+            assertEquals(map.get(key), cursor.value(), 0.0);
+            sum += cursor.value();
+            cursor.setValue(cursor.value() * 10);
+        }
+        assertFalse(cursor.next());
+        assertEquals(3.0, sum, 0.0);
+        assertEquals(10.0, map.get(IntTuples.of(-1, 2)), 0.0);
+        assertEquals(20.0, map.get(IntTuples.of(3, -4)), 0.0);
+    }
+    
+    private static void checkAgainstHashMap(
+        int dimensions, int range, int operations)
+    {
+        Random random = new Random(0);
+        IntTupleDoubleMap map = new IntTupleDoubleMap(dimensions);
+        Map<IntTuple, Double> expected = new HashMap<IntTuple, Double>();
+        for (int i = 0; i < operations; i++)
+        {
+            MutableIntTuple key = IntTuples.create(dimensions);
+            for (int d = 0; d < dimensions; d++)
+            {
+                int c = random.nextInt(range);
+                key.set(d, random.nextBoolean() ? c : -c);
+            }
+            if (random.nextInt(4) == 0)
+            {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            }
+            else
+            {
+                double value = random.nextDouble();
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<IntTuple, Double> entry : expected.entrySet())
+        {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), map.get(entry.getKey()), 0.0);
+        }
+        Map<IntTuple, Double> actual = new HashMap<IntTuple, Double>();
+        map.forEach((k, v) -> actual.put(IntTuples.copy(k), v));
+        assertEquals(expected, actual);
+    }
+}
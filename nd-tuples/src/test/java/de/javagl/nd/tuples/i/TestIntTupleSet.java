@@ -0,0 +1,51 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ */ 
+package de.javagl.nd.tuples.i;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestIntTupleSet
+{
+    @Test
+    public void testAddContainsRemove()
+    {
+        IntTupleSet set = new IntTupleSet(2);
+        assertTrue(set.add(IntTuples.of(1, 2)));
+        assertFalse(set.add(IntTuples.of(1, 2)));
+        assertTrue(set.add(IntTuples.of(2, 1)));
+        assertTrue(set.contains(IntTuples.of(2, 1)));
+        assertFalse(set.contains(IntTuples.of(2, 2)));
+        assertTrue(set.remove(IntTuples.of(1, 2)));
+        assertFalse(set.contains(IntTuples.of(1, 2)));
+        assertEquals(1, set.size());
+    }
+    
+    @Test
+    public void testForEachAfterGrowing()
+    {
+        IntTupleSet set = new IntTupleSet(2);
+        Set<IntTuple> expected = new LinkedHashSet<IntTuple>();
+        for (int x = -20; x < 20; x++)
+        {
+            for (int y = -20; y < 20; y++)
+            {
+                set.add(IntTuples.of(x, y));
+                expected.add(IntTuples.of(x, y));
+            }
+        }
+        Set<IntTuple> actual = new LinkedHashSet<IntTuple>();
+        set.forEach(t -> actual.add(IntTuples.copy(t)));
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * www.javagl.de - ND - Multidimensional primitive data structures
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.nd.tuples.d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the Java 17 version of {@link DoubleTupleKernels}, which
+ * uses the Vector API. These tests are run by the failsafe plugin 
+ * against the multi-release JAR, with the jdk.incubator.vector module
+ * being added, and compare the results to scalar implementations.
+ */
+@SuppressWarnings("javadoc")
+public class ITDoubleTupleKernels
+{
+    private static final int MAX_LENGTH = 70;
+    private static final int MAX_OFFSET = 3;
+    private static final double EPSILON = 1e-12;
+    
+    @Test
+    public void testIsVectorized() throws Exception
+    {
+        Field field = DoubleTupleKernels.class.getDeclaredField("VECTORIZED");
+        field.setAccessible(true);
+        assertTrue("Vector API not used", field.getBoolean(null));
+    }
+    
+    @Test
+    public void testReductions()
+    {
+        Random random = new Random(0);
+        for (int n = 0; n <= MAX_LENGTH; n++)
+        {
+            for (int o = 0; o <= MAX_OFFSET; o++)
+            {
+                double a0[] = createRandomArray(random, n + MAX_OFFSET);
+                double a1[] = createRandomArray(random, n + MAX_OFFSET);
+                int o0 = o;
+                int o1 = MAX_OFFSET - o;
+                
+                double dot = 0;
+                double sad = 0;
+                double ssd = 0;
+                double mad = 0;
+                for (int i = 0; i < n; i++)
+                {
+                    double d = a0[o0 + i] - a1[o1 + i];
+                    dot += a0[o0 + i] * a1[o1 + i];
+                    sad += Math.abs(d);
+                    ssd += d * d;
+                    mad = Math.max(mad, Math.abs(d));
+                }
+                assertEquals(dot, 
+                    DoubleTupleKernels.dot(a0, o0, a1, o1, n), EPSILON);
+                assertEquals(sad, DoubleTupleKernels.sumOfAbsoluteDifferences(
+                    a0, o0, a1, o1, n), EPSILON);
+                assertEquals(ssd, DoubleTupleKernels.sumOfSquaredDifferences(
+                    a0, o0, a1, o1, n), EPSILON);
+                assertEquals(mad, DoubleTupleKernels.maxOfAbsoluteDifferences(
+                    a0, o0, a1, o1, n), 0.0);
+            }
+        }
+    }
+    
+    @Test
+    public void testElementWise()
+    {
+        Random random = new Random(0);
+        for (int n = 0; n <= MAX_LENGTH; n++)
+        {
+            for (int o = 0; o <= MAX_OFFSET; o++)
+            {
+                double a0[] = createRandomArray(random, n + MAX_OFFSET);
+                double a1[] = createRandomArray(random, n + MAX_OFFSET);
+                int o0 = o;
+                int o1 = MAX_OFFSET - o;
+                int or = (o + 1) % (MAX_OFFSET + 1);
+                
+                double expected[] = new double[n + MAX_OFFSET];
+                double actual[] = new double[n + MAX_OFFSET];
+                
+                for (int i = 0; i < n; i++)
+                {
+                    expected[or + i] = a0[o0 + i] + a1[o1 + i];
+                }
+                DoubleTupleKernels.add(a0, o0, a1, o1, actual, or, n);
+                assertArrayEquals(expected, actual, 0.0);
+                
+                for (int i = 0; i < n; i++)
+                {
+                    expected[or + i] = a0[o0 + i] - a1[o1 + i];
+                }
+                DoubleTupleKernels.subtract(a0, o0, a1, o1, actual, or, n);
+                assertArrayEquals(expected, actual, 0.0);
+                
+                for (int i = 0; i < n; i++)
+                {
+                    expected[or + i] = a0[o0 + i] * a1[o1 + i];
+                }
+                DoubleTupleKernels.multiply(a0, o0, a1, o1, actual, or, n);
+                assertArrayEquals(expected, actual, 0.0);
+                
+                for (int i = 0; i < n; i++)
+                {
+                    expected[or + i] = Math.min(a0[o0 + i], a1[o1 + i]);
+                }
+                DoubleTupleKernels.min(a0, o0, a1, o1, actual, or, n);
+                assertArrayEquals(expected, actual, 0.0);
+                
+                for (int i = 0; i < n; i++)
+                {
+                    expected[or + i] = Math.max(a0[o0 + i], a1[o1 + i]);
+                }
+                DoubleTupleKernels.max(a0, o0, a1, o1, actual, or, n);
+                assertArrayEquals(expected, actual, 0.0);
+            }
+        }
+    }
+    
+    @Test
+    public void testOverlappingRanges()
+    {
+        Random random = new Random(0);
+        for (int n = 0; n <= MAX_LENGTH; n++)
+        {
+            double a0[] = createRandomArray(random, n + 1);
+            double a1[] = createRandomArray(random, n + 1);
+            
+            // The result range starts inside the input range, so that
+            // the elements have to be processed sequentially
+            double expected[] = a0.clone();
+            for (int i = 0; i < n; i++)
+            {
+                expected[1 + i] = expected[i] + a1[i];
+            }
+            DoubleTupleKernels.add(a0, 0, a1, 0, a0, 1, n);
+            assertArrayEquals(expected, a0, 0.0);
+        }
+    }
+    
+    private static double[] createRandomArray(Random random, int length)
+    {
+        double array[] = new double[length];
+        for (int i = 0; i < length; i++)
+        {
+            array[i] = random.nextDouble() * 2.0 - 1.0;
+        }
+        return array;
+    }
+}